@@ -1,6 +1,7 @@
 package dev.arne.smartfiles.app;
 
 import dev.arne.smartfiles.core.ArchiveService;
+import dev.arne.smartfiles.core.SearchService;
 import dev.arne.smartfiles.core.SettingsService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -17,7 +18,7 @@ public class AppConfiguration {
         var model = new ApplicationModel();
         model.setLightModeActivated(settingsService.isLightThemeActive());
         model.setDocumentsFromArchiveEntries(archiveService.getAll());
-        model.setAllTags(archiveService.getAllUniqueTags());
+        model.setTagCounts(archiveService.getTagCounts());
         model.getArchiveDateCreatedProperty().set(archiveService.getArchiveDateCreated().format(DATE_FORMATTER));
         model.getArchiveDateLastModifiedProperty().set(archiveService.getArchiveDateLastModified().format(DATE_FORMATTER));
         return model;
@@ -32,9 +33,10 @@ public class AppConfiguration {
     public ApplicationViewBuilder applicationViewBuilder(
             ApplicationModel model,
             SettingsService settingsService,
-            ArchiveService archiveService
+            ArchiveService archiveService,
+            SearchService searchService
     ) {
-        return new ApplicationViewBuilder(model, settingsService, archiveService);
+        return new ApplicationViewBuilder(model, settingsService, archiveService, searchService);
     }
 
     @Bean
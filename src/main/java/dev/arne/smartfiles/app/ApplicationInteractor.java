@@ -30,8 +30,13 @@ public class ApplicationInteractor implements ApplicationListener<SmartFilesEven
             case ArchiveLastModifiedUpdatedEvent e -> handleArchiveLastModifiedUpdatedEvent(e);
             case DocumentDeletedEvent e -> handleDocumentDeletedEvent(e);
             case DocumentDescriptionUpdatedEvent e -> handleDocumentDescriptionUpdatedEvent(e);
+            case DocumentMetadataExtractedEvent e -> handleDocumentMetadataExtractedEvent(e);
             case LightThemeActivatedSettingChangedEvent e -> handleLightThemeActivatedSettingsChangedEvent(e);
             case DocumentTagAddedEvent e -> handleDocumentTagAddedEvent(e);
+            case DocumentTextExtractedEvent e -> handleDocumentTextExtractedEvent(e);
+            case DocumentsChangedEvent e -> handleDocumentsChangedEvent(e);
+            case IngestCompletedEvent e -> handleIngestCompletedEvent(e);
+            case IngestProgressEvent e -> handleIngestProgressEvent(e);
             case TagAddedEvent e -> handleTagAddedEvent(e);
         }
     }
@@ -45,24 +50,46 @@ public class ApplicationInteractor implements ApplicationListener<SmartFilesEven
     }
 
     private void handleAllTagsUpdatedEvent(AllTagsUpdatedEvent e) {
-        scheduler.runLater(() -> model.setAllTags(e.getAllTags()));
+        scheduler.runLater(() -> model.setTagCounts(e.getTagCounts()));
     }
 
     private void handleTagAddedEvent(TagAddedEvent e) {
     }
 
     private void handleDocumentTagAddedEvent(DocumentTagAddedEvent e) {
-        scheduler.runLater(() -> model.updateDocumentTags());
+    }
+
+    private void handleDocumentTextExtractedEvent(DocumentTextExtractedEvent e) {
     }
 
     private void handleDocumentDescriptionUpdatedEvent(DocumentDescriptionUpdatedEvent e) {
-        scheduler.runLater(() -> model.updateDescription(e.getDescription()));
+    }
+
+    private void handleDocumentMetadataExtractedEvent(DocumentMetadataExtractedEvent e) {
+    }
+
+    /**
+     * Tags, descriptions and metadata all arrive as new entries, batch deletes as ids.
+     */
+    private void handleDocumentsChangedEvent(DocumentsChangedEvent e) {
+        scheduler.runLater(() -> {
+            model.replaceDocuments(e.getEntries());
+            model.removeDocuments(e.getDeletedDocumentIds());
+        });
     }
 
     private void handleLightThemeActivatedSettingsChangedEvent(LightThemeActivatedSettingChangedEvent e) {
         scheduler.runLater(() -> model.setLightModeActivated(e.isLightThemeActive()));
     }
 
+    private void handleIngestProgressEvent(IngestProgressEvent e) {
+        scheduler.runLater(() -> model.updateIngestProgress(e.getCompleted(), e.getTotal()));
+    }
+
+    private void handleIngestCompletedEvent(IngestCompletedEvent e) {
+        scheduler.runLater(() -> model.completeIngest(e.getResult()));
+    }
+
     private void handleArchiveEntryAddedEvent(ArchiveEntryAddedEvent e) {
         scheduler.runLater(() -> model.addDocumentFromArchiveEntry(e.getArchiveEntry()));
     }
@@ -1,20 +1,33 @@
 package dev.arne.smartfiles.app;
 
 import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.IngestResult;
 import dev.arne.smartfiles.core.model.Tag;
+import dev.arne.smartfiles.core.search.Query;
+import dev.arne.smartfiles.core.search.QueryPlan;
+import dev.arne.smartfiles.core.search.TagIndex;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.ObservableMap;
 import javafx.collections.ObservableSet;
 import javafx.collections.SetChangeListener;
 import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Getter
 @Setter
@@ -27,39 +40,162 @@ public class ApplicationModel {
     private final StringProperty documentDateLastModifiedProperty = new SimpleStringProperty("");
     private final BooleanProperty lightModeActivated = new SimpleBooleanProperty(false);
     private final ObservableList<ArchiveEntry> documentsList = FXCollections.observableArrayList();
-    private final FilteredList<ArchiveEntry> filteredDocuments = new FilteredList<>(documentsList, _ -> true);
+    private final FilteredList<ArchiveEntry> filteredDocuments;
+    private final SortedList<ArchiveEntry> rankedDocuments;
+    private final TagIndex tagIndex = new TagIndex();
     private final SimpleListProperty<Tag> tagsProperty =
             new SimpleListProperty<>(FXCollections.observableArrayList());
 
     private final StringProperty searchTextProperty = new SimpleStringProperty("");
+    private final BooleanProperty fuzzySearchActivated = new SimpleBooleanProperty(false);
     private final StringProperty descriptionProperty = new SimpleStringProperty("");
     private final ObjectProperty<ArchiveEntry> selectedDocumentProperty = new SimpleObjectProperty<>();
 
+    /**
+     * All documents selected in the list, which batch changes apply to.
+     */
+    private final ObservableList<UUID> selectedDocumentIds = FXCollections.observableArrayList();
+
     private final SimpleListProperty<Tag> allTagsProperty =
             new SimpleListProperty<>(FXCollections.observableArrayList());
+    private final ObservableMap<Tag, Integer> tagCounts = FXCollections.observableHashMap();
     private final ObservableSet<Tag> selectedFilterTags = FXCollections.observableSet();
+    private final ObjectProperty<TagFilterMode> tagFilterModeProperty = new SimpleObjectProperty<>(TagFilterMode.ANY);
 
     private final StringProperty archiveDateCreatedProperty = new SimpleStringProperty("");
     private final StringProperty archiveDateLastModifiedProperty = new SimpleStringProperty("");
+    private final StringProperty ingestStatusProperty = new SimpleStringProperty("");
+
+    /**
+     * Ranked document ids for a search text. Without it, documents are matched by name.
+     */
+    private Function<String, List<UUID>> search;
+
+    /**
+     * Ranked document ids for a search text with typos, used while fuzzy search is activated.
+     */
+    private Function<String, List<UUID>> fuzzySearch;
+
+    /**
+     * Whether the current filter holds tag index ordinals, which go stale when documents change.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean filterUsesIndex;
+
+    /**
+     * Whether the documents changed since the filter was compiled and a recompile is scheduled.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean filterStale;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean replacingDocuments;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final FxScheduler scheduler;
 
     public ApplicationModel() {
+        this(FxScheduler.platform());
+    }
+
+    public ApplicationModel(FxScheduler scheduler) {
+        this.scheduler = scheduler;
+        // Registered before the filtered list, so added documents are indexed when the filter sees them
+        documentsList.addListener(this::indexTags);
+        filteredDocuments = new FilteredList<>(documentsList, _ -> true);
+        rankedDocuments = new SortedList<>(filteredDocuments);
+        // Registered after the filtered list, which has to take the change before the filter is replaced.
+        // Changes arriving one by one, such as during an ingest, are compiled into the filter once.
+        documentsList.addListener((ListChangeListener<ArchiveEntry>) _ -> {
+            if (filterUsesIndex && !replacingDocuments && !filterStale) {
+                filterStale = true;
+                scheduler.runLater(this::updateStaleFilterPredicate);
+            }
+        });
         searchTextProperty.addListener((_, _, _) -> updateFilterPredicate());
+        fuzzySearchActivated.addListener((_, _, _) -> updateFilterPredicate());
         selectedFilterTags.addListener((SetChangeListener<Tag>) _ -> updateFilterPredicate());
+        tagFilterModeProperty.addListener((_, _, _) -> updateFilterPredicate());
+    }
+
+    /**
+     * Entries left in place by a replacement, such as the unchanged ones of {@link #replaceDocuments},
+     * keep their indexed tags.
+     */
+    private void indexTags(ListChangeListener.Change<? extends ArchiveEntry> change) {
+        while (change.next()) {
+            var removed = change.getRemoved();
+            var added = change.getAddedSubList();
+            for (int i = 0; i < removed.size(); i++) {
+                if (i >= added.size() || removed.get(i) != added.get(i)) {
+                    tagIndex.remove(removed.get(i).getId());
+                }
+            }
+            for (int i = 0; i < added.size(); i++) {
+                if (i >= removed.size() || removed.get(i) != added.get(i)) {
+                    tagIndex.put(added.get(i).getId(), added.get(i).getTags());
+                }
+            }
+        }
+    }
+
+    private void updateStaleFilterPredicate() {
+        if (filterStale) {
+            updateFilterPredicate();
+        }
     }
 
     private void updateFilterPredicate() {
+        filterStale = false;
         String searchText = searchTextProperty.get();
-        boolean hasSearchText = searchText != null && !searchText.isBlank();
-        String lowerCaseSearch = hasSearchText ? searchText.toLowerCase() : "";
-        boolean hasSelectedTags = !selectedFilterTags.isEmpty();
-
-        filteredDocuments.setPredicate(entry -> {
-            boolean matchesSearch = !hasSearchText ||
-                    entry.getName().toLowerCase().contains(lowerCaseSearch);
-            boolean matchesTags = !hasSelectedTags ||
-                    entry.getTags().stream().anyMatch(selectedFilterTags::contains);
-            return matchesSearch && matchesTags;
-        });
+        var query = Query.parse(searchText == null ? "" : searchText);
+        var activeSearch = fuzzySearchActivated.get() && fuzzySearch != null ? fuzzySearch : search;
+        var plan = QueryPlan.compile(query, tagIndex, activeSearch, this::tagOf);
+        if (!selectedFilterTags.isEmpty()) {
+            plan = plan.restrictTo(tagFilterModeProperty.get() == TagFilterMode.ALL
+                    ? tagIndex.matchingAll(selectedFilterTags)
+                    : tagIndex.matchingAny(selectedFilterTags));
+        }
+
+        filterUsesIndex = plan.usesIndex();
+        filteredDocuments.setPredicate(plan);
+        Map<UUID, Integer> ranks = plan.ranks();
+        rankedDocuments.setComparator(ranks == null ? null
+                : Comparator.<ArchiveEntry>comparingInt(entry -> ranks.getOrDefault(entry.getId(), Integer.MAX_VALUE)));
+    }
+
+    /**
+     * Tags in a query are matched ignoring case.
+     */
+    private Tag tagOf(String label) {
+        for (var tag : allTagsProperty) {
+            if (tag.label().equalsIgnoreCase(label)) {
+                return tag;
+            }
+        }
+        return new Tag(label);
+    }
+
+    public void setSearch(Function<String, List<UUID>> search) {
+        this.search = search;
+        updateFilterPredicate();
+    }
+
+    public void setFuzzySearch(Function<String, List<UUID>> fuzzySearch) {
+        this.fuzzySearch = fuzzySearch;
+        updateFilterPredicate();
+    }
+
+    public boolean isFuzzySearchActivated() {
+        return fuzzySearchActivated.get();
+    }
+
+    public void setFuzzySearchActivated(boolean fuzzySearchActivated) {
+        this.fuzzySearchActivated.set(fuzzySearchActivated);
     }
 
     public void toggleFilterTag(Tag tag) {
@@ -74,6 +210,15 @@ public class ApplicationModel {
         return selectedFilterTags.contains(tag);
     }
 
+    /**
+     * Sets the tags with their document counts; the counts are in place before the tags are shown.
+     */
+    public void setTagCounts(Map<Tag, Integer> counts) {
+        tagCounts.clear();
+        tagCounts.putAll(counts);
+        setAllTags(counts.keySet());
+    }
+
     public void setAllTags(Set<Tag> tags) {
         allTagsProperty.clear();
         allTagsProperty.addAll(tags);
@@ -96,13 +241,45 @@ public class ApplicationModel {
         refreshDocumentDateLastModified();
     }
 
-    public void updateDescription(String description) {
-        descriptionProperty.setValue(description);
+    /**
+     * Swaps in the new entries of changed documents, which also re-indexes their tags, and shows
+     * the new state of the selected document. The list changes once and the filter is compiled
+     * again once for all of them.
+     */
+    public void replaceDocuments(List<ArchiveEntry> entries) {
+        var replacements = entries.stream().collect(Collectors.toMap(ArchiveEntry::getId, entry -> entry, (_, last) -> last));
+        var updated = new ArrayList<ArchiveEntry>(documentsList.size());
+        var replaced = false;
+        for (var document : documentsList) {
+            var replacement = replacements.get(document.getId());
+            if (replacement == null) {
+                updated.add(document);
+                continue;
+            }
+            if (replacement == document) {
+                // Changed in place, the list change would leave its tags as they were indexed
+                tagIndex.put(document.getId(), document.getTags());
+            }
+            updated.add(replacement);
+            replaced = true;
+        }
+        if (replaced) {
+            replacingDocuments = true;
+            try {
+                documentsList.setAll(updated);
+            } finally {
+                replacingDocuments = false;
+            }
+        }
         var selectedDocument = selectedDocumentProperty.get();
-        if (selectedDocument != null) {
-            selectedDocument.setSummary(description);
-            refreshDocumentInList(selectedDocument);
-            refreshDocumentDateLastModified();
+        if (selectedDocument != null && replacements.containsKey(selectedDocument.getId())) {
+            var replacement = replacements.get(selectedDocument.getId());
+            selectedDocumentProperty.setValue(replacement);
+            descriptionProperty.setValue(replacement.getSummary());
+            updateDocumentTags();
+        }
+        if (filterUsesIndex) {
+            updateFilterPredicate();
         }
     }
 
@@ -113,13 +290,6 @@ public class ApplicationModel {
         }
     }
 
-    private void refreshDocumentInList(ArchiveEntry entry) {
-        int index = documentsList.indexOf(entry);
-        if (index >= 0) {
-            documentsList.set(index, entry);
-        }
-    }
-
     public UUID getSelectedDocumentId() {
         return selectedDocumentProperty.get().getId();
     }
@@ -141,9 +311,29 @@ public class ApplicationModel {
         documentsList.add(archiveEntry);
     }
 
+    public void updateIngestProgress(int completed, int total) {
+        ingestStatusProperty.setValue("Adding documents: %d of %d".formatted(completed, total));
+    }
+
+    public void completeIngest(IngestResult result) {
+        if (result.failures().isEmpty()) {
+            ingestStatusProperty.setValue("Added %d documents".formatted(result.added().size()));
+        } else {
+            ingestStatusProperty.setValue("Added %d documents, %d failed".formatted(result.added().size(), result.failures().size()));
+        }
+    }
+
     public void removeDocument(UUID documentId) {
-        documentsList.removeIf(entry -> entry.getId().equals(documentId));
-        if (selectedDocumentProperty.get() != null && selectedDocumentProperty.get().getId().equals(documentId)) {
+        removeDocuments(Set.of(documentId));
+    }
+
+    public void removeDocuments(Set<UUID> documentIds) {
+        if (documentIds.isEmpty()) {
+            return;
+        }
+        documentsList.removeIf(entry -> documentIds.contains(entry.getId()));
+        selectedDocumentIds.removeAll(documentIds);
+        if (selectedDocumentProperty.get() != null && documentIds.contains(selectedDocumentProperty.get().getId())) {
             clearSelectedDocument();
         }
     }
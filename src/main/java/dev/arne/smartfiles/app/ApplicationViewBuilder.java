@@ -7,8 +7,10 @@ import dev.arne.smartfiles.app.components.DocumentView;
 import dev.arne.smartfiles.app.components.TagFilterView;
 import dev.arne.smartfiles.app.components.WrappingListView;
 import dev.arne.smartfiles.core.ArchiveService;
+import dev.arne.smartfiles.core.SearchService;
 import dev.arne.smartfiles.core.SettingsService;
 import dev.arne.smartfiles.core.model.ArchiveEntry;
+import javafx.collections.ListChangeListener;
 import javafx.geometry.Insets;
 import javafx.geometry.Orientation;
 import javafx.geometry.Pos;
@@ -29,6 +31,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
@@ -45,16 +49,19 @@ public class ApplicationViewBuilder implements Builder<Region> {
     private final ApplicationModel model;
     private final SettingsService settingsService;
     private final ArchiveService archiveService;
+    private final SearchService searchService;
 
     private TextField newTagTextField;
     private TextField descriptionField;
     private Dialog<String> dialog;
     private DocumentView documentView;
 
-    public ApplicationViewBuilder(ApplicationModel model, SettingsService settingsService, ArchiveService archiveService) {
+    public ApplicationViewBuilder(ApplicationModel model, SettingsService settingsService, ArchiveService archiveService,
+                                  SearchService searchService) {
         this.model = model;
         this.settingsService = settingsService;
         this.archiveService = archiveService;
+        this.searchService = searchService;
     }
 
     @Override
@@ -87,7 +94,11 @@ public class ApplicationViewBuilder implements Builder<Region> {
         modifiedLabel.textProperty().bind(model.getArchiveDateLastModifiedProperty().map(date -> "Last modified: " + date));
         modifiedLabel.getStyleClass().add("sf-footer-label");
 
-        footer.getChildren().addAll(createdLabel, modifiedLabel);
+        var ingestLabel = new Label();
+        ingestLabel.textProperty().bind(model.getIngestStatusProperty());
+        ingestLabel.getStyleClass().add("sf-footer-label");
+
+        footer.getChildren().addAll(createdLabel, modifiedLabel, ingestLabel);
         return footer;
     }
 
@@ -133,9 +144,13 @@ public class ApplicationViewBuilder implements Builder<Region> {
         alwaysVGrow(documentList);
         documentList.getStyleClass().add("sf-document-list");
         documentList.setCellFactory(_ -> DocumentListCell.createDocumentListCell());
+        documentList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
         documentList.selectionModelProperty().get().selectedItemProperty()
                 .addListener((_, _, newValue) -> selectDocumentFromListItem(newValue));
-        documentList.setItems(model.getFilteredDocuments());
+        documentList.getSelectionModel().getSelectedItems().addListener((ListChangeListener<ArchiveEntry>) change ->
+                model.getSelectedDocumentIds().setAll(change.getList().stream().map(ArchiveEntry::getId).toList()));
+        documentList.setContextMenu(createDocumentListContextMenu());
+        documentList.setItems(model.getRankedDocuments());
 
         vBox.getChildren().add(createAreaLabel("Documents"));
         vBox.getChildren().add(documentList);
@@ -158,6 +173,33 @@ public class ApplicationViewBuilder implements Builder<Region> {
         return vBox;
     }
 
+    /**
+     * Batch changes for all selected documents.
+     */
+    private ContextMenu createDocumentListContextMenu() {
+        var addTags = new MenuItem("Add tags...", new FontIcon("ci-tag"));
+        addTags.setOnAction(_ -> askForTags("Add tags").ifPresent(tags ->
+                archiveService.addTags(List.copyOf(model.getSelectedDocumentIds()), tags)));
+        var removeTags = new MenuItem("Remove tags...");
+        removeTags.setOnAction(_ -> askForTags("Remove tags").ifPresent(tags ->
+                archiveService.removeTags(List.copyOf(model.getSelectedDocumentIds()), tags)));
+        var delete = new MenuItem("Delete", new FontIcon("ci-trash-can"));
+        delete.setOnAction(_ -> showDeleteConfirmation(List.copyOf(model.getSelectedDocumentIds())));
+        var contextMenu = new ContextMenu(addTags, removeTags, new SeparatorMenuItem(), delete);
+        contextMenu.setOnShowing(_ -> contextMenu.getItems().forEach(item -> item.setDisable(model.getSelectedDocumentIds().isEmpty())));
+        return contextMenu;
+    }
+
+    private Optional<List<String>> askForTags(String title) {
+        var tagDialog = new TextInputDialog();
+        tagDialog.setTitle(title);
+        tagDialog.setHeaderText("%s for %d documents".formatted(title, model.getSelectedDocumentIds().size()));
+        tagDialog.setContentText("Tags, separated by commas:");
+        return tagDialog.showAndWait()
+                .map(text -> Arrays.stream(text.split(",")).map(String::strip).filter(tag -> !tag.isEmpty()).toList())
+                .filter(tags -> !tags.isEmpty());
+    }
+
     private void selectDocumentFromListItem(ArchiveEntry selectedItem) {
 
         if (selectedItem == null) {
@@ -165,7 +207,7 @@ public class ApplicationViewBuilder implements Builder<Region> {
         } else {
             model.setSelectedDocument(selectedItem);
             var file = archiveService.getFile(selectedItem.getId());
-            documentView.viewFile(file);
+            documentView.viewFile(file, selectedItem.getMetadata());
         }
     }
 
@@ -174,6 +216,28 @@ public class ApplicationViewBuilder implements Builder<Region> {
         documentView.clear();
     }
 
+    private void showDeleteConfirmation(List<UUID> documentIds) {
+        if (documentIds.size() == 1) {
+            showDeleteConfirmation(documentIds.getFirst());
+            return;
+        }
+        if (documentIds.isEmpty()) {
+            return;
+        }
+
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Delete Documents");
+        alert.setHeaderText("Delete %d documents?".formatted(documentIds.size()));
+        alert.setContentText("This action cannot be undone. The documents will be permanently removed from the archive.");
+
+        alert.initModality(Modality.APPLICATION_MODAL);
+
+        Optional<ButtonType> result = alert.showAndWait();
+        if (result.isPresent() && result.get() == ButtonType.OK) {
+            archiveService.bulkDelete(documentIds);
+        }
+    }
+
     private void showDeleteConfirmation(UUID documentId) {
         var entry = archiveService.retrieveFileDetails(documentId);
         if (entry == null) {
@@ -231,14 +295,24 @@ public class ApplicationViewBuilder implements Builder<Region> {
         vBox.setOnMousePressed(_ -> vBox.requestFocus());
 
         TextField searchTextField = new TextField();
-        searchTextField.setPromptText("Search");
+        searchTextField.setPromptText("Search, e.g. tag:invoice -tag:paid created:>2024-03-01");
         searchTextField.textProperty().bindBidirectional(model.getSearchTextProperty());
+        model.setSearch(searchService::search);
+        model.setFuzzySearch(searchService::searchFuzzy);
+        var fuzzySearchCheckBox = new CheckBox("Tolerate typos in names and tags");
+        fuzzySearchCheckBox.selectedProperty().bindBidirectional(model.getFuzzySearchActivated());
         vBox.getChildren().add(createAreaLabel("Find document"));
         vBox.getChildren().add(searchTextField);
+        vBox.getChildren().add(fuzzySearchCheckBox);
 
         vBox.getChildren().add(createAreaLabel("Filter by tags"));
+        var tagFilterModeChoice = new ChoiceBox<TagFilterMode>();
+        tagFilterModeChoice.getItems().setAll(TagFilterMode.values());
+        tagFilterModeChoice.valueProperty().bindBidirectional(model.getTagFilterModeProperty());
+        vBox.getChildren().add(tagFilterModeChoice);
         var tagFilterView = new TagFilterView(
                 model.getAllTagsProperty(),
+                model.getTagCounts(),
                 model.getSelectedFilterTags(),
                 model::toggleFilterTag
         );
@@ -293,7 +367,11 @@ public class ApplicationViewBuilder implements Builder<Region> {
         newTagTextField.setPromptText("Add tag");
         newTagTextField.setOnAction(_ -> {
             logger.info("Adding tag: {}", newTagTextField.getText());
-            archiveService.addTag(model.getSelectedDocumentId(), newTagTextField.getText());
+            if (model.getSelectedDocumentIds().size() > 1) {
+                archiveService.addTags(List.copyOf(model.getSelectedDocumentIds()), List.of(newTagTextField.getText()));
+            } else {
+                archiveService.addTag(model.getSelectedDocumentId(), newTagTextField.getText());
+            }
             newTagTextField.clear();
         });
         vBox.getChildren().add(newTagTextField);
@@ -308,7 +386,7 @@ public class ApplicationViewBuilder implements Builder<Region> {
         var deleteButton = new Button("Delete Document", new FontIcon("ci-trash-can"));
         deleteButton.getStyleClass().add("sf-delete-button");
         deleteButton.setMaxWidth(Double.MAX_VALUE);
-        deleteButton.setOnAction(_ -> showDeleteConfirmation(model.getSelectedDocumentId()));
+        deleteButton.setOnAction(_ -> showDeleteConfirmation(List.copyOf(model.getSelectedDocumentIds())));
         vBox.getChildren().add(deleteButton);
 
         return vBox;
@@ -416,7 +494,7 @@ public class ApplicationViewBuilder implements Builder<Region> {
         Dragboard db = event.getDragboard();
         boolean success = false;
         if (db.hasFiles()) {
-            archiveService.manageFiles(db.getFiles());
+            archiveService.ingestFiles(db.getFiles());
             success = true;
         }
         event.setDropCompleted(success);
@@ -0,0 +1,21 @@
+package dev.arne.smartfiles.app;
+
+/**
+ * Whether the document list shows documents with any or with all of the selected filter tags.
+ */
+public enum TagFilterMode {
+
+    ANY("Any selected tag"),
+    ALL("All selected tags");
+
+    private final String label;
+
+    TagFilterMode(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -32,11 +32,20 @@ public class DocumentListCell extends ListCell<ArchiveEntry> {
             setGraphic(null);
         } else {
             title.setText(item.getName());
-            detail.setText(item.getSummary());
+            detail.setText(detailOf(item));
             setGraphic(layout);
         }
     }
 
+    private static String detailOf(ArchiveEntry item) {
+        var pages = item.pageCount();
+        if (pages == 0) {
+            return item.getSummary();
+        }
+        var count = pages == 1 ? "1 page" : pages + " pages";
+        return item.getSummary() == null ? count : item.getSummary() + " · " + count;
+    }
+
     public static DocumentListCell createDocumentListCell() {
         return new DocumentListCell();
     }
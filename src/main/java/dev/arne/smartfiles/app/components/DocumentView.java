@@ -1,10 +1,12 @@
 package dev.arne.smartfiles.app.components;
 
 import dev.arne.smartfiles.app.pdf.PdfImageRenderer;
+import dev.arne.smartfiles.core.model.DocumentMetadata;
 import javafx.concurrent.Task;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import org.slf4j.Logger;
 
@@ -57,7 +59,11 @@ public class DocumentView extends ScrollPane {
         }
     }
 
-    public void viewFile(File file) {
+    /**
+     * Shows the pages of a PDF. With extracted metadata the placeholders already have the page
+     * count and proportions of the document, so the layout does not shift while pages render.
+     */
+    public void viewFile(File file, DocumentMetadata metadata) {
 
         if (!file.isFile() || !file.getName().contains(".pdf")) return;
 
@@ -97,9 +103,10 @@ public class DocumentView extends ScrollPane {
         }
 
         content.getChildren().clear();
-        var number = currentRenderer.getNumberOfPages();
+        var known = metadata != null && metadata.pageCount() > 0;
+        var number = known ? metadata.pageCount() : currentRenderer.getNumberOfPages();
         for (int i = 0; i < number; i++) {
-            ImageView imageView = createPlaceholder();
+            ImageView imageView = createPlaceholder(known && i < metadata.pageSizes().size() ? metadata.pageSizes().get(i) : null);
             currentImageViews.put(i, imageView);
 
             // Create and submit the rendering task
@@ -110,12 +117,17 @@ public class DocumentView extends ScrollPane {
 
     }
 
-    private ImageView createPlaceholder() {
+    private ImageView createPlaceholder(DocumentMetadata.PageSize pageSize) {
         var imageView = new ImageView();
         imageView.setPreserveRatio(true);
         // Bind fitWidth to the VBox width for responsive resizing
         imageView.fitWidthProperty().bind(content.widthProperty());
-        content.getChildren().add(imageView);
+        var frame = new StackPane(imageView);
+        if (pageSize != null && pageSize.width() > 0) {
+            // Reserve the page height before it is rendered
+            frame.minHeightProperty().bind(content.widthProperty().multiply(pageSize.height() / pageSize.width()));
+        }
+        content.getChildren().add(frame);
         return imageView;
     }
 
@@ -10,6 +10,7 @@ import javafx.scene.control.ToggleButton;
 import javafx.scene.layout.FlowPane;
 import javafx.scene.layout.Region;
 
+import java.text.NumberFormat;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,18 +18,23 @@ import java.util.function.Consumer;
 
 public class TagFilterView extends FlowPane {
 
+    private static final NumberFormat COUNT_FORMAT = NumberFormat.getIntegerInstance();
+
     private final ListProperty<Tag> allTags;
+    private final Map<Tag, Integer> tagCounts;
     private final ObservableSet<Tag> selectedTags;
     private final Consumer<Tag> onTagToggle;
     private final Map<Tag, ToggleButton> tagButtons = new HashMap<>();
 
-    public TagFilterView(ListProperty<Tag> allTags, ObservableSet<Tag> selectedTags, Consumer<Tag> onTagToggle) {
+    public TagFilterView(ListProperty<Tag> allTags, Map<Tag, Integer> tagCounts, ObservableSet<Tag> selectedTags,
+                         Consumer<Tag> onTagToggle) {
         setPadding(new Insets(5));
         setHgap(6);
         setVgap(6);
         setPrefWrapLength(Region.USE_COMPUTED_SIZE);
 
         this.allTags = allTags;
+        this.tagCounts = tagCounts;
         this.selectedTags = selectedTags;
         this.onTagToggle = onTagToggle;
 
@@ -52,7 +58,7 @@ public class TagFilterView extends FlowPane {
     }
 
     private void renderTag(Tag tag) {
-        ToggleButton button = new ToggleButton(tag.label());
+        ToggleButton button = new ToggleButton(labelOf(tag));
         button.setSelected(selectedTags.contains(tag));
         button.getStyleClass().add("sf-tag-filter-button");
         button.setOnAction(_ -> onTagToggle.accept(tag));
@@ -60,6 +66,11 @@ public class TagFilterView extends FlowPane {
         getChildren().add(button);
     }
 
+    private String labelOf(Tag tag) {
+        var count = tagCounts.get(tag);
+        return count == null ? tag.label() : tag.label() + " (" + COUNT_FORMAT.format(count) + ")";
+    }
+
     private void updateButtonState(Tag tag, boolean selected) {
         ToggleButton button = tagButtons.get(tag);
         if (button != null) {
@@ -1,18 +1,39 @@
 package dev.arne.smartfiles.core;
 
 import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.ArchiveVersion;
+import dev.arne.smartfiles.core.model.IngestResult;
 import dev.arne.smartfiles.core.model.Tag;
 
 import java.io.File;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public interface ArchiveService {
 
+    /**
+     * Like {@link #ingestFiles}, but blocks until the batch is done. Background threads must not
+     * call it, as they would hold up the thread until every file is stored.
+     */
     List<ArchiveEntry> manageFiles(List<File> files);
 
+    /**
+     * Stores the files concurrently and adds them to the archive in one batch. Progress is
+     * published per file; files that fail are reported in the result instead of aborting the batch.
+     */
+    CompletableFuture<IngestResult> ingestFiles(List<File> files);
+
+    /**
+     * The archive as of the last committed change, read without locking. Entries are never changed
+     * once handed out; a change replaces them and publishes a new version.
+     */
+    ArchiveVersion getCurrentVersion();
+
     List<ArchiveEntry> getAll();
 
     ArchiveEntry retrieveFileDetails(UUID id);
@@ -23,8 +44,29 @@ public interface ArchiveService {
 
     void updateDescription(UUID documentId, String description);
 
+    /**
+     * Adds the tags to every document as one change: one journal record and one
+     * {@code DocumentsChangedEvent}, however many documents it touches. The batch changes below
+     * commit the same way.
+     */
+    void addTags(Collection<UUID> documentIds, Collection<String> tags);
+
+    void removeTags(Collection<UUID> documentIds, Collection<String> tags);
+
+    /**
+     * Renames the tag on every document carrying it, merging it into the new name if that is in use.
+     */
+    void renameTag(String tag, String newName);
+
+    void bulkDelete(Collection<UUID> documentIds);
+
     Set<Tag> getAllUniqueTags();
 
+    /**
+     * @return every tag in use with the number of documents carrying it
+     */
+    Map<Tag, Integer> getTagCounts();
+
     void deleteDocument(UUID documentId);
 
     LocalDateTime getArchiveDateCreated();
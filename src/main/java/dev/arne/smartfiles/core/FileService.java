@@ -2,6 +2,19 @@ package dev.arne.smartfiles.core;
 
 import dev.arne.smartfiles.core.model.ApplicationSettings;
 import dev.arne.smartfiles.core.model.Archive;
+import dev.arne.smartfiles.core.model.ArchiveMutation;
+import dev.arne.smartfiles.core.model.InboxCheckpoint;
+import dev.arne.smartfiles.core.store.ArchiveLoadListener;
+import dev.arne.smartfiles.core.store.BlobStore;
+import dev.arne.smartfiles.core.store.IngestQueue;
+import dev.arne.smartfiles.core.store.TextStore;
+import dev.arne.smartfiles.core.store.ArchiveStoreMetrics;
+import dev.arne.smartfiles.core.store.TransferStatistics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
 
 public interface FileService {
 
@@ -11,7 +24,31 @@ public interface FileService {
 
     void saveApplicationSettings(ApplicationSettings settings);
 
-    Archive loadArchive();
+    Optional<InboxCheckpoint> loadInboxCheckpoint();
+
+    void saveInboxCheckpoint(InboxCheckpoint checkpoint);
+
+    default Archive loadArchive() {
+        return loadArchive(ArchiveLoadListener.NONE);
+    }
+
+    Archive loadArchive(ArchiveLoadListener listener);
 
     void saveArchive(Archive archive);
+
+    void compactArchive(Archive archive);
+
+    void appendToArchiveJournal(List<ArchiveMutation> mutations);
+
+    void flushArchiveJournal();
+
+    ArchiveStoreMetrics getArchiveStoreMetrics();
+
+    BlobStore.StoredBlob storeBlob(Path source) throws IOException;
+
+    List<TransferStatistics> getTransferStatistics();
+
+    IngestQueue getIngestQueue();
+
+    TextStore getTextStore();
 }
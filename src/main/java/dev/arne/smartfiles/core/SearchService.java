@@ -0,0 +1,21 @@
+package dev.arne.smartfiles.core;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface SearchService {
+
+    /**
+     * Finds documents by name, description and extracted text.
+     *
+     * @return ids of the matching documents, best match first
+     */
+    List<UUID> search(String query);
+
+    /**
+     * Finds documents by name and tags, tolerating typos.
+     *
+     * @return ids of the matching documents, fewest typos first
+     */
+    List<UUID> searchFuzzy(String query);
+}
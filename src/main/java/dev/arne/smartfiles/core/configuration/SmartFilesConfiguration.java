@@ -6,6 +6,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
 import java.nio.file.FileSystems;
+import java.time.Duration;
 
 @Setter
 @Getter
@@ -15,6 +16,20 @@ public class SmartFilesConfiguration {
 
     private String rootDirectory = System.getProperty("user.home") + FileSystems.getDefault().getSeparator() +".smartfiles";
     private String tenantId = "root";
+    private Duration compactionInterval = Duration.ofMinutes(5);
+    private int snapshotGenerations = 3;
+    private Duration writeBehindDelay = Duration.ofMillis(500);
+    private boolean hardLinkIngest = false;
+    private int ingestThreads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private int ingestChunkSize = 256;
+    private boolean inboxWatchEnabled = false;
+    private Duration inboxQuietPeriod = Duration.ofSeconds(2);
+    private int inboxBatchSize = 50;
+    private boolean metadataExtractionEnabled = true;
+    private int metadataBatchSize = 64;
+    private boolean textExtractionEnabled = true;
+    private int textExtractionThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private boolean columnarEntryStore = false;
 
     public String getTenantDirectory() {
         return rootDirectory + FileSystems.getDefault().getSeparator() + tenantId;
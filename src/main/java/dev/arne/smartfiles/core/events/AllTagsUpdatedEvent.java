@@ -2,16 +2,24 @@ package dev.arne.smartfiles.core.events;
 
 import dev.arne.smartfiles.core.model.Tag;
 
+import java.util.Map;
 import java.util.Set;
 
 public final class AllTagsUpdatedEvent extends SmartFilesEvent {
 
-    public AllTagsUpdatedEvent(Set<Tag> allTags) {
-        super(allTags);
+    /**
+     * @param tagCounts every tag in use with the number of documents carrying it
+     */
+    public AllTagsUpdatedEvent(Map<Tag, Integer> tagCounts) {
+        super(tagCounts);
     }
 
     @SuppressWarnings("unchecked")
+    public Map<Tag, Integer> getTagCounts() {
+        return (Map<Tag, Integer>) getSource();
+    }
+
     public Set<Tag> getAllTags() {
-        return (Set<Tag>) getSource();
+        return getTagCounts().keySet();
     }
 }
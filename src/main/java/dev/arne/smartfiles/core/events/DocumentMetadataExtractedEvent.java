@@ -0,0 +1,18 @@
+package dev.arne.smartfiles.core.events;
+
+import dev.arne.smartfiles.core.model.DocumentMetadata;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.UUID;
+
+@Getter
+public final class DocumentMetadataExtractedEvent extends SmartFilesEvent {
+
+    private final Map<UUID, DocumentMetadata> metadataByDocument;
+
+    public DocumentMetadataExtractedEvent(Map<UUID, DocumentMetadata> metadataByDocument) {
+        super(metadataByDocument);
+        this.metadataByDocument = metadataByDocument;
+    }
+}
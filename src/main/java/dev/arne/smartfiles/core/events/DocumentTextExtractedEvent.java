@@ -0,0 +1,16 @@
+package dev.arne.smartfiles.core.events;
+
+import lombok.Getter;
+
+import java.util.UUID;
+
+@Getter
+public final class DocumentTextExtractedEvent extends SmartFilesEvent {
+
+    private final UUID documentId;
+
+    public DocumentTextExtractedEvent(UUID documentId) {
+        super(documentId);
+        this.documentId = documentId;
+    }
+}
@@ -0,0 +1,30 @@
+package dev.arne.smartfiles.core.events;
+
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The new entries of documents that were changed, and the ids of documents that were deleted, by
+ * one commit. Entries are replaced rather than changed, so whoever holds the previous ones swaps
+ * these in.
+ */
+@Getter
+public final class DocumentsChangedEvent extends SmartFilesEvent {
+
+    private final List<ArchiveEntry> entries;
+    private final Set<UUID> deletedDocumentIds;
+
+    public DocumentsChangedEvent(List<ArchiveEntry> entries) {
+        this(entries, Set.of());
+    }
+
+    public DocumentsChangedEvent(List<ArchiveEntry> entries, Set<UUID> deletedDocumentIds) {
+        super(entries);
+        this.entries = entries;
+        this.deletedDocumentIds = deletedDocumentIds;
+    }
+}
@@ -0,0 +1,14 @@
+package dev.arne.smartfiles.core.events;
+
+import dev.arne.smartfiles.core.model.IngestResult;
+
+public final class IngestCompletedEvent extends SmartFilesEvent {
+
+    public IngestCompletedEvent(IngestResult result) {
+        super(result);
+    }
+
+    public IngestResult getResult() {
+        return (IngestResult) getSource();
+    }
+}
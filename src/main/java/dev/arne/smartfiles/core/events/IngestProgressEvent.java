@@ -0,0 +1,20 @@
+package dev.arne.smartfiles.core.events;
+
+import lombok.Getter;
+
+@Getter
+public final class IngestProgressEvent extends SmartFilesEvent {
+
+    private final String fileName;
+    private final int completed;
+    private final int total;
+    private final boolean succeeded;
+
+    public IngestProgressEvent(String fileName, int completed, int total, boolean succeeded) {
+        super(fileName);
+        this.fileName = fileName;
+        this.completed = completed;
+        this.total = total;
+        this.succeeded = succeeded;
+    }
+}
@@ -4,7 +4,7 @@ import org.springframework.context.ApplicationEvent;
 
 public abstract sealed class SmartFilesEvent
         extends ApplicationEvent
-        permits AllTagsUpdatedEvent, ArchiveEntryAddedEvent, ArchiveLastModifiedUpdatedEvent, DocumentDeletedEvent, DocumentDescriptionUpdatedEvent, DocumentTagAddedEvent, LightThemeActivatedSettingChangedEvent, TagAddedEvent {
+        permits AllTagsUpdatedEvent, ArchiveEntryAddedEvent, ArchiveLastModifiedUpdatedEvent, DocumentDeletedEvent, DocumentDescriptionUpdatedEvent, DocumentMetadataExtractedEvent, DocumentTagAddedEvent, DocumentTextExtractedEvent, DocumentsChangedEvent, IngestCompletedEvent, IngestProgressEvent, LightThemeActivatedSettingChangedEvent, TagAddedEvent {
 
     public SmartFilesEvent(Object source) {
         super(source);
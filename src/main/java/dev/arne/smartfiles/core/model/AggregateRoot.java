@@ -1,8 +1,8 @@
 package dev.arne.smartfiles.core.model;
 
-public sealed interface AggregateRoot permits ApplicationSettings, Archive {
+public sealed interface AggregateRoot permits ApplicationSettings, Archive, InboxCheckpoint {
 
-    String CURRENT_APP_VERSION = "0.0.1";
+    String CURRENT_APP_VERSION = "0.0.2";
 
     void updateLastModified();
 }
@@ -1,5 +1,6 @@
 package dev.arne.smartfiles.core.model;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -7,10 +8,14 @@ import lombok.Setter;
 
 import java.io.File;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Getter
 @Setter
@@ -24,6 +29,20 @@ public final class Archive implements AggregateRoot {
     private Map<UUID, ArchiveEntry> archiveEntries;
     private Set<Tag> tags;
 
+    /**
+     * Ids of entries added, changed or removed since the last {@link #drainDirtyEntryIds()}, so a
+     * snapshot only needs to rewrite the shards holding them. Not persisted.
+     */
+    @Getter(AccessLevel.NONE)
+    private final Set<UUID> dirtyEntryIds = new HashSet<>();
+
+    /**
+     * Built from the entries on first use, as loaders fill in entries after construction, and
+     * maintained by {@link #apply} from then on. Not persisted.
+     */
+    @Getter(AccessLevel.NONE)
+    private final TagDictionary tagDictionary = new TagDictionary();
+
     public static Archive empty() {
         var timeStamp = LocalDateTime.now();
         return new Archive(CURRENT_APP_VERSION, timeStamp, timeStamp, new HashMap<>(), Set.of());
@@ -32,7 +51,123 @@ public final class Archive implements AggregateRoot {
     public ArchiveEntry addArchiveEntryFromFile(File file, String originalPath) {
         var newEntry = ArchiveEntry.of(file.getName(), file.getAbsolutePath(), originalPath);
         archiveEntries.put(newEntry.getId(), newEntry);
-        return newEntry;
+        dirtyEntryIds.add(newEntry.getId());
+        return archiveEntries.get(newEntry.getId());
+    }
+
+    public void apply(ArchiveMutation mutation) {
+        switch (mutation) {
+            case ArchiveMutation.EntryAdded m -> {
+                var previous = archiveEntries.put(m.entry().getId(), m.entry());
+                if (tagDictionary.isCounted()) {
+                    if (previous != null) {
+                        tagDictionary.removeAll(previous.getTags());
+                    }
+                    tagDictionary.addAll(m.entry().getTags());
+                }
+                dirtyEntryIds.add(m.entry().getId());
+            }
+            case ArchiveMutation.TagAdded m -> update(m.documentId(), entry -> {
+                if (entry.getTags().add(m.tag()) && tagDictionary.isCounted()) {
+                    tagDictionary.add(m.tag());
+                }
+                entry.setDateLastModified(m.timestamp());
+            });
+            case ArchiveMutation.DescriptionUpdated m -> update(m.documentId(), entry -> {
+                entry.setSummary(m.description());
+                entry.setDateLastModified(m.timestamp());
+            });
+            case ArchiveMutation.MetadataExtracted m -> update(m.documentId(), entry -> entry.setMetadata(m.metadata()));
+            case ArchiveMutation.EntryDeleted m -> delete(m.documentId());
+            case ArchiveMutation.TagsAdded m -> m.documentIds().forEach(id -> changeTags(id, m.tags(), List.of(), m.timestamp()));
+            case ArchiveMutation.TagsRemoved m -> m.documentIds().forEach(id -> changeTags(id, List.of(), m.tags(), m.timestamp()));
+            case ArchiveMutation.TagRenamed m -> {
+                if (!m.tag().equals(m.newTag())) {
+                    var carrying = archiveEntries.values().stream()
+                            .filter(entry -> entry.getTags() != null && entry.getTags().contains(m.tag()))
+                            .map(ArchiveEntry::getId)
+                            .toList();
+                    carrying.forEach(id -> changeTags(id, List.of(m.newTag()), List.of(m.tag()), m.timestamp()));
+                }
+            }
+            case ArchiveMutation.EntriesDeleted m -> m.documentIds().forEach(this::delete);
+        }
+        this.dateLastModified = mutation.timestamp();
+    }
+
+    /**
+     * Replaces the entry with a changed copy, so entries handed out earlier never change.
+     */
+    private void update(UUID entryId, Consumer<ArchiveEntry> change) {
+        var entry = archiveEntries.get(entryId);
+        if (entry != null) {
+            var updated = entry.copy();
+            change.accept(updated);
+            archiveEntries.put(entryId, updated);
+        }
+        dirtyEntryIds.add(entryId);
+    }
+
+    /**
+     * Leaves entries the change would not alter as they are, so large batches only copy what they touch.
+     */
+    private void changeTags(UUID entryId, Collection<Tag> added, Collection<Tag> removed, LocalDateTime timestamp) {
+        var entry = archiveEntries.get(entryId);
+        if (entry == null) {
+            return;
+        }
+        var tags = entry.getTags();
+        if (tags.containsAll(added) && removed.stream().noneMatch(tags::contains)) {
+            return;
+        }
+        update(entryId, updated -> {
+            for (var tag : removed) {
+                if (updated.getTags().remove(tag) && tagDictionary.isCounted()) {
+                    tagDictionary.remove(tag);
+                }
+            }
+            for (var tag : added) {
+                if (updated.getTags().add(tag) && tagDictionary.isCounted()) {
+                    tagDictionary.add(tag);
+                }
+            }
+            updated.setDateLastModified(timestamp);
+        });
+    }
+
+    private void delete(UUID entryId) {
+        var removed = archiveEntries.remove(entryId);
+        if (removed != null && tagDictionary.isCounted()) {
+            tagDictionary.removeAll(removed.getTags());
+        }
+        dirtyEntryIds.add(entryId);
+    }
+
+    /**
+     * An unmodifiable view of the entries as they are now, unaffected by later mutations. The
+     * entries are moved into a {@link ShardedEntryMap} on first use, which makes this cheap.
+     */
+    public Map<UUID, ArchiveEntry> snapshotEntries() {
+        if (!(archiveEntries instanceof ShardedEntryMap<?>)) {
+            archiveEntries = ShardedEntryMap.copyOf(archiveEntries);
+        }
+        return ((ShardedEntryMap<?>) archiveEntries).snapshot();
+    }
+
+    /**
+     * The tags carried by the entries, with their document counts.
+     */
+    public TagDictionary getTagDictionary() {
+        if (!tagDictionary.isCounted()) {
+            tagDictionary.count(archiveEntries.values());
+        }
+        return tagDictionary;
+    }
+
+    public Set<UUID> drainDirtyEntryIds() {
+        var drained = Set.copyOf(dirtyEntryIds);
+        dirtyEntryIds.clear();
+        return drained;
     }
 
     public void updateLastModified() {
@@ -2,7 +2,6 @@ package dev.arne.smartfiles.core.model;
 
 import java.nio.file.Path;
 import java.time.LocalDateTime;
-import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
 
@@ -26,11 +25,43 @@ public class ArchiveEntry {
     private Set<Tag> tags;
     private LocalDateTime dateCreated;
     private LocalDateTime dateLastModified;
+    private String contentDigest;
+    private DocumentMetadata metadata;
 
     public static ArchiveEntry of(String name, String absolutePath, String originalPath) {
         var path = Path.of(absolutePath).getFileName().toString();
         var timeStamp = LocalDateTime.now();
-        return new ArchiveEntry(UUID.randomUUID(), name, "Not available yet", path, absolutePath, originalPath, new HashSet<>(), timeStamp, timeStamp);
+        return new ArchiveEntry(UUID.randomUUID(), name, "Not available yet", path, absolutePath, originalPath, new TagSet(), timeStamp, timeStamp, null, null);
+    }
+
+    /**
+     * Stores the tags as a {@link TagSet} of interned ids, whatever set they come in.
+     */
+    public void setTags(Set<Tag> tags) {
+        this.tags = tags == null ? null : TagSet.copyOf(tags);
+    }
+
+    /**
+     * A detached copy with its own tag set, to be changed and stored in place of this entry.
+     */
+    public ArchiveEntry copy() {
+        return new ArchiveEntry(getId(), getName(), getSummary(), getPath(), getAbsolutePath(), getOriginalPath(),
+                getTags() == null ? null : TagSet.copyOf(getTags()), getDateCreated(), getDateLastModified(),
+                getContentDigest(), getMetadata());
+    }
+
+    /**
+     * Whether metadata was extracted, possibly without loading the rest of the entry.
+     */
+    public boolean hasMetadata() {
+        return getMetadata() != null;
+    }
+
+    /**
+     * Number of pages, or 0 while metadata has not been extracted.
+     */
+    public int pageCount() {
+        return hasMetadata() ? getMetadata().pageCount() : 0;
     }
 
     public void updateLastModified() {
@@ -0,0 +1,52 @@
+package dev.arne.smartfiles.core.model;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A single change to the {@link Archive}, small enough to be appended to the journal.
+ * Applying a mutation twice leaves the archive in the same state as applying it once,
+ * so the journal can safely be replayed over a snapshot that already contains it.
+ * A batch change is a single mutation, journaled as one record, so it is replayed whole or not at all.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = ArchiveMutation.EntryAdded.class, name = "entryAdded"),
+        @JsonSubTypes.Type(value = ArchiveMutation.TagAdded.class, name = "tagAdded"),
+        @JsonSubTypes.Type(value = ArchiveMutation.DescriptionUpdated.class, name = "descriptionUpdated"),
+        @JsonSubTypes.Type(value = ArchiveMutation.EntryDeleted.class, name = "entryDeleted"),
+        @JsonSubTypes.Type(value = ArchiveMutation.MetadataExtracted.class, name = "metadataExtracted"),
+        @JsonSubTypes.Type(value = ArchiveMutation.TagsAdded.class, name = "tagsAdded"),
+        @JsonSubTypes.Type(value = ArchiveMutation.TagsRemoved.class, name = "tagsRemoved"),
+        @JsonSubTypes.Type(value = ArchiveMutation.TagRenamed.class, name = "tagRenamed"),
+        @JsonSubTypes.Type(value = ArchiveMutation.EntriesDeleted.class, name = "entriesDeleted")
+})
+public sealed interface ArchiveMutation {
+
+    LocalDateTime timestamp();
+
+    record EntryAdded(ArchiveEntry entry, LocalDateTime timestamp) implements ArchiveMutation {}
+
+    record TagAdded(UUID documentId, Tag tag, LocalDateTime timestamp) implements ArchiveMutation {}
+
+    record DescriptionUpdated(UUID documentId, String description, LocalDateTime timestamp) implements ArchiveMutation {}
+
+    record EntryDeleted(UUID documentId, LocalDateTime timestamp) implements ArchiveMutation {}
+
+    record MetadataExtracted(UUID documentId, DocumentMetadata metadata, LocalDateTime timestamp) implements ArchiveMutation {}
+
+    record TagsAdded(List<UUID> documentIds, List<Tag> tags, LocalDateTime timestamp) implements ArchiveMutation {}
+
+    record TagsRemoved(List<UUID> documentIds, List<Tag> tags, LocalDateTime timestamp) implements ArchiveMutation {}
+
+    /**
+     * Renames the tag on every document carrying it; documents that already carry the new name keep it once.
+     */
+    record TagRenamed(Tag tag, Tag newTag, LocalDateTime timestamp) implements ArchiveMutation {}
+
+    record EntriesDeleted(List<UUID> documentIds, LocalDateTime timestamp) implements ArchiveMutation {}
+}
@@ -0,0 +1,17 @@
+package dev.arne.smartfiles.core.model;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The archive as readers see it after one committed change. Nothing in it changes afterwards, so
+ * it can be read from any thread without locking, and every value in it belongs to the same state.
+ *
+ * @param number    counts the changes committed since the archive was loaded
+ * @param entries   unmodifiable, see {@link Archive#snapshotEntries()}
+ * @param tagCounts every tag in use with the number of documents carrying it
+ */
+public record ArchiveVersion(long number, Map<UUID, ArchiveEntry> entries, Map<Tag, Integer> tagCounts,
+                             LocalDateTime dateCreated, LocalDateTime dateLastModified) {
+}
@@ -0,0 +1,23 @@
+package dev.arne.smartfiles.core.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Facts read from a document once when it is ingested, so the list and the viewer never need to
+ * open the file for them. A document that could not be read has a page count of 0.
+ *
+ * @param pageCount    number of pages
+ * @param pageSizes    size of every page in points, already swapped for rotated pages
+ * @param title        title from the document information, may be {@code null}
+ * @param author       author from the document information, may be {@code null}
+ * @param producer     producing application, may be {@code null}
+ * @param creationDate creation date from the document information, may be {@code null}
+ */
+public record DocumentMetadata(int pageCount, List<PageSize> pageSizes, String title, String author,
+                               String producer, LocalDateTime creationDate) {
+
+    public static final DocumentMetadata UNREADABLE = new DocumentMetadata(0, List.of(), null, null, null, null);
+
+    public record PageSize(float width, float height) {}
+}
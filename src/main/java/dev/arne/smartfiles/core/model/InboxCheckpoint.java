@@ -0,0 +1,54 @@
+package dev.arne.smartfiles.core.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What the inbox scan has already seen, keyed by absolute file path. A file whose size and
+ * modification time still match its state is skipped on the next scan without being read.
+ */
+@Getter
+@Setter
+public final class InboxCheckpoint implements AggregateRoot {
+
+    private String applicationVersion;
+    private LocalDateTime dateCreated;
+    private LocalDateTime dateLastModified;
+    private String inboxFolderPath;
+    private Map<String, FileState> files;
+
+    /**
+     * @param size         file size in bytes
+     * @param lastModified modification time in epoch milliseconds
+     * @param digest       content digest of the last ingested or baseline version, {@code null} if it could not be read
+     */
+    public record FileState(long size, long lastModified, String digest) {
+
+        public boolean matches(long size, long lastModified) {
+            return this.size == size && this.lastModified == lastModified;
+        }
+    }
+
+    public InboxCheckpoint(String applicationVersion, LocalDateTime dateCreated, LocalDateTime dateLastModified,
+                           String inboxFolderPath, Map<String, FileState> files) {
+        this.applicationVersion = applicationVersion;
+        this.dateCreated = dateCreated;
+        this.dateLastModified = dateLastModified;
+        this.inboxFolderPath = inboxFolderPath;
+        this.files = files == null ? new ConcurrentHashMap<>() : new ConcurrentHashMap<>(files);
+    }
+
+    public static InboxCheckpoint empty(String inboxFolderPath) {
+        var now = LocalDateTime.now();
+        return new InboxCheckpoint(CURRENT_APP_VERSION, now, now, inboxFolderPath, null);
+    }
+
+    @Override
+    public void updateLastModified() {
+        this.dateLastModified = LocalDateTime.now();
+    }
+}
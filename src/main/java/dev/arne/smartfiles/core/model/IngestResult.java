@@ -0,0 +1,20 @@
+package dev.arne.smartfiles.core.model;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Outcome of ingesting a batch of files. Files that could not be stored are reported in
+ * {@code failures} and do not prevent the rest of the batch from being added.
+ *
+ * @param added    entries added to the archive, in the order the files were given
+ * @param failures files that could not be ingested
+ */
+public record IngestResult(List<ArchiveEntry> added, List<Failure> failures) {
+
+    public record Failure(File file, String reason) {}
+
+    public int total() {
+        return added.size() + failures.size();
+    }
+}
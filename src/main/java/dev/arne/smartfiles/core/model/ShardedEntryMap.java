@@ -0,0 +1,183 @@
+package dev.arne.smartfiles.core.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Entries spread over {@value #SHARD_COUNT} maps by the first byte of their id, the same buckets
+ * as the snapshot shards. {@link #snapshot()} hands out an immutable copy without copying any
+ * entry: afterwards each shard is copied the first time it changes, so a change copies one shard
+ * instead of the whole archive and earlier snapshots never see it. Entries must be replaced rather
+ * than changed in place, which {@link Archive#apply} does.
+ *
+ * @param <S> the map holding the entries of one shard
+ */
+public final class ShardedEntryMap<S extends Map<UUID, ArchiveEntry>> extends AbstractMap<UUID, ArchiveEntry> {
+
+    public static final int SHARD_COUNT = 256;
+
+    private final List<S> shards;
+    private final UnaryOperator<S> copyShard;
+    private final boolean frozen;
+
+    /**
+     * Shards referenced by a snapshot, copied before they are changed.
+     */
+    private final BitSet shared = new BitSet(SHARD_COUNT);
+    private int size;
+
+    public ShardedEntryMap(Supplier<S> newShard, UnaryOperator<S> copyShard) {
+        this.shards = new ArrayList<>(SHARD_COUNT);
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            shards.add(newShard.get());
+        }
+        this.copyShard = copyShard;
+        this.frozen = false;
+    }
+
+    private ShardedEntryMap(ShardedEntryMap<S> source) {
+        this.shards = List.copyOf(source.shards);
+        this.copyShard = source.copyShard;
+        this.size = source.size;
+        this.frozen = true;
+    }
+
+    public static ShardedEntryMap<HashMap<UUID, ArchiveEntry>> copyOf(Map<UUID, ArchiveEntry> entries) {
+        return copyOf(entries, HashMap::new, HashMap::new);
+    }
+
+    public static <S extends Map<UUID, ArchiveEntry>> ShardedEntryMap<S> copyOf(Map<UUID, ArchiveEntry> entries, Supplier<S> newShard, UnaryOperator<S> copyShard) {
+        var map = new ShardedEntryMap<>(newShard, copyShard);
+        entries.forEach(map::put);
+        return map;
+    }
+
+    /**
+     * Wraps maps already holding the entries of each shard, in shard order.
+     */
+    public static <S extends Map<UUID, ArchiveEntry>> ShardedEntryMap<S> of(List<S> shards, UnaryOperator<S> copyShard) {
+        if (shards.size() != SHARD_COUNT) {
+            throw new IllegalArgumentException("Cannot build " + SHARD_COUNT + " shards from " + shards.size() + " maps");
+        }
+        var next = shards.iterator();
+        var map = new ShardedEntryMap<>(next::next, copyShard);
+        map.size = shards.stream().mapToInt(Map::size).sum();
+        return map;
+    }
+
+    /**
+     * @return an unmodifiable map of the entries as they are now, which later changes do not affect
+     */
+    public Map<UUID, ArchiveEntry> snapshot() {
+        if (frozen) {
+            return this;
+        }
+        shared.set(0, SHARD_COUNT);
+        return new ShardedEntryMap<>(this);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof UUID id && shards.get(shardOf(id)).containsKey(id);
+    }
+
+    @Override
+    public ArchiveEntry get(Object key) {
+        return key instanceof UUID id ? shards.get(shardOf(id)).get(id) : null;
+    }
+
+    @Override
+    public ArchiveEntry put(UUID id, ArchiveEntry entry) {
+        var previous = writableShard(shardOf(id)).put(id, entry);
+        if (previous == null) {
+            size++;
+        }
+        return previous;
+    }
+
+    @Override
+    public ArchiveEntry remove(Object key) {
+        if (!(key instanceof UUID id) || !containsKey(id)) {
+            return null;
+        }
+        var previous = writableShard(shardOf(id)).remove(id);
+        size--;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            if (!shards.get(shard).isEmpty()) {
+                writableShard(shard).clear();
+            }
+        }
+        size = 0;
+    }
+
+    @Override
+    public Set<Entry<UUID, ArchiveEntry>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<UUID, ArchiveEntry>> iterator() {
+                return new Iterator<>() {
+                    private int shard;
+                    private Iterator<Entry<UUID, ArchiveEntry>> entries = Collections.emptyIterator();
+
+                    @Override
+                    public boolean hasNext() {
+                        while (!entries.hasNext() && shard < SHARD_COUNT) {
+                            entries = Collections.unmodifiableMap(shards.get(shard++)).entrySet().iterator();
+                        }
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Entry<UUID, ArchiveEntry> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return entries.next();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private S writableShard(int shard) {
+        if (frozen) {
+            throw new UnsupportedOperationException("Cannot change a snapshot of the archive entries");
+        }
+        if (shared.get(shard)) {
+            shards.set(shard, copyShard.apply(shards.get(shard)));
+            shared.clear(shard);
+        }
+        return shards.get(shard);
+    }
+
+    private static int shardOf(UUID id) {
+        return (int) (id.getMostSignificantBits() >>> 56);
+    }
+}
@@ -0,0 +1,64 @@
+package dev.arne.smartfiles.core.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The tags in use with the number of documents carrying each, kept up to date as tags are added
+ * and documents come and go. A tag disappears once no document carries it.
+ */
+public final class TagDictionary {
+
+    private final Map<Tag, Integer> counts = new HashMap<>();
+    private boolean counted;
+
+    boolean isCounted() {
+        return counted;
+    }
+
+    /**
+     * Counts the tags of all entries once; afterwards the dictionary is only updated.
+     */
+    void count(Collection<ArchiveEntry> entries) {
+        counts.clear();
+        for (var entry : entries) {
+            addAll(entry.getTags());
+        }
+        counted = true;
+    }
+
+    public void add(Tag tag) {
+        counts.merge(tag, 1, Integer::sum);
+    }
+
+    public void addAll(Collection<Tag> tags) {
+        if (tags != null) {
+            tags.forEach(this::add);
+        }
+    }
+
+    public void remove(Tag tag) {
+        counts.computeIfPresent(tag, (_, count) -> count > 1 ? count - 1 : null);
+    }
+
+    public void removeAll(Collection<Tag> tags) {
+        if (tags != null) {
+            tags.forEach(this::remove);
+        }
+    }
+
+    public int count(Tag tag) {
+        return counts.getOrDefault(tag, 0);
+    }
+
+    public Set<Tag> tags() {
+        return Collections.unmodifiableSet(counts.keySet());
+    }
+
+    public Map<Tag, Integer> counts() {
+        return Collections.unmodifiableMap(counts);
+    }
+}
@@ -0,0 +1,63 @@
+package dev.arne.smartfiles.core.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide dictionary between tags and small int ids. Every label is held by one {@link Tag}
+ * instance, and entries refer to their tags by id through {@link TagSet}. Ids are never reused;
+ * the few hundred labels of an archive stay registered for the lifetime of the application.
+ */
+public final class TagInterner {
+
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static volatile Tag[] tags = new Tag[64];
+    private static int size;
+
+    private TagInterner() {
+    }
+
+    /**
+     * @return the id of the tag, registering its label if it is new
+     */
+    public static int idOf(Tag tag) {
+        var id = IDS.get(tag.label());
+        return id != null ? id : register(tag);
+    }
+
+    /**
+     * @return the id of the tag, or -1 if its label was never registered
+     */
+    public static int existingIdOf(Tag tag) {
+        var id = tag.label() == null ? null : IDS.get(tag.label());
+        return id != null ? id : -1;
+    }
+
+    public static Tag tagOf(int id) {
+        return tags[id];
+    }
+
+    /**
+     * @return the one instance for the label of {@code tag}
+     */
+    public static Tag intern(Tag tag) {
+        return tagOf(idOf(tag));
+    }
+
+    private static synchronized int register(Tag tag) {
+        var existing = IDS.get(tag.label());
+        if (existing != null) {
+            return existing;
+        }
+        var registered = tags;
+        if (size == registered.length) {
+            registered = Arrays.copyOf(registered, size * 2);
+        }
+        registered[size] = tag;
+        // Published before the id, so whoever finds the id also finds the tag
+        tags = registered;
+        IDS.put(tag.label(), size);
+        return size++;
+    }
+}
@@ -0,0 +1,140 @@
+package dev.arne.smartfiles.core.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A mutable set of tags held as the sorted ids of the {@link TagInterner}, so an entry keeps one
+ * small int array instead of a hash set, and sets compare by number. Iterates in id order.
+ * Not thread safe.
+ */
+public final class TagSet extends AbstractSet<Tag> {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[] ids = EMPTY;
+
+    public TagSet() {
+    }
+
+    public static TagSet copyOf(Collection<Tag> tags) {
+        var copy = new TagSet();
+        if (tags instanceof TagSet other) {
+            copy.ids = other.ids.length == 0 ? EMPTY : other.ids.clone();
+        } else {
+            copy.ids = tags.stream().mapToInt(TagInterner::idOf).sorted().distinct().toArray();
+        }
+        return copy;
+    }
+
+    /**
+     * @param ids ids of the {@link TagInterner}, in any order
+     */
+    public static TagSet ofIds(int[] ids) {
+        var set = new TagSet();
+        set.ids = ids.length == 0 ? EMPTY : Arrays.stream(ids).sorted().distinct().toArray();
+        return set;
+    }
+
+    public boolean containsId(int id) {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    @Override
+    public boolean add(Tag tag) {
+        var id = TagInterner.idOf(tag);
+        var position = Arrays.binarySearch(ids, id);
+        if (position >= 0) {
+            return false;
+        }
+        var insertAt = -position - 1;
+        var grown = new int[ids.length + 1];
+        System.arraycopy(ids, 0, grown, 0, insertAt);
+        grown[insertAt] = id;
+        System.arraycopy(ids, insertAt, grown, insertAt + 1, ids.length - insertAt);
+        ids = grown;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Tag tag && containsId(TagInterner.existingIdOf(tag));
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Tag tag)) {
+            return false;
+        }
+        var position = Arrays.binarySearch(ids, TagInterner.existingIdOf(tag));
+        if (position < 0) {
+            return false;
+        }
+        removeAt(position);
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    @Override
+    public Iterator<Tag> iterator() {
+        return new Iterator<>() {
+
+            private int next;
+            private boolean removable;
+
+            @Override
+            public boolean hasNext() {
+                return next < ids.length;
+            }
+
+            @Override
+            public Tag next() {
+                if (next >= ids.length) {
+                    throw new NoSuchElementException();
+                }
+                removable = true;
+                return TagInterner.tagOf(ids[next++]);
+            }
+
+            @Override
+            public void remove() {
+                if (!removable) {
+                    throw new IllegalStateException();
+                }
+                removeAt(--next);
+                removable = false;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof TagSet other) {
+            return Arrays.equals(ids, other.ids);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    private void removeAt(int position) {
+        if (ids.length == 1) {
+            ids = EMPTY;
+            return;
+        }
+        var shrunk = new int[ids.length - 1];
+        System.arraycopy(ids, 0, shrunk, 0, position);
+        System.arraycopy(ids, position + 1, shrunk, position, ids.length - position - 1);
+        ids = shrunk;
+    }
+}
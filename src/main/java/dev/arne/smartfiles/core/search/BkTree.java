@@ -0,0 +1,124 @@
+package dev.arne.smartfiles.core.search;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Burkhard-Keller tree of terms under the Levenshtein distance. Every child sits at its exact
+ * distance from the parent, so by the triangle inequality a search only descends into children
+ * within {@code maxDistance} of the query's distance to the parent and skips most of the terms.
+ * Not thread safe.
+ */
+public final class BkTree {
+
+    private Node root;
+    private int size;
+
+    private static final class Node {
+
+        private final String term;
+        private int[] distances = new int[0];
+        private Node[] children = new Node[0];
+
+        private Node(String term) {
+            this.term = term;
+        }
+
+        private Node child(int distance) {
+            for (int i = 0; i < distances.length; i++) {
+                if (distances[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private void addChild(int distance, Node child) {
+            distances = Arrays.copyOf(distances, distances.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            distances[distances.length - 1] = distance;
+            children[children.length - 1] = child;
+        }
+    }
+
+    /**
+     * @return false if the term was already in the tree
+     */
+    public boolean add(String term) {
+        if (root == null) {
+            root = new Node(term);
+            size++;
+            return true;
+        }
+        var node = root;
+        while (true) {
+            var distance = distance(term, node.term);
+            if (distance == 0) {
+                return false;
+            }
+            var child = node.child(distance);
+            if (child == null) {
+                node.addChild(distance, new Node(term));
+                size++;
+                return true;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Passes every term within {@code maxDistance} of {@code query} to the consumer with its distance.
+     */
+    public void search(String query, int maxDistance, ObjIntConsumer<String> consumer) {
+        if (root == null) {
+            return;
+        }
+        var pending = new ArrayDeque<Node>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            var node = pending.pop();
+            var distance = distance(query, node.term);
+            if (distance <= maxDistance) {
+                consumer.accept(node.term, distance);
+            }
+            for (int i = 0; i < node.distances.length; i++) {
+                if (Math.abs(node.distances[i] - distance) <= maxDistance) {
+                    pending.push(node.children[i]);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of single character insertions, deletions and substitutions turning one term into the other
+     */
+    static int distance(String a, String b) {
+        if (a.length() < b.length()) {
+            var shorter = a;
+            a = b;
+            b = shorter;
+        }
+        var previous = new int[b.length() + 1];
+        var current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            var c = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                var substitution = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            var swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
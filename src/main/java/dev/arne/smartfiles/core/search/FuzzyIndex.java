@@ -0,0 +1,178 @@
+package dev.arne.smartfiles.core.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of the terms in document names and tag labels that tolerates typos. Query
+ * terms are looked up in a {@link BkTree} over the term dictionary, so the cost depends on the
+ * number of distinct terms rather than on the number of documents. Terms no document uses any
+ * more stay in the tree until they outnumber the used ones, then the tree is rebuilt.
+ */
+public final class FuzzyIndex {
+
+    private static final int MIN_UNUSED_BEFORE_REBUILD = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Set<UUID>> documentsByTerm = new HashMap<>();
+    private final Map<UUID, Set<String>> termsByDocument = new HashMap<>();
+    private BkTree dictionary = new BkTree();
+
+    public record Hit(UUID id, int distance) {}
+
+    /**
+     * Adds a document or replaces its name and tags.
+     */
+    public void put(UUID id, String name, Collection<String> labels) {
+        var terms = new LinkedHashSet<>(Tokenizer.tokenize(name));
+        labels.forEach(label -> terms.addAll(Tokenizer.tokenize(label)));
+        lock.writeLock().lock();
+        try {
+            retire(id);
+            termsByDocument.put(id, terms);
+            for (var term : terms) {
+                documentsByTerm.computeIfAbsent(term, _ -> new HashSet<>()).add(id);
+                dictionary.add(term);
+            }
+            rebuildIfWorthwhile();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID id) {
+        lock.writeLock().lock();
+        try {
+            retire(id);
+            rebuildIfWorthwhile();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return termsByDocument.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds documents with a name or tag term close to every query term, closest first. The
+     * distance of a document is the sum of the distances of its closest terms.
+     */
+    public List<Hit> search(String query) {
+        var queryTerms = new LinkedHashSet<>(Tokenizer.tokenize(query));
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            var expansions = new ArrayList<Map<String, Integer>>(queryTerms.size());
+            for (var queryTerm : queryTerms) {
+                var matches = new HashMap<String, Integer>();
+                dictionary.search(queryTerm, maxDistance(queryTerm), (term, distance) -> {
+                    if (documentsByTerm.containsKey(term)) {
+                        matches.put(term, distance);
+                    }
+                });
+                if (matches.isEmpty()) {
+                    return List.of();
+                }
+                expansions.add(matches);
+            }
+            // Start from the query term matching the fewest documents, the others only check its candidates
+            expansions.sort(Comparator.comparingInt(this::documentCount));
+            var distances = new HashMap<UUID, Integer>();
+            expansions.getFirst().forEach((term, distance) -> {
+                for (var id : documentsByTerm.get(term)) {
+                    distances.merge(id, distance, Math::min);
+                }
+            });
+            for (var matches : expansions.subList(1, expansions.size())) {
+                var iterator = distances.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    var candidate = iterator.next();
+                    var closest = closest(termsByDocument.get(candidate.getKey()), matches);
+                    if (closest < 0) {
+                        iterator.remove();
+                    } else {
+                        candidate.setValue(candidate.getValue() + closest);
+                    }
+                }
+            }
+            return distances.entrySet().stream()
+                    .map(candidate -> new Hit(candidate.getKey(), candidate.getValue()))
+                    .sorted(Comparator.comparingInt(Hit::distance))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Longer terms tolerate more typos; very short ones have to match exactly.
+     */
+    static int maxDistance(String term) {
+        if (term.length() < 3) {
+            return 0;
+        }
+        return term.length() < 6 ? 1 : 2;
+    }
+
+    private int documentCount(Map<String, Integer> matches) {
+        var count = 0;
+        for (var term : matches.keySet()) {
+            count += documentsByTerm.get(term).size();
+        }
+        return count;
+    }
+
+    /**
+     * @return the smallest distance of the document's terms among the matches, or -1 if none matches
+     */
+    private static int closest(Set<String> terms, Map<String, Integer> matches) {
+        var closest = -1;
+        for (var term : terms) {
+            var distance = matches.get(term);
+            if (distance != null && (closest < 0 || distance < closest)) {
+                closest = distance;
+            }
+        }
+        return closest;
+    }
+
+    private void retire(UUID id) {
+        var terms = termsByDocument.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (var term : terms) {
+            var documents = documentsByTerm.get(term);
+            documents.remove(id);
+            if (documents.isEmpty()) {
+                documentsByTerm.remove(term);
+            }
+        }
+    }
+
+    private void rebuildIfWorthwhile() {
+        var unused = dictionary.size() - documentsByTerm.size();
+        if (unused >= MIN_UNUSED_BEFORE_REBUILD && unused > documentsByTerm.size()) {
+            dictionary = new BkTree();
+            documentsByTerm.keySet().forEach(dictionary::add);
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package dev.arne.smartfiles.core.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index from terms to the documents containing them, ranked with BM25.
+ * Documents are numbered in the order they are indexed, so postings stay sorted by appending.
+ * Re-indexing a document retires its old number; retired numbers are dropped from the postings
+ * once they outnumber the live documents, and always before the index is written.
+ * <pre>
+ * file:     magic, format version, document count, documents, term count, terms
+ * document: msb, lsb, version, has text, length
+ * term:     length, UTF-8 bytes, posting count, postings as varint document gap and frequency
+ * </pre>
+ */
+public final class InvertedIndex {
+
+    public static final int MAGIC = 0x53464958; // "SFIX"
+    public static final short FORMAT_VERSION = 1;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MIN_RETIRED_BEFORE_COMPACTION = 1024;
+    static final int MIN_PREFIX_LENGTH = 3;
+    static final int MAX_PREFIX_TERMS = 512;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<UUID> ids = new ArrayList<>();
+    private final Map<UUID, Integer> numbers = new HashMap<>();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final BitSet live = new BitSet();
+    private final BitSet withText = new BitSet();
+    private long[] versions = new long[64];
+    private int[] lengths = new int[64];
+    private long totalLength;
+
+    private static final class Postings {
+
+        private int[] documents = new int[2];
+        private int[] frequencies = new int[2];
+        private int size;
+
+        private void add(int document, int frequency) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            documents[size] = document;
+            frequencies[size++] = frequency;
+        }
+    }
+
+    /**
+     * A matching document and its BM25 score.
+     */
+    public record Hit(UUID id, double score) {}
+
+    /**
+     * Adds or replaces a document.
+     *
+     * @param version     caller defined version, used to find stale documents after a restart
+     * @param hasText     whether the document text was part of the term counts
+     * @param termCounts  (weighted) number of occurrences of each term
+     */
+    public void put(UUID id, long version, boolean hasText, Map<String, Integer> termCounts) {
+        lock.writeLock().lock();
+        try {
+            retire(id);
+            var number = ids.size();
+            ids.add(id);
+            numbers.put(id, number);
+            ensureCapacity(number + 1);
+            versions[number] = version;
+            live.set(number);
+            withText.set(number, hasText);
+            var length = 0;
+            for (var entry : termCounts.entrySet()) {
+                terms.computeIfAbsent(entry.getKey(), _ -> new Postings()).add(number, entry.getValue());
+                length += entry.getValue();
+            }
+            lengths[number] = length;
+            totalLength += length;
+            compactIfWorthwhile();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID id) {
+        lock.writeLock().lock();
+        try {
+            retire(id);
+            compactIfWorthwhile();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(UUID id) {
+        lock.readLock().lock();
+        try {
+            return numbers.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the version the document was indexed with, or -1 if it is not indexed
+     */
+    public long version(UUID id) {
+        lock.readLock().lock();
+        try {
+            var number = numbers.get(id);
+            return number == null ? -1 : versions[number];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean hasText(UUID id) {
+        lock.readLock().lock();
+        try {
+            var number = numbers.get(id);
+            return number != null && withText.get(number);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<UUID> ids() {
+        lock.readLock().lock();
+        try {
+            return Set.copyOf(numbers.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return numbers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the documents containing every term of the query, best match first. The last term
+     * also matches as a prefix once it is {@value #MIN_PREFIX_LENGTH} characters long, so results
+     * appear while a word is still being typed; a prefix expands to at most
+     * {@value #MAX_PREFIX_TERMS} terms.
+     */
+    public List<Hit> search(String query) {
+        var queryTerms = Tokenizer.tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            var documentCount = numbers.size();
+            if (documentCount == 0) {
+                return List.of();
+            }
+            var matches = new ArrayList<List<Postings>>(queryTerms.size());
+            for (int i = 0; i < queryTerms.size(); i++) {
+                var term = queryTerms.get(i);
+                var match = i == queryTerms.size() - 1 ? prefixPostings(term) : exactPostings(term);
+                if (match.isEmpty()) {
+                    return List.of();
+                }
+                matches.add(match);
+            }
+            var averageLength = Math.max(1.0, (double) totalLength / documentCount);
+            // Scores are accumulated per document number; matched counts the terms a document has
+            // matched so far, so only documents that matched every earlier term are scored further
+            var frequencies = new int[ids.size()];
+            var matched = new int[ids.size()];
+            var scores = new double[ids.size()];
+            var touched = new int[16];
+            var touchedCount = 0;
+            for (int i = 0; i < matches.size(); i++) {
+                touchedCount = 0;
+                for (var postings : matches.get(i)) {
+                    for (int j = 0; j < postings.size; j++) {
+                        var number = postings.documents[j];
+                        if (live.get(number) && matched[number] == i) {
+                            if (frequencies[number] == 0) {
+                                if (touchedCount == touched.length) {
+                                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                                }
+                                touched[touchedCount++] = number;
+                            }
+                            frequencies[number] += postings.frequencies[j];
+                        }
+                    }
+                }
+                if (touchedCount == 0) {
+                    return List.of();
+                }
+                var matching = i == 0 ? touchedCount : countLive(matches.get(i));
+                var idf = Math.log(1 + (documentCount - matching + 0.5) / (matching + 0.5));
+                for (int j = 0; j < touchedCount; j++) {
+                    var number = touched[j];
+                    var frequency = frequencies[number];
+                    var norm = K1 * (1 - B + B * lengths[number] / averageLength);
+                    scores[number] += idf * frequency * (K1 + 1) / (frequency + norm);
+                    matched[number]++;
+                    frequencies[number] = 0;
+                }
+            }
+            var hits = new ArrayList<Hit>(touchedCount);
+            for (int j = 0; j < touchedCount; j++) {
+                hits.add(new Hit(ids.get(touched[j]), scores[touched[j]]));
+            }
+            hits.sort(Comparator.comparingDouble(Hit::score).reversed());
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Postings> exactPostings(String term) {
+        var postings = terms.get(term);
+        return postings == null ? List.of() : List.of(postings);
+    }
+
+    private List<Postings> prefixPostings(String prefix) {
+        if (prefix.length() < MIN_PREFIX_LENGTH) {
+            return exactPostings(prefix);
+        }
+        var postings = new ArrayList<Postings>();
+        for (var entry : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            if (postings.size() == MAX_PREFIX_TERMS) {
+                break;
+            }
+            postings.add(entry);
+        }
+        return postings;
+    }
+
+    /**
+     * Counts the live documents in any of the postings, the document frequency of a term or prefix.
+     */
+    private int countLive(List<Postings> postings) {
+        if (postings.size() == 1) {
+            var count = 0;
+            var single = postings.getFirst();
+            for (int i = 0; i < single.size; i++) {
+                if (live.get(single.documents[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        var documents = new BitSet();
+        for (var each : postings) {
+            for (int i = 0; i < each.size; i++) {
+                documents.set(each.documents[i]);
+            }
+        }
+        documents.and(live);
+        return documents.cardinality();
+    }
+
+    private void retire(UUID id) {
+        var number = numbers.remove(id);
+        if (number != null) {
+            live.clear(number);
+            totalLength -= lengths[number];
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > versions.length) {
+            var grown = Math.max(capacity, versions.length * 2);
+            versions = Arrays.copyOf(versions, grown);
+            lengths = Arrays.copyOf(lengths, grown);
+        }
+    }
+
+    private void compactIfWorthwhile() {
+        var retired = ids.size() - numbers.size();
+        if (retired >= MIN_RETIRED_BEFORE_COMPACTION && retired > numbers.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Renumbers the live documents from 0 and drops everything else from the postings.
+     */
+    private void compact() {
+        var renumbered = new int[ids.size()];
+        Arrays.fill(renumbered, -1);
+        var liveIds = new ArrayList<UUID>(numbers.size());
+        var liveVersions = new long[Math.max(64, numbers.size())];
+        var liveLengths = new int[liveVersions.length];
+        var liveWithText = new BitSet();
+        for (int number = live.nextSetBit(0); number >= 0; number = live.nextSetBit(number + 1)) {
+            var next = liveIds.size();
+            renumbered[number] = next;
+            liveIds.add(ids.get(number));
+            liveVersions[next] = versions[number];
+            liveLengths[next] = lengths[number];
+            liveWithText.set(next, withText.get(number));
+        }
+        var iterator = terms.values().iterator();
+        while (iterator.hasNext()) {
+            var postings = iterator.next();
+            var size = 0;
+            for (int i = 0; i < postings.size; i++) {
+                var next = renumbered[postings.documents[i]];
+                if (next >= 0) {
+                    postings.documents[size] = next;
+                    postings.frequencies[size++] = postings.frequencies[i];
+                }
+            }
+            postings.size = size;
+            if (size == 0) {
+                iterator.remove();
+            }
+        }
+        ids.clear();
+        ids.addAll(liveIds);
+        numbers.clear();
+        for (int number = 0; number < ids.size(); number++) {
+            numbers.put(ids.get(number), number);
+        }
+        versions = liveVersions;
+        lengths = liveLengths;
+        live.clear();
+        live.set(0, ids.size());
+        withText.clear();
+        withText.or(liveWithText);
+    }
+
+    /**
+     * Writes the index next to {@code file} and moves it into place.
+     */
+    public void write(Path file) throws IOException {
+        lock.writeLock().lock();
+        try {
+            compact();
+            Files.createDirectories(file.getParent());
+            var temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeShort(FORMAT_VERSION);
+                out.writeInt(ids.size());
+                for (int number = 0; number < ids.size(); number++) {
+                    out.writeLong(ids.get(number).getMostSignificantBits());
+                    out.writeLong(ids.get(number).getLeastSignificantBits());
+                    out.writeLong(versions[number]);
+                    out.writeBoolean(withText.get(number));
+                    out.writeInt(lengths[number]);
+                }
+                out.writeInt(terms.size());
+                for (var entry : terms.entrySet()) {
+                    var bytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                    var postings = entry.getValue();
+                    writeVarInt(out, postings.size);
+                    var previous = 0;
+                    for (int i = 0; i < postings.size; i++) {
+                        writeVarInt(out, postings.documents[i] - previous);
+                        writeVarInt(out, postings.frequencies[i]);
+                        previous = postings.documents[i];
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public static InvertedIndex read(Path file) throws IOException {
+        var index = new InvertedIndex();
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a search index");
+            }
+            var formatVersion = in.readShort();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported search index format version: " + formatVersion);
+            }
+            var documentCount = in.readInt();
+            index.ensureCapacity(documentCount);
+            for (int number = 0; number < documentCount; number++) {
+                var id = new UUID(in.readLong(), in.readLong());
+                index.ids.add(id);
+                index.numbers.put(id, number);
+                index.versions[number] = in.readLong();
+                index.withText.set(number, in.readBoolean());
+                index.lengths[number] = in.readInt();
+                index.totalLength += index.lengths[number];
+            }
+            index.live.set(0, documentCount);
+            var termCount = in.readInt();
+            for (int i = 0; i < termCount; i++) {
+                var bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                var postings = new Postings();
+                var size = readVarInt(in);
+                postings.documents = new int[Math.max(2, size)];
+                postings.frequencies = new int[postings.documents.length];
+                var document = 0;
+                for (int j = 0; j < size; j++) {
+                    document += readVarInt(in);
+                    postings.documents[j] = document;
+                    postings.frequencies[j] = readVarInt(in);
+                }
+                postings.size = size;
+                index.terms.put(new String(bytes, StandardCharsets.UTF_8), postings);
+            }
+        }
+        return index;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        var value = 0;
+        for (int shift = 0; ; shift += 7) {
+            var b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
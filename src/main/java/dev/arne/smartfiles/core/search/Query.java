@@ -0,0 +1,146 @@
+package dev.arne.smartfiles.core.search;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A parsed search query. Besides free words and {@code "quoted phrases"} it understands
+ * {@code tag:invoice}, {@code created:>2024-03-01} and {@code modified:<=2024-12-31}, each
+ * negated with a leading {@code -}. Every clause has to match. Terms that look like a filter
+ * but are not one, such as {@code created:yesterday}, are searched for as text.
+ */
+public record Query(List<Clause> clauses) {
+
+    public sealed interface Clause permits Text, HasTag, Date {
+
+        boolean negated();
+    }
+
+    /**
+     * Words searched for in names, descriptions and text. All free words of a query form one
+     * clause, so they are ranked together.
+     */
+    public record Text(String text, boolean negated) implements Clause {}
+
+    public record HasTag(String label, boolean negated) implements Clause {}
+
+    public record Date(DateField field, Comparison comparison, LocalDate date, boolean negated) implements Clause {
+
+        public boolean matches(LocalDate value) {
+            var compared = value.compareTo(date);
+            var matches = switch (comparison) {
+                case BEFORE -> compared < 0;
+                case UNTIL -> compared <= 0;
+                case ON -> compared == 0;
+                case FROM -> compared >= 0;
+                case AFTER -> compared > 0;
+            };
+            return matches != negated;
+        }
+    }
+
+    public enum DateField {CREATED, MODIFIED}
+
+    public enum Comparison {BEFORE, UNTIL, ON, FROM, AFTER}
+
+    public boolean isEmpty() {
+        return clauses.isEmpty();
+    }
+
+    public static Query parse(String input) {
+        var clauses = new ArrayList<Clause>();
+        var words = new ArrayList<String>();
+        for (var term : split(input)) {
+            var negated = term.startsWith("-") && term.length() > 1;
+            var body = negated ? term.substring(1) : term;
+            var clause = filterOf(body, negated);
+            if (clause != null) {
+                clauses.add(clause);
+            } else if (unquote(body).isEmpty()) {
+                continue;
+            } else if (negated) {
+                clauses.add(new Text(unquote(body), true));
+            } else {
+                words.add(unquote(body));
+            }
+        }
+        if (!words.isEmpty()) {
+            clauses.add(new Text(String.join(" ", words), false));
+        }
+        return new Query(List.copyOf(clauses));
+    }
+
+    private static Clause filterOf(String term, boolean negated) {
+        var colon = term.indexOf(':');
+        if (colon <= 0 || colon == term.length() - 1 || term.startsWith("\"")) {
+            return null;
+        }
+        var value = unquote(term.substring(colon + 1));
+        return switch (term.substring(0, colon).toLowerCase(Locale.ROOT)) {
+            case "tag" -> value.isBlank() ? null : new HasTag(value, negated);
+            case "created" -> dateOf(DateField.CREATED, value, negated);
+            case "modified" -> dateOf(DateField.MODIFIED, value, negated);
+            default -> null;
+        };
+    }
+
+    private static Date dateOf(DateField field, String value, boolean negated) {
+        Comparison comparison;
+        String date;
+        if (value.startsWith(">=")) {
+            comparison = Comparison.FROM;
+            date = value.substring(2);
+        } else if (value.startsWith("<=")) {
+            comparison = Comparison.UNTIL;
+            date = value.substring(2);
+        } else if (value.startsWith(">")) {
+            comparison = Comparison.AFTER;
+            date = value.substring(1);
+        } else if (value.startsWith("<")) {
+            comparison = Comparison.BEFORE;
+            date = value.substring(1);
+        } else {
+            comparison = Comparison.ON;
+            date = value.startsWith("=") ? value.substring(1) : value;
+        }
+        try {
+            return new Date(field, comparison, LocalDate.parse(date), negated);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Splits at whitespace outside of double quotes, keeping the quotes.
+     */
+    private static List<String> split(String input) {
+        var terms = new ArrayList<String>();
+        var current = new StringBuilder();
+        var quoted = false;
+        for (int i = 0; i < input.length(); i++) {
+            var c = input.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                current.append(c);
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (!current.isEmpty()) {
+                    terms.add(current.toString());
+                    current.setLength(0);
+                }
+            } else {
+                current.append(c);
+            }
+        }
+        if (!current.isEmpty()) {
+            terms.add(current.toString());
+        }
+        return terms;
+    }
+
+    private static String unquote(String value) {
+        return value.replace("\"", "").strip();
+    }
+}
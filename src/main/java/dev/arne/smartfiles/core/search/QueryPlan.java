@@ -0,0 +1,151 @@
+package dev.arne.smartfiles.core.search;
+
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.Tag;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A {@link Query} compiled against the available indexes. Tag clauses are answered from the
+ * {@link TagIndex} bitmaps, smallest first, and text clauses by the search index; their results
+ * are combined into one bitmap, and the remaining searches are skipped once it is empty. Date
+ * clauses have no index and are checked per document, after the bitmap.
+ * <p>
+ * The bitmap holds the ordinals the {@link TagIndex} had when the plan was compiled, and ordinals
+ * of removed documents are reused, so a plan that {@link #usesIndex() uses the index} has to be
+ * compiled again whenever documents are added, removed or retagged.
+ */
+public final class QueryPlan implements Predicate<ArchiveEntry> {
+
+    private final TagIndex tagIndex;
+    private final BitSet documents;
+    private final List<Predicate<ArchiveEntry>> residual;
+    private final Map<UUID, Integer> ranks;
+
+    private QueryPlan(TagIndex tagIndex, BitSet documents, List<Predicate<ArchiveEntry>> residual, Map<UUID, Integer> ranks) {
+        this.tagIndex = tagIndex;
+        this.documents = documents;
+        this.residual = residual;
+        this.ranks = ranks;
+    }
+
+    /**
+     * @param search ranked document ids for a text, or null to match text against names
+     * @param tags   resolves a tag label from the query to a known tag
+     */
+    public static QueryPlan compile(Query query, TagIndex tagIndex, Function<String, List<UUID>> search,
+                                    Function<String, Tag> tags) {
+        var tagBitmaps = new ArrayList<BitSet>();
+        var excludedTags = new ArrayList<BitSet>();
+        var texts = new ArrayList<Query.Text>();
+        var residual = new ArrayList<Predicate<ArchiveEntry>>();
+        for (var clause : query.clauses()) {
+            switch (clause) {
+                case Query.HasTag c -> (c.negated() ? excludedTags : tagBitmaps)
+                        .add(tagIndex.matchingAll(List.of(tags.apply(c.label()))));
+                case Query.Text c when search != null -> texts.add(c);
+                case Query.Text c -> residual.add(nameContains(c));
+                case Query.Date c -> residual.add(dateMatches(c));
+            }
+        }
+
+        BitSet documents = null;
+        tagBitmaps.sort(Comparator.comparingInt(BitSet::cardinality));
+        for (var bitmap : tagBitmaps) {
+            documents = and(documents, bitmap);
+        }
+        for (var bitmap : excludedTags) {
+            documents = andNot(documents, bitmap, tagIndex);
+        }
+        Map<UUID, Integer> ranks = null;
+        // Searches cost the most, so they run last and not at all when nothing is left
+        texts.sort(Comparator.comparing(Query.Text::negated));
+        for (var text : texts) {
+            if (documents != null && documents.isEmpty()) {
+                break;
+            }
+            var hits = search.apply(text.text());
+            var bitmap = tagIndex.documentsOf(hits);
+            if (text.negated()) {
+                documents = andNot(documents, bitmap, tagIndex);
+            } else {
+                documents = and(documents, bitmap);
+                ranks = ranks == null ? ranksOf(hits) : ranks;
+            }
+        }
+        return new QueryPlan(tagIndex, documents, residual, ranks);
+    }
+
+    /**
+     * @return a plan that also requires the document to be among {@code allowed}
+     */
+    public QueryPlan restrictTo(BitSet allowed) {
+        return new QueryPlan(tagIndex, and(documents, allowed), residual, ranks);
+    }
+
+    @Override
+    public boolean test(ArchiveEntry entry) {
+        if (documents != null && !tagIndex.matches(documents, entry.getId())) {
+            return false;
+        }
+        for (var predicate : residual) {
+            if (!predicate.test(entry)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean usesIndex() {
+        return documents != null;
+    }
+
+    /**
+     * @return the position of each document in the search results, or null if the query has no searched text
+     */
+    public Map<UUID, Integer> ranks() {
+        return ranks;
+    }
+
+    private static BitSet and(BitSet documents, BitSet bitmap) {
+        var result = (BitSet) bitmap.clone();
+        if (documents != null) {
+            result.and(documents);
+        }
+        return result;
+    }
+
+    private static BitSet andNot(BitSet documents, BitSet bitmap, TagIndex tagIndex) {
+        var result = documents == null ? tagIndex.all() : (BitSet) documents.clone();
+        result.andNot(bitmap);
+        return result;
+    }
+
+    private static Map<UUID, Integer> ranksOf(List<UUID> rankedIds) {
+        Map<UUID, Integer> ranks = HashMap.newHashMap(rankedIds.size());
+        for (int i = 0; i < rankedIds.size(); i++) {
+            ranks.putIfAbsent(rankedIds.get(i), i);
+        }
+        return ranks;
+    }
+
+    private static Predicate<ArchiveEntry> nameContains(Query.Text clause) {
+        var normalized = Tokenizer.normalize(clause.text());
+        return entry -> (entry.getName() != null && Tokenizer.normalize(entry.getName()).contains(normalized)) != clause.negated();
+    }
+
+    private static Predicate<ArchiveEntry> dateMatches(Query.Date clause) {
+        return entry -> {
+            var date = clause.field() == Query.DateField.CREATED ? entry.getDateCreated() : entry.getDateLastModified();
+            return date != null && clause.matches(date.toLocalDate());
+        };
+    }
+}
@@ -0,0 +1,124 @@
+package dev.arne.smartfiles.core.search;
+
+import dev.arne.smartfiles.core.model.Tag;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bitmaps of the documents carrying each tag. Documents get dense ordinals, reusing those of
+ * removed documents, so a tag selection is answered with a few word-wise OR or AND operations
+ * and each document is then checked with a single bit. Other index results are turned into
+ * bitmaps of the same ordinals to be combined with them. Not thread safe.
+ */
+public final class TagIndex {
+
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    private final BitSet used = new BitSet();
+    private final Map<Tag, BitSet> documentsByTag = new HashMap<>();
+
+    /**
+     * Adds a document or replaces its tags.
+     */
+    public void put(UUID id, Collection<Tag> tags) {
+        var ordinal = ordinals.get(id);
+        if (ordinal == null) {
+            ordinal = used.nextClearBit(0);
+            used.set(ordinal);
+            ordinals.put(id, ordinal);
+        } else {
+            clear(ordinal);
+        }
+        for (var tag : tags) {
+            documentsByTag.computeIfAbsent(tag, _ -> new BitSet()).set(ordinal);
+        }
+    }
+
+    public void remove(UUID id) {
+        var ordinal = ordinals.remove(id);
+        if (ordinal != null) {
+            clear(ordinal);
+            used.clear(ordinal);
+        }
+    }
+
+    /**
+     * @return the documents carrying at least one of the tags
+     */
+    public BitSet matchingAny(Collection<Tag> tags) {
+        var result = new BitSet();
+        for (var tag : tags) {
+            var documents = documentsByTag.get(tag);
+            if (documents != null) {
+                result.or(documents);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the documents carrying every one of the tags
+     */
+    public BitSet matchingAll(Collection<Tag> tags) {
+        BitSet result = null;
+        for (var tag : tags) {
+            var documents = documentsByTag.get(tag);
+            if (documents == null) {
+                return new BitSet();
+            }
+            if (result == null) {
+                result = (BitSet) documents.clone();
+            } else {
+                result.and(documents);
+            }
+        }
+        return result == null ? new BitSet() : result;
+    }
+
+    /**
+     * @return the known documents among {@code ids}
+     */
+    public BitSet documentsOf(Collection<UUID> ids) {
+        var result = new BitSet();
+        for (var id : ids) {
+            var ordinal = ordinals.get(id);
+            if (ordinal != null) {
+                result.set(ordinal);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return every known document
+     */
+    public BitSet all() {
+        return (BitSet) used.clone();
+    }
+
+    /**
+     * Whether a document is among the ones returned by {@link #matchingAny} or {@link #matchingAll}.
+     */
+    public boolean matches(BitSet documents, UUID id) {
+        var ordinal = ordinals.get(id);
+        return ordinal != null && documents.get(ordinal);
+    }
+
+    public int size() {
+        return ordinals.size();
+    }
+
+    private void clear(int ordinal) {
+        var iterator = documentsByTag.values().iterator();
+        while (iterator.hasNext()) {
+            var documents = iterator.next();
+            documents.clear(ordinal);
+            if (documents.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+}
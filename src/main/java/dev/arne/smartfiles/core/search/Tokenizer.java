@@ -0,0 +1,60 @@
+package dev.arne.smartfiles.core.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into lower case terms of letters and digits with accents removed, so
+ * "Rechnung_März-2024.pdf" becomes rechnung, marz, 2024 and pdf.
+ */
+public final class Tokenizer {
+
+    public static final int MAX_TERM_LENGTH = 64;
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private Tokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        var terms = new ArrayList<String>();
+        forEachTerm(text, terms::add);
+        return terms;
+    }
+
+    /**
+     * Adds {@code weight} to the count of every term in {@code text}.
+     */
+    public static void count(String text, int weight, Map<String, Integer> counts) {
+        forEachTerm(text, term -> counts.merge(term, weight, Integer::sum));
+    }
+
+    public static String normalize(String text) {
+        var decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static void forEachTerm(String text, Consumer<String> consumer) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        var normalized = normalize(text);
+        var start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            var inTerm = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (inTerm && start < 0) {
+                start = i;
+            } else if (!inTerm && start >= 0) {
+                if (i - start <= MAX_TERM_LENGTH) {
+                    consumer.accept(normalized.substring(start, i));
+                }
+                start = -1;
+            }
+        }
+    }
+}
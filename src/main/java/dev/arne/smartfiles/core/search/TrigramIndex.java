@@ -0,0 +1,338 @@
+package dev.arne.smartfiles.core.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of the three character sequences in document names and descriptions, for
+ * substring search. A query is answered by intersecting the sorted postings of its trigrams and
+ * checking the few remaining candidates, instead of scanning every document. Text is normalized
+ * once when indexed, so queries allocate nothing per document.
+ * <p>
+ * Only the normalized texts are written; the postings are rebuilt when the file is read, so
+ * descriptions need not be loaded from the archive on every start.
+ * <pre>
+ * file:     magic, format version, document count, documents
+ * document: msb, lsb, name and description as length and UTF-8 bytes
+ * </pre>
+ */
+public final class TrigramIndex {
+
+    public static final int MAGIC = 0x53465447; // "SFTG"
+    public static final short FORMAT_VERSION = 1;
+
+    private static final int MIN_RETIRED_BEFORE_COMPACTION = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<UUID> ids = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<String> summaries = new ArrayList<>();
+    private final Map<UUID, Integer> numbers = new HashMap<>();
+    private final Map<Long, Postings> trigrams = new HashMap<>();
+    private final BitSet live = new BitSet();
+
+    private static final class Postings {
+
+        private int[] documents = new int[4];
+        private int size;
+
+        private void add(int document) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+            }
+            documents[size++] = document;
+        }
+    }
+
+    /**
+     * Adds a document or replaces its name and description.
+     */
+    public void put(UUID id, String name, String summary) {
+        var normalizedName = name == null ? "" : Tokenizer.normalize(name);
+        var normalizedSummary = summary == null ? "" : Tokenizer.normalize(summary);
+        lock.writeLock().lock();
+        try {
+            retire(id);
+            add(id, normalizedName, normalizedSummary);
+            compactIfWorthwhile();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(UUID id, String normalizedName, String normalizedSummary) {
+        var documentTrigrams = new HashSet<Long>();
+        addTrigrams(normalizedName, documentTrigrams);
+        addTrigrams(normalizedSummary, documentTrigrams);
+        var number = ids.size();
+        ids.add(id);
+        names.add(normalizedName);
+        summaries.add(normalizedSummary);
+        numbers.put(id, number);
+        live.set(number);
+        for (var trigram : documentTrigrams) {
+            trigrams.computeIfAbsent(trigram, _ -> new Postings()).add(number);
+        }
+    }
+
+    public void remove(UUID id) {
+        lock.writeLock().lock();
+        try {
+            retire(id);
+            compactIfWorthwhile();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(UUID id) {
+        lock.readLock().lock();
+        try {
+            return numbers.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<UUID> ids() {
+        lock.readLock().lock();
+        try {
+            return List.copyOf(numbers.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return numbers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds documents whose name or description contains {@code query}, ignoring case and
+     * accents. Name matches come first.
+     */
+    public List<UUID> search(String query) {
+        var normalized = Tokenizer.normalize(query.strip());
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            var nameMatches = new ArrayList<UUID>();
+            var summaryMatches = new ArrayList<UUID>();
+            if (normalized.length() < 3) {
+                // Too short for a trigram, but the normalized text is checked without copying
+                for (int number = live.nextSetBit(0); number >= 0; number = live.nextSetBit(number + 1)) {
+                    collect(number, normalized, nameMatches, summaryMatches);
+                }
+            } else {
+                var candidates = candidates(normalized);
+                for (int i = 0; i < candidates.length; i++) {
+                    collect(candidates[i], normalized, nameMatches, summaryMatches);
+                }
+            }
+            nameMatches.addAll(summaryMatches);
+            return nameMatches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collect(int number, String query, List<UUID> nameMatches, List<UUID> summaryMatches) {
+        if (!live.get(number)) {
+            return;
+        }
+        if (names.get(number).contains(query)) {
+            nameMatches.add(ids.get(number));
+        } else if (summaries.get(number).contains(query)) {
+            summaryMatches.add(ids.get(number));
+        }
+    }
+
+    /**
+     * @return the documents holding every trigram of the query, which still have to be checked
+     */
+    private int[] candidates(String query) {
+        var queryTrigrams = new HashSet<Long>();
+        addTrigrams(query, queryTrigrams);
+        var postings = new ArrayList<Postings>(queryTrigrams.size());
+        for (var trigram : queryTrigrams) {
+            var found = trigrams.get(trigram);
+            if (found == null) {
+                return new int[0];
+            }
+            postings.add(found);
+        }
+        postings.sort((a, b) -> Integer.compare(a.size, b.size));
+        var result = Arrays.copyOf(postings.getFirst().documents, postings.getFirst().size);
+        var size = result.length;
+        for (int p = 1; p < postings.size() && size > 0; p++) {
+            size = intersect(result, size, postings.get(p));
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Keeps the documents of {@code result} that are also in {@code postings}, both sorted.
+     */
+    private static int intersect(int[] result, int size, Postings postings) {
+        var kept = 0;
+        var j = 0;
+        for (int i = 0; i < size && j < postings.size; i++) {
+            var document = result[i];
+            while (j < postings.size && postings.documents[j] < document) {
+                j++;
+            }
+            if (j < postings.size && postings.documents[j] == document) {
+                result[kept++] = document;
+            }
+        }
+        return kept;
+    }
+
+    private static void addTrigrams(String text, Set<Long> into) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            into.add(trigram(text.charAt(i), text.charAt(i + 1), text.charAt(i + 2)));
+        }
+    }
+
+    private static long trigram(char first, char second, char third) {
+        return (long) first << 32 | (long) second << 16 | third;
+    }
+
+    private void retire(UUID id) {
+        var number = numbers.remove(id);
+        if (number != null) {
+            live.clear(number);
+            // Only needed for candidates that are filtered out anyway
+            names.set(number, "");
+            summaries.set(number, "");
+        }
+    }
+
+    private void compactIfWorthwhile() {
+        var retired = ids.size() - numbers.size();
+        if (retired >= MIN_RETIRED_BEFORE_COMPACTION && retired > numbers.size()) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        var renumbered = new int[ids.size()];
+        Arrays.fill(renumbered, -1);
+        var liveIds = new ArrayList<UUID>(numbers.size());
+        var liveNames = new ArrayList<String>(numbers.size());
+        var liveSummaries = new ArrayList<String>(numbers.size());
+        for (int number = live.nextSetBit(0); number >= 0; number = live.nextSetBit(number + 1)) {
+            renumbered[number] = liveIds.size();
+            liveIds.add(ids.get(number));
+            liveNames.add(names.get(number));
+            liveSummaries.add(summaries.get(number));
+        }
+        var iterator = trigrams.values().iterator();
+        while (iterator.hasNext()) {
+            var postings = iterator.next();
+            var size = 0;
+            for (int i = 0; i < postings.size; i++) {
+                var next = renumbered[postings.documents[i]];
+                if (next >= 0) {
+                    postings.documents[size++] = next;
+                }
+            }
+            postings.size = size;
+            if (size == 0) {
+                iterator.remove();
+            }
+        }
+        ids.clear();
+        ids.addAll(liveIds);
+        names.clear();
+        names.addAll(liveNames);
+        summaries.clear();
+        summaries.addAll(liveSummaries);
+        numbers.clear();
+        for (int number = 0; number < ids.size(); number++) {
+            numbers.put(ids.get(number), number);
+        }
+        live.clear();
+        live.set(0, ids.size());
+    }
+
+    /**
+     * Writes the index next to {@code file} and moves it into place.
+     */
+    public void write(Path file) throws IOException {
+        lock.readLock().lock();
+        try {
+            Files.createDirectories(file.getParent());
+            var temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeShort(FORMAT_VERSION);
+                out.writeInt(numbers.size());
+                for (int number = live.nextSetBit(0); number >= 0; number = live.nextSetBit(number + 1)) {
+                    out.writeLong(ids.get(number).getMostSignificantBits());
+                    out.writeLong(ids.get(number).getLeastSignificantBits());
+                    writeString(out, names.get(number));
+                    writeString(out, summaries.get(number));
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static TrigramIndex read(Path file) throws IOException {
+        var index = new TrigramIndex();
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a trigram index");
+            }
+            var formatVersion = in.readShort();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported trigram index format version: " + formatVersion);
+            }
+            var documentCount = in.readInt();
+            for (int i = 0; i < documentCount; i++) {
+                index.add(new UUID(in.readLong(), in.readLong()), readString(in), readString(in));
+            }
+        }
+        return index;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        var bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
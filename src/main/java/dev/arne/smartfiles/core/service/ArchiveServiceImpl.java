@@ -2,35 +2,74 @@ package dev.arne.smartfiles.core.service;
 
 import dev.arne.smartfiles.core.ArchiveService;
 import dev.arne.smartfiles.core.FileService;
+import dev.arne.smartfiles.core.configuration.SmartFilesConfiguration;
 import dev.arne.smartfiles.core.events.AllTagsUpdatedEvent;
 import dev.arne.smartfiles.core.events.ArchiveLastModifiedUpdatedEvent;
 import dev.arne.smartfiles.core.events.DocumentDeletedEvent;
 import dev.arne.smartfiles.core.events.DocumentDescriptionUpdatedEvent;
+import dev.arne.smartfiles.core.events.DocumentMetadataExtractedEvent;
 import dev.arne.smartfiles.core.events.DocumentTagAddedEvent;
+import dev.arne.smartfiles.core.events.DocumentsChangedEvent;
+import dev.arne.smartfiles.core.events.IngestCompletedEvent;
+import dev.arne.smartfiles.core.events.IngestProgressEvent;
 import dev.arne.smartfiles.core.model.Archive;
 import dev.arne.smartfiles.core.model.ArchiveEntry;
 import dev.arne.smartfiles.core.events.ArchiveEntryAddedEvent;
+import dev.arne.smartfiles.core.model.ArchiveMutation;
+import dev.arne.smartfiles.core.model.ArchiveVersion;
+import dev.arne.smartfiles.core.model.DocumentMetadata;
+import dev.arne.smartfiles.core.model.IngestResult;
 import dev.arne.smartfiles.core.model.Tag;
+import dev.arne.smartfiles.core.store.ArchiveLoadListener;
+import dev.arne.smartfiles.core.store.BlobStore;
+import dev.arne.smartfiles.core.store.IngestQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ApplicationContextEvent;
 import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+/**
+ * All changes go through {@link #commit}, one at a time under the archive lock. Each commit
+ * publishes an immutable {@link ArchiveVersion}, and every read is answered from the current
+ * version without locking, so ingestion and background work never block the UI or hand it
+ * entries that change underneath it. Events are published in commit order after the lock is
+ * released, so listeners never hold up other writers.
+ */
 @Service
-public class ArchiveServiceImpl implements ArchiveService, ApplicationListener<ContextClosedEvent> {
+public class ArchiveServiceImpl implements ArchiveService, ApplicationListener<ApplicationContextEvent> {
 
     private final Logger logger = LoggerFactory.getLogger(ArchiveServiceImpl.class);
 
@@ -38,39 +77,120 @@ public class ArchiveServiceImpl implements ArchiveService, ApplicationListener<C
     private final ApplicationEventPublisher publisher;
 
     private final Archive archive;
+    private final Object archiveLock = new Object();
+    private volatile ArchiveVersion currentVersion;
 
-    public ArchiveServiceImpl(FileService fileService, ApplicationEventPublisher publisher) {
+    /**
+     * Events of committed versions, in commit order, and whether a thread is publishing them.
+     */
+    private final Queue<Runnable> pendingEvents = new ArrayDeque<>();
+    private boolean publishingEvents;
+    private final ScheduledExecutorService compactionScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "archive-compaction-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ExecutorService ingestExecutor;
+    private final ExecutorService ingestDrainer = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "ingest-drainer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final IngestQueue ingestQueue;
+    private final int ingestChunkSize;
+    private final Map<UUID, IngestBatch> batchesByJob = new ConcurrentHashMap<>();
+    private volatile boolean closing;
+
+    /**
+     * Archived entries by content digest while resumed jobs are drained, so checking whether one
+     * was archived already never hydrates entries for their original path. Drainer thread only.
+     */
+    private Map<String, List<ArchiveEntry>> archivedByDigest;
+
+    private final boolean metadataExtractionEnabled;
+    private final int metadataBatchSize;
+    private final ExecutorService metadataExtractor = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "metadata-extractor");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * Files of one {@link #ingestFiles} call, or the files resumed from a previous run. Results
+     * are only added on the drainer thread, in queue order.
+     */
+    private final class IngestBatch {
+
+        private final int total;
+        private final AtomicInteger completed = new AtomicInteger();
+        private final List<ArchiveEntry> added = new ArrayList<>();
+        private final List<IngestResult.Failure> failures = new ArrayList<>();
+        private final CompletableFuture<IngestResult> future = new CompletableFuture<>();
+
+        private IngestBatch(int total) {
+            this.total = total;
+        }
+
+        private boolean isDone() {
+            return added.size() + failures.size() == total;
+        }
+    }
+
+    private record JobOutcome(IngestQueue.Job job, ArchiveEntry entry, boolean alreadyArchived, IngestResult.Failure failure) {}
+
+    public ArchiveServiceImpl(FileService fileService, ApplicationEventPublisher publisher, SmartFilesConfiguration configuration) {
         this.fileService = fileService;
         this.publisher = publisher;
-        this.archive = fileService.loadArchive();
+        this.ingestQueue = fileService.getIngestQueue();
+        this.ingestChunkSize = configuration.getIngestChunkSize();
+        this.metadataExtractionEnabled = configuration.isMetadataExtractionEnabled();
+        this.metadataBatchSize = configuration.getMetadataBatchSize();
+        var ingestThreadCount = new AtomicInteger();
+        this.ingestExecutor = Executors.newFixedThreadPool(configuration.getIngestThreads(), runnable -> {
+            var thread = new Thread(runnable, "ingest-worker-" + ingestThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.archive = fileService.loadArchive(loadProgressLogger());
+        publishVersion();
+        var interval = configuration.getCompactionInterval().toMillis();
+        compactionScheduler.scheduleWithFixedDelay(this::compactArchive, interval, interval, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public List<ArchiveEntry> manageFiles(List<File> files) {
-        var newEntries = files.stream().map(file -> {
-            try {
-                var copy = Files.copy(file.toPath(), copyPath(file)).toFile();
-                logger.info("Created copy of file '{}' at: {}", file.getName(), copy.getAbsolutePath());
-                return archive.addArchiveEntryFromFile(copy, file.getAbsolutePath());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        }).toList();
-        for (var newEntry : newEntries) {
-            publisher.publishEvent(new ArchiveEntryAddedEvent(newEntry));
+        return ingestFiles(files).join().added();
+    }
+
+    @Override
+    public CompletableFuture<IngestResult> ingestFiles(List<File> files) {
+        var jobs = ingestQueue.enqueue(files.stream().map(File::toPath).toList());
+        var batch = track(jobs);
+        try {
+            ingestDrainer.execute(this::drainIngestQueue);
+        } catch (RejectedExecutionException _) {
+            // Shutting down, the files stay queued for the next start
+            jobs.forEach(job -> batchesByJob.remove(job.id()));
+            batch.future.complete(resultOf(batch));
         }
-        saveArchiveAndPublishUpdate();
-        return newEntries;
+        return batch.future;
+    }
+
+    @Override
+    public ArchiveVersion getCurrentVersion() {
+        return currentVersion;
     }
 
     @Override
     public List<ArchiveEntry> getAll() {
-        return archive.getArchiveEntries().values().stream().toList();
+        return List.copyOf(currentVersion.entries().values());
     }
 
     @Override
     public ArchiveEntry retrieveFileDetails(UUID id) {
-        return archive.getArchiveEntries().get(id);
+        return currentVersion.entries().get(id);
     }
 
     @Override
@@ -84,82 +204,487 @@ public class ArchiveServiceImpl implements ArchiveService, ApplicationListener<C
 
     @Override
     public void addTag(UUID selectedDocumentId, String text) {
-        var entry = archive.getArchiveEntries().get(selectedDocumentId);
         var newTag = new Tag(text);
-        entry.getTags().add(newTag);
-        entry.updateLastModified();
-        publisher.publishEvent(new DocumentTagAddedEvent(newTag, selectedDocumentId));
-        publisher.publishEvent(new AllTagsUpdatedEvent(getAllUniqueTags()));
-        saveArchiveAndPublishUpdate();
+        commit(List.of(new ArchiveMutation.TagAdded(selectedDocumentId, newTag, LocalDateTime.now())), version -> {
+            publisher.publishEvent(new DocumentTagAddedEvent(newTag, selectedDocumentId));
+            publisher.publishEvent(new AllTagsUpdatedEvent(version.tagCounts()));
+            publisher.publishEvent(new DocumentsChangedEvent(entriesOf(version, List.of(selectedDocumentId))));
+        });
     }
 
     @Override
     public void updateDescription(UUID documentId, String description) {
-        var entry = archive.getArchiveEntries().get(documentId);
-        entry.setSummary(description);
-        entry.updateLastModified();
-        publisher.publishEvent(new DocumentDescriptionUpdatedEvent(documentId, description));
-        saveArchiveAndPublishUpdate();
+        commit(List.of(new ArchiveMutation.DescriptionUpdated(documentId, description, LocalDateTime.now())), version -> {
+            publisher.publishEvent(new DocumentDescriptionUpdatedEvent(documentId, description));
+            publisher.publishEvent(new DocumentsChangedEvent(entriesOf(version, List.of(documentId))));
+        });
     }
 
     @Override
-    public Set<Tag> getAllUniqueTags() {
-        Set<Tag> allTags = new HashSet<>();
-        for (ArchiveEntry entry : archive.getArchiveEntries().values()) {
-            allTags.addAll(entry.getTags());
+    public void addTags(Collection<UUID> documentIds, Collection<String> tags) {
+        if (documentIds.isEmpty() || tags.isEmpty()) {
+            return;
+        }
+        var ids = List.copyOf(new LinkedHashSet<>(documentIds));
+        commitTagChange(ids, new ArchiveMutation.TagsAdded(ids, tagsOf(tags), LocalDateTime.now()));
+    }
+
+    @Override
+    public void removeTags(Collection<UUID> documentIds, Collection<String> tags) {
+        if (documentIds.isEmpty() || tags.isEmpty()) {
+            return;
         }
-        return allTags;
+        var ids = List.copyOf(new LinkedHashSet<>(documentIds));
+        commitTagChange(ids, new ArchiveMutation.TagsRemoved(ids, tagsOf(tags), LocalDateTime.now()));
+    }
+
+    @Override
+    public void renameTag(String tag, String newName) {
+        var oldTag = new Tag(tag);
+        var newTag = new Tag(newName);
+        if (oldTag.equals(newTag)) {
+            return;
+        }
+        commit(List.of(new ArchiveMutation.TagRenamed(oldTag, newTag, LocalDateTime.now())), version -> {
+            // Every renamed document carries the new tag now, tags are known without hydrating
+            var renamed = version.entries().values().stream().filter(entry -> entry.getTags().contains(newTag)).toList();
+            publisher.publishEvent(new DocumentsChangedEvent(renamed));
+            publisher.publishEvent(new AllTagsUpdatedEvent(version.tagCounts()));
+        });
+        logger.info("Renamed tag {} to {}", oldTag.label(), newTag.label());
+    }
+
+    @Override
+    public void bulkDelete(Collection<UUID> documentIds) {
+        var entries = entriesOf(currentVersion, documentIds);
+        if (entries.isEmpty()) {
+            return;
+        }
+        var ids = entries.stream().map(ArchiveEntry::getId).toList();
+        commit(List.of(new ArchiveMutation.EntriesDeleted(ids, LocalDateTime.now())), () -> deleteFiles(entries), committed -> {
+            publisher.publishEvent(new DocumentsChangedEvent(List.of(), Set.copyOf(ids)));
+            publisher.publishEvent(new AllTagsUpdatedEvent(committed.tagCounts()));
+        });
+        logger.info("Deleted {} documents", ids.size());
+    }
+
+    @Override
+    public Set<Tag> getAllUniqueTags() {
+        return new HashSet<>(currentVersion.tagCounts().keySet());
+    }
+
+    @Override
+    public Map<Tag, Integer> getTagCounts() {
+        return currentVersion.tagCounts();
     }
 
     @Override
     public void deleteDocument(UUID documentId) {
-        var entry = archive.getArchiveEntries().get(documentId);
+        var entry = currentVersion.entries().get(documentId);
         if (entry == null) {
             logger.warn("Document with id {} not found", documentId);
             return;
         }
-        try {
-            var filePath = Path.of(entry.getAbsolutePath());
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
-                logger.info("Deleted file: {}", filePath);
-            }
-        } catch (IOException e) {
-            logger.error("Failed to delete file for document {}", documentId, e);
-        }
-        archive.getArchiveEntries().remove(documentId);
-        publisher.publishEvent(new DocumentDeletedEvent(documentId));
-        publisher.publishEvent(new AllTagsUpdatedEvent(getAllUniqueTags()));
-        saveArchiveAndPublishUpdate();
+        commit(List.of(new ArchiveMutation.EntryDeleted(documentId, LocalDateTime.now())), () -> deleteFiles(List.of(entry)), committed -> {
+            publisher.publishEvent(new DocumentDeletedEvent(documentId));
+            publisher.publishEvent(new AllTagsUpdatedEvent(committed.tagCounts()));
+        });
     }
 
     @Override
     public LocalDateTime getArchiveDateCreated() {
-        return archive.getDateCreated();
+        return currentVersion.dateCreated();
     }
 
     @Override
     public LocalDateTime getArchiveDateLastModified() {
-        return archive.getDateLastModified();
+        return currentVersion.dateLastModified();
     }
 
     @Override
-    public void onApplicationEvent(ContextClosedEvent event) {
-        fileService.saveArchive(archive);
+    public void onApplicationEvent(ApplicationContextEvent event) {
+        switch (event) {
+            case ContextRefreshedEvent _ -> {
+                resumeIngest();
+                backfillMetadata();
+            }
+            case ContextClosedEvent _ -> close();
+            default -> {}
+        }
+    }
+
+    private void close() {
+        compactionScheduler.shutdownNow();
+        closing = true;
+        ingestDrainer.shutdown();
+        try {
+            if (!ingestDrainer.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Ingest still running at shutdown, {} queued files resume on the next start", ingestQueue.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ingestExecutor.shutdownNow();
+        metadataExtractor.shutdownNow();
+        synchronized (archiveLock) {
+            fileService.flushArchiveJournal();
+            fileService.saveArchive(archive);
+        }
+    }
+
+    private void compactArchive() {
+        try {
+            synchronized (archiveLock) {
+                var metrics = fileService.getArchiveStoreMetrics();
+                if (metrics.journalRecordsSinceSnapshot() > 0 || metrics.pendingWrites() > 0) {
+                    fileService.compactArchive(archive);
+                }
+            }
+            var metrics = fileService.getArchiveStoreMetrics();
+            logger.info("Archive store: {} generations, last snapshot took {} ms, compaction lag {} ms",
+                    metrics.snapshotGenerations(), metrics.lastSnapshotDuration().toMillis(), metrics.compactionLag().toMillis());
+        } catch (RuntimeException e) {
+            // An uncaught exception would cancel all future compactions
+            logger.error("Archive compaction failed", e);
+        }
+    }
+
+    private ArchiveEntry storeFile(File file) throws IOException {
+        var blob = fileService.storeBlob(file.toPath());
+        logger.info("Stored file '{}' at: {}", file.getName(), blob.path());
+        var entry = ArchiveEntry.of(file.getName(), blob.path().toAbsolutePath().toString(), file.getAbsolutePath());
+        entry.setContentDigest(blob.digest());
+        return entry;
+    }
+
+    private void resumeIngest() {
+        var jobs = ingestQueue.pending().stream().filter(job -> !batchesByJob.containsKey(job.id())).toList();
+        if (!jobs.isEmpty()) {
+            logger.info("Resuming ingest of {} files", jobs.size());
+            track(jobs);
+            ingestDrainer.execute(this::drainIngestQueue);
+        }
+    }
+
+    private IngestBatch track(List<IngestQueue.Job> jobs) {
+        var batch = new IngestBatch(jobs.size());
+        jobs.forEach(job -> batchesByJob.put(job.id(), batch));
+        if (jobs.isEmpty()) {
+            finish(batch);
+        }
+        return batch;
+    }
+
+    /**
+     * Works through the queue a chunk at a time, so memory and the worker queue stay bounded
+     * however many files were dropped. Each chunk is committed with one journal write. When
+     * stopped for shutdown, waiting batches complete with what was ingested so far.
+     */
+    private void drainIngestQueue() {
+        List<IngestQueue.Job> chunk;
+        while (!closing && !(chunk = ingestQueue.peek(ingestChunkSize)).isEmpty()) {
+            try {
+                processChunk(chunk);
+            } catch (RuntimeException e) {
+                // The jobs stay queued and are retried on the next start
+                logger.error("Ingest stopped, {} files remain queued", ingestQueue.size(), e);
+                batchesByJob.values().stream().distinct().forEach(batch -> batch.future.completeExceptionally(e));
+                batchesByJob.clear();
+                return;
+            }
+        }
+        archivedByDigest = null;
+        if (closing && !batchesByJob.isEmpty()) {
+            logger.info("Ingest stopped for shutdown, {} files remain queued for the next start", ingestQueue.size());
+            batchesByJob.values().stream().distinct().forEach(batch -> batch.future.complete(resultOf(batch)));
+            batchesByJob.clear();
+        }
+    }
+
+    private void processChunk(List<IngestQueue.Job> chunk) {
+        if (archivedByDigest == null && chunk.stream().anyMatch(IngestQueue.Job::resumed)) {
+            archivedByDigest = new HashMap<>();
+            currentVersion.entries().values().forEach(this::rememberArchived);
+        }
+        var archived = archivedByDigest;
+        var tasks = chunk.stream().map(job -> CompletableFuture.supplyAsync(() -> runJob(job, archived), ingestExecutor)).toList();
+        var outcomes = tasks.stream().map(CompletableFuture::join).toList();
+        var newEntries = outcomes.stream().filter(outcome -> outcome.entry() != null && !outcome.alreadyArchived()).map(JobOutcome::entry).toList();
+        if (archivedByDigest != null) {
+            newEntries.forEach(this::rememberArchived);
+        }
+        if (!newEntries.isEmpty()) {
+            var mutations = newEntries.stream()
+                    .<ArchiveMutation>map(entry -> new ArchiveMutation.EntryAdded(entry, entry.getDateCreated()))
+                    .toList();
+            commit(mutations, version -> {
+                // The stored entries, which may be views rather than the objects that were added
+                entriesOf(version, newEntries.stream().map(ArchiveEntry::getId).toList())
+                        .forEach(entry -> publisher.publishEvent(new ArchiveEntryAddedEvent(entry)));
+            });
+        }
+        extractMetadata(newEntries);
+        var completed = new ArrayList<UUID>();
+        var failed = new HashMap<UUID, String>();
+        for (var outcome : outcomes) {
+            if (outcome.failure() == null) {
+                completed.add(outcome.job().id());
+            } else {
+                failed.put(outcome.job().id(), outcome.failure().reason());
+            }
+        }
+        if (!newEntries.isEmpty()) {
+            // The queue forgets completed jobs, so their entries must be durable first
+            fileService.flushArchiveJournal();
+        }
+        ingestQueue.complete(completed, failed);
+        for (var outcome : outcomes) {
+            var batch = batchesByJob.remove(outcome.job().id());
+            if (batch == null) {
+                continue;
+            }
+            if (outcome.failure() == null) {
+                batch.added.add(outcome.entry());
+            } else {
+                batch.failures.add(outcome.failure());
+            }
+            if (batch.isDone()) {
+                finish(batch);
+            }
+        }
+        logTransferStatistics();
+    }
+
+    private JobOutcome runJob(IngestQueue.Job job, Map<String, List<ArchiveEntry>> archivedByDigest) {
+        var file = job.path().toFile();
+        JobOutcome outcome;
+        try {
+            var archived = job.resumed() ? findArchived(job.path(), archivedByDigest) : null;
+            outcome = archived != null
+                    ? new JobOutcome(job, archived, true, null)
+                    : new JobOutcome(job, storeFile(file), false, null);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Cannot ingest file '{}'", file, e);
+            var failure = new IngestResult.Failure(file, Objects.requireNonNullElse(e.getMessage(), e.getClass().getSimpleName()));
+            outcome = new JobOutcome(job, null, false, failure);
+        }
+        var batch = batchesByJob.get(job.id());
+        if (batch != null) {
+            publisher.publishEvent(new IngestProgressEvent(file.getName(), batch.completed.incrementAndGet(), batch.total, outcome.failure() == null));
+        }
+        return outcome;
+    }
+
+    /**
+     * A resumed job may have been committed to the archive just before the application stopped.
+     * Only entries with the same content are hydrated to compare their original path.
+     */
+    private static ArchiveEntry findArchived(Path file, Map<String, List<ArchiveEntry>> archivedByDigest) throws IOException {
+        var candidates = archivedByDigest.get(BlobStore.digestOf(file));
+        if (candidates == null) {
+            return null;
+        }
+        var originalPath = file.toAbsolutePath().toString();
+        return candidates.stream().filter(entry -> originalPath.equals(entry.getOriginalPath())).findFirst().orElse(null);
+    }
+
+    private void rememberArchived(ArchiveEntry entry) {
+        if (entry.getContentDigest() != null) {
+            archivedByDigest.computeIfAbsent(entry.getContentDigest(), _ -> new ArrayList<>()).add(entry);
+        }
+    }
+
+    private void finish(IngestBatch batch) {
+        var result = resultOf(batch);
+        logger.info("Ingested {} of {} files", result.added().size(), result.total());
+        publisher.publishEvent(new IngestCompletedEvent(result));
+        batch.future.complete(result);
+    }
+
+    private static IngestResult resultOf(IngestBatch batch) {
+        return new IngestResult(List.copyOf(batch.added), List.copyOf(batch.failures));
+    }
+
+    /**
+     * Queues metadata extraction for entries stored before it existed or before a crash.
+     */
+    private void backfillMetadata() {
+        var missing = currentVersion.entries().values().stream().filter(entry -> !entry.hasMetadata()).toList();
+        if (!missing.isEmpty()) {
+            logger.info("Extracting metadata of {} documents in the background", missing.size());
+            extractMetadata(missing);
+        }
+    }
+
+    /**
+     * Reads the metadata of each entry once on a low priority thread and commits it in batches,
+     * so the list and the viewer never have to open the documents for it.
+     */
+    private void extractMetadata(List<ArchiveEntry> entries) {
+        var supported = entries.stream().filter(entry -> DocumentMetadataReader.isSupported(entry.getName())).toList();
+        if (!metadataExtractionEnabled || supported.isEmpty()) {
+            return;
+        }
+        metadataExtractor.execute(() -> {
+            for (int from = 0; from < supported.size() && !closing; from += metadataBatchSize) {
+                var batch = supported.subList(from, Math.min(supported.size(), from + metadataBatchSize));
+                var extracted = new LinkedHashMap<UUID, DocumentMetadata>();
+                for (var entry : batch) {
+                    extracted.put(entry.getId(), DocumentMetadataReader.read(Path.of(entry.getAbsolutePath())));
+                }
+                commitMetadata(extracted);
+            }
+        });
+    }
+
+    private void commitMetadata(Map<UUID, DocumentMetadata> extracted) {
+        var now = LocalDateTime.now();
+        var entries = currentVersion.entries();
+        var mutations = new ArrayList<ArchiveMutation>(extracted.size());
+        extracted.forEach((documentId, metadata) -> {
+            // Skip documents deleted while their metadata was read; a delete racing this is a no-op
+            if (entries.containsKey(documentId)) {
+                mutations.add(new ArchiveMutation.MetadataExtracted(documentId, metadata, now));
+            }
+        });
+        if (mutations.isEmpty()) {
+            return;
+        }
+        commit(mutations, version -> {
+            publisher.publishEvent(new DocumentMetadataExtractedEvent(Map.copyOf(extracted)));
+            publisher.publishEvent(new DocumentsChangedEvent(entriesOf(version, extracted.keySet())));
+        });
+    }
+
+    private void logTransferStatistics() {
+        for (var statistics : fileService.getTransferStatistics()) {
+            logger.info("Ingest via {}: {} files, {} bytes, {} MB/s", statistics.transport(), statistics.files(),
+                    statistics.bytes(), "%.1f".formatted(statistics.megabytesPerSecond()));
+        }
+    }
+
+    private ArchiveLoadListener loadProgressLogger() {
+        var lastReported = new AtomicInteger(-1);
+        return (entriesLoaded, fraction) -> {
+            var percent = (int) (fraction * 10) * 10;
+            if (percent > lastReported.get()) {
+                lastReported.set(percent);
+                logger.info("Loading archive: {}% ({} entries)", percent, entriesLoaded);
+            }
+        };
+    }
+
+    /**
+     * Deletes the files of the entries, keeping a file while a document that stays in the archive
+     * shares its content. Called under the archive lock once the entries were removed, so an
+     * ingest committing a document with the same content cannot slip in between.
+     */
+    private void deleteFiles(List<ArchiveEntry> entries) {
+        var digests = entries.stream().map(ArchiveEntry::getContentDigest).filter(Objects::nonNull).collect(Collectors.toSet());
+        // Comparing digests first avoids hydrating every entry for its path
+        var sharedPaths = digests.isEmpty() ? Set.<String>of() : archive.getArchiveEntries().values().stream()
+                .filter(other -> digests.contains(other.getContentDigest()))
+                .map(ArchiveEntry::getAbsolutePath)
+                .collect(Collectors.toSet());
+        for (var entry : entries) {
+            try {
+                var filePath = Path.of(entry.getAbsolutePath());
+                if (sharedPaths.contains(entry.getAbsolutePath())) {
+                    logger.info("Keeping file {}, its content is shared with another document", filePath);
+                } else if (Files.exists(filePath)) {
+                    Files.delete(filePath);
+                    logger.info("Deleted file: {}", filePath);
+                }
+            } catch (IOException e) {
+                logger.error("Failed to delete file for document {}", entry.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * Publishes one {@link DocumentsChangedEvent} for the whole batch.
+     */
+    private void commitTagChange(List<UUID> documentIds, ArchiveMutation mutation) {
+        commit(List.of(mutation), version -> {
+            publisher.publishEvent(new DocumentsChangedEvent(entriesOf(version, documentIds)));
+            publisher.publishEvent(new AllTagsUpdatedEvent(version.tagCounts()));
+        });
+    }
+
+    private static List<Tag> tagsOf(Collection<String> labels) {
+        return labels.stream().distinct().map(Tag::new).toList();
+    }
+
+    /**
+     * The single write path. Applies and journals the mutations and publishes the new version
+     * under the archive lock, then publishes the events, so listeners reading the archive see the
+     * change and a failing listener cannot keep a change from being journaled.
+     *
+     * @param publishEvents publishes the events of the change, given the new version
+     */
+    private void commit(List<ArchiveMutation> mutations, Consumer<ArchiveVersion> publishEvents) {
+        commit(mutations, () -> {}, publishEvents);
+    }
+
+    /**
+     * @param afterApply runs under the archive lock once the mutations were applied and journaled
+     */
+    private void commit(List<ArchiveMutation> mutations, Runnable afterApply, Consumer<ArchiveVersion> publishEvents) {
+        synchronized (archiveLock) {
+            mutations.forEach(archive::apply);
+            archive.updateLastModified();
+            fileService.appendToArchiveJournal(mutations);
+            afterApply.run();
+            var version = publishVersion();
+            synchronized (pendingEvents) {
+                pendingEvents.add(() -> {
+                    publishEvents.accept(version);
+                    publisher.publishEvent(new ArchiveLastModifiedUpdatedEvent(version.dateLastModified()));
+                });
+            }
+        }
+        publishPendingEvents();
+    }
+
+    /**
+     * Publishes queued events until none are left. If another thread, or a listener further up
+     * this thread, is publishing already, it picks them up in order instead.
+     */
+    private void publishPendingEvents() {
+        synchronized (pendingEvents) {
+            if (publishingEvents) {
+                return;
+            }
+            publishingEvents = true;
+        }
+        try {
+            while (true) {
+                Runnable events;
+                synchronized (pendingEvents) {
+                    events = pendingEvents.poll();
+                    if (events == null) {
+                        publishingEvents = false;
+                        return;
+                    }
+                }
+                events.run();
+            }
+        } catch (RuntimeException e) {
+            synchronized (pendingEvents) {
+                publishingEvents = false;
+            }
+            throw e;
+        }
     }
 
-    private Path copyPath(File file) {
-        var path = fileService.getTenantDirectory() +
-                FileSystems.getDefault().getSeparator() +
-                "files" +
-                FileSystems.getDefault().getSeparator() +
-                file.getName();
-        return Path.of(path);
+    private ArchiveVersion publishVersion() {
+        var previous = currentVersion;
+        currentVersion = new ArchiveVersion(previous == null ? 0 : previous.number() + 1, archive.snapshotEntries(),
+                Map.copyOf(archive.getTagDictionary().counts()), archive.getDateCreated(), archive.getDateLastModified());
+        return currentVersion;
     }
 
-    private void saveArchiveAndPublishUpdate() {
-        archive.updateLastModified();
-        publisher.publishEvent(new ArchiveLastModifiedUpdatedEvent(archive.getDateLastModified()));
-        fileService.saveArchive(archive);
+    private static List<ArchiveEntry> entriesOf(ArchiveVersion version, Collection<UUID> documentIds) {
+        return documentIds.stream().distinct().map(version.entries()::get).filter(Objects::nonNull).toList();
     }
 }
@@ -0,0 +1,53 @@
+package dev.arne.smartfiles.core.service;
+
+import dev.arne.smartfiles.core.model.DocumentMetadata;
+import org.apache.pdfbox.Loader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads {@link DocumentMetadata} from a PDF without rendering it.
+ */
+final class DocumentMetadataReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentMetadataReader.class);
+
+    private DocumentMetadataReader() {
+    }
+
+    static boolean isSupported(String fileName) {
+        return fileName != null && fileName.toLowerCase(Locale.ROOT).endsWith(".pdf");
+    }
+
+    /**
+     * @return the metadata, or {@link DocumentMetadata#UNREADABLE} if the file cannot be parsed
+     */
+    static DocumentMetadata read(Path file) {
+        try (var document = Loader.loadPDF(file.toFile())) {
+            var sizes = new ArrayList<DocumentMetadata.PageSize>(document.getNumberOfPages());
+            for (var page : document.getPages()) {
+                var box = page.getMediaBox();
+                var rotated = page.getRotation() % 180 != 0;
+                sizes.add(rotated
+                        ? new DocumentMetadata.PageSize(box.getHeight(), box.getWidth())
+                        : new DocumentMetadata.PageSize(box.getWidth(), box.getHeight()));
+            }
+            var info = document.getDocumentInformation();
+            var created = info.getCreationDate();
+            var creationDate = created == null ? null : LocalDateTime.ofInstant(created.toInstant(), ZoneId.systemDefault());
+            return new DocumentMetadata(document.getNumberOfPages(), List.copyOf(sizes), info.getTitle(),
+                    info.getAuthor(), info.getProducer(), creationDate);
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Cannot read metadata of {}", file, e);
+            return DocumentMetadata.UNREADABLE;
+        }
+    }
+}
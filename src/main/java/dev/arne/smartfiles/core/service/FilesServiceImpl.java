@@ -5,6 +5,24 @@ import dev.arne.smartfiles.core.configuration.SmartFilesConfiguration;
 import dev.arne.smartfiles.core.model.AggregateRoot;
 import dev.arne.smartfiles.core.model.ApplicationSettings;
 import dev.arne.smartfiles.core.model.Archive;
+import dev.arne.smartfiles.core.model.ArchiveMutation;
+import dev.arne.smartfiles.core.model.InboxCheckpoint;
+import dev.arne.smartfiles.core.model.ShardedEntryMap;
+import dev.arne.smartfiles.core.store.ArchiveJournal;
+import dev.arne.smartfiles.core.store.ArchiveLoadListener;
+import dev.arne.smartfiles.core.store.ArchiveStoreMetrics;
+import dev.arne.smartfiles.core.store.BlobStore;
+import dev.arne.smartfiles.core.store.ChannelTransport;
+import dev.arne.smartfiles.core.store.CloneTransport;
+import dev.arne.smartfiles.core.store.ColumnarEntryStore;
+import dev.arne.smartfiles.core.store.HardLinkTransport;
+import dev.arne.smartfiles.core.store.IngestQueue;
+import dev.arne.smartfiles.core.store.TextStore;
+import dev.arne.smartfiles.core.store.IngestTransport;
+import dev.arne.smartfiles.core.store.SnapshotStore;
+import dev.arne.smartfiles.core.store.StreamingJsonArchiveReader;
+import dev.arne.smartfiles.core.store.TransferStatistics;
+import dev.arne.smartfiles.core.store.WriteBehindJournal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -15,8 +33,19 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Supplier;
 
 @Service
@@ -25,18 +54,61 @@ public class FilesServiceImpl implements FileService {
     private final Logger logger = LoggerFactory.getLogger(FilesServiceImpl.class);
 
     private static final String SMARTFILES_STORE_FILE = "archive.json";
-    private static final FilenameFilter STORE_FILTER = (_, name) -> SMARTFILES_STORE_FILE.equals(name);
+
+    private static final String SMARTFILES_JOURNAL_DIRECTORY = "journal";
+    private static final String SMARTFILES_SNAPSHOT_DIRECTORY = "snapshots";
+    private static final String SMARTFILES_BLOB_DIRECTORY = "blobs";
+    private static final String SMARTFILES_INGEST_QUEUE_DIRECTORY = "ingest-queue";
+    private static final String SMARTFILES_TEXT_DIRECTORY = "text";
 
     private static final String SMARTFILES_SETTINGS_FILE = "settings.json";
     private static final FilenameFilter SETTINGS_FILTER = (_, name) -> SMARTFILES_SETTINGS_FILE.equals(name);
+    private static final String SMARTFILES_INBOX_CHECKPOINT_FILE = "inbox-checkpoint.json";
+    private static final FilenameFilter INBOX_CHECKPOINT_FILTER = (_, name) -> SMARTFILES_INBOX_CHECKPOINT_FILE.equals(name);
 
     private final SmartFilesConfiguration configuration;
     private final ObjectMapper objectMapper;
+    private final SnapshotStore snapshots;
+    private final ArchiveJournal journal;
+    private final WriteBehindJournal writeBehindJournal;
+    private final BlobStore blobStore;
+    private final IngestQueue ingestQueue;
+    private final TextStore textStore;
+    private final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "archive-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object metricsLock = new Object();
+    private Instant uncompactedSince;
+    private Instant pendingSnapshotSince;
+    private long latestCapturedSequence;
+    private Duration lastSnapshotDuration = Duration.ZERO;
+    private LocalDateTime lastSnapshotAt;
 
     public FilesServiceImpl(SmartFilesConfiguration configuration, ObjectMapper objectMapper) {
         this.configuration = configuration;
         this.objectMapper = objectMapper;
         makeSureRootDirectoryExists();
+        var tenantDirectory = configuration.getTenantDirectory();
+        this.snapshots = new SnapshotStore(Path.of(tenantDirectory, SMARTFILES_SNAPSHOT_DIRECTORY), configuration.getSnapshotGenerations(),
+                configuration.isColumnarEntryStore() ? Path.of(tenantDirectory) : null);
+        this.journal = new ArchiveJournal(Path.of(tenantDirectory, SMARTFILES_JOURNAL_DIRECTORY), objectMapper, snapshots.latestSequence());
+        this.writeBehindJournal = new WriteBehindJournal(journal, configuration.getWriteBehindDelay());
+        this.blobStore = new BlobStore(Path.of(tenantDirectory, SMARTFILES_BLOB_DIRECTORY), ingestTransports(configuration));
+        this.ingestQueue = new IngestQueue(Path.of(tenantDirectory, SMARTFILES_INGEST_QUEUE_DIRECTORY), objectMapper);
+        this.textStore = new TextStore(Path.of(tenantDirectory, SMARTFILES_TEXT_DIRECTORY));
+    }
+
+    private static List<IngestTransport> ingestTransports(SmartFilesConfiguration configuration) {
+        var transports = new ArrayList<IngestTransport>();
+        if (configuration.isHardLinkIngest()) {
+            transports.add(new HardLinkTransport());
+        }
+        transports.add(new CloneTransport());
+        transports.add(new ChannelTransport());
+        return transports;
     }
 
     @Override
@@ -56,14 +128,177 @@ public class FilesServiceImpl implements FileService {
     }
 
     @Override
-    public Archive loadArchive() {
-        return loadFromDisk(STORE_FILTER, Archive.class, Archive::empty);
+    public Optional<InboxCheckpoint> loadInboxCheckpoint() {
+        return Optional.ofNullable(loadFromDisk(INBOX_CHECKPOINT_FILTER, InboxCheckpoint.class, () -> null));
+    }
+
+    @Override
+    public void saveInboxCheckpoint(InboxCheckpoint checkpoint) {
+        checkpoint.updateLastModified();
+        writeToDisk(SMARTFILES_INBOX_CHECKPOINT_FILE, checkpoint);
+    }
+
+    @Override
+    public Archive loadArchive(ArchiveLoadListener listener) {
+        var snapshot = snapshots.loadLatest(listener).orElseGet(() -> migrateLegacyArchive(listener));
+        var archive = snapshot.archive();
+        archive.setApplicationVersion(AggregateRoot.CURRENT_APP_VERSION);
+        var replayed = journal.replay(snapshot.sequence(), archive::apply);
+        if (replayed > 0) {
+            logger.info("Replayed {} journal records", replayed);
+            synchronized (metricsLock) {
+                uncompactedSince = Instant.now();
+            }
+        }
+        if (configuration.isColumnarEntryStore() && !(archive.getArchiveEntries() instanceof ShardedEntryMap<?>)) {
+            // Snapshots load straight into columnar stores, only a migrated or new archive is copied
+            var tenantDirectory = Path.of(configuration.getTenantDirectory());
+            archive.setArchiveEntries(ShardedEntryMap.copyOf(archive.getArchiveEntries(),
+                    () -> new ColumnarEntryStore(tenantDirectory), ColumnarEntryStore::copy));
+            logger.info("Moved {} entries into columnar stores", archive.getArchiveEntries().size());
+        }
+        return archive;
     }
 
     @Override
     public void saveArchive(Archive archive) {
         archive.updateLastModified();
-        writeToDisk(SMARTFILES_STORE_FILE, archive);
+        try {
+            scheduleSnapshot(archive).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while writing archive snapshot", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Cannot write archive snapshot", e.getCause());
+        }
+    }
+
+    @Override
+    public void compactArchive(Archive archive) {
+        scheduleSnapshot(archive);
+    }
+
+    @Override
+    public void appendToArchiveJournal(List<ArchiveMutation> mutations) {
+        writeBehindJournal.submit(mutations);
+        synchronized (metricsLock) {
+            if (uncompactedSince == null) {
+                uncompactedSince = Instant.now();
+            }
+        }
+    }
+
+    @Override
+    public void flushArchiveJournal() {
+        writeBehindJournal.flush();
+    }
+
+    @Override
+    public ArchiveStoreMetrics getArchiveStoreMetrics() {
+        synchronized (metricsLock) {
+            var now = Instant.now();
+            var oldest = pendingSnapshotSince != null ? pendingSnapshotSince : uncompactedSince;
+            var lag = oldest == null ? Duration.ZERO : Duration.between(oldest, now);
+            return new ArchiveStoreMetrics(journal.getRecordsSinceRotation(), writeBehindJournal.getPendingCount(), snapshots.countGenerations(),
+                    lastSnapshotDuration, lastSnapshotAt, lag);
+        }
+    }
+
+    @Override
+    public BlobStore.StoredBlob storeBlob(Path source) throws IOException {
+        return blobStore.store(source);
+    }
+
+    @Override
+    public List<TransferStatistics> getTransferStatistics() {
+        return blobStore.getTransferStatistics();
+    }
+
+    @Override
+    public IngestQueue getIngestQueue() {
+        return ingestQueue;
+    }
+
+    @Override
+    public TextStore getTextStore() {
+        return textStore;
+    }
+
+    /**
+     * An {@code archive.json} written before the binary format is read once, re-written as a
+     * binary snapshot, and removed.
+     */
+    private SnapshotStore.LoadedSnapshot migrateLegacyArchive(ArchiveLoadListener listener) {
+        var legacy = loadLegacyStoreFile(listener);
+        if (legacy.isEmpty()) {
+            return new SnapshotStore.LoadedSnapshot(Archive.empty(), 0);
+        }
+        var archive = legacy.get().archive();
+        logger.info("Migrating archive from version {} to {}", archive.getApplicationVersion(), AggregateRoot.CURRENT_APP_VERSION);
+        archive.setApplicationVersion(AggregateRoot.CURRENT_APP_VERSION);
+        snapshots.write(snapshots.capture(archive, legacy.get().sequence()));
+        deleteLegacyStoreFile();
+        return legacy.get();
+    }
+
+    private Optional<SnapshotStore.LoadedSnapshot> loadLegacyStoreFile(ArchiveLoadListener listener) {
+        var file = Path.of(configuration.getTenantDirectory(), SMARTFILES_STORE_FILE);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            var archive = StreamingJsonArchiveReader.read(objectMapper, file, listener);
+            logger.info("Loaded from disk: {}", file.getFileName());
+            return Optional.of(new SnapshotStore.LoadedSnapshot(archive, 0));
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read archive: " + file, e);
+        }
+    }
+
+    /**
+     * Seals the journal and encodes the changed shards on the calling thread, which must hold the
+     * archive's write lock. Writing the snapshot and dropping covered journal segments happens
+     * on the compaction thread.
+     */
+    private Future<?> scheduleSnapshot(Archive archive) {
+        var started = System.nanoTime();
+        writeBehindJournal.flush();
+        var sequence = journal.rotate();
+        var snapshot = snapshots.capture(archive, sequence);
+        var captureNanos = System.nanoTime() - started;
+        synchronized (metricsLock) {
+            if (pendingSnapshotSince == null) {
+                pendingSnapshotSince = uncompactedSince;
+            }
+            uncompactedSince = null;
+            latestCapturedSequence = sequence;
+        }
+        return compactionExecutor.submit(() -> writeSnapshot(snapshot, captureNanos));
+    }
+
+    private void writeSnapshot(SnapshotStore.Snapshot snapshot, long captureNanos) {
+        var started = System.nanoTime();
+        snapshots.write(snapshot);
+        journal.deleteSegmentsUpTo(snapshots.oldestRetainedSequence());
+        deleteLegacyStoreFile();
+        var duration = Duration.ofNanos(captureNanos + System.nanoTime() - started);
+        synchronized (metricsLock) {
+            lastSnapshotDuration = duration;
+            lastSnapshotAt = LocalDateTime.now();
+            if (snapshot.sequence() == latestCapturedSequence) {
+                pendingSnapshotSince = null;
+            }
+        }
+        logger.info("Wrote snapshot {} ({} shards, {} bytes) in {} ms", snapshot.sequence(), snapshot.shards().size(),
+                snapshot.size(), duration.toMillis());
+    }
+
+    private void deleteLegacyStoreFile() {
+        try {
+            Files.deleteIfExists(Path.of(configuration.getTenantDirectory(), SMARTFILES_STORE_FILE));
+        } catch (IOException e) {
+            logger.warn("Cannot delete legacy {}", SMARTFILES_STORE_FILE, e);
+        }
     }
 
     private void makeSureRootDirectoryExists() {
@@ -86,8 +321,10 @@ public class FilesServiceImpl implements FileService {
         var content = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(root);
         var dir = new File(configuration.getTenantDirectory());
         var file = new File(dir, fileName);
+        var tempFile = new File(dir, fileName + ".tmp");
         try {
-            Files.writeString(file.toPath(), content);
+            Files.writeString(tempFile.toPath(), content);
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
             logger.info("Wrote to disk: {}", file.getAbsolutePath());
         } catch (IOException e) {
             throw new RuntimeException("Cannot write " + fileName + " to disk: " + dir.getAbsolutePath());
@@ -0,0 +1,140 @@
+package dev.arne.smartfiles.core.service;
+
+import dev.arne.smartfiles.core.model.InboxCheckpoint;
+import dev.arne.smartfiles.core.store.BlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Walks the inbox folder with one fork/join task per directory and returns the files that are
+ * new or changed since the checkpoint. A file whose size and modification time are unchanged is
+ * never opened; one that was touched but still has its last ingested digest is not reported.
+ * Files that are no longer there are dropped from the checkpoint, unless their directory could
+ * not be read.
+ */
+final class InboxScanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(InboxScanner.class);
+
+    private final InboxCheckpoint checkpoint;
+    private final ForkJoinPool pool;
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+    private final Set<Path> unreadable = ConcurrentHashMap.newKeySet();
+
+    InboxScanner(InboxCheckpoint checkpoint, ForkJoinPool pool) {
+        this.checkpoint = checkpoint;
+        this.pool = pool;
+    }
+
+    List<Path> findChangedFiles(Path inbox) {
+        return scan(new DirectoryScan(inbox));
+    }
+
+    /**
+     * Records every file as seen without reporting any, so a first launch does not ingest
+     * what was in the folder before. Each file is hashed once, so touching it later without
+     * changing its content does not report it either.
+     */
+    void recordBaseline(Path inbox) {
+        scan(new DirectoryScan(inbox, true));
+    }
+
+    private List<Path> scan(DirectoryScan root) {
+        seen.clear();
+        unreadable.clear();
+        var changed = pool.invoke(root);
+        var removed = checkpoint.getFiles().keySet().removeIf(key -> !seen.contains(key) && isReadable(key));
+        if (removed) {
+            logger.info("Dropped files no longer in the inbox from the checkpoint");
+        }
+        return changed;
+    }
+
+    private boolean isReadable(String key) {
+        var file = Path.of(key);
+        return unreadable.stream().noneMatch(file::startsWith);
+    }
+
+    private final class DirectoryScan extends RecursiveTask<List<Path>> {
+
+        private final Path directory;
+        private final boolean baseline;
+
+        DirectoryScan(Path directory) {
+            this(directory, false);
+        }
+
+        DirectoryScan(Path directory, boolean baseline) {
+            this.directory = directory;
+            this.baseline = baseline;
+        }
+
+        @Override
+        protected List<Path> compute() {
+            var subdirectories = new ArrayList<DirectoryScan>();
+            var changed = new ArrayList<Path>();
+            try (var children = Files.newDirectoryStream(directory)) {
+                for (var child : children) {
+                    var attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isDirectory()) {
+                        var scan = new DirectoryScan(child, baseline);
+                        scan.fork();
+                        subdirectories.add(scan);
+                    } else if (attributes.isRegularFile()) {
+                        seen.add(child.toAbsolutePath().toString());
+                        if (!InboxWatcher.isIgnored(child) && isChanged(child, attributes)) {
+                            changed.add(child);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                unreadable.add(directory.toAbsolutePath());
+                logger.warn("Cannot scan inbox directory {}", directory, e);
+            }
+            for (var scan : subdirectories) {
+                changed.addAll(scan.join());
+            }
+            return changed;
+        }
+
+        private boolean isChanged(Path file, BasicFileAttributes attributes) {
+            var key = file.toAbsolutePath().toString();
+            var size = attributes.size();
+            var lastModified = attributes.lastModifiedTime().toMillis();
+            var state = checkpoint.getFiles().get(key);
+            if (state != null && state.matches(size, lastModified)) {
+                return false;
+            }
+            if (baseline) {
+                checkpoint.getFiles().put(key, new InboxCheckpoint.FileState(size, lastModified, digestOf(file)));
+                return false;
+            }
+            if (state != null && state.digest() != null && state.size() == size && state.digest().equals(digestOf(file))) {
+                checkpoint.getFiles().put(key, new InboxCheckpoint.FileState(size, lastModified, state.digest()));
+                return false;
+            }
+            return true;
+        }
+
+        private static String digestOf(Path file) {
+            try {
+                return BlobStore.digestOf(file);
+            } catch (IOException e) {
+                logger.debug("Cannot hash {}", file, e);
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package dev.arne.smartfiles.core.service;
+
+import dev.arne.smartfiles.core.ArchiveService;
+import dev.arne.smartfiles.core.FileService;
+import dev.arne.smartfiles.core.SettingsService;
+import dev.arne.smartfiles.core.configuration.SmartFilesConfiguration;
+import dev.arne.smartfiles.core.model.InboxCheckpoint;
+import dev.arne.smartfiles.core.model.IngestResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ApplicationContextEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the inbox folder and its subfolders, the same scope {@link InboxScanner} walks, and adds
+ * new files to the archive. Off unless enabled in the configuration. A file is only picked up once its
+ * size and modification time have not changed for the configured quiet period, so files that
+ * are still being downloaded or scanned are left alone. Stable files are ingested in batches
+ * without waiting for them, and recorded in the checkpoint once their batch is done.
+ * <p>
+ * On startup the folder is scanned in the background against the persisted
+ * {@link InboxCheckpoint}, so files that arrived while the application was closed are picked up
+ * without re-reading everything else.
+ */
+@Service
+public class InboxWatcher implements ApplicationListener<ApplicationContextEvent> {
+
+    private static final Set<String> PARTIAL_DOWNLOAD_EXTENSIONS = Set.of("crdownload", "part", "partial", "download", "tmp");
+
+    private final Logger logger = LoggerFactory.getLogger(InboxWatcher.class);
+
+    private final ArchiveService archiveService;
+    private final SettingsService settingsService;
+    private final FileService fileService;
+    private final SmartFilesConfiguration configuration;
+    private final Map<Path, PendingFile> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService batchScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "inbox-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private WatchService watchService;
+    private Path watchedFolder;
+    private Instant watchingSince;
+    private InboxCheckpoint checkpoint = InboxCheckpoint.empty(null);
+
+    private record PendingFile(long size, FileTime lastModified, Instant observedAt) {}
+
+    public InboxWatcher(ArchiveService archiveService, SettingsService settingsService, FileService fileService,
+                        SmartFilesConfiguration configuration) {
+        this.archiveService = archiveService;
+        this.settingsService = settingsService;
+        this.fileService = fileService;
+        this.configuration = configuration;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationContextEvent event) {
+        switch (event) {
+            case ContextRefreshedEvent _ -> start();
+            case ContextClosedEvent _ -> stop();
+            default -> {}
+        }
+    }
+
+    private void start() {
+        if (!configuration.isInboxWatchEnabled()) {
+            return;
+        }
+        var interval = Math.max(1, configuration.getInboxQuietPeriod().toMillis() / 2);
+        batchScheduler.execute(this::scanInbox);
+        batchScheduler.scheduleWithFixedDelay(this::tick, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void stop() {
+        batchScheduler.shutdownNow();
+        closeWatchService();
+    }
+
+    private void tick() {
+        try {
+            var inbox = Path.of(settingsService.getInboxFolderPath());
+            if (!inbox.equals(watchedFolder)) {
+                // A new folder gets a baseline like on first launch, so what is in it already is not added
+                scanInbox();
+            }
+            ingestStableFiles(Instant.now());
+        } catch (RuntimeException e) {
+            // An uncaught exception would cancel all future ticks
+            logger.error("Inbox watcher failed", e);
+        }
+    }
+
+    private void scanInbox() {
+        var inbox = Path.of(settingsService.getInboxFolderPath());
+        watch(inbox);
+        if (!Files.isDirectory(inbox)) {
+            return;
+        }
+        var started = System.nanoTime();
+        var pool = new ForkJoinPool(configuration.getIngestThreads());
+        try {
+            var stored = fileService.loadInboxCheckpoint().filter(saved -> inbox.toString().equals(saved.getInboxFolderPath()));
+            if (stored.isEmpty()) {
+                new InboxScanner(checkpoint, pool).recordBaseline(inbox);
+                logger.info("Recorded {} files already in the inbox, they will not be added", checkpoint.getFiles().size());
+            } else {
+                checkpoint = stored.get();
+                var changed = new InboxScanner(checkpoint, pool).findChangedFiles(inbox);
+                var now = Instant.now();
+                changed.forEach(file -> fileChanged(file, now));
+                logger.info("Found {} new or changed inbox files in {} ms", changed.size(), (System.nanoTime() - started) / 1_000_000);
+            }
+            fileService.saveInboxCheckpoint(checkpoint);
+        } catch (RuntimeException e) {
+            logger.error("Inbox scan failed", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private synchronized void watch(Path inbox) {
+        closeWatchService();
+        pending.clear();
+        watchedFolder = inbox;
+        checkpoint = InboxCheckpoint.empty(inbox.toString());
+        if (!Files.isDirectory(inbox)) {
+            logger.warn("Inbox folder {} does not exist, not watching it", inbox);
+            return;
+        }
+        try {
+            var service = inbox.getFileSystem().newWatchService();
+            register(service, inbox);
+            watchService = service;
+            watchingSince = Instant.now();
+            Thread.ofPlatform().daemon().name("inbox-watcher").start(() -> pollEvents(service, inbox));
+            logger.info("Watching inbox folder {}", inbox);
+        } catch (IOException e) {
+            logger.error("Cannot watch inbox folder {}", inbox, e);
+        }
+    }
+
+    /**
+     * Registers the directory and every directory below it. Links are not followed.
+     */
+    private void register(WatchService service, Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                logger.warn("Cannot watch inbox directory {}", file, e);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void pollEvents(WatchService service, Path inbox) {
+        try {
+            while (true) {
+                var key = service.take();
+                var directory = (Path) key.watchable();
+                for (var event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        rescan(service, inbox);
+                    } else if (event.context() instanceof Path name) {
+                        childChanged(service, directory.resolve(name), Instant.now());
+                    }
+                }
+                if (!key.reset() && directory.equals(inbox)) {
+                    logger.warn("Inbox folder {} is no longer accessible", inbox);
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException _) {
+            // Watching stopped or moved to another folder
+        }
+    }
+
+    /**
+     * A new directory is watched from now on. Files moved in with it, or written before it was
+     * registered, raise no events of their own, so its content is treated as new.
+     */
+    private void childChanged(WatchService service, Path child, Instant now) {
+        if (!Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+            fileChanged(child, now);
+            return;
+        }
+        try {
+            register(service, child);
+            try (var files = Files.walk(child)) {
+                files.forEach(file -> fileChanged(file, now));
+            }
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Cannot watch new inbox directory {}", child, e);
+        }
+    }
+
+    /**
+     * Events were dropped, so anything written since watching started is treated as new, and
+     * directories created meanwhile are registered.
+     */
+    private void rescan(WatchService service, Path inbox) {
+        var now = Instant.now();
+        try {
+            register(service, inbox);
+            try (var files = Files.walk(inbox)) {
+                files.filter(file -> modifiedSince(file, watchingSince)).forEach(file -> fileChanged(file, now));
+            }
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Cannot rescan inbox folder {}", inbox, e);
+        }
+    }
+
+    void fileChanged(Path file, Instant now) {
+        if (isIgnored(file) || !Files.isRegularFile(file)) {
+            return;
+        }
+        try {
+            pending.put(file, observe(file, now));
+        } catch (IOException e) {
+            logger.debug("Cannot read attributes of {}", file, e);
+        }
+    }
+
+    void ingestStableFiles(Instant now) {
+        var stable = takeStableFiles(now);
+        var batchSize = configuration.getInboxBatchSize();
+        for (int from = 0; from < stable.size(); from += batchSize) {
+            var batch = stable.subList(from, Math.min(stable.size(), from + batchSize));
+            logger.info("Adding {} files from the inbox", batch.size());
+            // Recorded on the batcher thread, the only one touching the checkpoint
+            archiveService.ingestFiles(batch.stream().map(Path::toFile).toList())
+                    .thenAcceptAsync(this::recordIngested, batchScheduler);
+        }
+    }
+
+    private void recordIngested(IngestResult result) {
+        for (var entry : result.added()) {
+            recordIngested(Path.of(entry.getOriginalPath()), entry.getContentDigest());
+        }
+        if (!result.added().isEmpty()) {
+            // Once saved, the files are never ingested again, so their entries must be durable first
+            fileService.flushArchiveJournal();
+            fileService.saveInboxCheckpoint(checkpoint);
+        }
+    }
+
+    private void recordIngested(Path file, String digest) {
+        if (!file.toAbsolutePath().startsWith(Path.of(checkpoint.getInboxFolderPath()).toAbsolutePath())) {
+            // Ingested from the folder watched before the inbox was changed
+            return;
+        }
+        try {
+            var state = new InboxCheckpoint.FileState(Files.size(file), Files.getLastModifiedTime(file).toMillis(), digest);
+            checkpoint.getFiles().put(file.toAbsolutePath().toString(), state);
+        } catch (IOException e) {
+            logger.debug("Cannot record {} in the inbox checkpoint", file, e);
+        }
+    }
+
+    List<Path> takeStableFiles(Instant now) {
+        var quietPeriod = configuration.getInboxQuietPeriod();
+        var stable = new ArrayList<Path>();
+        for (var entry : pending.entrySet()) {
+            var file = entry.getKey();
+            var seen = entry.getValue();
+            PendingFile current;
+            try {
+                current = observe(file, now);
+            } catch (IOException _) {
+                // Deleted or moved away before it settled
+                pending.remove(file);
+                continue;
+            }
+            if (current.size() != seen.size() || !current.lastModified().equals(seen.lastModified())) {
+                pending.put(file, current);
+            } else if (!now.isBefore(seen.observedAt().plus(quietPeriod))) {
+                pending.remove(file);
+                stable.add(file);
+            }
+        }
+        return stable;
+    }
+
+    private synchronized void closeWatchService() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.warn("Cannot close inbox watch service", e);
+            }
+            watchService = null;
+        }
+    }
+
+    private static PendingFile observe(Path file, Instant now) throws IOException {
+        return new PendingFile(Files.size(file), Files.getLastModifiedTime(file), now);
+    }
+
+    private static boolean modifiedSince(Path file, Instant since) {
+        try {
+            return Files.isRegularFile(file) && Files.getLastModifiedTime(file).toInstant().isAfter(since);
+        } catch (IOException _) {
+            return false;
+        }
+    }
+
+    static boolean isIgnored(Path file) {
+        var name = file.getFileName().toString();
+        var dot = name.lastIndexOf('.');
+        return name.startsWith(".") || name.startsWith("~$")
+                || dot > 0 && PARTIAL_DOWNLOAD_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,257 @@
+package dev.arne.smartfiles.core.service;
+
+import dev.arne.smartfiles.core.ArchiveService;
+import dev.arne.smartfiles.core.FileService;
+import dev.arne.smartfiles.core.SearchService;
+import dev.arne.smartfiles.core.events.ArchiveEntryAddedEvent;
+import dev.arne.smartfiles.core.events.DocumentDeletedEvent;
+import dev.arne.smartfiles.core.events.DocumentDescriptionUpdatedEvent;
+import dev.arne.smartfiles.core.events.DocumentTextExtractedEvent;
+import dev.arne.smartfiles.core.events.DocumentsChangedEvent;
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.Tag;
+import dev.arne.smartfiles.core.search.FuzzyIndex;
+import dev.arne.smartfiles.core.search.InvertedIndex;
+import dev.arne.smartfiles.core.search.Tokenizer;
+import dev.arne.smartfiles.core.search.TrigramIndex;
+import dev.arne.smartfiles.core.store.TextStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps an {@link InvertedIndex} over document names, descriptions and extracted text in step
+ * with the archive events. All index updates run on one background thread. The index is
+ * written on shutdown and brought up to date with the archive on the next start, so documents
+ * changed after the last write are re-indexed.
+ * <p>
+ * A {@link TrigramIndex} over names and descriptions is kept and written alongside it, so parts
+ * of words are found as well; those results follow the ranked ones. A {@link FuzzyIndex} over
+ * names and tags, rebuilt from the entry index on every start, answers typo tolerant searches.
+ */
+@Service
+public class SearchServiceImpl implements SearchService, ApplicationListener<ApplicationEvent> {
+
+    static final int NAME_WEIGHT = 3;
+    static final int DESCRIPTION_WEIGHT = 2;
+    static final int TEXT_WEIGHT = 1;
+
+    private static final String SEARCH_DIRECTORY = "search";
+    private static final String SEARCH_INDEX_FILE = "index.bin";
+    private static final String TRIGRAM_INDEX_FILE = "trigrams.bin";
+
+    private final Logger logger = LoggerFactory.getLogger(SearchServiceImpl.class);
+
+    private final ArchiveService archiveService;
+    private final TextStore textStore;
+    private final Path indexFile;
+    private final Path trigramFile;
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "search-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile InvertedIndex index = new InvertedIndex();
+    private volatile TrigramIndex trigrams = new TrigramIndex();
+    private final FuzzyIndex fuzzy = new FuzzyIndex();
+    private volatile boolean ready;
+    private Instant indexWritten = Instant.MIN;
+
+    public SearchServiceImpl(ArchiveService archiveService, FileService fileService) {
+        this.archiveService = archiveService;
+        this.textStore = fileService.getTextStore();
+        this.indexFile = Path.of(fileService.getTenantDirectory(), SEARCH_DIRECTORY, SEARCH_INDEX_FILE);
+        this.trigramFile = indexFile.resolveSibling(TRIGRAM_INDEX_FILE);
+    }
+
+    @Override
+    public List<UUID> search(String query) {
+        if (!ready) {
+            // Until the index is loaded, fall back to matching names
+            var normalized = Tokenizer.normalize(query.strip());
+            return archiveService.getAll().stream()
+                    .filter(entry -> entry.getName() != null && Tokenizer.normalize(entry.getName()).contains(normalized))
+                    .map(ArchiveEntry::getId)
+                    .toList();
+        }
+        var results = new LinkedHashSet<UUID>();
+        index.search(query).forEach(hit -> results.add(hit.id()));
+        results.addAll(trigrams.search(query));
+        return List.copyOf(results);
+    }
+
+    @Override
+    public List<UUID> searchFuzzy(String query) {
+        if (!ready) {
+            return search(query);
+        }
+        return fuzzy.search(query).stream().map(FuzzyIndex.Hit::id).toList();
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        switch (event) {
+            case ContextRefreshedEvent _ -> indexer.execute(this::loadIndex);
+            case ContextClosedEvent _ -> close();
+            case ArchiveEntryAddedEvent e -> {
+                var entry = e.getArchiveEntry();
+                indexer.execute(() -> {
+                    indexEntry(entry);
+                    indexNameAndTags(entry);
+                });
+            }
+            case DocumentDescriptionUpdatedEvent e -> indexer.execute(() -> indexDocument(e.getDocumentId()));
+            case DocumentTextExtractedEvent e -> indexer.execute(() -> indexDocument(e.getDocumentId()));
+            case DocumentsChangedEvent e -> indexer.execute(() -> {
+                e.getEntries().forEach(this::indexNameAndTags);
+                e.getDeletedDocumentIds().forEach(this::remove);
+            });
+            case DocumentDeletedEvent e -> indexer.execute(() -> remove(e.getDocumentId()));
+            default -> {}
+        }
+    }
+
+    private void loadIndex() {
+        var started = System.nanoTime();
+        if (Files.exists(indexFile)) {
+            try {
+                indexWritten = Files.getLastModifiedTime(indexFile).toInstant();
+                index = InvertedIndex.read(indexFile);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Cannot read search index {}, rebuilding it", indexFile, e);
+                index = new InvertedIndex();
+                indexWritten = Instant.MIN;
+            }
+        }
+        if (Files.exists(trigramFile)) {
+            try {
+                trigrams = TrigramIndex.read(trigramFile);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Cannot read trigram index {}, rebuilding it", trigramFile, e);
+                trigrams = new TrigramIndex();
+            }
+        }
+        var reindexed = reconcile();
+        ready = true;
+        logger.info("Search index ready with {} documents, {} re-indexed, {} in the trigram index, in {} ms", index.size(), reindexed, trigrams.size(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Indexes what changed since the index was written and drops deleted documents. A document
+     * edited after the write, such as a description changed before a crash, is re-indexed too.
+     */
+    private int reconcile() {
+        var entries = archiveService.getAll();
+        var archived = HashSet.<UUID>newHashSet(entries.size());
+        var reindexed = 0;
+        for (var entry : entries) {
+            archived.add(entry.getId());
+            indexNameAndTags(entry);
+            var stale = index.version(entry.getId()) != versionOf(entry)
+                    || modifiedAfter(entry, indexWritten)
+                    || !index.hasText(entry.getId()) && textStore.contains(entry.getId())
+                    || !trigrams.contains(entry.getId());
+            if (stale) {
+                indexEntry(entry);
+                reindexed++;
+            }
+        }
+        for (var id : index.ids()) {
+            if (!archived.contains(id)) {
+                index.remove(id);
+            }
+        }
+        for (var id : trigrams.ids()) {
+            if (!archived.contains(id)) {
+                trigrams.remove(id);
+            }
+        }
+        return reindexed;
+    }
+
+    private void indexDocument(UUID documentId) {
+        var entry = archiveService.retrieveFileDetails(documentId);
+        if (entry != null) {
+            indexEntry(entry);
+        }
+    }
+
+    private void indexEntry(ArchiveEntry entry) {
+        try {
+            var counts = new HashMap<String, Integer>();
+            Tokenizer.count(entry.getName(), NAME_WEIGHT, counts);
+            Tokenizer.count(entry.getSummary(), DESCRIPTION_WEIGHT, counts);
+            // Pages are counted one at a time, the text is never held as a whole
+            var hasText = textStore.forEachPage(entry.getId(), page -> Tokenizer.count(page, TEXT_WEIGHT, counts));
+            index.put(entry.getId(), versionOf(entry), hasText, counts);
+            trigrams.put(entry.getId(), entry.getName(), entry.getSummary());
+        } catch (RuntimeException e) {
+            logger.warn("Cannot index document {}", entry.getId(), e);
+        }
+    }
+
+    /**
+     * Names and tags are known without hydrating the entry.
+     */
+    private void indexNameAndTags(ArchiveEntry entry) {
+        fuzzy.put(entry.getId(), entry.getName(), entry.getTags().stream().map(Tag::label).toList());
+    }
+
+    private void remove(UUID documentId) {
+        index.remove(documentId);
+        trigrams.remove(documentId);
+        fuzzy.remove(documentId);
+    }
+
+    private void close() {
+        indexer.shutdown();
+        try {
+            if (!indexer.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Search indexing still running at shutdown, the index is updated on the next start");
+                return;
+            }
+            if (ready) {
+                index.write(indexFile);
+                trigrams.write(trigramFile);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("Cannot write search index {}", indexFile.getParent(), e);
+        }
+    }
+
+    /**
+     * Built from the name and the content digest, which are known without hydrating the entry. The
+     * modification time is not used, tag edits move it without changing anything indexed.
+     */
+    private static long versionOf(ArchiveEntry entry) {
+        return (long) Objects.hashCode(entry.getName()) << 32 | Objects.hashCode(entry.getContentDigest()) & 0xFFFFFFFFL;
+    }
+
+    private static boolean modifiedAfter(ArchiveEntry entry, Instant instant) {
+        var lastModified = entry.getDateLastModified();
+        return lastModified != null && lastModified.atZone(ZoneId.systemDefault()).toInstant().isAfter(instant);
+    }
+}
@@ -0,0 +1,148 @@
+package dev.arne.smartfiles.core.service;
+
+import dev.arne.smartfiles.core.ArchiveService;
+import dev.arne.smartfiles.core.FileService;
+import dev.arne.smartfiles.core.configuration.SmartFilesConfiguration;
+import dev.arne.smartfiles.core.events.ArchiveEntryAddedEvent;
+import dev.arne.smartfiles.core.events.DocumentDeletedEvent;
+import dev.arne.smartfiles.core.events.DocumentTextExtractedEvent;
+import dev.arne.smartfiles.core.events.DocumentsChangedEvent;
+import dev.arne.smartfiles.core.store.TextStore;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Extracts the text of archived PDFs page by page into the {@link TextStore}. Work is queued by
+ * document id only, so at most one document per worker thread has its text in memory. Documents
+ * without stored text are picked up again on the next start.
+ */
+@Service
+public class TextExtractor implements ApplicationListener<ApplicationEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TextExtractor.class);
+
+    private final ArchiveService archiveService;
+    private final ApplicationEventPublisher publisher;
+    private final TextStore textStore;
+    private final boolean enabled;
+    private final ExecutorService workers;
+    private final Set<UUID> queued = ConcurrentHashMap.newKeySet();
+
+    public TextExtractor(ArchiveService archiveService, FileService fileService, ApplicationEventPublisher publisher,
+                         SmartFilesConfiguration configuration) {
+        this.archiveService = archiveService;
+        this.publisher = publisher;
+        this.textStore = fileService.getTextStore();
+        this.enabled = configuration.isTextExtractionEnabled();
+        var threads = configuration.getTextExtractionThreads();
+        var threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            var thread = new Thread(runnable, "text-extractor-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        switch (event) {
+            case ContextRefreshedEvent _ -> extractMissing();
+            case ContextClosedEvent _ -> workers.shutdownNow();
+            case ArchiveEntryAddedEvent e -> {
+                if (DocumentMetadataReader.isSupported(e.getArchiveEntry().getName())) {
+                    submit(e.getArchiveEntry().getId());
+                }
+            }
+            case DocumentDeletedEvent e -> textStore.delete(e.getDocumentId());
+            case DocumentsChangedEvent e -> e.getDeletedDocumentIds().forEach(textStore::delete);
+            default -> {}
+        }
+    }
+
+    /**
+     * Extracts the text of a document again, replacing what was stored.
+     */
+    public void reextract(UUID documentId) {
+        submit(documentId);
+    }
+
+    private void extractMissing() {
+        if (!enabled) {
+            return;
+        }
+        var missing = archiveService.getAll().stream()
+                .filter(entry -> DocumentMetadataReader.isSupported(entry.getName()) && !textStore.contains(entry.getId()))
+                .toList();
+        if (!missing.isEmpty()) {
+            logger.info("Extracting text of {} documents in the background", missing.size());
+            missing.forEach(entry -> submit(entry.getId()));
+        }
+    }
+
+    private void submit(UUID documentId) {
+        if (enabled && queued.add(documentId)) {
+            workers.execute(() -> {
+                queued.remove(documentId);
+                extract(documentId);
+            });
+        }
+    }
+
+    void extract(UUID documentId) {
+        var file = archiveService.getFile(documentId);
+        if (file == null) {
+            return;
+        }
+        try {
+            textStore.write(documentId, readPages(file));
+        } catch (RuntimeException e) {
+            logger.warn("Cannot store text of {}", file, e);
+            return;
+        }
+        if (archiveService.retrieveFileDetails(documentId) == null) {
+            // Deleted while it was being extracted
+            textStore.delete(documentId);
+            return;
+        }
+        publisher.publishEvent(new DocumentTextExtractedEvent(documentId));
+    }
+
+    /**
+     * @return the text of every page, or no pages if the file cannot be parsed
+     */
+    static List<String> readPages(File file) {
+        try (var document = Loader.loadPDF(file)) {
+            var stripper = new PDFTextStripper();
+            var pages = new ArrayList<String>(document.getNumberOfPages());
+            for (int page = 1; page <= document.getNumberOfPages(); page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                pages.add(stripper.getText(document));
+            }
+            return pages;
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Cannot extract text of {}", file, e);
+            return List.of();
+        }
+    }
+}
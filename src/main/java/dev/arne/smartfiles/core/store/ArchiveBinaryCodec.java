@@ -0,0 +1,397 @@
+package dev.arne.smartfiles.core.store;
+
+import dev.arne.smartfiles.core.model.Archive;
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.DocumentMetadata;
+import dev.arne.smartfiles.core.model.Tag;
+import dev.arne.smartfiles.core.model.TagInterner;
+import dev.arne.smartfiles.core.model.TagSet;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Versioned binary encoding of an {@link Archive}. Tag labels and parent directories are written
+ * once into dictionaries and referenced by index, timestamps are stored as epoch seconds and nanos.
+ * <pre>
+ * manifest (v2): magic, version 2, header, archive tag labels, shard count, shard sequences
+ * shard (v3):   shard magic, shard version, dictionaries, entry count, entries with content digest and metadata
+ * header:       application version, dateCreated, dateLastModified
+ * dictionaries: tag labels, directories
+ * entry:        uuid, name, summary, path, absolutePath, originalPath, dateCreated, dateLastModified, tag ids
+ * metadata:     present flag, page count, runs of equal page sizes, title, author, producer, creationDate
+ * </pre>
+ * A manifest carries everything except the entries, which live in separately written shards.
+ */
+public final class ArchiveBinaryCodec {
+
+    public static final int MAGIC = 0x53464142; // "SFAB"
+    public static final short MANIFEST_FORMAT_VERSION = 2;
+
+    public static final int SHARD_MAGIC = 0x53464153; // "SFAS"
+    public static final short SHARD_FORMAT_VERSION = 3;
+
+    private static final byte LOCATION_NULL = 0;
+    private static final byte LOCATION_LITERAL = 1;
+    private static final byte LOCATION_DIRECTORY_AND_NAME = 2;
+    private static final byte LOCATION_DIRECTORY_AND_PATH = 3;
+
+    /**
+     * A decoded manifest. The entries still have to be read from the shards, where a sequence
+     * of 0 marks an empty shard.
+     */
+    public record Manifest(Archive archive, long[] shardSequences) {}
+
+    private record Dictionaries(Map<Tag, Integer> tagIds, Map<String, Integer> directoryIds) {}
+
+    private record DecodedDictionaries(Tag[] tags, String[] directories) {}
+
+    private ArchiveBinaryCodec() {
+    }
+
+    public static byte[] encodeManifest(Archive archive, long[] shardSequences) {
+        var bytes = new ByteArrayOutputStream(128 + shardSequences.length * Long.BYTES);
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(MANIFEST_FORMAT_VERSION);
+            writeHeader(out, archive);
+            var tags = archive.getTags() == null ? Set.<Tag>of() : archive.getTags();
+            out.writeInt(tags.size());
+            for (var tag : tags) {
+                writeString(out, tag.label());
+            }
+            out.writeInt(shardSequences.length);
+            for (var sequence : shardSequences) {
+                out.writeLong(sequence);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode archive manifest", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Manifest decodeManifest(InputStream input) throws IOException {
+        var in = new DataInputStream(new BufferedInputStream(input, 1 << 16));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a binary archive");
+        }
+        var formatVersion = in.readShort();
+        if (formatVersion != MANIFEST_FORMAT_VERSION) {
+            throw new IOException("Unsupported archive format version: " + formatVersion);
+        }
+        var applicationVersion = readString(in);
+        var dateCreated = readTimestamp(in);
+        var dateLastModified = readTimestamp(in);
+        var tagCount = in.readInt();
+        Set<Tag> archiveTags = HashSet.newHashSet(tagCount);
+        for (int i = 0; i < tagCount; i++) {
+            archiveTags.add(new Tag(readString(in)));
+        }
+        var shardSequences = new long[in.readInt()];
+        for (int i = 0; i < shardSequences.length; i++) {
+            shardSequences[i] = in.readLong();
+        }
+        var archive = new Archive(applicationVersion, dateCreated, dateLastModified, new HashMap<>(), archiveTags);
+        return new Manifest(archive, shardSequences);
+    }
+
+    public static byte[] encodeShard(Collection<ArchiveEntry> entries) {
+        var dictionaries = dictionariesOf(entries);
+        var bytes = new ByteArrayOutputStream(32 + entries.size() * 128);
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeInt(SHARD_MAGIC);
+            out.writeShort(SHARD_FORMAT_VERSION);
+            writeDictionaries(out, dictionaries);
+            writeEntries(out, entries, dictionaries);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode archive shard", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a shard, putting its entries into {@code target} one at a time.
+     *
+     * @return the number of entries read
+     */
+    public static int decodeShard(InputStream input, Map<UUID, ArchiveEntry> target) throws IOException {
+        var in = new DataInputStream(new BufferedInputStream(input, 1 << 16));
+        if (in.readInt() != SHARD_MAGIC) {
+            throw new IOException("Not an archive shard");
+        }
+        var formatVersion = in.readShort();
+        if (formatVersion != SHARD_FORMAT_VERSION) {
+            throw new IOException("Unsupported shard format version: " + formatVersion);
+        }
+        var dictionaries = readDictionaries(in);
+        var count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            var entry = readEntry(in, dictionaries);
+            target.put(entry.getId(), entry);
+        }
+        return count;
+    }
+
+    private static void writeHeader(DataOutputStream out, Archive archive) throws IOException {
+        writeString(out, archive.getApplicationVersion());
+        writeTimestamp(out, archive.getDateCreated());
+        writeTimestamp(out, archive.getDateLastModified());
+    }
+
+    private static Dictionaries dictionariesOf(Collection<ArchiveEntry> entries) {
+        var tagIds = new LinkedHashMap<Tag, Integer>();
+        var directoryIds = new LinkedHashMap<String, Integer>();
+        for (var entry : entries) {
+            if (entry.getTags() != null) {
+                entry.getTags().forEach(tag -> tagIds.putIfAbsent(tag, tagIds.size()));
+            }
+            registerDirectory(entry.getAbsolutePath(), directoryIds);
+            registerDirectory(entry.getOriginalPath(), directoryIds);
+        }
+        return new Dictionaries(tagIds, directoryIds);
+    }
+
+    private static void writeDictionaries(DataOutputStream out, Dictionaries dictionaries) throws IOException {
+        out.writeInt(dictionaries.tagIds().size());
+        for (var tag : dictionaries.tagIds().keySet()) {
+            writeString(out, tag.label());
+        }
+        out.writeInt(dictionaries.directoryIds().size());
+        for (var directory : dictionaries.directoryIds().keySet()) {
+            writeString(out, directory);
+        }
+    }
+
+    private static DecodedDictionaries readDictionaries(DataInputStream in) throws IOException {
+        var tags = new Tag[in.readInt()];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = new Tag(readString(in));
+        }
+        var directories = new String[in.readInt()];
+        for (int i = 0; i < directories.length; i++) {
+            directories[i] = readString(in);
+        }
+        return new DecodedDictionaries(tags, directories);
+    }
+
+    private static void writeEntries(DataOutputStream out, Collection<ArchiveEntry> entries,
+                                     Dictionaries dictionaries) throws IOException {
+        out.writeInt(entries.size());
+        for (var entry : entries) {
+            writeEntry(out, entry, dictionaries.tagIds(), dictionaries.directoryIds());
+            writeString(out, entry.getContentDigest());
+            writeMetadata(out, entry.getMetadata());
+        }
+    }
+
+    private static void writeMetadata(DataOutputStream out, DocumentMetadata metadata) throws IOException {
+        out.writeBoolean(metadata != null);
+        if (metadata == null) {
+            return;
+        }
+        out.writeInt(metadata.pageCount());
+        // Pages of one document are nearly always the same size, so store runs
+        var sizes = metadata.pageSizes();
+        var runs = new ArrayList<int[]>();
+        for (int i = 0; i < sizes.size(); i++) {
+            if (i > 0 && sizes.get(i).equals(sizes.get(i - 1))) {
+                runs.getLast()[1]++;
+            } else {
+                runs.add(new int[]{i, 1});
+            }
+        }
+        out.writeInt(runs.size());
+        for (var run : runs) {
+            var size = sizes.get(run[0]);
+            out.writeFloat(size.width());
+            out.writeFloat(size.height());
+            out.writeInt(run[1]);
+        }
+        writeString(out, metadata.title());
+        writeString(out, metadata.author());
+        writeString(out, metadata.producer());
+        writeTimestamp(out, metadata.creationDate());
+    }
+
+    private static DocumentMetadata readMetadata(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        var pageCount = in.readInt();
+        var runCount = in.readInt();
+        var sizes = new ArrayList<DocumentMetadata.PageSize>();
+        for (int i = 0; i < runCount; i++) {
+            var size = new DocumentMetadata.PageSize(in.readFloat(), in.readFloat());
+            var length = in.readInt();
+            for (int j = 0; j < length; j++) {
+                sizes.add(size);
+            }
+        }
+        return new DocumentMetadata(pageCount, List.copyOf(sizes), readString(in), readString(in), readString(in), readTimestamp(in));
+    }
+
+    private static void writeEntry(DataOutputStream out, ArchiveEntry entry, Map<Tag, Integer> tagIds,
+                                   Map<String, Integer> directoryIds) throws IOException {
+        out.writeLong(entry.getId().getMostSignificantBits());
+        out.writeLong(entry.getId().getLeastSignificantBits());
+        writeString(out, entry.getName());
+        writeString(out, entry.getSummary());
+        writeString(out, entry.getPath());
+        writeLocation(out, entry.getAbsolutePath(), entry.getPath(), directoryIds);
+        writeLocation(out, entry.getOriginalPath(), null, directoryIds);
+        writeTimestamp(out, entry.getDateCreated());
+        writeTimestamp(out, entry.getDateLastModified());
+        writeTagIds(out, entry.getTags(), tagIds);
+    }
+
+    private static ArchiveEntry readEntry(DataInputStream in, DecodedDictionaries dictionaries) throws IOException {
+        var tags = dictionaries.tags();
+        var directories = dictionaries.directories();
+        var id = new UUID(in.readLong(), in.readLong());
+        var name = readString(in);
+        var summary = readString(in);
+        var path = readString(in);
+        var absolutePath = readLocation(in, path, directories);
+        var originalPath = readLocation(in, null, directories);
+        var dateCreated = readTimestamp(in);
+        var dateLastModified = readTimestamp(in);
+        var entryTags = readTagIds(in, tags);
+        var contentDigest = readString(in);
+        var metadata = readMetadata(in);
+        return new ArchiveEntry(id, name, summary, path, absolutePath, originalPath, entryTags, dateCreated, dateLastModified, contentDigest, metadata);
+    }
+
+    private static void registerDirectory(String location, Map<String, Integer> directoryIds) {
+        var split = split(location);
+        if (split != null) {
+            directoryIds.putIfAbsent(split.directory(), directoryIds.size());
+        }
+    }
+
+    private static void writeLocation(DataOutputStream out, String location, String path,
+                                      Map<String, Integer> directoryIds) throws IOException {
+        var split = split(location);
+        if (location == null) {
+            out.writeByte(LOCATION_NULL);
+        } else if (split == null) {
+            out.writeByte(LOCATION_LITERAL);
+            writeString(out, location);
+        } else if (split.name().equals(path)) {
+            out.writeByte(LOCATION_DIRECTORY_AND_PATH);
+            out.writeInt(directoryIds.get(split.directory()));
+        } else {
+            out.writeByte(LOCATION_DIRECTORY_AND_NAME);
+            out.writeInt(directoryIds.get(split.directory()));
+            writeString(out, split.name());
+        }
+    }
+
+    private static String readLocation(DataInputStream in, String path, String[] directories) throws IOException {
+        return switch (in.readByte()) {
+            case LOCATION_NULL -> null;
+            case LOCATION_LITERAL -> readString(in);
+            case LOCATION_DIRECTORY_AND_PATH -> join(directories[in.readInt()], path);
+            case LOCATION_DIRECTORY_AND_NAME -> join(directories[in.readInt()], readString(in));
+            default -> throw new IOException("Unknown location encoding");
+        };
+    }
+
+    private record SplitLocation(String directory, String name) {}
+
+    /**
+     * Splits a location into parent directory and file name, but only if joining them again
+     * yields exactly the same string. Anything else is stored literally.
+     */
+    private static SplitLocation split(String location) {
+        if (location == null) {
+            return null;
+        }
+        try {
+            var path = Path.of(location);
+            if (path.getParent() == null || path.getFileName() == null) {
+                return null;
+            }
+            var split = new SplitLocation(path.getParent().toString(), path.getFileName().toString());
+            return location.equals(join(split.directory(), split.name())) ? split : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String join(String directory, String name) {
+        return Path.of(directory, name).toString();
+    }
+
+    private static void writeTagIds(DataOutputStream out, Set<Tag> tags, Map<Tag, Integer> tagIds) throws IOException {
+        if (tags == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(tags.size());
+        for (var tag : tags) {
+            out.writeInt(tagIds.get(tag));
+        }
+    }
+
+    private static Set<Tag> readTagIds(DataInputStream in, Tag[] tags) throws IOException {
+        var ids = new int[in.readInt()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = TagInterner.idOf(tags[in.readInt()]);
+        }
+        return TagSet.ofIds(ids);
+    }
+
+    private static void writeTimestamp(DataOutputStream out, LocalDateTime timestamp) throws IOException {
+        if (timestamp == null) {
+            out.writeLong(Long.MIN_VALUE);
+            return;
+        }
+        out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(timestamp.getNano());
+    }
+
+    private static LocalDateTime readTimestamp(DataInputStream in) throws IOException {
+        var seconds = in.readLong();
+        if (seconds == Long.MIN_VALUE) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(seconds, in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        var length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        var bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,175 @@
+package dev.arne.smartfiles.core.store;
+
+import dev.arne.smartfiles.core.model.ArchiveMutation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of {@link ArchiveMutation}s, one JSON record per line.
+ * The log is split into numbered segments; a snapshot with sequence {@code n} covers
+ * every segment up to and including {@code n}, so only later segments need to be replayed.
+ */
+public class ArchiveJournal {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Logger logger = LoggerFactory.getLogger(ArchiveJournal.class);
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+
+    private long currentSegment;
+    private long recordsSinceRotation;
+
+    public ArchiveJournal(Path directory, ObjectMapper objectMapper, long lastSnapshotSequence) {
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot create journal directory: " + directory, e);
+        }
+        // Never append to a segment from a previous run, its tail may be a torn write
+        this.currentSegment = Math.max(lastSnapshotSequence, segmentSequences().max().orElse(0)) + 1;
+    }
+
+    public synchronized void append(List<ArchiveMutation> mutations) {
+        if (mutations.isEmpty()) {
+            return;
+        }
+        var records = new StringBuilder();
+        for (var mutation : mutations) {
+            records.append(objectMapper.writeValueAsString(mutation)).append('\n');
+        }
+        var bytes = ByteBuffer.wrap(records.toString().getBytes(StandardCharsets.UTF_8));
+        var segment = segmentPath(currentSegment);
+        try (var channel = FileChannel.open(segment,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot append to journal: " + segment, e);
+        }
+        recordsSinceRotation += mutations.size();
+    }
+
+    /**
+     * Seals the current segment so that a snapshot can be taken of everything written so far.
+     *
+     * @return the sequence of the sealed segment, to be recorded with the snapshot
+     */
+    public synchronized long rotate() {
+        var sealed = currentSegment;
+        currentSegment++;
+        recordsSinceRotation = 0;
+        return sealed;
+    }
+
+    public synchronized long getRecordsSinceRotation() {
+        return recordsSinceRotation;
+    }
+
+    /**
+     * Replays the segments after {@code afterSequence} in order. An unreadable last line of a
+     * segment is a torn write from a crash; the next run started a new segment, so replay goes on
+     * with it. Any other unreadable record stops the replay, as later records may depend on it.
+     */
+    public synchronized int replay(long afterSequence, Consumer<ArchiveMutation> consumer) {
+        var replayed = 0;
+        var sequences = segmentSequences().filter(sequence -> sequence > afterSequence).sorted().toArray();
+        for (int i = 0; i < sequences.length; i++) {
+            var segment = replaySegment(segmentPath(sequences[i]), consumer);
+            replayed += segment.replayed();
+            if (segment.corrupt()) {
+                logger.error("Stopped journal replay at corrupt record {} of segment {}, skipping the rest of it and {} later segments",
+                        segment.replayed() + 1, sequences[i], sequences.length - i - 1);
+                break;
+            }
+        }
+        recordsSinceRotation = replayed;
+        logger.info("Replayed {} journal records from {} segments", replayed, sequences.length);
+        return replayed;
+    }
+
+    public synchronized void deleteSegmentsUpTo(long sequence) {
+        segmentSequences().filter(s -> s <= sequence).forEach(s -> {
+            try {
+                Files.deleteIfExists(segmentPath(s));
+            } catch (IOException e) {
+                logger.warn("Cannot delete journal segment {}", s, e);
+            }
+        });
+    }
+
+    private record ReplayedSegment(int replayed, boolean corrupt) {}
+
+    private ReplayedSegment replaySegment(Path segment, Consumer<ArchiveMutation> consumer) {
+        var replayed = 0;
+        try (var reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    consumer.accept(objectMapper.readValue(line, ArchiveMutation.class));
+                    replayed++;
+                } catch (JacksonException e) {
+                    if (hasMoreRecords(reader)) {
+                        logger.error("Unreadable record {} in {}", replayed + 1, segment.getFileName(), e);
+                        return new ReplayedSegment(replayed, true);
+                    }
+                    logger.warn("Ignoring torn last record {} in {}", replayed + 1, segment.getFileName(), e);
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read journal: " + segment, e);
+        }
+        return new ReplayedSegment(replayed, false);
+    }
+
+    private static boolean hasMoreRecords(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isBlank()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(SEGMENT_PREFIX + "%020d".formatted(sequence) + SEGMENT_SUFFIX);
+    }
+
+    private LongStream segmentSequences() {
+        try (Stream<Path> files = Files.list(directory)) {
+            var sequences = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .mapToLong(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .toArray();
+            return LongStream.of(sequences);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot list journal directory: " + directory, e);
+        }
+    }
+}
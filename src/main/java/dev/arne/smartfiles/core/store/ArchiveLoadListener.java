@@ -0,0 +1,16 @@
+package dev.arne.smartfiles.core.store;
+
+/**
+ * Receives progress while an archive is read entry by entry.
+ */
+@FunctionalInterface
+public interface ArchiveLoadListener {
+
+    ArchiveLoadListener NONE = (_, _) -> {};
+
+    /**
+     * @param entriesLoaded number of entries read so far
+     * @param fraction      estimated share of the archive read so far, between 0 and 1
+     */
+    void onProgress(long entriesLoaded, double fraction);
+}
@@ -0,0 +1,23 @@
+package dev.arne.smartfiles.core.store;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Point-in-time view of the archive store's compaction state.
+ *
+ * @param journalRecordsSinceSnapshot records that would be replayed if the app started now
+ * @param pendingWrites               mutations buffered by write-behind and not yet durable
+ * @param snapshotGenerations         snapshot generations currently retained on disk
+ * @param lastSnapshotDuration        time it took to serialize and write the last snapshot
+ * @param lastSnapshotAt              when the last snapshot was written, {@code null} if never
+ * @param compactionLag               age of the oldest journal record not yet covered by a snapshot
+ */
+public record ArchiveStoreMetrics(
+        long journalRecordsSinceSnapshot,
+        int pendingWrites,
+        int snapshotGenerations,
+        Duration lastSnapshotDuration,
+        LocalDateTime lastSnapshotAt,
+        Duration compactionLag
+) {}
@@ -0,0 +1,176 @@
+package dev.arne.smartfiles.core.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Content-addressed store for archived files. A file is brought into the incoming directory and
+ * hashed in the same pass by the first applicable {@link IngestTransport}, and kept at
+ * {@code <d0d1>/<d2d3>/<digest>.<extension>}, so equal content is stored once, files with the
+ * same name never collide and no directory grows beyond a few hundred children.
+ */
+public class BlobStore {
+
+    public static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final String INCOMING_DIRECTORY = "incoming";
+    private static final int HASH_BUFFER_SIZE = 1 << 20;
+
+    private final Logger logger = LoggerFactory.getLogger(BlobStore.class);
+
+    private final Path directory;
+    private final Path incomingDirectory;
+    private final List<IngestTransport> transports;
+    private final Map<String, Totals> totals = new ConcurrentHashMap<>();
+
+    private static final class Totals {
+        private final LongAdder files = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+    }
+
+    /**
+     * @param path         location of the blob
+     * @param digest       hex encoded SHA-256 of the content
+     * @param size         content length in bytes
+     * @param deduplicated whether a blob with the same content already existed
+     */
+    public record StoredBlob(Path path, String digest, long size, boolean deduplicated) {}
+
+    public BlobStore(Path directory) {
+        this(directory, List.of(new CloneTransport(), new ChannelTransport()));
+    }
+
+    public BlobStore(Path directory, List<IngestTransport> transports) {
+        this.directory = directory;
+        this.incomingDirectory = directory.resolve(INCOMING_DIRECTORY);
+        this.transports = List.copyOf(transports);
+        try {
+            Files.createDirectories(incomingDirectory);
+            deleteIncomplete();
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot create blob directory: " + directory, e);
+        }
+    }
+
+    public StoredBlob store(Path source) throws IOException {
+        var incoming = incomingDirectory.resolve("blob-" + UUID.randomUUID() + ".tmp");
+        try {
+            var digest = newDigest();
+            transfer(source, incoming, digest);
+            var size = Files.size(incoming);
+            var hex = HexFormat.of().formatHex(digest.digest());
+            var target = pathFor(hex, extensionOf(source));
+            if (Files.exists(target)) {
+                logger.info("Content of '{}' is already stored as {}", source.getFileName(), target.getFileName());
+                return new StoredBlob(target, hex, size, true);
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(incoming, target, StandardCopyOption.ATOMIC_MOVE);
+            return new StoredBlob(target, hex, size, false);
+        } finally {
+            Files.deleteIfExists(incoming);
+        }
+    }
+
+    public List<TransferStatistics> getTransferStatistics() {
+        return totals.entrySet().stream()
+                .map(entry -> new TransferStatistics(entry.getKey(), entry.getValue().files.sum(),
+                        entry.getValue().bytes.sum(), Duration.ofNanos(entry.getValue().nanos.sum())))
+                .sorted(Comparator.comparing(TransferStatistics::transport))
+                .toList();
+    }
+
+    public Path pathFor(String digest, String extension) {
+        var fileName = extension.isEmpty() ? digest : digest + "." + extension;
+        return directory.resolve(digest.substring(0, 2)).resolve(digest.substring(2, 4)).resolve(fileName);
+    }
+
+    /**
+     * Removes copies an interrupted run left in the incoming directory. They were never moved
+     * into place, so no entry refers to them.
+     */
+    private void deleteIncomplete() throws IOException {
+        try (var files = Files.list(incomingDirectory)) {
+            for (var file : files.toList()) {
+                logger.info("Deleting incomplete blob {}", file.getFileName());
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private void transfer(Path source, Path incoming, MessageDigest digest) throws IOException {
+        IOException failure = null;
+        for (var transport : transports) {
+            try {
+                if (!transport.supports(source, incomingDirectory)) {
+                    continue;
+                }
+                var started = System.nanoTime();
+                transport.transfer(source, incoming, digest);
+                var elapsed = System.nanoTime() - started;
+                var transportTotals = totals.computeIfAbsent(transport.name(), _ -> new Totals());
+                transportTotals.files.increment();
+                transportTotals.bytes.add(Files.size(incoming));
+                transportTotals.nanos.add(elapsed);
+                return;
+            } catch (IOException | UnsupportedOperationException e) {
+                logger.debug("Transport {} failed for {}, trying next", transport.name(), source, e);
+                Files.deleteIfExists(incoming);
+                digest.reset();
+                failure = e instanceof IOException io ? io : new IOException(e);
+            }
+        }
+        throw failure != null ? failure : new IOException("No transport applies to " + source);
+    }
+
+    public static String digestOf(Path file) throws IOException {
+        var digest = newDigest();
+        update(digest, file);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    static void update(MessageDigest digest, Path file) throws IOException {
+        var buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static String extensionOf(Path source) {
+        var name = source.getFileName().toString();
+        var dot = name.lastIndexOf('.');
+        return dot <= 0 || dot == name.length() - 1 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
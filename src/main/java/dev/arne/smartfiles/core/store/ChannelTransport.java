@@ -0,0 +1,43 @@
+package dev.arne.smartfiles.core.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * Copies through one large direct buffer and hashes each chunk between reading and writing it,
+ * so the content is read exactly once. Works across volumes.
+ */
+public class ChannelTransport implements IngestTransport {
+
+    static final int CHUNK_SIZE = 1 << 20;
+
+    @Override
+    public String name() {
+        return "channel-transfer";
+    }
+
+    @Override
+    public boolean supports(Path source, Path incomingDirectory) {
+        return true;
+    }
+
+    @Override
+    public void transfer(Path source, Path target, MessageDigest digest) throws IOException {
+        var buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        try (var in = FileChannel.open(source, StandardOpenOption.READ);
+             var out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+    }
+}
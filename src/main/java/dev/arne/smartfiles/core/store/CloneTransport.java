@@ -0,0 +1,31 @@
+package dev.arne.smartfiles.core.store;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+/**
+ * Copies within one volume with {@link Files#copy(Path, Path, java.nio.file.CopyOption...)},
+ * which the JDK hands to the operating system (copy_file_range on Linux, clonefile on macOS).
+ * On copy-on-write file systems such as Btrfs, XFS or APFS this clones the file instead of
+ * duplicating its blocks. The bytes never pass through the JVM, so the clone is hashed afterwards.
+ */
+public class CloneTransport implements IngestTransport {
+
+    @Override
+    public String name() {
+        return "clone";
+    }
+
+    @Override
+    public boolean supports(Path source, Path incomingDirectory) throws IOException {
+        return IngestTransport.onSameFileStore(source, incomingDirectory);
+    }
+
+    @Override
+    public void transfer(Path source, Path target, MessageDigest digest) throws IOException {
+        Files.copy(source, target);
+        BlobStore.update(digest, target);
+    }
+}
@@ -0,0 +1,166 @@
+package dev.arne.smartfiles.core.store;
+
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.DocumentMetadata;
+import dev.arne.smartfiles.core.model.Tag;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A view of one row of a {@link ColumnarEntryStore}. Holds no values of its own, so views are
+ * created on every access and two views of the same row are equal.
+ */
+final class ColumnarArchiveEntry extends ArchiveEntry {
+
+    private final ColumnarEntryStore store;
+    private final int row;
+
+    ColumnarArchiveEntry(ColumnarEntryStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+
+    boolean isRowOf(ColumnarEntryStore store, int row) {
+        return this.store == store && this.row == row;
+    }
+
+    @Override
+    public UUID getId() {
+        return store.id(row);
+    }
+
+    @Override
+    public void setId(UUID id) {
+        throw new UnsupportedOperationException("Cannot change the id of a stored entry");
+    }
+
+    @Override
+    public String getName() {
+        return store.name(row);
+    }
+
+    @Override
+    public void setName(String name) {
+        store.setName(row, name);
+    }
+
+    @Override
+    public String getSummary() {
+        return store.summary(row);
+    }
+
+    @Override
+    public void setSummary(String summary) {
+        store.setSummary(row, summary);
+    }
+
+    @Override
+    public String getPath() {
+        return store.path(row);
+    }
+
+    @Override
+    public void setPath(String path) {
+        store.setPath(row, path);
+    }
+
+    @Override
+    public String getAbsolutePath() {
+        return store.absolutePath(row);
+    }
+
+    @Override
+    public void setAbsolutePath(String absolutePath) {
+        store.setAbsolutePath(row, absolutePath);
+    }
+
+    @Override
+    public String getOriginalPath() {
+        return store.originalPath(row);
+    }
+
+    @Override
+    public void setOriginalPath(String originalPath) {
+        store.setOriginalPath(row, originalPath);
+    }
+
+    /**
+     * The stored set itself, so tags added to it are kept.
+     */
+    @Override
+    public Set<Tag> getTags() {
+        return store.tags(row);
+    }
+
+    @Override
+    public void setTags(Set<Tag> tags) {
+        store.setTags(row, tags);
+    }
+
+    @Override
+    public LocalDateTime getDateCreated() {
+        return store.dateCreated(row);
+    }
+
+    @Override
+    public void setDateCreated(LocalDateTime dateCreated) {
+        store.setDateCreated(row, dateCreated);
+    }
+
+    @Override
+    public LocalDateTime getDateLastModified() {
+        return store.dateLastModified(row);
+    }
+
+    @Override
+    public void setDateLastModified(LocalDateTime dateLastModified) {
+        store.setDateLastModified(row, dateLastModified);
+    }
+
+    @Override
+    public void updateLastModified() {
+        setDateLastModified(LocalDateTime.now());
+    }
+
+    @Override
+    public String getContentDigest() {
+        return store.contentDigest(row);
+    }
+
+    @Override
+    public void setContentDigest(String contentDigest) {
+        store.setContentDigest(row, contentDigest);
+    }
+
+    @Override
+    public boolean hasMetadata() {
+        return store.hasMetadata(row);
+    }
+
+    @Override
+    public int pageCount() {
+        return store.pageCount(row);
+    }
+
+    @Override
+    public DocumentMetadata getMetadata() {
+        return store.metadata(row);
+    }
+
+    @Override
+    public void setMetadata(DocumentMetadata metadata) {
+        store.setMetadata(row, metadata);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ColumnarArchiveEntry view && view.isRowOf(store, row);
+    }
+
+    @Override
+    public int hashCode() {
+        return row;
+    }
+}
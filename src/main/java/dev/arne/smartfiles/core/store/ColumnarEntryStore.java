@@ -0,0 +1,789 @@
+package dev.arne.smartfiles.core.store;
+
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.DocumentMetadata;
+import dev.arne.smartfiles.core.model.Tag;
+import dev.arne.smartfiles.core.model.TagSet;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+/**
+ * Archive entries held column by column in primitive arrays instead of one object per entry, for
+ * archives too large for a {@link java.util.HashMap} of {@link ArchiveEntry} objects. Ids are two
+ * longs found through an open addressing table, timestamps are epoch microseconds, and strings are
+ * UTF-8 in one shared arena. Paths are split into a directory, kept once in a dictionary and
+ * relative to the tenant directory where possible, and a file name in the arena.
+ * <p>
+ * {@link #get} and iteration return flyweight views that read and write the columns of their row,
+ * so changes made through a view are stored. Rows of removed entries keep their values, so views
+ * stay valid; {@link #copy()} leaves them out. Strings that are overwritten are counted and the
+ * arena is compacted once they make up half of it. Like the map it replaces, changes must be made
+ * while holding the archive lock.
+ * <p>
+ * A store built {@link #fromIndex from an entry index} only holds the indexed fields and reads its
+ * shard file the first time any other field is needed, like {@link IndexedArchiveEntry}.
+ */
+public final class ColumnarEntryStore extends AbstractMap<UUID, ArchiveEntry> {
+
+    private static final int INITIAL_ROWS = 16;
+    private static final long NO_STRING = -1;
+    private static final long FILE_NAME_OF_ABSOLUTE_PATH = -2;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    private static final int NO_DIRECTORY = -1;
+    private static final int MIN_COMPACTED_ARENA = 1024;
+
+    private final String baseDirectory;
+
+    private long[] mostSignificantBits;
+    private long[] leastSignificantBits;
+    private long[] names;
+    private long[] summaries;
+    private long[] paths;
+    private int[] absoluteDirectories;
+    private long[] absoluteFileNames;
+    private int[] originalDirectories;
+    private long[] originalFileNames;
+    private long[] datesCreated;
+    private long[] datesLastModified;
+    private long[] contentDigests;
+    private TagSet[] tags;
+    private DocumentMetadata[] metadata;
+    private int[] indexedPageCounts;
+    private BitSet removed;
+    private int rows;
+    private int size;
+
+    /**
+     * Row plus one for every id, 0 for a free slot; never more than half full.
+     */
+    private int[] slots;
+
+    /**
+     * Volatile as hydrating a shared store may grow it while other readers use it.
+     */
+    private volatile byte[] arena;
+    private int arenaSize;
+    private int arenaGarbage;
+
+    /**
+     * The shard holding the fields the index does not, {@code null} once they were read.
+     */
+    private volatile Path shardFile;
+
+    private final List<String> directories = new ArrayList<>();
+    private final BitSet relativeDirectories = new BitSet();
+    private final Map<String, Integer> directoryIds = new HashMap<>();
+
+    public ColumnarEntryStore(Path baseDirectory) {
+        this.baseDirectory = baseDirectory.toAbsolutePath().normalize().toString();
+        clear();
+    }
+
+    private ColumnarEntryStore(ColumnarEntryStore source) {
+        this.baseDirectory = source.baseDirectory;
+        this.shardFile = source.shardFile;
+    }
+
+    public static ColumnarEntryStore copyOf(Path baseDirectory, Map<UUID, ArchiveEntry> entries) {
+        var store = new ColumnarEntryStore(baseDirectory);
+        entries.forEach(store::put);
+        return store;
+    }
+
+    /**
+     * Fills the store with the indexed fields of a shard; the others are read from
+     * {@code shardFile} when first needed.
+     */
+    static ColumnarEntryStore fromIndex(Path baseDirectory, EntryIndex index, Path shardFile) {
+        var store = new ColumnarEntryStore(baseDirectory);
+        for (int i = 0; i < index.size(); i++) {
+            var row = store.addRow(index.id(i));
+            store.names[row] = store.store(index.name(i));
+            store.tags[row] = TagSet.copyOf(index.tags(i));
+            store.datesCreated[row] = micros(index.dateCreated(i));
+            store.datesLastModified[row] = micros(index.dateLastModified(i));
+            store.contentDigests[row] = store.store(index.contentDigest(i));
+            store.indexedPageCounts[row] = index.pageCount(i);
+        }
+        store.shardFile = shardFile;
+        return store;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof UUID id && rowOf(id) >= 0;
+    }
+
+    @Override
+    public ArchiveEntry get(Object key) {
+        if (!(key instanceof UUID id)) {
+            return null;
+        }
+        var row = rowOf(id);
+        return row < 0 ? null : new ColumnarArchiveEntry(this, row);
+    }
+
+    /**
+     * Copies the entry into the store.
+     *
+     * @return a detached copy of the entry that was replaced, as its row is overwritten
+     */
+    @Override
+    public ArchiveEntry put(UUID id, ArchiveEntry entry) {
+        Objects.requireNonNull(entry, "entry");
+        if (!id.equals(entry.getId())) {
+            throw new IllegalArgumentException("Cannot store entry " + entry.getId() + " under id " + id);
+        }
+        hydrate();
+        var row = rowOf(id);
+        if (row >= 0) {
+            if (entry instanceof ColumnarArchiveEntry view && view.isRowOf(this, row)) {
+                return view;
+            }
+            var previous = detach(row);
+            write(row, entry);
+            return previous;
+        }
+        row = addRow(id);
+        write(row, entry);
+        return null;
+    }
+
+    /**
+     * @return a view of the removed entry, which still reads its last values
+     */
+    @Override
+    public ArchiveEntry remove(Object key) {
+        if (!(key instanceof UUID id)) {
+            return null;
+        }
+        var slot = slotOf(id);
+        if (slots[slot] == 0) {
+            return null;
+        }
+        var row = slots[slot] - 1;
+        freeSlot(slot);
+        removed.set(row);
+        size--;
+        return new ColumnarArchiveEntry(this, row);
+    }
+
+    @Override
+    public void clear() {
+        allocate(INITIAL_ROWS, MIN_COMPACTED_ARENA);
+        shardFile = null;
+        directories.clear();
+        relativeDirectories.clear();
+        directoryIds.clear();
+    }
+
+    private void allocate(int capacity, int arenaCapacity) {
+        mostSignificantBits = new long[capacity];
+        leastSignificantBits = new long[capacity];
+        names = new long[capacity];
+        summaries = new long[capacity];
+        paths = new long[capacity];
+        absoluteDirectories = new int[capacity];
+        absoluteFileNames = new long[capacity];
+        originalDirectories = new int[capacity];
+        originalFileNames = new long[capacity];
+        datesCreated = new long[capacity];
+        datesLastModified = new long[capacity];
+        contentDigests = new long[capacity];
+        tags = new TagSet[capacity];
+        metadata = new DocumentMetadata[capacity];
+        indexedPageCounts = new int[capacity];
+        removed = new BitSet();
+        slots = new int[capacity * 2];
+        arena = new byte[arenaCapacity];
+        arenaSize = 0;
+        arenaGarbage = 0;
+        rows = 0;
+        size = 0;
+    }
+
+    @Override
+    public Collection<ArchiveEntry> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<ArchiveEntry> iterator() {
+                return new RowIterator<>(row -> new ColumnarArchiveEntry(ColumnarEntryStore.this, row));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<UUID, ArchiveEntry>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<UUID, ArchiveEntry>> iterator() {
+                return new RowIterator<>(row -> new SimpleImmutableEntry<>(id(row), new ColumnarArchiveEntry(ColumnarEntryStore.this, row)));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * A copy sharing nothing that changes, for use as a copy-on-write shard of a
+     * {@link dev.arne.smartfiles.core.model.ShardedEntryMap}. Only live rows and the strings they
+     * use are copied, so removed rows and overwritten strings are not carried over.
+     */
+    public synchronized ColumnarEntryStore copy() {
+        var copy = new ColumnarEntryStore(this);
+        var capacity = INITIAL_ROWS;
+        while (capacity < size) {
+            capacity *= 2;
+        }
+        copy.allocate(capacity, Math.max(MIN_COMPACTED_ARENA, arenaSize - arenaGarbage));
+        var source = arena;
+        for (var row = removed.nextClearBit(0); row < rows; row = removed.nextClearBit(row + 1)) {
+            var target = copy.addRow(id(row));
+            copy.names[target] = copy.copyString(source, names[row]);
+            copy.summaries[target] = copy.copyString(source, summaries[row]);
+            copy.paths[target] = copy.copyString(source, paths[row]);
+            copy.absoluteDirectories[target] = absoluteDirectories[row];
+            copy.absoluteFileNames[target] = copy.copyString(source, absoluteFileNames[row]);
+            copy.originalDirectories[target] = originalDirectories[row];
+            copy.originalFileNames[target] = copy.copyString(source, originalFileNames[row]);
+            copy.datesCreated[target] = datesCreated[row];
+            copy.datesLastModified[target] = datesLastModified[row];
+            copy.contentDigests[target] = copy.copyString(source, contentDigests[row]);
+            copy.tags[target] = tags[row] == null ? null : TagSet.copyOf(tags[row]);
+            copy.metadata[target] = metadata[row];
+            copy.indexedPageCounts[target] = indexedPageCounts[row];
+        }
+        copy.directories.addAll(directories);
+        copy.relativeDirectories.or(relativeDirectories);
+        copy.directoryIds.putAll(directoryIds);
+        return copy;
+    }
+
+    /**
+     * Bytes of the string arena in use, overwritten strings included.
+     */
+    int arenaSize() {
+        return arenaSize;
+    }
+
+    private final class RowIterator<T> implements Iterator<T> {
+
+        private final IntFunction<T> element;
+        private int next = nextLive(0);
+        private int last = -1;
+
+        private RowIterator(IntFunction<T> element) {
+            this.element = element;
+        }
+
+        private int nextLive(int from) {
+            var row = removed.nextClearBit(from);
+            return row < rows ? row : -1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        public T next() {
+            if (next < 0) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = nextLive(next + 1);
+            return element.apply(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            ColumnarEntryStore.this.remove(id(last));
+            last = -1;
+        }
+    }
+
+    // Columns, read and written by the views
+
+    UUID id(int row) {
+        return new UUID(mostSignificantBits[row], leastSignificantBits[row]);
+    }
+
+    String name(int row) {
+        return string(names[row]);
+    }
+
+    void setName(int row, String name) {
+        replace(names, row, name);
+    }
+
+    String summary(int row) {
+        hydrate();
+        return string(summaries[row]);
+    }
+
+    void setSummary(int row, String summary) {
+        hydrate();
+        replace(summaries, row, summary);
+    }
+
+    String path(int row) {
+        hydrate();
+        return storedPath(row);
+    }
+
+    void setPath(int row, String path) {
+        hydrate();
+        storePath(row, path);
+    }
+
+    String absolutePath(int row) {
+        hydrate();
+        return joinPath(absoluteDirectories[row], absoluteFileNames[row]);
+    }
+
+    void setAbsolutePath(int row, String absolutePath) {
+        hydrate();
+        var path = storedPath(row);
+        var split = lastSeparator(absolutePath);
+        absoluteDirectories[row] = absolutePath == null ? NO_DIRECTORY : directoryId(absolutePath, split);
+        replace(absoluteFileNames, row, absolutePath == null ? null : split < 0 ? absolutePath : absolutePath.substring(split));
+        storePath(row, path);
+    }
+
+    String originalPath(int row) {
+        hydrate();
+        return joinPath(originalDirectories[row], originalFileNames[row]);
+    }
+
+    void setOriginalPath(int row, String originalPath) {
+        hydrate();
+        var split = lastSeparator(originalPath);
+        originalDirectories[row] = originalPath == null ? NO_DIRECTORY : directoryId(originalPath, split);
+        replace(originalFileNames, row, originalPath == null ? null : split < 0 ? originalPath : originalPath.substring(split));
+    }
+
+    TagSet tags(int row) {
+        return tags[row];
+    }
+
+    void setTags(int row, Set<Tag> rowTags) {
+        tags[row] = rowTags == null ? null : TagSet.copyOf(rowTags);
+    }
+
+    LocalDateTime dateCreated(int row) {
+        return timestamp(datesCreated[row]);
+    }
+
+    void setDateCreated(int row, LocalDateTime dateCreated) {
+        datesCreated[row] = micros(dateCreated);
+    }
+
+    LocalDateTime dateLastModified(int row) {
+        return timestamp(datesLastModified[row]);
+    }
+
+    void setDateLastModified(int row, LocalDateTime dateLastModified) {
+        datesLastModified[row] = micros(dateLastModified);
+    }
+
+    String contentDigest(int row) {
+        return string(contentDigests[row]);
+    }
+
+    void setContentDigest(int row, String contentDigest) {
+        replace(contentDigests, row, contentDigest);
+    }
+
+    DocumentMetadata metadata(int row) {
+        hydrate();
+        return metadata[row];
+    }
+
+    void setMetadata(int row, DocumentMetadata rowMetadata) {
+        hydrate();
+        metadata[row] = rowMetadata;
+    }
+
+    /**
+     * From the index while the shard has not been read, so the entry list does not read it.
+     */
+    int pageCount(int row) {
+        if (shardFile != null) {
+            return Math.max(0, indexedPageCounts[row]);
+        }
+        return metadata[row] == null ? 0 : metadata[row].pageCount();
+    }
+
+    boolean hasMetadata(int row) {
+        return shardFile != null ? indexedPageCounts[row] >= 0 : metadata[row] != null;
+    }
+
+    private String storedPath(int row) {
+        if (paths[row] == FILE_NAME_OF_ABSOLUTE_PATH) {
+            var fileName = string(absoluteFileNames[row]);
+            return absoluteDirectories[row] == NO_DIRECTORY ? fileName : fileName.substring(1);
+        }
+        return string(paths[row]);
+    }
+
+    private void storePath(int row, String path) {
+        var absolutePath = joinPath(absoluteDirectories[row], absoluteFileNames[row]);
+        if (path != null && path.equals(fileNameOf(absolutePath))) {
+            release(paths[row]);
+            paths[row] = FILE_NAME_OF_ABSOLUTE_PATH;
+        } else {
+            replace(paths, row, path);
+        }
+    }
+
+    private void write(int row, ArchiveEntry entry) {
+        setName(row, entry.getName());
+        setSummary(row, entry.getSummary());
+        setAbsolutePath(row, entry.getAbsolutePath());
+        setPath(row, entry.getPath());
+        setOriginalPath(row, entry.getOriginalPath());
+        setTags(row, entry.getTags());
+        setDateCreated(row, entry.getDateCreated());
+        setDateLastModified(row, entry.getDateLastModified());
+        setContentDigest(row, entry.getContentDigest());
+        setMetadata(row, entry.getMetadata());
+    }
+
+    /**
+     * Reads the fields the index does not hold from the shard. Readers of a shared store may get
+     * here at the same time, so rows are only filled in and the arena is never compacted.
+     */
+    private void hydrate() {
+        if (shardFile != null) {
+            hydrateFromShard();
+        }
+    }
+
+    private synchronized void hydrateFromShard() {
+        var file = shardFile;
+        if (file == null) {
+            return;
+        }
+        Map<UUID, ArchiveEntry> decoded = new HashMap<>();
+        try (var input = Files.newInputStream(file)) {
+            ArchiveBinaryCodec.decodeShard(input, decoded);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read archive shard: " + file, e);
+        }
+        for (int row = 0; row < rows; row++) {
+            var entry = decoded.get(id(row));
+            if (entry == null) {
+                continue;
+            }
+            summaries[row] = store(entry.getSummary());
+            var absolutePath = entry.getAbsolutePath();
+            var split = lastSeparator(absolutePath);
+            absoluteDirectories[row] = absolutePath == null ? NO_DIRECTORY : directoryId(absolutePath, split);
+            absoluteFileNames[row] = absolutePath == null ? NO_STRING : store(split < 0 ? absolutePath : absolutePath.substring(split));
+            var path = entry.getPath();
+            paths[row] = path != null && path.equals(fileNameOf(absolutePath)) ? FILE_NAME_OF_ABSOLUTE_PATH : store(path);
+            var originalPath = entry.getOriginalPath();
+            split = lastSeparator(originalPath);
+            originalDirectories[row] = originalPath == null ? NO_DIRECTORY : directoryId(originalPath, split);
+            originalFileNames[row] = originalPath == null ? NO_STRING : store(split < 0 ? originalPath : originalPath.substring(split));
+            metadata[row] = entry.getMetadata();
+        }
+        shardFile = null;
+    }
+
+    private ArchiveEntry detach(int row) {
+        return new ColumnarArchiveEntry(this, row).copy();
+    }
+
+    private int addRow(UUID id) {
+        if (rows == mostSignificantBits.length) {
+            grow(rows * 2);
+        }
+        var row = rows++;
+        mostSignificantBits[row] = id.getMostSignificantBits();
+        leastSignificantBits[row] = id.getLeastSignificantBits();
+        names[row] = NO_STRING;
+        summaries[row] = NO_STRING;
+        paths[row] = NO_STRING;
+        absoluteDirectories[row] = NO_DIRECTORY;
+        absoluteFileNames[row] = NO_STRING;
+        originalDirectories[row] = NO_DIRECTORY;
+        originalFileNames[row] = NO_STRING;
+        datesCreated[row] = NO_TIMESTAMP;
+        datesLastModified[row] = NO_TIMESTAMP;
+        contentDigests[row] = NO_STRING;
+        indexedPageCounts[row] = -1;
+        if ((size + 1) * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        slots[slotOf(id)] = row + 1;
+        size++;
+        return row;
+    }
+
+    private void grow(int capacity) {
+        mostSignificantBits = Arrays.copyOf(mostSignificantBits, capacity);
+        leastSignificantBits = Arrays.copyOf(leastSignificantBits, capacity);
+        names = Arrays.copyOf(names, capacity);
+        summaries = Arrays.copyOf(summaries, capacity);
+        paths = Arrays.copyOf(paths, capacity);
+        absoluteDirectories = Arrays.copyOf(absoluteDirectories, capacity);
+        absoluteFileNames = Arrays.copyOf(absoluteFileNames, capacity);
+        originalDirectories = Arrays.copyOf(originalDirectories, capacity);
+        originalFileNames = Arrays.copyOf(originalFileNames, capacity);
+        datesCreated = Arrays.copyOf(datesCreated, capacity);
+        datesLastModified = Arrays.copyOf(datesLastModified, capacity);
+        contentDigests = Arrays.copyOf(contentDigests, capacity);
+        tags = Arrays.copyOf(tags, capacity);
+        metadata = Arrays.copyOf(metadata, capacity);
+        indexedPageCounts = Arrays.copyOf(indexedPageCounts, capacity);
+    }
+
+    // Id lookup
+
+    private int rowOf(UUID id) {
+        var row = slots[slotOf(id)];
+        return row - 1;
+    }
+
+    /**
+     * @return the slot holding {@code id}, or the free slot where it belongs
+     */
+    private int slotOf(UUID id) {
+        var mask = slots.length - 1;
+        var slot = hash(id.getMostSignificantBits(), id.getLeastSignificantBits()) & mask;
+        while (slots[slot] != 0) {
+            var row = slots[slot] - 1;
+            if (mostSignificantBits[row] == id.getMostSignificantBits() && leastSignificantBits[row] == id.getLeastSignificantBits()) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empties a slot and moves later slots of the same probe run back, so lookups need no
+     * tombstones.
+     */
+    private void freeSlot(int slot) {
+        var mask = slots.length - 1;
+        var free = slot;
+        var next = (free + 1) & mask;
+        while (slots[next] != 0) {
+            var row = slots[next] - 1;
+            var home = hash(mostSignificantBits[row], leastSignificantBits[row]) & mask;
+            // Move the row back unless its home lies cyclically in (free, next]
+            if (free <= next ? home <= free || home > next : home <= free && home > next) {
+                slots[free] = slots[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots[free] = 0;
+    }
+
+    private void rehash(int capacity) {
+        var previous = slots;
+        slots = new int[capacity];
+        var mask = capacity - 1;
+        for (var value : previous) {
+            if (value != 0) {
+                var row = value - 1;
+                var slot = hash(mostSignificantBits[row], leastSignificantBits[row]) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = value;
+            }
+        }
+    }
+
+    private static int hash(long mostSignificantBits, long leastSignificantBits) {
+        var mixed = (mostSignificantBits ^ leastSignificantBits) * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ mixed >>> 32);
+    }
+
+    // Strings and paths
+
+    /**
+     * @return the arena offset and byte length of the string, packed into a long
+     */
+    private long store(String value) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureArenaCapacity(bytes.length);
+        System.arraycopy(bytes, 0, arena, arenaSize, bytes.length);
+        var reference = (long) arenaSize << 32 | bytes.length;
+        arenaSize += bytes.length;
+        return reference;
+    }
+
+    /**
+     * Stores {@code value} in place of the string the row held in {@code column}.
+     */
+    private void replace(long[] column, int row, String value) {
+        release(column[row]);
+        column[row] = NO_STRING;
+        if (arenaGarbage > MIN_COMPACTED_ARENA && arenaGarbage > arenaSize / 2) {
+            compact();
+        }
+        var reference = store(value);
+        column[row] = reference;
+    }
+
+    private void release(long reference) {
+        if (reference >= 0) {
+            arenaGarbage += (int) reference;
+        }
+    }
+
+    /**
+     * Moves the strings of every row, removed ones included so their views stay valid, into a new
+     * arena without the overwritten strings.
+     */
+    private void compact() {
+        var source = arena;
+        arena = new byte[Math.max(MIN_COMPACTED_ARENA, (arenaSize - arenaGarbage) * 2)];
+        arenaSize = 0;
+        arenaGarbage = 0;
+        for (var column : List.of(names, summaries, paths, absoluteFileNames, originalFileNames, contentDigests)) {
+            for (int row = 0; row < rows; row++) {
+                column[row] = copyString(source, column[row]);
+            }
+        }
+    }
+
+    private long copyString(byte[] source, long reference) {
+        if (reference < 0) {
+            return reference;
+        }
+        var length = (int) reference;
+        ensureArenaCapacity(length);
+        System.arraycopy(source, (int) (reference >>> 32), arena, arenaSize, length);
+        var copied = (long) arenaSize << 32 | length;
+        arenaSize += length;
+        return copied;
+    }
+
+    private void ensureArenaCapacity(int length) {
+        if (arenaSize + length > arena.length) {
+            var capacity = Math.max((long) arena.length * 2, (long) arenaSize + length);
+            if (capacity > Integer.MAX_VALUE - 8) {
+                throw new RuntimeException("Cannot grow the entry string arena beyond 2 GB");
+            }
+            arena = Arrays.copyOf(arena, (int) capacity);
+        }
+    }
+
+    private String string(long reference) {
+        if (reference == NO_STRING) {
+            return null;
+        }
+        return new String(arena, (int) (reference >>> 32), (int) reference, StandardCharsets.UTF_8);
+    }
+
+    private int directoryId(String path, int split) {
+        if (split < 0) {
+            return NO_DIRECTORY;
+        }
+        var directory = path.substring(0, split);
+        var id = directoryIds.get(directory);
+        if (id == null) {
+            id = directories.size();
+            if (isBelowBaseDirectory(directory)) {
+                directories.add(directory.substring(baseDirectory.length()));
+                relativeDirectories.set(id);
+            } else {
+                directories.add(directory);
+            }
+            directoryIds.put(directory, id);
+        }
+        return id;
+    }
+
+    private boolean isBelowBaseDirectory(String directory) {
+        return directory.startsWith(baseDirectory)
+                && (directory.length() == baseDirectory.length() || isSeparator(directory.charAt(baseDirectory.length())));
+    }
+
+    /**
+     * File names are stored with the separator in front, so directory and name join losslessly.
+     */
+    private String joinPath(int directory, long fileName) {
+        var name = string(fileName);
+        if (name == null || directory == NO_DIRECTORY) {
+            return name;
+        }
+        return relativeDirectories.get(directory) ? baseDirectory + directories.get(directory) + name : directories.get(directory) + name;
+    }
+
+    private static String fileNameOf(String path) {
+        return path == null ? null : path.substring(lastSeparator(path) + 1);
+    }
+
+    private static int lastSeparator(String path) {
+        return path == null ? -1 : Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '/' || c == '\\';
+    }
+
+    // Timestamps
+
+    private static long micros(LocalDateTime timestamp) {
+        if (timestamp == null) {
+            return NO_TIMESTAMP;
+        }
+        return ChronoUnit.MICROS.between(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), timestamp);
+    }
+
+    private static LocalDateTime timestamp(long micros) {
+        if (micros == NO_TIMESTAMP) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000), (int) Math.floorMod(micros, 1_000_000) * 1000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,221 @@
+package dev.arne.smartfiles.core.store;
+
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.Tag;
+import dev.arne.smartfiles.core.model.TagInterner;
+import dev.arne.smartfiles.core.model.TagSet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Fixed-layout index over the entries of one shard, read once while loading a snapshot.
+ * It holds what the entry list needs up front (id, name, dates, tag ids, content digest, page count);
+ * everything else stays in the shard until an entry is hydrated.
+ * <pre>
+ * header:  magic, format version, entry count, tag count, offset of the tag ids
+ * records: msb, lsb, created seconds, created nanos, modified seconds, modified nanos,
+ *          name offset, first tag id index, tag id count, content digest offset,
+ *          page count or -1 without metadata
+ * strings: tag labels, then names and digests, each as length and UTF-8 bytes (length -1 for null)
+ * tag ids: one int per entry tag, indexing the tag labels
+ * </pre>
+ */
+public final class EntryIndex {
+
+    public static final int MAGIC = 0x53464149; // "SFAI"
+    public static final short FORMAT_VERSION = 3;
+
+    private static final int HEADER_SIZE = 20;
+    private static final int RECORD_SIZE = 60;
+    private static final long NULL_TIMESTAMP = Long.MIN_VALUE;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int[] internedTagIds;
+    private final int tagIdsOffset;
+
+    private EntryIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an entry index");
+        }
+        var formatVersion = buffer.getShort(4);
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported entry index format version: " + formatVersion);
+        }
+        this.size = buffer.getInt(6);
+        this.internedTagIds = new int[buffer.getInt(10)];
+        this.tagIdsOffset = buffer.getInt(14);
+        var offset = HEADER_SIZE + size * RECORD_SIZE;
+        for (int i = 0; i < internedTagIds.length; i++) {
+            var length = buffer.getInt(offset);
+            internedTagIds[i] = TagInterner.idOf(new Tag(string(offset)));
+            offset += Integer.BYTES + Math.max(0, length);
+        }
+    }
+
+    /**
+     * Reads the whole file onto the heap. The entries copy what they need, so the index is garbage
+     * once loading is done; a mapping would only keep the file mapped, and undeletable on Windows,
+     * until it is collected.
+     */
+    public static EntryIndex open(Path file) throws IOException {
+        return new EntryIndex(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+
+    public static byte[] encode(Collection<ArchiveEntry> entries) {
+        var tagIds = new LinkedHashMap<Tag, Integer>();
+        var tagIdCount = 0;
+        for (var entry : entries) {
+            if (entry.getTags() != null) {
+                entry.getTags().forEach(tag -> tagIds.putIfAbsent(tag, tagIds.size()));
+                tagIdCount += entry.getTags().size();
+            }
+        }
+
+        var strings = new ByteArrayOutputStream();
+        var stringsOffset = HEADER_SIZE + entries.size() * RECORD_SIZE;
+        try (var out = new DataOutputStream(strings)) {
+            for (var tag : tagIds.keySet()) {
+                writeString(out, tag.label());
+            }
+            var nameOffsets = new int[entries.size()];
+            var digestOffsets = new int[entries.size()];
+            var i = 0;
+            for (var entry : entries) {
+                nameOffsets[i] = stringsOffset + out.size();
+                writeString(out, entry.getName());
+                digestOffsets[i++] = stringsOffset + out.size();
+                writeString(out, entry.getContentDigest());
+            }
+
+            var tagIdsOffset = stringsOffset + out.size();
+            var bytes = ByteBuffer.allocate(tagIdsOffset + tagIdCount * Integer.BYTES);
+            bytes.putInt(MAGIC).putShort(FORMAT_VERSION).putInt(entries.size()).putInt(tagIds.size()).putInt(tagIdsOffset);
+            bytes.position(HEADER_SIZE);
+            i = 0;
+            var nextTagId = 0;
+            for (var entry : entries) {
+                var entryTags = entry.getTags() == null ? Set.<Tag>of() : entry.getTags();
+                bytes.putLong(entry.getId().getMostSignificantBits());
+                bytes.putLong(entry.getId().getLeastSignificantBits());
+                putTimestamp(bytes, entry.getDateCreated());
+                putTimestamp(bytes, entry.getDateLastModified());
+                bytes.putInt(nameOffsets[i]);
+                bytes.putInt(nextTagId);
+                bytes.putInt(entryTags.size());
+                bytes.putInt(digestOffsets[i++]);
+                bytes.putInt(entry.hasMetadata() ? entry.pageCount() : -1);
+                for (var tag : entryTags) {
+                    bytes.putInt(tagIdsOffset + nextTagId++ * Integer.BYTES, tagIds.get(tag));
+                }
+            }
+            bytes.put(strings.toByteArray());
+            return bytes.array();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode entry index", e);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public UUID id(int index) {
+        var record = record(index);
+        return new UUID(buffer.getLong(record), buffer.getLong(record + 8));
+    }
+
+    public LocalDateTime dateCreated(int index) {
+        return timestamp(record(index) + 16);
+    }
+
+    public LocalDateTime dateLastModified(int index) {
+        return timestamp(record(index) + 28);
+    }
+
+    public String name(int index) {
+        return string(buffer.getInt(record(index) + 40));
+    }
+
+    public String contentDigest(int index) {
+        return string(buffer.getInt(record(index) + 52));
+    }
+
+    public boolean hasMetadata(int index) {
+        return pageCount(index) >= 0;
+    }
+
+    /**
+     * @return the page count, or -1 if metadata was not extracted when the index was written
+     */
+    public int pageCount(int index) {
+        return buffer.getInt(record(index) + 56);
+    }
+
+    public Set<Tag> tags(int index) {
+        var record = record(index);
+        var first = buffer.getInt(record + 44);
+        var count = buffer.getInt(record + 48);
+        var ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = internedTagIds[buffer.getInt(tagIdsOffset + (first + i) * Integer.BYTES)];
+        }
+        return TagSet.ofIds(ids);
+    }
+
+    private int record(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private LocalDateTime timestamp(int offset) {
+        var seconds = buffer.getLong(offset);
+        if (seconds == NULL_TIMESTAMP) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(seconds, buffer.getInt(offset + 8), ZoneOffset.UTC);
+    }
+
+    private String string(int offset) {
+        var length = buffer.getInt(offset);
+        if (length < 0) {
+            return null;
+        }
+        var bytes = new byte[length];
+        buffer.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putTimestamp(ByteBuffer bytes, LocalDateTime timestamp) {
+        if (timestamp == null) {
+            bytes.putLong(NULL_TIMESTAMP).putInt(0);
+        } else {
+            bytes.putLong(timestamp.toEpochSecond(ZoneOffset.UTC)).putInt(timestamp.getNano());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,30 @@
+package dev.arne.smartfiles.core.store;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+/**
+ * Links the blob to the source file without copying anything. The blob shares the source's
+ * inode, so this is only safe when ingested files are never modified in place afterwards.
+ * Nothing is read while linking, so the content is hashed afterwards.
+ */
+public class HardLinkTransport implements IngestTransport {
+
+    @Override
+    public String name() {
+        return "hard-link";
+    }
+
+    @Override
+    public boolean supports(Path source, Path incomingDirectory) throws IOException {
+        return IngestTransport.onSameFileStore(source, incomingDirectory);
+    }
+
+    @Override
+    public void transfer(Path source, Path target, MessageDigest digest) throws IOException {
+        Files.createLink(target, source);
+        BlobStore.update(digest, target);
+    }
+}
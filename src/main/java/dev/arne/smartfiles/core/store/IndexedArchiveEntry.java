@@ -0,0 +1,132 @@
+package dev.arne.smartfiles.core.store;
+
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.DocumentMetadata;
+import dev.arne.smartfiles.core.model.Tag;
+import dev.arne.smartfiles.core.model.TagSet;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * An entry built from an {@link EntryIndex}. Id, name, dates, tags, content digest and page count are known up
+ * front; the remaining fields are read from the shard the first time any of them is accessed.
+ */
+final class IndexedArchiveEntry extends ArchiveEntry {
+
+    private final LazyShard shard;
+    private final int indexedPageCount;
+    private volatile boolean hydrated;
+
+    IndexedArchiveEntry(UUID id, String name, Set<Tag> tags, LocalDateTime dateCreated,
+                        LocalDateTime dateLastModified, String contentDigest, int pageCount, LazyShard shard) {
+        super(id, name, null, null, null, null, tags, dateCreated, dateLastModified, contentDigest, null);
+        this.indexedPageCount = pageCount;
+        this.shard = shard;
+    }
+
+    boolean isHydrated() {
+        return hydrated;
+    }
+
+    /**
+     * Called by the shard while holding its lock.
+     */
+    void hydrateFrom(ArchiveEntry source) {
+        if (source != null) {
+            super.setSummary(source.getSummary());
+            super.setPath(source.getPath());
+            super.setAbsolutePath(source.getAbsolutePath());
+            super.setOriginalPath(source.getOriginalPath());
+            super.setMetadata(source.getMetadata());
+        }
+        hydrated = true;
+    }
+
+    private void hydrate() {
+        if (!hydrated) {
+            shard.hydrate();
+        }
+    }
+
+    /**
+     * Stays lazy while the shard has not been decoded, so tagging an entry does not decode it.
+     */
+    @Override
+    public ArchiveEntry copy() {
+        var copy = new IndexedArchiveEntry(getId(), getName(), TagSet.copyOf(getTags()), getDateCreated(),
+                getDateLastModified(), getContentDigest(), indexedPageCount, shard);
+        return shard.addIfNotHydrated(copy) ? copy : super.copy();
+    }
+
+    @Override
+    public boolean hasMetadata() {
+        return hydrated ? super.hasMetadata() : indexedPageCount >= 0;
+    }
+
+    @Override
+    public int pageCount() {
+        return hydrated ? super.pageCount() : Math.max(0, indexedPageCount);
+    }
+
+    @Override
+    public DocumentMetadata getMetadata() {
+        hydrate();
+        return super.getMetadata();
+    }
+
+    @Override
+    public void setMetadata(DocumentMetadata metadata) {
+        hydrate();
+        super.setMetadata(metadata);
+    }
+
+    @Override
+    public String getSummary() {
+        hydrate();
+        return super.getSummary();
+    }
+
+    @Override
+    public void setSummary(String summary) {
+        hydrate();
+        super.setSummary(summary);
+    }
+
+    @Override
+    public String getPath() {
+        hydrate();
+        return super.getPath();
+    }
+
+    @Override
+    public void setPath(String path) {
+        hydrate();
+        super.setPath(path);
+    }
+
+    @Override
+    public String getAbsolutePath() {
+        hydrate();
+        return super.getAbsolutePath();
+    }
+
+    @Override
+    public void setAbsolutePath(String absolutePath) {
+        hydrate();
+        super.setAbsolutePath(absolutePath);
+    }
+
+    @Override
+    public String getOriginalPath() {
+        hydrate();
+        return super.getOriginalPath();
+    }
+
+    @Override
+    public void setOriginalPath(String originalPath) {
+        hydrate();
+        super.setOriginalPath(originalPath);
+    }
+}
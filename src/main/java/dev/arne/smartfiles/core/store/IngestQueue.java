@@ -0,0 +1,186 @@
+package dev.arne.smartfiles.core.store;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Durable queue of files waiting to be ingested, kept as an append-only log with one JSON
+ * record per line. Files are recorded before any copying starts and marked done once their
+ * entries are in the archive journal, so an interrupted import resumes on the next start.
+ * The log is rewritten with only the pending jobs when the queue is opened.
+ */
+public class IngestQueue {
+
+    private static final String LOG_FILE = "queue.log";
+
+    private final Logger logger = LoggerFactory.getLogger(IngestQueue.class);
+
+    private final Path log;
+    private final ObjectMapper objectMapper;
+    private final Map<UUID, Job> pending = new LinkedHashMap<>();
+
+    /**
+     * @param id      identifies the job in the log
+     * @param path    file to ingest
+     * @param resumed whether the job was left over from a previous run, in which case it may
+     *                already be in the archive
+     */
+    public record Job(UUID id, Path path, boolean resumed) {}
+
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+    @JsonSubTypes({
+            @JsonSubTypes.Type(value = QueueRecord.Enqueued.class, name = "enqueued"),
+            @JsonSubTypes.Type(value = QueueRecord.Completed.class, name = "completed"),
+            @JsonSubTypes.Type(value = QueueRecord.Failed.class, name = "failed")
+    })
+    sealed interface QueueRecord {
+
+        UUID jobId();
+
+        record Enqueued(UUID jobId, String path, LocalDateTime timestamp) implements QueueRecord {}
+
+        record Completed(UUID jobId, LocalDateTime timestamp) implements QueueRecord {}
+
+        record Failed(UUID jobId, String reason, LocalDateTime timestamp) implements QueueRecord {}
+    }
+
+    public IngestQueue(Path directory, ObjectMapper objectMapper) {
+        this.log = directory.resolve(LOG_FILE);
+        this.objectMapper = objectMapper;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot create ingest queue directory: " + directory, e);
+        }
+        replay();
+        rewrite();
+        if (!pending.isEmpty()) {
+            logger.info("Ingest queue holds {} files from a previous run", pending.size());
+        }
+    }
+
+    public synchronized List<Job> enqueue(List<Path> files) {
+        var now = LocalDateTime.now();
+        var jobs = new ArrayList<Job>(files.size());
+        var records = new ArrayList<QueueRecord>(files.size());
+        for (var file : files) {
+            var job = new Job(UUID.randomUUID(), file.toAbsolutePath(), false);
+            jobs.add(job);
+            records.add(new QueueRecord.Enqueued(job.id(), job.path().toString(), now));
+        }
+        append(records);
+        jobs.forEach(job -> pending.put(job.id(), job));
+        return jobs;
+    }
+
+    /**
+     * Marks jobs as done with a single write. Failed jobs are not retried.
+     */
+    public synchronized void complete(Collection<UUID> completed, Map<UUID, String> failed) {
+        var now = LocalDateTime.now();
+        var records = new ArrayList<QueueRecord>(completed.size() + failed.size());
+        completed.forEach(jobId -> records.add(new QueueRecord.Completed(jobId, now)));
+        failed.forEach((jobId, reason) -> records.add(new QueueRecord.Failed(jobId, reason, now)));
+        records.forEach(record -> pending.remove(record.jobId()));
+        if (pending.isEmpty()) {
+            // Nothing left to resume, start the next import with an empty log
+            rewrite();
+        } else {
+            append(records);
+        }
+    }
+
+    public synchronized List<Job> peek(int max) {
+        return pending.values().stream().limit(max).toList();
+    }
+
+    public synchronized List<Job> pending() {
+        return List.copyOf(pending.values());
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    private void append(List<QueueRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        var lines = new StringBuilder();
+        for (var record : records) {
+            lines.append(objectMapper.writeValueAsString(record)).append('\n');
+        }
+        var bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        try (var channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot append to ingest queue: " + log, e);
+        }
+    }
+
+    private void replay() {
+        if (!Files.exists(log)) {
+            return;
+        }
+        try (var reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    switch (objectMapper.readValue(line, QueueRecord.class)) {
+                        case QueueRecord.Enqueued enqueued ->
+                                pending.put(enqueued.jobId(), new Job(enqueued.jobId(), Path.of(enqueued.path()), true));
+                        case QueueRecord.Completed completed -> pending.remove(completed.jobId());
+                        case QueueRecord.Failed failed -> pending.remove(failed.jobId());
+                    }
+                } catch (JacksonException e) {
+                    // A torn write from a crash can only affect the tail
+                    logger.warn("Stopped reading ingest queue at unreadable record in {}", log, e);
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read ingest queue: " + log, e);
+        }
+    }
+
+    private void rewrite() {
+        var temp = log.resolveSibling(LOG_FILE + ".tmp");
+        var lines = new StringBuilder();
+        var now = LocalDateTime.now();
+        for (var job : pending.values()) {
+            lines.append(objectMapper.writeValueAsString(new QueueRecord.Enqueued(job.id(), job.path().toString(), now))).append('\n');
+        }
+        try {
+            Files.writeString(temp, lines, StandardCharsets.UTF_8);
+            Files.move(temp, log, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot rewrite ingest queue: " + log, e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package dev.arne.smartfiles.core.store;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+/**
+ * Moves the bytes of an ingested file into the blob store's incoming directory. The
+ * {@link BlobStore} tries its transports in order and falls back to the next one if a
+ * transport does not apply or fails.
+ */
+public interface IngestTransport {
+
+    String name();
+
+    /**
+     * @param source            file being ingested
+     * @param incomingDirectory directory the target will be created in
+     */
+    boolean supports(Path source, Path incomingDirectory) throws IOException;
+
+    /**
+     * Creates {@code target}, which must not exist yet, with the content of {@code source}, and
+     * feeds that content to {@code digest}. Transports that copy through the JVM hash the bytes
+     * as they pass, so the blob store does not have to read the file a second time.
+     */
+    void transfer(Path source, Path target, MessageDigest digest) throws IOException;
+
+    static boolean onSameFileStore(Path source, Path directory) throws IOException {
+        return Files.getFileStore(source).equals(Files.getFileStore(directory));
+    }
+}
@@ -0,0 +1,76 @@
+package dev.arne.smartfiles.core.store;
+
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A shard whose entries were created from its {@link EntryIndex}. The shard file is decoded once,
+ * the first time one of its entries needs a field the index does not hold.
+ * <p>
+ * Entries are only referenced weakly, so copies superseded by later changes can be collected
+ * before the shard is decoded, and not at all afterwards.
+ */
+final class LazyShard {
+
+    private final Logger logger = LoggerFactory.getLogger(LazyShard.class);
+
+    private final Path file;
+    private List<WeakReference<IndexedArchiveEntry>> entries = new ArrayList<>();
+    private int pruneThreshold = 16;
+
+    LazyShard(Path file) {
+        this.file = file;
+    }
+
+    void add(IndexedArchiveEntry entry) {
+        addIfNotHydrated(entry);
+    }
+
+    /**
+     * Adds a copy of one of the entries, unless the shard was decoded already.
+     */
+    synchronized boolean addIfNotHydrated(IndexedArchiveEntry copy) {
+        if (entries == null) {
+            return false;
+        }
+        if (entries.size() >= pruneThreshold) {
+            entries.removeIf(entry -> entry.refersTo(null));
+            pruneThreshold = Math.max(16, entries.size() * 2);
+        }
+        entries.add(new WeakReference<>(copy));
+        return true;
+    }
+
+    synchronized void hydrate() {
+        if (entries == null) {
+            return;
+        }
+        Map<UUID, ArchiveEntry> decoded = new HashMap<>();
+        try (var input = Files.newInputStream(file)) {
+            ArchiveBinaryCodec.decodeShard(input, decoded);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read archive shard: " + file, e);
+        }
+        var hydrated = 0;
+        for (var reference : entries) {
+            var entry = reference.get();
+            if (entry != null) {
+                entry.hydrateFrom(decoded.get(entry.getId()));
+                hydrated++;
+            }
+        }
+        entries = null;
+        logger.debug("Hydrated {} entries from {}", hydrated, file.getFileName());
+    }
+}
@@ -0,0 +1,367 @@
+package dev.arne.smartfiles.core.store;
+
+import dev.arne.smartfiles.core.model.Archive;
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.ShardedEntryMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a bounded number of full {@link Archive} snapshot generations, each named after the
+ * journal sequence it covers. Loading falls back to an older generation if the newest is unreadable.
+ * <p>
+ * A generation is a small manifest; the entries live in {@value #SHARD_COUNT} shard files bucketed
+ * by the first byte of the entry id. Shards are copy-on-write: a new generation only writes the
+ * shards holding entries that changed since the previous one and references the others.
+ * Every shard file has an {@link EntryIndex} next to it, so loading only reads the
+ * indexes and each shard is decoded the first time one of its entries is fully needed.
+ * <p>
+ * Given a columnar base directory, each shard is loaded into a {@link ColumnarEntryStore} instead,
+ * which reads its shard file just as lazily.
+ */
+public class SnapshotStore {
+
+    public static final int SHARD_COUNT = 256;
+
+    private static final String SNAPSHOT_PREFIX = "archive-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final String SHARD_DIRECTORY = "shards";
+    private static final String SHARD_PREFIX = "shard-";
+    private static final String INDEX_PREFIX = "index-";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final Logger logger = LoggerFactory.getLogger(SnapshotStore.class);
+
+    private final Path directory;
+    private final Path shardDirectory;
+    private final int generations;
+    private final Path columnarBaseDirectory;
+
+    /**
+     * Shard file sequences of the most recently captured generation, {@code null} until a sharded
+     * generation has been loaded or captured, which makes the next capture write every shard.
+     */
+    private long[] shardSequences;
+
+    public record LoadedSnapshot(Archive archive, long sequence) {}
+
+    /**
+     * An encoded generation, captured under the archive lock and written later.
+     */
+    public record Snapshot(long sequence, byte[] manifest, Map<Integer, byte[]> shards, Map<Integer, byte[]> indexes) {
+
+        public long size() {
+            return manifest.length + Stream.concat(shards.values().stream(), indexes.values().stream())
+                    .mapToLong(content -> content.length).sum();
+        }
+    }
+
+    public SnapshotStore(Path directory, int generations) {
+        this(directory, generations, null);
+    }
+
+    /**
+     * @param columnarBaseDirectory the directory paths of columnar stores are kept relative to, or
+     *                              {@code null} to load the entries as objects
+     */
+    public SnapshotStore(Path directory, int generations, Path columnarBaseDirectory) {
+        this.directory = directory;
+        this.shardDirectory = directory.resolve(SHARD_DIRECTORY);
+        this.generations = Math.max(1, generations);
+        this.columnarBaseDirectory = columnarBaseDirectory;
+        try {
+            Files.createDirectories(shardDirectory);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot create snapshot directory: " + directory, e);
+        }
+    }
+
+    public static int shardOf(UUID id) {
+        return (int) (id.getMostSignificantBits() >>> 56);
+    }
+
+    public long latestSequence() {
+        return sequences(SNAPSHOT_SUFFIX).max().orElse(0);
+    }
+
+    public long oldestRetainedSequence() {
+        return sequences(SNAPSHOT_SUFFIX).min().orElse(0);
+    }
+
+    public int countGenerations() {
+        return (int) sequences(SNAPSHOT_SUFFIX).count();
+    }
+
+    public Optional<LoadedSnapshot> loadLatest(ArchiveLoadListener listener) {
+        var newestFirst = sequences(SNAPSHOT_SUFFIX).boxed().sorted((a, b) -> Long.compare(b, a)).toList();
+        for (var sequence : newestFirst) {
+            var file = snapshotPath(sequence);
+            try (var input = Files.newInputStream(file)) {
+                var manifest = ArchiveBinaryCodec.decodeManifest(input);
+                if (hasIndexes(manifest.shardSequences())) {
+                    openIndexes(manifest, listener);
+                } else {
+                    readShards(manifest, listener);
+                }
+                synchronized (this) {
+                    var sharded = manifest.shardSequences().length == SHARD_COUNT;
+                    shardSequences = sharded ? manifest.shardSequences() : null;
+                }
+                logger.info("Loaded snapshot: {}", file.getFileName());
+                return Optional.of(new LoadedSnapshot(manifest.archive(), sequence));
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Skipping unreadable snapshot: {}", file.getFileName(), e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Encodes the manifest and every shard holding an entry that changed since the previous
+     * capture. Must be called while holding the archive's write lock.
+     */
+    public synchronized Snapshot capture(Archive archive, long sequence) {
+        var dirtyIds = archive.drainDirtyEntryIds();
+        var dirty = new boolean[SHARD_COUNT];
+        if (shardSequences == null) {
+            shardSequences = new long[SHARD_COUNT];
+            Arrays.fill(dirty, true);
+        } else {
+            dirtyIds.forEach(id -> dirty[shardOf(id)] = true);
+        }
+
+        Map<Integer, List<ArchiveEntry>> dirtyEntries = new HashMap<>();
+        for (var entry : archive.getArchiveEntries().values()) {
+            var shard = shardOf(entry.getId());
+            if (dirty[shard]) {
+                dirtyEntries.computeIfAbsent(shard, _ -> new ArrayList<>()).add(entry);
+            }
+        }
+        Map<Integer, byte[]> shards = new HashMap<>();
+        Map<Integer, byte[]> indexes = new HashMap<>();
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            if (!dirty[shard]) {
+                continue;
+            }
+            var entries = dirtyEntries.get(shard);
+            if (entries == null) {
+                shardSequences[shard] = 0;
+            } else {
+                shards.put(shard, ArchiveBinaryCodec.encodeShard(entries));
+                indexes.put(shard, EntryIndex.encode(entries));
+                shardSequences[shard] = sequence;
+            }
+        }
+        return new Snapshot(sequence, ArchiveBinaryCodec.encodeManifest(archive, shardSequences.clone()), shards, indexes);
+    }
+
+    /**
+     * Writes the captured shards and then the manifest, so a generation only becomes visible once
+     * all of its shards are on disk. If writing fails the next capture rewrites every shard.
+     */
+    public void write(Snapshot snapshot) {
+        try {
+            for (var shard : snapshot.shards().entrySet()) {
+                writeAtomically(shardPath(shard.getKey(), snapshot.sequence()), shard.getValue());
+            }
+            for (var index : snapshot.indexes().entrySet()) {
+                writeAtomically(indexPath(index.getKey(), snapshot.sequence()), index.getValue());
+            }
+            writeAtomically(snapshotPath(snapshot.sequence()), snapshot.manifest());
+        } catch (IOException e) {
+            synchronized (this) {
+                shardSequences = null;
+            }
+            throw new RuntimeException("Cannot write snapshot: " + snapshotPath(snapshot.sequence()), e);
+        }
+        prune();
+    }
+
+    private boolean hasIndexes(long[] sequences) {
+        for (int shard = 0; shard < sequences.length; shard++) {
+            if (sequences[shard] > 0 && !Files.exists(indexPath(shard, sequences[shard]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates the entries from the shard indexes without decoding any shard.
+     */
+    private void openIndexes(ArchiveBinaryCodec.Manifest manifest, ArchiveLoadListener listener) throws IOException {
+        var entries = manifest.archive().getArchiveEntries();
+        var columnarStores = columnarStores();
+        var sequences = manifest.shardSequences();
+        var total = Math.max(1, Arrays.stream(sequences).filter(sequence -> sequence > 0).count());
+        var read = 0;
+        var loaded = 0;
+        for (int shard = 0; shard < sequences.length; shard++) {
+            if (sequences[shard] == 0) {
+                continue;
+            }
+            var index = EntryIndex.open(indexPath(shard, sequences[shard]));
+            if (columnarStores != null) {
+                columnarStores.set(shard, ColumnarEntryStore.fromIndex(columnarBaseDirectory, index, shardPath(shard, sequences[shard])));
+            } else {
+                var lazyShard = new LazyShard(shardPath(shard, sequences[shard]));
+                for (int i = 0; i < index.size(); i++) {
+                    var entry = new IndexedArchiveEntry(index.id(i), index.name(i), index.tags(i),
+                            index.dateCreated(i), index.dateLastModified(i), index.contentDigest(i),
+                            index.pageCount(i), lazyShard);
+                    lazyShard.add(entry);
+                    entries.put(entry.getId(), entry);
+                }
+            }
+            loaded += index.size();
+            listener.onProgress(loaded, (double) ++read / total);
+        }
+        if (read == 0) {
+            listener.onProgress(0, 1.0);
+        }
+        useColumnarStores(manifest, columnarStores);
+    }
+
+    private void readShards(ArchiveBinaryCodec.Manifest manifest, ArchiveLoadListener listener) throws IOException {
+        var entries = manifest.archive().getArchiveEntries();
+        var columnarStores = columnarStores();
+        var sequences = manifest.shardSequences();
+        var total = Math.max(1, Arrays.stream(sequences).filter(sequence -> sequence > 0).count());
+        var read = 0;
+        var loaded = 0;
+        for (int shard = 0; shard < sequences.length; shard++) {
+            if (sequences[shard] == 0) {
+                continue;
+            }
+            Map<UUID, ArchiveEntry> decoded = columnarStores != null ? new HashMap<>() : entries;
+            try (var input = Files.newInputStream(shardPath(shard, sequences[shard]))) {
+                ArchiveBinaryCodec.decodeShard(input, decoded);
+            }
+            if (columnarStores != null) {
+                columnarStores.set(shard, ColumnarEntryStore.copyOf(columnarBaseDirectory, decoded));
+                loaded += decoded.size();
+            } else {
+                loaded = entries.size();
+            }
+            listener.onProgress(loaded, (double) ++read / total);
+        }
+        if (read == 0) {
+            listener.onProgress(0, 1.0);
+        }
+        useColumnarStores(manifest, columnarStores);
+    }
+
+    /**
+     * @return one empty store per shard, or {@code null} if the entries are loaded as objects
+     */
+    private List<ColumnarEntryStore> columnarStores() {
+        if (columnarBaseDirectory == null) {
+            return null;
+        }
+        List<ColumnarEntryStore> stores = new ArrayList<>(SHARD_COUNT);
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            stores.add(new ColumnarEntryStore(columnarBaseDirectory));
+        }
+        return stores;
+    }
+
+    private void useColumnarStores(ArchiveBinaryCodec.Manifest manifest, List<ColumnarEntryStore> stores) {
+        if (stores != null) {
+            manifest.archive().setArchiveEntries(ShardedEntryMap.of(stores, ColumnarEntryStore::copy));
+        }
+    }
+
+    private void writeAtomically(Path file, byte[] content) throws IOException {
+        var tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tempFile, content);
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void prune() {
+        var obsolete = sequences(SNAPSHOT_SUFFIX).boxed().sorted((a, b) -> Long.compare(b, a)).skip(generations).toList();
+        for (var sequence : obsolete) {
+            try {
+                Files.deleteIfExists(snapshotPath(sequence));
+                logger.info("Pruned snapshot generation {}", sequence);
+            } catch (IOException e) {
+                logger.warn("Cannot prune snapshot generation {}", sequence, e);
+            }
+        }
+        pruneShards();
+    }
+
+    /**
+     * Deletes shard files no retained generation refers to. If a retained manifest cannot be read
+     * its references are unknown, so nothing is deleted.
+     */
+    private void pruneShards() {
+        Set<Path> referenced = new HashSet<>();
+        for (var sequence : sequences(SNAPSHOT_SUFFIX).toArray()) {
+            try (var input = Files.newInputStream(snapshotPath(sequence))) {
+                var sequences = ArchiveBinaryCodec.decodeManifest(input).shardSequences();
+                for (int shard = 0; shard < sequences.length; shard++) {
+                    if (sequences[shard] > 0) {
+                        referenced.add(shardPath(shard, sequences[shard]));
+                        referenced.add(indexPath(shard, sequences[shard]));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Cannot read snapshot generation {}, keeping all shards", sequence, e);
+                return;
+            }
+        }
+        try (Stream<Path> files = Files.list(shardDirectory)) {
+            var candidates = files.filter(path -> {
+                var name = path.getFileName().toString();
+                return name.startsWith(SHARD_PREFIX) || name.startsWith(INDEX_PREFIX);
+            }).toList();
+            for (var file : candidates) {
+                if (!referenced.contains(file)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot prune snapshot shards", e);
+        }
+    }
+
+    private Path snapshotPath(long sequence) {
+        return directory.resolve(SNAPSHOT_PREFIX + "%020d".formatted(sequence) + SNAPSHOT_SUFFIX);
+    }
+
+    private Path shardPath(int shard, long sequence) {
+        return shardDirectory.resolve(SHARD_PREFIX + "%03d-%020d".formatted(shard, sequence) + SNAPSHOT_SUFFIX);
+    }
+
+    private Path indexPath(int shard, long sequence) {
+        return shardDirectory.resolve(INDEX_PREFIX + "%03d-%020d".formatted(shard, sequence) + INDEX_SUFFIX);
+    }
+
+    private LongStream sequences(String suffix) {
+        try (Stream<Path> files = Files.list(directory)) {
+            var sequences = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(suffix))
+                    .mapToLong(name -> Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - suffix.length())))
+                    .toArray();
+            return LongStream.of(sequences);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot list snapshot directory: " + directory, e);
+        }
+    }
+}
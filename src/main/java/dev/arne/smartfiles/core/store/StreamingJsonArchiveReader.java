@@ -0,0 +1,117 @@
+package dev.arne.smartfiles.core.store;
+
+import dev.arne.smartfiles.core.model.Archive;
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.Tag;
+import dev.arne.smartfiles.core.model.TagSet;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Reads a JSON archive with Jackson's token-level parser. Only one {@link ArchiveEntry} is bound
+ * at a time, so the document is never held as a whole in memory.
+ */
+public final class StreamingJsonArchiveReader {
+
+    private StreamingJsonArchiveReader() {
+    }
+
+    public static Archive read(ObjectMapper objectMapper, Path file, ArchiveLoadListener listener) throws IOException {
+        var totalBytes = Math.max(1, Files.size(file));
+        try (var input = new CountingInputStream(Files.newInputStream(file));
+             var parser = objectMapper.createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected an archive object in " + file);
+            }
+            String applicationVersion = null;
+            LocalDateTime dateCreated = null;
+            LocalDateTime dateLastModified = null;
+            Map<UUID, ArchiveEntry> entries = new HashMap<>();
+            Set<Tag> tags = new HashSet<>();
+
+            while (parser.nextToken() != JsonToken.END_OBJECT) {
+                var property = parser.currentName();
+                parser.nextToken();
+                switch (property) {
+                    case "applicationVersion" -> applicationVersion = objectMapper.readValue(parser, String.class);
+                    case "dateCreated" -> dateCreated = objectMapper.readValue(parser, LocalDateTime.class);
+                    case "dateLastModified" -> dateLastModified = objectMapper.readValue(parser, LocalDateTime.class);
+                    case "archiveEntries" -> readEntries(objectMapper, parser, entries, input, totalBytes, listener);
+                    case "tags" -> readTags(objectMapper, parser, tags);
+                    default -> parser.skipChildren();
+                }
+            }
+            listener.onProgress(entries.size(), 1.0);
+            return new Archive(applicationVersion, dateCreated, dateLastModified, entries, tags);
+        }
+    }
+
+    private static void readEntries(ObjectMapper objectMapper, JsonParser parser, Map<UUID, ArchiveEntry> entries,
+                                    CountingInputStream input, long totalBytes, ArchiveLoadListener listener) {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() != JsonToken.END_OBJECT) {
+            parser.nextToken();
+            var entry = objectMapper.readValue(parser, ArchiveEntry.class);
+            if (entry != null && entry.getId() != null) {
+                if (entry.getTags() == null) {
+                    entry.setTags(new TagSet());
+                }
+                entries.put(entry.getId(), entry);
+                listener.onProgress(entries.size(), Math.min(1.0, (double) input.count / totalBytes));
+            }
+        }
+    }
+
+    private static void readTags(ObjectMapper objectMapper, JsonParser parser, Set<Tag> tags) {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            tags.add(objectMapper.readValue(parser, Tag.class));
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            var value = super.read();
+            if (value >= 0) {
+                count++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            var read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package dev.arne.smartfiles.core.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Extracted text of documents, one gzip compressed sidecar file per document at
+ * {@code <i0i1>/<id>.txt.gz}. A document without a file has not been extracted yet; one that has
+ * no text is stored with zero pages, so it is not extracted again.
+ * <pre>
+ * file:  magic, format version, page count, pages
+ * page:  length, UTF-8 bytes
+ * </pre>
+ */
+public class TextStore {
+
+    public static final int MAGIC = 0x53465458; // "SFTX"
+    public static final short FORMAT_VERSION = 1;
+
+    private static final String EXTENSION = ".txt.gz";
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path directory;
+
+    public TextStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot create text directory: " + directory, e);
+        }
+    }
+
+    public boolean contains(UUID documentId) {
+        return Files.exists(pathFor(documentId));
+    }
+
+    /**
+     * Replaces the text of a document. The file is written next to its target and moved into
+     * place, so a crash leaves either the old text or none.
+     */
+    public void write(UUID documentId, List<String> pages) {
+        var target = pathFor(documentId);
+        try {
+            Files.createDirectories(target.getParent());
+            var temp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+            try (var out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp), BUFFER_SIZE)))) {
+                out.writeInt(MAGIC);
+                out.writeShort(FORMAT_VERSION);
+                out.writeInt(pages.size());
+                for (var page : pages) {
+                    var bytes = page.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write text of document " + documentId, e);
+        }
+    }
+
+    public Optional<List<String>> read(UUID documentId) {
+        var pages = new ArrayList<String>();
+        return forEachPage(documentId, pages::add) ? Optional.of(pages) : Optional.empty();
+    }
+
+    /**
+     * Streams the pages of a document, holding only one of them in memory at a time.
+     *
+     * @return whether the document has been extracted
+     */
+    public boolean forEachPage(UUID documentId, Consumer<String> consumer) {
+        var file = pathFor(documentId);
+        try (var in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file), BUFFER_SIZE)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a text file");
+            }
+            var formatVersion = in.readShort();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported text format version: " + formatVersion);
+            }
+            var count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                var bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                consumer.accept(new String(bytes, StandardCharsets.UTF_8));
+            }
+            return true;
+        } catch (NoSuchFileException _) {
+            return false;
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read text of document " + documentId, e);
+        }
+    }
+
+    public void delete(UUID documentId) {
+        try {
+            Files.deleteIfExists(pathFor(documentId));
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot delete text of document " + documentId, e);
+        }
+    }
+
+    private Path pathFor(UUID documentId) {
+        var id = documentId.toString();
+        return directory.resolve(id.substring(0, 2)).resolve(id + EXTENSION);
+    }
+}
@@ -0,0 +1,19 @@
+package dev.arne.smartfiles.core.store;
+
+import java.time.Duration;
+
+/**
+ * Totals for one {@link IngestTransport} since startup.
+ *
+ * @param transport name of the transport
+ * @param files     number of files transferred
+ * @param bytes     number of bytes transferred
+ * @param time      time spent transferring
+ */
+public record TransferStatistics(String transport, long files, long bytes, Duration time) {
+
+    public double megabytesPerSecond() {
+        var seconds = time.toNanos() / 1_000_000_000.0;
+        return seconds == 0 ? 0 : bytes / (1024.0 * 1024.0) / seconds;
+    }
+}
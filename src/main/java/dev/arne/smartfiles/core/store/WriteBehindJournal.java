@@ -0,0 +1,112 @@
+package dev.arne.smartfiles.core.store;
+
+import dev.arne.smartfiles.core.model.ArchiveMutation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers mutations in memory and appends them to the {@link ArchiveJournal} from a background
+ * thread, so a burst of edits costs one durable write instead of one per edit.
+ * A zero delay disables buffering and appends on the calling thread.
+ */
+public class WriteBehindJournal {
+
+    private final Logger logger = LoggerFactory.getLogger(WriteBehindJournal.class);
+
+    private final ArchiveJournal journal;
+    private final Duration delay;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "journal-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object flushLock = new Object();
+    private final List<ArchiveMutation> pending = new ArrayList<>();
+    private boolean flushScheduled;
+
+    public WriteBehindJournal(ArchiveJournal journal, Duration delay) {
+        this.journal = journal;
+        this.delay = delay;
+    }
+
+    public void submit(List<ArchiveMutation> mutations) {
+        if (delay.isZero()) {
+            journal.append(mutations);
+            return;
+        }
+        var detached = mutations.stream().map(WriteBehindJournal::detach).toList();
+        synchronized (pending) {
+            pending.addAll(detached);
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Added entries are copied, as the caller may go on changing them while the flusher thread
+     * serializes the mutation.
+     */
+    private static ArchiveMutation detach(ArchiveMutation mutation) {
+        return mutation instanceof ArchiveMutation.EntryAdded added
+                ? new ArchiveMutation.EntryAdded(added.entry().copy(), added.timestamp())
+                : mutation;
+    }
+
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Writes everything submitted so far with a single append. Flushes are serialized so records
+     * reach the journal in the order they were submitted.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<ArchiveMutation> batch;
+            synchronized (pending) {
+                batch = new ArrayList<>(pending);
+                pending.clear();
+                flushScheduled = false;
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                journal.append(batch);
+            } catch (RuntimeException e) {
+                synchronized (pending) {
+                    pending.addAll(0, batch);
+                }
+                throw e;
+            }
+            logger.debug("Flushed {} journal records", batch.size());
+        }
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            flusher.schedule(this::flushInBackground, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Journal flush failed, retrying in {} ms", delay.toMillis(), e);
+            synchronized (pending) {
+                scheduleFlush();
+            }
+        }
+    }
+}
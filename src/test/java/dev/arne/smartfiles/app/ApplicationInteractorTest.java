@@ -2,12 +2,16 @@ package dev.arne.smartfiles.app;
 
 import dev.arne.smartfiles.core.events.*;
 import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.IngestResult;
 import dev.arne.smartfiles.core.model.Tag;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.time.LocalDateTime;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -20,7 +24,7 @@ class ApplicationInteractorTest {
 
     @BeforeEach
     void setUp() {
-        model = new ApplicationModel();
+        model = new ApplicationModel(FxScheduler.direct());
         // Use direct scheduler to execute synchronously without requiring JavaFX runtime
         interactor = new ApplicationInteractor(model, FxScheduler.direct());
     }
@@ -37,11 +41,12 @@ class ApplicationInteractorTest {
 
     @Test
     void handleAllTagsUpdatedEvent_updatesModelTags() {
-        var tags = Set.of(new Tag("invoice"), new Tag("receipt"));
+        var tags = Map.of(new Tag("invoice"), 3, new Tag("receipt"), 1);
 
         interactor.onApplicationEvent(new AllTagsUpdatedEvent(tags));
 
         assertEquals(2, model.getAllTagsProperty().size());
+        assertEquals(3, model.getTagCounts().get(new Tag("invoice")));
         assertTrue(model.getAllTagsProperty().stream().anyMatch(t -> t.label().equals("invoice")));
         assertTrue(model.getAllTagsProperty().stream().anyMatch(t -> t.label().equals("receipt")));
     }
@@ -54,7 +59,7 @@ class ApplicationInteractorTest {
         assertTrue(model.isFilterTagSelected(new Tag("invoice")));
 
         // Update tags without "invoice"
-        var newTags = Set.of(new Tag("receipt"));
+        var newTags = Map.of(new Tag("receipt"), 1);
         interactor.onApplicationEvent(new AllTagsUpdatedEvent(newTags));
 
         assertFalse(model.isFilterTagSelected(new Tag("invoice")));
@@ -94,31 +99,43 @@ class ApplicationInteractorTest {
     }
 
     @Test
-    void handleDocumentDescriptionUpdatedEvent_updatesDescription() {
+    void handleDocumentsChangedEvent_updatesDescription() {
         var entry = createTestEntry("test.pdf");
         model.getDocumentsList().add(entry);
         model.setSelectedDocument(entry);
+        var updated = entry.copy();
+        updated.setSummary("New description");
 
-        interactor.onApplicationEvent(new DocumentDescriptionUpdatedEvent(entry.getId(), "New description"));
+        interactor.onApplicationEvent(new DocumentsChangedEvent(List.of(updated)));
 
         assertEquals("New description", model.getDescriptionProperty().get());
     }
 
     @Test
-    void handleDocumentTagAddedEvent_updatesTags() {
+    void handleDocumentsChangedEvent_updatesTags() {
         var entry = createTestEntry("test.pdf");
         entry.getTags().add(new Tag("invoice"));
         model.getDocumentsList().add(entry);
         model.setSelectedDocument(entry);
+        var updated = entry.copy();
+        updated.getTags().add(new Tag("receipt"));
 
-        // Add another tag to the entry (simulating what the service does)
-        entry.getTags().add(new Tag("receipt"));
-
-        interactor.onApplicationEvent(new DocumentTagAddedEvent(new Tag("receipt"), entry.getId()));
+        interactor.onApplicationEvent(new DocumentsChangedEvent(List.of(updated)));
 
         assertEquals(2, model.getTagsProperty().size());
     }
 
+    @Test
+    void handleDocumentsChangedEvent_removesDeletedDocuments() {
+        var deleted = createTestEntry("deleted.pdf");
+        var kept = createTestEntry("kept.pdf");
+        model.getDocumentsList().addAll(deleted, kept);
+
+        interactor.onApplicationEvent(new DocumentsChangedEvent(List.of(), Set.of(deleted.getId())));
+
+        assertEquals(List.of(kept), model.getDocumentsList());
+    }
+
     @Test
     void handleLightThemeActivatedSettingsChangedEvent_setsModeActivated_true() {
         assertFalse(model.isLightModeActivated());
@@ -144,6 +161,23 @@ class ApplicationInteractorTest {
         assertDoesNotThrow(() -> interactor.onApplicationEvent(new TagAddedEvent(new Tag("test"))));
     }
 
+    @Test
+    void handleIngestProgressEvent_showsProgressInStatus() {
+        interactor.onApplicationEvent(new IngestProgressEvent("test.pdf", 3, 10, true));
+
+        assertEquals("Adding documents: 3 of 10", model.getIngestStatusProperty().get());
+    }
+
+    @Test
+    void handleIngestCompletedEvent_reportsFailures() {
+        var result = new IngestResult(List.of(createTestEntry("test.pdf")),
+                List.of(new IngestResult.Failure(new File("/tmp/broken.pdf"), "Access denied")));
+
+        interactor.onApplicationEvent(new IngestCompletedEvent(result));
+
+        assertEquals("Added 1 documents, 1 failed", model.getIngestStatusProperty().get());
+    }
+
     @Test
     void onApplicationEvent_dispatchesToAllEventTypes() {
         var entry = createTestEntry("test.pdf");
@@ -157,13 +191,18 @@ class ApplicationInteractorTest {
         // Test all event types dispatch without error
         assertDoesNotThrow(() -> {
             interactor.onApplicationEvent(new ArchiveEntryAddedEvent(createTestEntry("another.pdf")));
-            interactor.onApplicationEvent(new AllTagsUpdatedEvent(Set.of(tag)));
+            interactor.onApplicationEvent(new AllTagsUpdatedEvent(Map.of(tag, 1)));
             interactor.onApplicationEvent(new ArchiveLastModifiedUpdatedEvent(timestamp));
             interactor.onApplicationEvent(new DocumentDeletedEvent(UUID.randomUUID()));
             interactor.onApplicationEvent(new DocumentDescriptionUpdatedEvent(entry.getId(), "desc"));
             interactor.onApplicationEvent(new DocumentTagAddedEvent(tag, entry.getId()));
+            interactor.onApplicationEvent(new DocumentMetadataExtractedEvent(Map.of()));
+            interactor.onApplicationEvent(new DocumentTextExtractedEvent(UUID.randomUUID()));
+            interactor.onApplicationEvent(new DocumentsChangedEvent(List.of(entry.copy())));
             interactor.onApplicationEvent(new LightThemeActivatedSettingChangedEvent(true));
             interactor.onApplicationEvent(new TagAddedEvent(tag));
+            interactor.onApplicationEvent(new IngestProgressEvent("test.pdf", 1, 1, true));
+            interactor.onApplicationEvent(new IngestCompletedEvent(new IngestResult(List.of(), List.of())));
         });
     }
 
@@ -2,13 +2,18 @@ package dev.arne.smartfiles.app;
 
 import dev.arne.smartfiles.core.model.ArchiveEntry;
 import dev.arne.smartfiles.core.model.Tag;
+import javafx.collections.ListChangeListener;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -18,7 +23,7 @@ class ApplicationModelTest {
 
     @BeforeEach
     void setUp() {
-        model = new ApplicationModel();
+        model = new ApplicationModel(FxScheduler.direct());
     }
 
     @Test
@@ -32,47 +37,53 @@ class ApplicationModelTest {
     }
 
     @Test
-    void updateDescription_updatesDescriptionProperty() {
+    void replaceDocuments_updatesDescriptionOfSelectedDocument() {
         var entry = createTestEntry("test.pdf", "Initial description");
         model.getDocumentsList().add(entry);
         model.setSelectedDocument(entry);
+        var updated = entry.copy();
+        updated.setSummary("Updated description");
 
-        model.updateDescription("Updated description");
+        model.replaceDocuments(List.of(updated));
 
         assertEquals("Updated description", model.getDescriptionProperty().get());
+        assertSame(updated, model.getSelectedDocumentProperty().get());
     }
 
     @Test
-    void updateDescription_updatesEntryInDocumentsList() {
+    void replaceDocuments_replacesEntryInDocumentsList() {
         var entry = createTestEntry("test.pdf", "Initial description");
-        model.getDocumentsList().add(entry);
-        model.setSelectedDocument(entry);
+        var other = createTestEntry("other.pdf", "");
+        model.getDocumentsList().addAll(entry, other);
+        var updated = entry.copy();
+        updated.setSummary("Updated description");
 
-        model.updateDescription("Updated description");
+        model.replaceDocuments(List.of(updated));
 
-        var updatedEntry = model.getDocumentsList().getFirst();
-        assertEquals("Updated description", updatedEntry.getSummary());
+        assertEquals(List.of(updated, other), model.getDocumentsList());
+        assertEquals("Initial description", entry.getSummary());
     }
 
     @Test
-    void updateDescription_refreshesDocumentInList() {
-        var entry = createTestEntry("test.pdf", "Initial description");
+    void replaceDocuments_updatesTagsOfSelectedDocument() {
+        var entry = createTestEntry("test.pdf", "");
         model.getDocumentsList().add(entry);
         model.setSelectedDocument(entry);
+        var updated = entry.copy();
+        updated.getTags().add(new Tag("receipt"));
 
-        var listChanged = new boolean[]{false};
-        model.getDocumentsList().addListener((javafx.collections.ListChangeListener<ArchiveEntry>) c -> {
-            listChanged[0] = true;
-        });
+        model.replaceDocuments(List.of(updated));
 
-        model.updateDescription("Updated description");
-
-        assertTrue(listChanged[0], "Document list should have been updated");
+        assertEquals(List.of(new Tag("receipt")), List.copyOf(model.getTagsProperty()));
     }
 
     @Test
-    void updateDescription_whenNoDocumentSelected_doesNotThrow() {
-        assertDoesNotThrow(() -> model.updateDescription("Some description"));
+    void replaceDocuments_withUnknownDocument_ignoresIt() {
+        var entry = createTestEntry("test.pdf", "");
+        model.getDocumentsList().add(entry);
+
+        assertDoesNotThrow(() -> model.replaceDocuments(List.of(createTestEntry("unknown.pdf", ""))));
+        assertEquals(List.of(entry), model.getDocumentsList());
     }
 
     @Test
@@ -110,6 +121,14 @@ class ApplicationModelTest {
         assertFalse(model.isFilterTagSelected(tag));
     }
 
+    @Test
+    void setTagCounts_setsCountsAndTags() {
+        model.setTagCounts(Map.of(new Tag("invoice"), 1204, new Tag("receipt"), 3));
+
+        assertEquals(2, model.getAllTagsProperty().size());
+        assertEquals(1204, model.getTagCounts().get(new Tag("invoice")));
+    }
+
     @Test
     void setAllTags_replacesAllTagsAndCleansInvalidFilters() {
         var initialTags = Set.of(new Tag("invoice"), new Tag("receipt"));
@@ -161,6 +180,128 @@ class ApplicationModelTest {
         assertEquals("doc1.pdf", model.getFilteredDocuments().getFirst().getName());
     }
 
+    @Test
+    void filterPredicate_withAllTagsMode_requiresEverySelectedTag() {
+        var paidInvoice = createTestEntry("doc1.pdf", "");
+        paidInvoice.getTags().addAll(Set.of(new Tag("invoice"), new Tag("paid")));
+        var openInvoice = createTestEntry("doc2.pdf", "");
+        openInvoice.getTags().add(new Tag("invoice"));
+        model.getDocumentsList().addAll(paidInvoice, openInvoice);
+        model.toggleFilterTag(new Tag("invoice"));
+        model.toggleFilterTag(new Tag("paid"));
+        assertEquals(2, model.getFilteredDocuments().size());
+
+        model.getTagFilterModeProperty().set(TagFilterMode.ALL);
+
+        assertEquals(List.of(paidInvoice), model.getFilteredDocuments());
+    }
+
+    @Test
+    void replaceDocuments_showsNewlyTaggedDocumentUnderTheTagFilter() {
+        var entry = createTestEntry("doc1.pdf", "");
+        model.getDocumentsList().add(entry);
+        model.toggleFilterTag(new Tag("invoice"));
+        assertTrue(model.getFilteredDocuments().isEmpty());
+
+        var tagged = entry.copy();
+        tagged.getTags().add(new Tag("invoice"));
+        model.replaceDocuments(List.of(tagged));
+
+        assertEquals(List.of(tagged), model.getFilteredDocuments());
+    }
+
+    @Test
+    void replaceDocuments_manyDocuments_changesListOnceAndKeepsOtherTags() {
+        var kept = createTestEntry("kept.pdf", "");
+        kept.getTags().add(new Tag("invoice"));
+        var first = createTestEntry("doc1.pdf", "");
+        var second = createTestEntry("doc2.pdf", "");
+        model.getDocumentsList().addAll(List.of(first, kept, second));
+        model.toggleFilterTag(new Tag("invoice"));
+        var changes = new AtomicInteger();
+        model.getDocumentsList().addListener((ListChangeListener<ArchiveEntry>) _ -> changes.incrementAndGet());
+
+        var taggedFirst = first.copy();
+        taggedFirst.getTags().add(new Tag("invoice"));
+        var taggedSecond = second.copy();
+        taggedSecond.getTags().add(new Tag("invoice"));
+        model.replaceDocuments(List.of(taggedFirst, taggedSecond));
+
+        assertEquals(1, changes.get());
+        assertEquals(List.of(taggedFirst, kept, taggedSecond), model.getFilteredDocuments());
+    }
+
+    @Test
+    void replaceDocuments_withEntryChangedInPlace_reindexesItsTags() {
+        var entry = createTestEntry("doc1.pdf", "");
+        model.getDocumentsList().add(entry);
+        model.toggleFilterTag(new Tag("invoice"));
+
+        entry.getTags().add(new Tag("invoice"));
+        model.replaceDocuments(List.of(entry));
+
+        assertEquals(List.of(entry), model.getFilteredDocuments());
+    }
+
+    @Test
+    void replaceDocuments_withTagQuery_showsNewlyTaggedDocument() {
+        var entry = createTestEntry("doc1.pdf", "");
+        model.getDocumentsList().add(entry);
+        model.getSearchTextProperty().set("tag:invoice");
+        assertTrue(model.getFilteredDocuments().isEmpty());
+
+        var tagged = entry.copy();
+        tagged.getTags().add(new Tag("invoice"));
+        model.replaceDocuments(List.of(tagged));
+
+        assertEquals(List.of(tagged), model.getFilteredDocuments());
+    }
+
+    @Test
+    void filterPredicate_withTagFilter_showsAddedDocumentCarryingTheTag() {
+        model.getDocumentsList().add(createTestEntry("doc1.pdf", ""));
+        model.toggleFilterTag(new Tag("invoice"));
+        var invoice = createTestEntry("doc2.pdf", "");
+        invoice.getTags().add(new Tag("invoice"));
+
+        model.addDocumentFromArchiveEntry(invoice);
+
+        assertEquals(List.of(invoice), model.getFilteredDocuments());
+    }
+
+    @Test
+    void filterPredicate_withTagFilter_compilesManyAddedDocumentsOnce() {
+        var scheduled = new ArrayList<Runnable>();
+        model = new ApplicationModel(scheduled::add);
+        model.getDocumentsList().add(createTestEntry("doc1.pdf", ""));
+        model.toggleFilterTag(new Tag("invoice"));
+        var invoices = new ArrayList<ArchiveEntry>();
+        for (int i = 0; i < 3; i++) {
+            var invoice = createTestEntry("invoice" + i + ".pdf", "");
+            invoice.getTags().add(new Tag("invoice"));
+            invoices.add(invoice);
+            model.addDocumentFromArchiveEntry(invoice);
+        }
+
+        assertEquals(1, scheduled.size());
+        scheduled.forEach(Runnable::run);
+        assertEquals(invoices, model.getFilteredDocuments());
+    }
+
+    @Test
+    void filterPredicate_whenRemovedDocumentsOrdinalIsReused_doesNotMatchNewDocument() {
+        var invoice = createTestEntry("invoice.pdf", "");
+        invoice.getTags().add(new Tag("invoice"));
+        model.getDocumentsList().add(invoice);
+        model.toggleFilterTag(new Tag("invoice"));
+        assertEquals(List.of(invoice), model.getFilteredDocuments());
+
+        model.removeDocument(invoice.getId());
+        model.addDocumentFromArchiveEntry(createTestEntry("receipt.pdf", ""));
+
+        assertTrue(model.getFilteredDocuments().isEmpty());
+    }
+
     @Test
     void filterPredicate_withBothSearchAndTags_requiresBoth() {
         var entry1 = createTestEntry("Invoice-2024.pdf", "");
@@ -178,6 +319,50 @@ class ApplicationModelTest {
         assertEquals("Invoice-2024.pdf", model.getFilteredDocuments().getFirst().getName());
     }
 
+    @Test
+    void filterPredicate_withSearch_showsRankedMatchesInRankOrder() {
+        var first = createTestEntry("a.pdf", "");
+        var second = createTestEntry("b.pdf", "");
+        var unmatched = createTestEntry("c.pdf", "");
+        model.getDocumentsList().addAll(first, second, unmatched);
+        model.setSearch(_ -> List.of(second.getId(), first.getId()));
+
+        model.getSearchTextProperty().set("electricity");
+
+        assertEquals(List.of(second, first), model.getRankedDocuments());
+    }
+
+    @Test
+    void fuzzySearchActivated_usesFuzzySearchForTheSearchText() {
+        var exact = createTestEntry("acme.pdf", "");
+        var misspelled = createTestEntry("acne.pdf", "");
+        model.getDocumentsList().addAll(exact, misspelled);
+        model.setSearch(_ -> List.of(exact.getId()));
+        model.setFuzzySearch(_ -> List.of(exact.getId(), misspelled.getId()));
+        model.getSearchTextProperty().set("acme");
+        assertEquals(List.of(exact), model.getRankedDocuments());
+
+        model.setFuzzySearchActivated(true);
+
+        assertEquals(List.of(exact, misspelled), model.getRankedDocuments());
+    }
+
+    @Test
+    void filterPredicate_withStructuredQuery_combinesTagsAndText() {
+        var paidInvoice = createTestEntry("acme-1.pdf", "");
+        paidInvoice.getTags().addAll(Set.of(new Tag("Invoice"), new Tag("paid")));
+        var openInvoice = createTestEntry("acme-2.pdf", "");
+        openInvoice.getTags().add(new Tag("Invoice"));
+        var other = createTestEntry("other.pdf", "");
+        other.getTags().add(new Tag("Invoice"));
+        model.setAllTags(Set.of(new Tag("Invoice"), new Tag("paid")));
+        model.getDocumentsList().addAll(paidInvoice, openInvoice, other);
+
+        model.getSearchTextProperty().set("tag:invoice -tag:paid acme");
+
+        assertEquals(List.of(openInvoice), model.getFilteredDocuments());
+    }
+
     @Test
     void filterPredicate_withEmptySearchText_showsAllDocuments() {
         model.getDocumentsList().add(createTestEntry("doc1.pdf", ""));
@@ -218,6 +403,22 @@ class ApplicationModelTest {
         assertEquals("doc1.pdf", model.getSelectedDocumentNameProperty().get());
     }
 
+    @Test
+    void removeDocuments_removesEveryDocumentAndClearsSelection() {
+        var first = createTestEntry("first.pdf", "");
+        var second = createTestEntry("second.pdf", "");
+        var kept = createTestEntry("kept.pdf", "");
+        model.getDocumentsList().addAll(first, second, kept);
+        model.setSelectedDocument(first);
+        model.getSelectedDocumentIds().setAll(first.getId(), second.getId());
+
+        model.removeDocuments(Set.of(first.getId(), second.getId()));
+
+        assertEquals(List.of(kept), model.getDocumentsList());
+        assertTrue(model.getSelectedDocumentIds().isEmpty());
+        assertNull(model.getSelectedDocumentProperty().get());
+    }
+
     @Test
     void clearSelectedDocument_clearsAllSelectionProperties() {
         var entry = createTestEntry("test.pdf", "Description");
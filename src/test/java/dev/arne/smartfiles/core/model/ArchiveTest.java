@@ -4,6 +4,10 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -63,4 +67,179 @@ class ArchiveTest {
 
         assertTrue(archive.getDateLastModified().isAfter(originalModified));
     }
+
+    @Test
+    void apply_tagAdded_addsTagAndUpdatesTimestamps() {
+        var archive = Archive.empty();
+        var entry = archive.addArchiveEntryFromFile(new File("/tmp/doc.pdf"), "/orig/doc.pdf");
+        var timestamp = LocalDateTime.now().plusMinutes(1);
+
+        archive.apply(new ArchiveMutation.TagAdded(entry.getId(), new Tag("invoice"), timestamp));
+
+        var tagged = archive.getArchiveEntries().get(entry.getId());
+        assertTrue(tagged.getTags().contains(new Tag("invoice")));
+        assertEquals(timestamp, tagged.getDateLastModified());
+        assertEquals(timestamp, archive.getDateLastModified());
+    }
+
+    @Test
+    void apply_descriptionUpdated_updatesSummary() {
+        var archive = Archive.empty();
+        var entry = archive.addArchiveEntryFromFile(new File("/tmp/doc.pdf"), "/orig/doc.pdf");
+
+        archive.apply(new ArchiveMutation.DescriptionUpdated(entry.getId(), "Electricity bill", LocalDateTime.now()));
+
+        assertEquals("Electricity bill", archive.getArchiveEntries().get(entry.getId()).getSummary());
+    }
+
+    @Test
+    void apply_tagsAdded_tagsEveryDocumentAndCountsThem() {
+        var archive = Archive.empty();
+        var first = archive.addArchiveEntryFromFile(new File("/tmp/first.pdf"), "/orig/first.pdf");
+        var second = archive.addArchiveEntryFromFile(new File("/tmp/second.pdf"), "/orig/second.pdf");
+        archive.apply(new ArchiveMutation.TagAdded(first.getId(), new Tag("invoice"), LocalDateTime.now()));
+
+        archive.apply(new ArchiveMutation.TagsAdded(List.of(first.getId(), second.getId(), UUID.randomUUID()),
+                List.of(new Tag("invoice"), new Tag("2024")), LocalDateTime.now()));
+
+        assertEquals(Set.of(new Tag("invoice"), new Tag("2024")), archive.getArchiveEntries().get(first.getId()).getTags());
+        assertEquals(Set.of(new Tag("invoice"), new Tag("2024")), archive.getArchiveEntries().get(second.getId()).getTags());
+        assertEquals(Map.of(new Tag("invoice"), 2, new Tag("2024"), 2), archive.getTagDictionary().counts());
+        assertEquals(2, archive.getArchiveEntries().size());
+    }
+
+    @Test
+    void apply_tagsRemoved_dropsTagsNoDocumentCarries() {
+        var archive = Archive.empty();
+        var first = archive.addArchiveEntryFromFile(new File("/tmp/first.pdf"), "/orig/first.pdf");
+        var second = archive.addArchiveEntryFromFile(new File("/tmp/second.pdf"), "/orig/second.pdf");
+        var both = List.of(first.getId(), second.getId());
+        archive.apply(new ArchiveMutation.TagsAdded(both, List.of(new Tag("invoice"), new Tag("paid")), LocalDateTime.now()));
+
+        archive.apply(new ArchiveMutation.TagsRemoved(both, List.of(new Tag("paid")), LocalDateTime.now()));
+
+        assertEquals(Set.of(new Tag("invoice")), archive.getArchiveEntries().get(second.getId()).getTags());
+        assertEquals(Map.of(new Tag("invoice"), 2), archive.getTagDictionary().counts());
+    }
+
+    @Test
+    void apply_tagRenamed_mergesIntoExistingTag() {
+        var archive = Archive.empty();
+        var renamed = archive.addArchiveEntryFromFile(new File("/tmp/renamed.pdf"), "/orig/renamed.pdf");
+        var merged = archive.addArchiveEntryFromFile(new File("/tmp/merged.pdf"), "/orig/merged.pdf");
+        var untouched = archive.addArchiveEntryFromFile(new File("/tmp/untouched.pdf"), "/orig/untouched.pdf");
+        archive.apply(new ArchiveMutation.TagsAdded(List.of(renamed.getId(), merged.getId()), List.of(new Tag("invoce")), LocalDateTime.now()));
+        archive.apply(new ArchiveMutation.TagAdded(merged.getId(), new Tag("invoice"), LocalDateTime.now()));
+        var untouchedBefore = archive.getArchiveEntries().get(untouched.getId());
+
+        var rename = new ArchiveMutation.TagRenamed(new Tag("invoce"), new Tag("invoice"), LocalDateTime.now());
+        archive.apply(rename);
+        archive.apply(rename);
+
+        assertEquals(Set.of(new Tag("invoice")), archive.getArchiveEntries().get(renamed.getId()).getTags());
+        assertEquals(Set.of(new Tag("invoice")), archive.getArchiveEntries().get(merged.getId()).getTags());
+        assertSame(untouchedBefore, archive.getArchiveEntries().get(untouched.getId()));
+        assertEquals(Map.of(new Tag("invoice"), 2), archive.getTagDictionary().counts());
+    }
+
+    @Test
+    void apply_entriesDeleted_removesEveryDocument() {
+        var archive = Archive.empty();
+        var first = archive.addArchiveEntryFromFile(new File("/tmp/first.pdf"), "/orig/first.pdf");
+        var second = archive.addArchiveEntryFromFile(new File("/tmp/second.pdf"), "/orig/second.pdf");
+        var kept = archive.addArchiveEntryFromFile(new File("/tmp/kept.pdf"), "/orig/kept.pdf");
+        archive.apply(new ArchiveMutation.TagsAdded(List.of(first.getId(), kept.getId()), List.of(new Tag("invoice")), LocalDateTime.now()));
+
+        archive.apply(new ArchiveMutation.EntriesDeleted(List.of(first.getId(), second.getId()), LocalDateTime.now()));
+
+        assertEquals(Set.of(kept.getId()), archive.getArchiveEntries().keySet());
+        assertEquals(Map.of(new Tag("invoice"), 1), archive.getTagDictionary().counts());
+        assertTrue(archive.drainDirtyEntryIds().containsAll(Set.of(first.getId(), second.getId())));
+    }
+
+    @Test
+    void apply_replacesEntryInsteadOfChangingIt() {
+        var archive = Archive.empty();
+        var entry = archive.addArchiveEntryFromFile(new File("/tmp/doc.pdf"), "/orig/doc.pdf");
+        var snapshot = archive.snapshotEntries();
+
+        archive.apply(new ArchiveMutation.TagAdded(entry.getId(), new Tag("invoice"), LocalDateTime.now()));
+
+        assertTrue(entry.getTags().isEmpty());
+        assertSame(entry, snapshot.get(entry.getId()));
+        assertNotSame(entry, archive.getArchiveEntries().get(entry.getId()));
+        assertEquals(1, archive.snapshotEntries().get(entry.getId()).getTags().size());
+    }
+
+    @Test
+    void apply_metadataExtracted_setsMetadataWithoutChangingLastModified() {
+        var archive = Archive.empty();
+        var entry = archive.addArchiveEntryFromFile(new File("/tmp/doc.pdf"), "/orig/doc.pdf");
+        var lastModified = entry.getDateLastModified();
+        var metadata = new DocumentMetadata(2, List.of(), "Title", null, null, null);
+
+        archive.apply(new ArchiveMutation.MetadataExtracted(entry.getId(), metadata, LocalDateTime.now().plusDays(1)));
+
+        var extracted = archive.getArchiveEntries().get(entry.getId());
+        assertEquals(metadata, extracted.getMetadata());
+        assertEquals(2, extracted.pageCount());
+        assertEquals(lastModified, extracted.getDateLastModified());
+    }
+
+    @Test
+    void apply_entryAddedAndDeleted_isIdempotent() {
+        var archive = Archive.empty();
+        var entry = ArchiveEntry.of("doc.pdf", "/tmp/doc.pdf", "/orig/doc.pdf");
+        var added = new ArchiveMutation.EntryAdded(entry, entry.getDateCreated());
+        var deleted = new ArchiveMutation.EntryDeleted(entry.getId(), LocalDateTime.now());
+
+        archive.apply(added);
+        archive.apply(added);
+        assertEquals(1, archive.getArchiveEntries().size());
+
+        archive.apply(deleted);
+        archive.apply(deleted);
+        assertTrue(archive.getArchiveEntries().isEmpty());
+    }
+
+    @Test
+    void apply_mutationForUnknownEntry_isIgnored() {
+        var archive = Archive.empty();
+
+        assertDoesNotThrow(() -> archive.apply(
+                new ArchiveMutation.TagAdded(UUID.randomUUID(), new Tag("invoice"), LocalDateTime.now())));
+        assertTrue(archive.getArchiveEntries().isEmpty());
+    }
+
+    @Test
+    void getTagDictionary_countsLoadedEntriesAndFollowsMutations() {
+        var invoice = new Tag("invoice");
+        var paid = new Tag("paid");
+        var loaded = ArchiveEntry.of("loaded.pdf", "/tmp/loaded.pdf", "/orig/loaded.pdf");
+        loaded.getTags().addAll(Set.of(invoice, paid));
+        var archive = Archive.empty();
+        archive.getArchiveEntries().put(loaded.getId(), loaded);
+        assertEquals(1, archive.getTagDictionary().count(invoice));
+
+        var added = ArchiveEntry.of("added.pdf", "/tmp/added.pdf", "/orig/added.pdf");
+        archive.apply(new ArchiveMutation.EntryAdded(added, LocalDateTime.now()));
+        archive.apply(new ArchiveMutation.TagAdded(added.getId(), invoice, LocalDateTime.now()));
+        archive.apply(new ArchiveMutation.TagAdded(added.getId(), invoice, LocalDateTime.now()));
+        assertEquals(2, archive.getTagDictionary().count(invoice));
+
+        archive.apply(new ArchiveMutation.EntryDeleted(loaded.getId(), LocalDateTime.now()));
+        assertEquals(Map.of(invoice, 1), archive.getTagDictionary().counts());
+        assertEquals(Set.of(invoice), archive.getTagDictionary().tags());
+    }
+
+    @Test
+    void drainDirtyEntryIds_returnsChangedEntriesOnce() {
+        var archive = Archive.empty();
+        var added = archive.addArchiveEntryFromFile(new File("/tmp/a.pdf"), "/orig/a.pdf");
+        var deletedId = UUID.randomUUID();
+        archive.apply(new ArchiveMutation.EntryDeleted(deletedId, LocalDateTime.now()));
+
+        assertEquals(Set.of(added.getId(), deletedId), archive.drainDirtyEntryIds());
+        assertTrue(archive.drainDirtyEntryIds().isEmpty());
+    }
 }
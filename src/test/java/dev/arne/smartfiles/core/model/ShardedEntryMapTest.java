@@ -0,0 +1,65 @@
+package dev.arne.smartfiles.core.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedEntryMapTest {
+
+    @Test
+    void copyOf_keepsEveryEntry() {
+        var entries = new HashMap<UUID, ArchiveEntry>();
+        for (int i = 0; i < 1000; i++) {
+            var entry = ArchiveEntry.of("doc" + i + ".pdf", "/tmp/doc" + i + ".pdf", "/orig/doc" + i + ".pdf");
+            entries.put(entry.getId(), entry);
+        }
+
+        var map = ShardedEntryMap.copyOf(entries);
+
+        assertEquals(entries, map);
+        assertEquals(1000, map.size());
+        assertEquals(entries.keySet(), new HashSet<>(map.keySet()));
+    }
+
+    @Test
+    void snapshot_isUnaffectedByLaterChanges() {
+        var kept = ArchiveEntry.of("kept.pdf", "/tmp/kept.pdf", "/orig/kept.pdf");
+        var removed = ArchiveEntry.of("removed.pdf", "/tmp/removed.pdf", "/orig/removed.pdf");
+        var map = ShardedEntryMap.copyOf(new HashMap<>());
+        map.put(kept.getId(), kept);
+        map.put(removed.getId(), removed);
+        var snapshot = map.snapshot();
+
+        var replacement = kept.copy();
+        replacement.setSummary("Replaced");
+        map.put(kept.getId(), replacement);
+        map.remove(removed.getId());
+        var added = ArchiveEntry.of("added.pdf", "/tmp/added.pdf", "/orig/added.pdf");
+        map.put(added.getId(), added);
+
+        assertEquals(2, snapshot.size());
+        assertSame(kept, snapshot.get(kept.getId()));
+        assertSame(removed, snapshot.get(removed.getId()));
+        assertNull(snapshot.get(added.getId()));
+        assertSame(replacement, map.get(kept.getId()));
+        assertFalse(map.containsKey(removed.getId()));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void snapshot_rejectsChanges() {
+        var entry = ArchiveEntry.of("doc.pdf", "/tmp/doc.pdf", "/orig/doc.pdf");
+        var map = ShardedEntryMap.copyOf(new HashMap<>());
+        map.put(entry.getId(), entry);
+
+        var snapshot = map.snapshot();
+
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.remove(entry.getId()));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.put(entry.getId(), entry.copy()));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.entrySet().iterator().next().setValue(entry.copy()));
+    }
+}
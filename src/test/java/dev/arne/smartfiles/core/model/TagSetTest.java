@@ -0,0 +1,76 @@
+package dev.arne.smartfiles.core.model;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagSetTest {
+
+    @Test
+    void intern_returnsOneInstancePerLabel() {
+        var first = TagInterner.intern(new Tag("interned-label"));
+        var second = TagInterner.intern(new Tag("interned-label"));
+
+        assertSame(first, second);
+        assertEquals(TagInterner.idOf(first), TagInterner.idOf(new Tag("interned-label")));
+        assertEquals(-1, TagInterner.existingIdOf(new Tag("never-registered-label")));
+    }
+
+    @Test
+    void add_keepsTagsOnceAndSortedById() {
+        var set = new TagSet();
+
+        assertTrue(set.add(new Tag("invoice")));
+        assertTrue(set.add(new Tag("2024")));
+        assertFalse(set.add(new Tag("invoice")));
+
+        assertEquals(2, set.size());
+        assertTrue(set.contains(new Tag("invoice")));
+        assertTrue(set.containsId(TagInterner.idOf(new Tag("2024"))));
+        assertFalse(set.contains(new Tag("never-added-label")));
+        var ids = set.stream().mapToInt(TagInterner::idOf).toArray();
+        assertTrue(ids[0] < ids[1]);
+    }
+
+    @Test
+    void remove_andIteratorRemove_dropTags() {
+        var set = TagSet.copyOf(Set.of(new Tag("invoice"), new Tag("paid"), new Tag("2024")));
+
+        assertTrue(set.remove(new Tag("paid")));
+        assertFalse(set.remove(new Tag("paid")));
+        set.removeIf(tag -> tag.label().equals("2024"));
+
+        assertEquals(Set.of(new Tag("invoice")), set);
+    }
+
+    @Test
+    void equals_matchesOtherSetsWithTheSameTags() {
+        var tags = Set.of(new Tag("invoice"), new Tag("paid"));
+        var set = TagSet.copyOf(tags);
+
+        assertEquals(tags, set);
+        assertEquals(set, new HashSet<>(tags));
+        assertEquals(set, TagSet.copyOf(set));
+        assertEquals(tags.hashCode(), set.hashCode());
+    }
+
+    @Test
+    void setTags_storesATagSetAndJsonStaysTheSame() {
+        var mapper = JsonMapper.builder().findAndAddModules().build();
+        var entry = ArchiveEntry.of("doc.pdf", "/tmp/doc.pdf", "/orig/doc.pdf");
+        entry.setTags(new HashSet<>(List.of(new Tag("invoice"))));
+        assertInstanceOf(TagSet.class, entry.getTags());
+
+        var json = mapper.writeValueAsString(entry);
+        var read = mapper.readValue(json, ArchiveEntry.class);
+
+        assertTrue(json.contains("\"tags\":[{\"label\":\"invoice\"}]"));
+        assertInstanceOf(TagSet.class, read.getTags());
+        assertEquals(Set.of(new Tag("invoice")), read.getTags());
+    }
+}
@@ -0,0 +1,70 @@
+package dev.arne.smartfiles.core.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BkTreeTest {
+
+    @Test
+    void distance_countsInsertionsDeletionsAndSubstitutions() {
+        assertEquals(0, BkTree.distance("invoice", "invoice"));
+        assertEquals(1, BkTree.distance("invoice", "invoise"));
+        assertEquals(1, BkTree.distance("invoice", "invoices"));
+        assertEquals(1, BkTree.distance("invoice", "nvoice"));
+        assertEquals(3, BkTree.distance("kitten", "sitting"));
+        assertEquals(4, BkTree.distance("", "acme"));
+    }
+
+    @Test
+    void add_ignoresKnownTerms() {
+        var tree = new BkTree();
+
+        assertTrue(tree.add("acme"));
+        assertFalse(tree.add("acme"));
+        assertTrue(tree.add("acne"));
+        assertEquals(2, tree.size());
+    }
+
+    @Test
+    void search_findsEveryTermWithinTheDistance() {
+        var tree = new BkTree();
+        for (var term : new String[]{"invoice", "invoices", "voice", "receipt", "recipe", "contract", "insurance", "acme"}) {
+            tree.add(term);
+        }
+
+        assertEquals(Map.of("invoice", 1, "invoices", 2), search(tree, "invoise", 2));
+        assertEquals(Map.of("receipt", 2, "recipe", 2), search(tree, "reciept", 2));
+        assertEquals(Map.of("acme", 0), search(tree, "acme", 1));
+        assertTrue(search(tree, "zzzz", 1).isEmpty());
+    }
+
+    @Test
+    void search_matchesBruteForceOnManyTerms() {
+        var tree = new BkTree();
+        var terms = new String[2000];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = Integer.toString(i * 7919, 36);
+            tree.add(terms[i]);
+        }
+
+        var expected = new HashMap<String, Integer>();
+        for (var term : terms) {
+            var distance = BkTree.distance("abc", term);
+            if (distance <= 2) {
+                expected.put(term, distance);
+            }
+        }
+
+        assertEquals(expected, search(tree, "abc", 2));
+    }
+
+    private static Map<String, Integer> search(BkTree tree, String query, int maxDistance) {
+        var found = new HashMap<String, Integer>();
+        tree.search(query, maxDistance, found::put);
+        return found;
+    }
+}
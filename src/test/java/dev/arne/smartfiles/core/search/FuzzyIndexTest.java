@@ -0,0 +1,88 @@
+package dev.arne.smartfiles.core.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FuzzyIndexTest {
+
+    @Test
+    void search_ranksDocumentsByDistance() {
+        var index = new FuzzyIndex();
+        var exact = put(index, "Acme-Invoice.pdf");
+        var oneTypo = put(index, "Acne-Invoice.pdf");
+        put(index, "Receipt.pdf");
+
+        var hits = index.search("acme");
+
+        assertEquals(List.of(new FuzzyIndex.Hit(exact, 0), new FuzzyIndex.Hit(oneTypo, 1)), hits);
+    }
+
+    @Test
+    void search_requiresEveryQueryTermAndSumsDistances() {
+        var index = new FuzzyIndex();
+        var both = put(index, "acme invoice.pdf");
+        put(index, "acme receipt.pdf");
+
+        assertEquals(List.of(new FuzzyIndex.Hit(both, 2)), index.search("acne invoise"));
+    }
+
+    @Test
+    void search_matchesTagLabels() {
+        var index = new FuzzyIndex();
+        var id = UUID.randomUUID();
+        index.put(id, "scan-001.pdf", List.of("Insurance", "2024"));
+
+        assertEquals(List.of(id), ids(index.search("insurence")));
+        assertTrue(index.search("invoice").isEmpty());
+    }
+
+    @Test
+    void search_shortTermsMustMatchExactly() {
+        var index = new FuzzyIndex();
+        var tax = put(index, "tax.pdf");
+
+        assertEquals(List.of(tax), ids(index.search("tax")));
+        assertTrue(index.search("ta").isEmpty());
+    }
+
+    @Test
+    void put_replacesPreviousTermsAndRemoveDropsDocument() {
+        var index = new FuzzyIndex();
+        var id = put(index, "draft.pdf");
+
+        index.put(id, "final.pdf", List.of());
+        assertTrue(index.search("draft").isEmpty());
+        assertEquals(List.of(id), ids(index.search("finale")));
+
+        index.remove(id);
+        assertTrue(index.search("final").isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void put_manyReplacements_keepsResultsCorrectAcrossRebuilds() {
+        var index = new FuzzyIndex();
+        var id = put(index, "version0.pdf");
+        var other = put(index, "contract.pdf");
+        for (int version = 1; version <= 3000; version++) {
+            index.put(id, "version" + version + ".pdf", List.of());
+        }
+
+        assertEquals(List.of(id), ids(index.search("version3000")));
+        assertEquals(List.of(other), ids(index.search("contrakt")));
+    }
+
+    private static UUID put(FuzzyIndex index, String name) {
+        var id = UUID.randomUUID();
+        index.put(id, name, List.of());
+        return id;
+    }
+
+    private static List<UUID> ids(List<FuzzyIndex.Hit> hits) {
+        return hits.stream().map(FuzzyIndex.Hit::id).toList();
+    }
+}
@@ -0,0 +1,143 @@
+package dev.arne.smartfiles.core.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void search_requiresAllTermsAndRanksByFrequency() {
+        var index = new InvertedIndex();
+        var often = put(index, "electricity invoice invoice invoice");
+        var once = put(index, "electricity invoice with a much longer text about many other things");
+        put(index, "electricity contract");
+
+        var hits = index.search("electricity invoice");
+
+        assertEquals(List.of(often, once), hits.stream().map(InvertedIndex.Hit::id).toList());
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+    }
+
+    @Test
+    void search_matchesLastTermAsPrefix() {
+        var index = new InvertedIndex();
+        var invoice = put(index, "invoice march");
+        put(index, "receipt march");
+
+        assertEquals(List.of(invoice), ids(index.search("march inv")));
+        assertTrue(index.search("inv march").isEmpty());
+    }
+
+    @Test
+    void search_shortLastTerm_matchesOnlyWholeTerms() {
+        var index = new InvertedIndex();
+        put(index, "invoice march");
+        var inStock = put(index, "in stock");
+
+        assertEquals(List.of(inStock), ids(index.search("in")));
+        assertTrue(index.search("march in").isEmpty());
+    }
+
+    @Test
+    void search_prefixOfManyTerms_expandsToAtMostTheLimit() {
+        var index = new InvertedIndex();
+        for (int i = 0; i < InvertedIndex.MAX_PREFIX_TERMS + 10; i++) {
+            put(index, "report" + i);
+        }
+
+        assertEquals(InvertedIndex.MAX_PREFIX_TERMS, index.search("report").size());
+    }
+
+    @Test
+    void put_replacesPreviousTerms() {
+        var index = new InvertedIndex();
+        var id = put(index, "draft");
+
+        index.put(id, 2, false, counts("final"));
+
+        assertTrue(index.search("draft").isEmpty());
+        assertEquals(List.of(id), ids(index.search("final")));
+        assertEquals(2, index.version(id));
+    }
+
+    @Test
+    void remove_dropsDocumentFromResults() {
+        var index = new InvertedIndex();
+        var id = put(index, "invoice");
+
+        index.remove(id);
+
+        assertTrue(index.search("invoice").isEmpty());
+        assertFalse(index.contains(id));
+        assertEquals(-1, index.version(id));
+    }
+
+    @Test
+    void put_manyReplacements_keepsResultsCorrectAcrossCompaction() {
+        var index = new InvertedIndex();
+        var id = put(index, "first");
+        for (int i = 0; i < 3000; i++) {
+            index.put(id, i, false, counts("revision" + i));
+        }
+
+        assertEquals(List.of(id), ids(index.search("revision2999")));
+        assertTrue(index.search("revision5").isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void write_thenRead_keepsDocumentsAndScores() throws IOException {
+        var index = new InvertedIndex();
+        var invoice = put(index, "invoice invoice electricity");
+        var deleted = put(index, "invoice");
+        var text = UUID.randomUUID();
+        index.put(text, 7, true, counts("electricity bill"));
+        index.remove(deleted);
+        var file = tempDir.resolve("search").resolve("index.bin");
+
+        index.write(file);
+        var read = InvertedIndex.read(file);
+
+        assertEquals(index.search("electricity"), read.search("electricity"));
+        assertEquals(List.of(invoice), ids(read.search("invoice")));
+        assertEquals(7, read.version(text));
+        assertTrue(read.hasText(text));
+        assertFalse(read.contains(deleted));
+    }
+
+    @Test
+    void read_rejectsOtherFiles() throws IOException {
+        var file = Files.writeString(tempDir.resolve("index.bin"), "not an index");
+
+        assertThrows(IOException.class, () -> InvertedIndex.read(file));
+    }
+
+    private static UUID put(InvertedIndex index, String text) {
+        var id = UUID.randomUUID();
+        index.put(id, 1, false, counts(text));
+        return id;
+    }
+
+    private static Map<String, Integer> counts(String text) {
+        var counts = new HashMap<String, Integer>();
+        Tokenizer.count(text, 1, counts);
+        return counts;
+    }
+
+    private static List<UUID> ids(List<InvertedIndex.Hit> hits) {
+        return hits.stream().map(InvertedIndex.Hit::id).toList();
+    }
+}
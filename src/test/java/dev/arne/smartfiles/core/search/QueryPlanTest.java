@@ -0,0 +1,118 @@
+package dev.arne.smartfiles.core.search;
+
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.Tag;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryPlanTest {
+
+    private final TagIndex tagIndex = new TagIndex();
+    private final List<ArchiveEntry> entries = new ArrayList<>();
+    private final List<String> searches = new ArrayList<>();
+
+    private ArchiveEntry paidInvoice;
+    private ArchiveEntry openInvoice;
+    private ArchiveEntry receipt;
+
+    @BeforeEach
+    void setUp() {
+        paidInvoice = entry("acme-invoice.pdf", LocalDateTime.of(2024, 4, 1, 10, 0), "invoice", "2024", "paid");
+        openInvoice = entry("acme-invoice-2.pdf", LocalDateTime.of(2024, 5, 1, 10, 0), "invoice", "2024");
+        receipt = entry("receipt.pdf", LocalDateTime.of(2024, 1, 1, 10, 0), "2024");
+    }
+
+    @Test
+    void compile_combinesTagsNegationsDatesAndText() {
+        var plan = compile("tag:invoice tag:2024 -tag:paid created:>2024-03-01 \"acme\"", _ -> ids(paidInvoice, openInvoice));
+
+        assertEquals(List.of(openInvoice), matching(plan));
+        assertEquals(List.of("acme"), searches);
+    }
+
+    @Test
+    void compile_withText_ranksBySearchResults() {
+        var plan = compile("acme", _ -> ids(openInvoice, paidInvoice));
+
+        assertEquals(0, plan.ranks().get(openInvoice.getId()));
+        assertEquals(1, plan.ranks().get(paidInvoice.getId()));
+        assertEquals(List.of(paidInvoice, openInvoice), matching(plan));
+    }
+
+    @Test
+    void compile_withoutText_hasNoRanks() {
+        var plan = compile("tag:2024", _ -> ids());
+
+        assertNull(plan.ranks());
+        assertEquals(entries, matching(plan));
+    }
+
+    @Test
+    void compile_whenTagsMatchNothing_skipsSearches() {
+        var plan = compile("tag:unknown acme", _ -> ids(paidInvoice));
+
+        assertTrue(matching(plan).isEmpty());
+        assertTrue(searches.isEmpty());
+    }
+
+    @Test
+    void compile_negatedText_excludesSearchResults() {
+        var plan = compile("-paid", _ -> ids(paidInvoice));
+
+        assertEquals(List.of(openInvoice, receipt), matching(plan));
+    }
+
+    @Test
+    void compile_withoutSearch_matchesNames() {
+        var plan = QueryPlan.compile(Query.parse("receipt"), tagIndex, null, Tag::new);
+
+        assertEquals(List.of(receipt), matching(plan));
+    }
+
+    @Test
+    void restrictTo_requiresAllowedDocuments() {
+        var allowed = new BitSet();
+        allowed.or(tagIndex.matchingAny(List.of(new Tag("paid"))));
+
+        var plan = compile("tag:invoice", _ -> ids()).restrictTo(allowed);
+
+        assertEquals(List.of(paidInvoice), matching(plan));
+    }
+
+    private QueryPlan compile(String query, Function<String, List<UUID>> search) {
+        return QueryPlan.compile(Query.parse(query), tagIndex, text -> {
+            searches.add(text);
+            return search.apply(text);
+        }, Tag::new);
+    }
+
+    private List<ArchiveEntry> matching(QueryPlan plan) {
+        return entries.stream().filter(plan).toList();
+    }
+
+    private static List<UUID> ids(ArchiveEntry... matches) {
+        return Arrays.stream(matches).map(ArchiveEntry::getId).toList();
+    }
+
+    private ArchiveEntry entry(String name, LocalDateTime created, String... labels) {
+        var entry = ArchiveEntry.of(name, "/archive/" + name, "/downloads/" + name);
+        entry.setDateCreated(created);
+        for (var label : labels) {
+            entry.getTags().add(new Tag(label));
+        }
+        tagIndex.put(entry.getId(), Set.copyOf(entry.getTags()));
+        entries.add(entry);
+        return entry;
+    }
+}
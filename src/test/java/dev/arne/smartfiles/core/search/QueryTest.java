@@ -0,0 +1,76 @@
+package dev.arne.smartfiles.core.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryTest {
+
+    @Test
+    void parse_readsTagDateAndTextClauses() {
+        var query = Query.parse("tag:invoice tag:2024 -tag:paid created:>2024-03-01 \"acme corp\"");
+
+        assertEquals(List.of(
+                new Query.HasTag("invoice", false),
+                new Query.HasTag("2024", false),
+                new Query.HasTag("paid", true),
+                new Query.Date(Query.DateField.CREATED, Query.Comparison.AFTER, LocalDate.of(2024, 3, 1), false),
+                new Query.Text("acme corp", false)
+        ), query.clauses());
+    }
+
+    @Test
+    void parse_joinsFreeWordsIntoOneTextClause() {
+        var query = Query.parse("electricity  tag:bill march -draft");
+
+        assertEquals(List.of(
+                new Query.HasTag("bill", false),
+                new Query.Text("draft", true),
+                new Query.Text("electricity march", false)
+        ), query.clauses());
+    }
+
+    @Test
+    void parse_readsDateComparisons() {
+        assertEquals(Query.Comparison.FROM, dateOf("modified:>=2024-01-01").comparison());
+        assertEquals(Query.Comparison.UNTIL, dateOf("modified:<=2024-01-01").comparison());
+        assertEquals(Query.Comparison.BEFORE, dateOf("created:<2024-01-01").comparison());
+        assertEquals(Query.Comparison.ON, dateOf("created:2024-01-01").comparison());
+        assertEquals(Query.DateField.MODIFIED, dateOf("Modified:=2024-01-01").field());
+    }
+
+    @Test
+    void parse_treatsUnknownFiltersAsText() {
+        var query = Query.parse("created:yesterday re:invoice tag:");
+
+        assertEquals(List.of(new Query.Text("created:yesterday re:invoice tag:", false)), query.clauses());
+    }
+
+    @Test
+    void parse_readsQuotedTagLabels() {
+        assertEquals(List.of(new Query.HasTag("tax return", false)), Query.parse("tag:\"tax return\"").clauses());
+    }
+
+    @Test
+    void parse_blankInput_isEmpty() {
+        assertTrue(Query.parse("  ").isEmpty());
+        assertTrue(Query.parse("\"\"").isEmpty());
+    }
+
+    @Test
+    void dateMatches_comparesAndNegates() {
+        var after = new Query.Date(Query.DateField.CREATED, Query.Comparison.AFTER, LocalDate.of(2024, 3, 1), false);
+        var notAfter = new Query.Date(Query.DateField.CREATED, Query.Comparison.AFTER, LocalDate.of(2024, 3, 1), true);
+
+        assertTrue(after.matches(LocalDate.of(2024, 3, 2)));
+        assertFalse(after.matches(LocalDate.of(2024, 3, 1)));
+        assertTrue(notAfter.matches(LocalDate.of(2024, 3, 1)));
+    }
+
+    private static Query.Date dateOf(String input) {
+        return (Query.Date) Query.parse(input).clauses().getFirst();
+    }
+}
@@ -0,0 +1,75 @@
+package dev.arne.smartfiles.core.search;
+
+import dev.arne.smartfiles.core.model.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagIndexTest {
+
+    private static final Tag INVOICE = new Tag("invoice");
+    private static final Tag PAID = new Tag("paid");
+    private static final Tag TAX = new Tag("tax");
+
+    @Test
+    void matchingAny_findsDocumentsWithOneOfTheTags() {
+        var index = new TagIndex();
+        var invoice = put(index, INVOICE);
+        var tax = put(index, TAX);
+        var paid = put(index, PAID);
+
+        var matching = index.matchingAny(List.of(INVOICE, TAX));
+
+        assertTrue(index.matches(matching, invoice));
+        assertTrue(index.matches(matching, tax));
+        assertFalse(index.matches(matching, paid));
+    }
+
+    @Test
+    void matchingAll_findsDocumentsWithEveryTag() {
+        var index = new TagIndex();
+        var paidInvoice = put(index, INVOICE, PAID);
+        var openInvoice = put(index, INVOICE);
+
+        var matching = index.matchingAll(List.of(INVOICE, PAID));
+
+        assertTrue(index.matches(matching, paidInvoice));
+        assertFalse(index.matches(matching, openInvoice));
+        assertTrue(index.matchingAll(List.of(INVOICE, new Tag("unknown"))).isEmpty());
+    }
+
+    @Test
+    void put_replacesPreviousTags() {
+        var index = new TagIndex();
+        var id = put(index, INVOICE);
+
+        index.put(id, Set.of(PAID));
+
+        assertFalse(index.matches(index.matchingAny(List.of(INVOICE)), id));
+        assertTrue(index.matches(index.matchingAny(List.of(PAID)), id));
+    }
+
+    @Test
+    void remove_reusesTheOrdinalWithoutKeepingOldTags() {
+        var index = new TagIndex();
+        var removed = put(index, INVOICE);
+        index.remove(removed);
+
+        var added = put(index, TAX);
+
+        assertFalse(index.matches(index.matchingAny(List.of(INVOICE, TAX)), removed));
+        assertFalse(index.matches(index.matchingAny(List.of(INVOICE)), added));
+        assertTrue(index.matches(index.matchingAny(List.of(TAX)), added));
+        assertEquals(1, index.size());
+    }
+
+    private static UUID put(TagIndex index, Tag... tags) {
+        var id = UUID.randomUUID();
+        index.put(id, Set.of(tags));
+        return id;
+    }
+}
@@ -0,0 +1,33 @@
+package dev.arne.smartfiles.core.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenizerTest {
+
+    @Test
+    void tokenize_splitsOnPunctuationAndRemovesAccents() {
+        assertEquals(List.of("rechnung", "marz", "2024", "pdf"), Tokenizer.tokenize("Rechnung_März-2024.pdf"));
+    }
+
+    @Test
+    void tokenize_whenBlankOrNull_returnsNothing() {
+        assertTrue(Tokenizer.tokenize("  -- ").isEmpty());
+        assertTrue(Tokenizer.tokenize(null).isEmpty());
+    }
+
+    @Test
+    void count_addsWeightPerOccurrence() {
+        var counts = new HashMap<String, Integer>();
+
+        Tokenizer.count("invoice Invoice", 3, counts);
+        Tokenizer.count("invoice total", 1, counts);
+
+        assertEquals(Map.of("invoice", 7, "total", 1), counts);
+    }
+}
@@ -0,0 +1,109 @@
+package dev.arne.smartfiles.core.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void search_findsSubstringsIgnoringCaseAndAccents() {
+        var index = new TrigramIndex();
+        var invoice = put(index, "Invoice-März-2024.pdf", null);
+        put(index, "Receipt.pdf", null);
+
+        assertEquals(List.of(invoice), index.search("VOICE"));
+        assertEquals(List.of(invoice), index.search("marz-20"));
+        assertTrue(index.search("voices").isEmpty());
+    }
+
+    @Test
+    void search_shortQuery_scansAllDocuments() {
+        var index = new TrigramIndex();
+        var tax = put(index, "tax.pdf", null);
+        put(index, "receipt.pdf", null);
+
+        assertEquals(List.of(tax), index.search("ax"));
+    }
+
+    @Test
+    void search_listsNameMatchesBeforeDescriptionMatches() {
+        var index = new TrigramIndex();
+        var byDescription = put(index, "scan-001.pdf", "Electricity bill");
+        var byName = put(index, "electricity.pdf", null);
+
+        assertEquals(List.of(byName, byDescription), index.search("lectric"));
+    }
+
+    @Test
+    void put_replacesPreviousText() {
+        var index = new TrigramIndex();
+        var id = put(index, "draft.pdf", null);
+
+        index.put(id, "final.pdf", "Signed");
+
+        assertTrue(index.search("draft").isEmpty());
+        assertEquals(List.of(id), index.search("final"));
+        assertEquals(List.of(id), index.search("sign"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void remove_dropsDocumentFromResults() {
+        var index = new TrigramIndex();
+        var id = put(index, "contract.pdf", null);
+
+        index.remove(id);
+
+        assertTrue(index.search("contract").isEmpty());
+        assertTrue(index.search("co").isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void put_manyReplacements_keepsResultsCorrectAcrossCompaction() {
+        var index = new TrigramIndex();
+        var id = put(index, "version-0.pdf", null);
+        var other = put(index, "other.pdf", null);
+        for (int version = 1; version <= 3000; version++) {
+            index.put(id, "version-" + version + ".pdf", null);
+        }
+
+        assertEquals(List.of(id), index.search("version-3000"));
+        assertTrue(index.search("version-2999.").isEmpty());
+        assertEquals(List.of(other), index.search("other"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void write_thenRead_keepsLiveDocuments() throws IOException {
+        var index = new TrigramIndex();
+        var kept = put(index, "invoice.pdf", "Electricity");
+        var removed = put(index, "receipt.pdf", null);
+        index.remove(removed);
+        var file = tempDir.resolve("search/trigrams.bin");
+
+        index.write(file);
+        var read = TrigramIndex.read(file);
+
+        assertEquals(List.of(kept), read.ids());
+        assertEquals(List.of(kept), read.search("voic"));
+        assertEquals(List.of(kept), read.search("lectr"));
+        assertTrue(read.search("receipt").isEmpty());
+    }
+
+    private static UUID put(TrigramIndex index, String name, String summary) {
+        var id = UUID.randomUUID();
+        index.put(id, name, summary);
+        return id;
+    }
+}
@@ -1,14 +1,26 @@
 package dev.arne.smartfiles.core.service;
 
 import dev.arne.smartfiles.core.FileService;
+import dev.arne.smartfiles.core.configuration.SmartFilesConfiguration;
 import dev.arne.smartfiles.core.events.AllTagsUpdatedEvent;
 import dev.arne.smartfiles.core.events.ArchiveEntryAddedEvent;
 import dev.arne.smartfiles.core.events.ArchiveLastModifiedUpdatedEvent;
 import dev.arne.smartfiles.core.events.DocumentDeletedEvent;
 import dev.arne.smartfiles.core.events.DocumentDescriptionUpdatedEvent;
+import dev.arne.smartfiles.core.events.DocumentMetadataExtractedEvent;
 import dev.arne.smartfiles.core.events.DocumentTagAddedEvent;
+import dev.arne.smartfiles.core.events.DocumentsChangedEvent;
+import dev.arne.smartfiles.core.events.IngestCompletedEvent;
+import dev.arne.smartfiles.core.events.IngestProgressEvent;
 import dev.arne.smartfiles.core.model.Archive;
 import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.ArchiveMutation;
+import dev.arne.smartfiles.core.model.Tag;
+import dev.arne.smartfiles.core.store.BlobStore;
+import dev.arne.smartfiles.core.store.IngestQueue;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,14 +29,25 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -41,27 +64,42 @@ class ArchiveServiceImplTest {
     @Mock
     private ApplicationEventPublisher publisher;
 
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final SmartFilesConfiguration configuration = new SmartFilesConfiguration();
     private Archive archive;
     private ArchiveServiceImpl archiveService;
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws IOException {
         archive = Archive.empty();
-        when(fileService.loadArchive()).thenReturn(archive);
+        configuration.setMetadataExtractionEnabled(false);
+        when(fileService.loadArchive(any())).thenReturn(archive);
         lenient().when(fileService.getTenantDirectory()).thenReturn(tempDir.toString());
+        var blobStore = new BlobStore(tempDir.resolve("blobs"));
+        lenient().when(fileService.storeBlob(any())).thenAnswer(invocation -> blobStore.store(invocation.getArgument(0)));
+        when(fileService.getIngestQueue()).thenReturn(new IngestQueue(tempDir.resolve("ingest-queue"), objectMapper));
 
-        archiveService = new ArchiveServiceImpl(fileService, publisher);
+        archiveService = new ArchiveServiceImpl(fileService, publisher, configuration);
+    }
+
+    /**
+     * Adds the entry to the loaded archive, as if it had been stored by an earlier run.
+     */
+    private ArchiveEntry addEntry(File file, String originalPath) {
+        var entry = archive.addArchiveEntryFromFile(file, originalPath);
+        archiveService = new ArchiveServiceImpl(fileService, publisher, configuration);
+        return entry;
     }
 
     @Test
     void constructor_loadsArchiveFromFileService() {
-        verify(fileService).loadArchive();
+        verify(fileService).loadArchive(any());
     }
 
     @Test
     void getAll_returnsAllEntries() {
-        archive.addArchiveEntryFromFile(new File("/tmp/doc1.pdf"), "/orig/doc1.pdf");
-        archive.addArchiveEntryFromFile(new File("/tmp/doc2.pdf"), "/orig/doc2.pdf");
+        addEntry(new File("/tmp/doc1.pdf"), "/orig/doc1.pdf");
+        addEntry(new File("/tmp/doc2.pdf"), "/orig/doc2.pdf");
 
         var entries = archiveService.getAll();
 
@@ -77,7 +115,7 @@ class ArchiveServiceImplTest {
 
     @Test
     void retrieveFileDetails_returnsCorrectEntry() {
-        var entry = archive.addArchiveEntryFromFile(new File("/tmp/test.pdf"), "/orig/test.pdf");
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
 
         var retrieved = archiveService.retrieveFileDetails(entry.getId());
 
@@ -94,7 +132,7 @@ class ArchiveServiceImplTest {
 
     @Test
     void getFile_returnsFileForEntry() {
-        var entry = archive.addArchiveEntryFromFile(new File("/tmp/test.pdf"), "/orig/test.pdf");
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
 
         var file = archiveService.getFile(entry.getId());
 
@@ -119,7 +157,46 @@ class ArchiveServiceImplTest {
 
         assertEquals(1, entries.size());
         assertEquals("source.pdf", entries.getFirst().getName());
-        verify(fileService).saveArchive(archive);
+        verify(fileService).appendToArchiveJournal(List.of(new ArchiveMutation.EntryAdded(entries.getFirst(), entries.getFirst().getDateCreated())));
+        verify(fileService, never()).saveArchive(any());
+    }
+
+    @Test
+    void manageFiles_storesFileUnderItsContentDigest() throws IOException {
+        var sourceFile = tempDir.resolve("source.pdf");
+        Files.writeString(sourceFile, "PDF content");
+
+        var entry = archiveService.manageFiles(List.of(sourceFile.toFile())).getFirst();
+
+        assertNotNull(entry.getContentDigest());
+        assertEquals(entry.getContentDigest() + ".pdf", entry.getPath());
+        assertEquals("PDF content", Files.readString(Path.of(entry.getAbsolutePath())));
+        assertEquals(sourceFile.toFile().getAbsolutePath(), entry.getOriginalPath());
+    }
+
+    @Test
+    void manageFiles_withSameNameButDifferentContent_storesBoth() throws IOException {
+        var first = Files.createDirectories(tempDir.resolve("a")).resolve("invoice.pdf");
+        var second = Files.createDirectories(tempDir.resolve("b")).resolve("invoice.pdf");
+        Files.writeString(first, "first");
+        Files.writeString(second, "second");
+
+        var entries = archiveService.manageFiles(List.of(first.toFile(), second.toFile()));
+
+        assertEquals(2, archive.getArchiveEntries().size());
+        assertNotEquals(entries.get(0).getAbsolutePath(), entries.get(1).getAbsolutePath());
+    }
+
+    @Test
+    void manageFiles_withSameContentTwice_sharesOneBlob() throws IOException {
+        var sourceFile = tempDir.resolve("source.pdf");
+        Files.writeString(sourceFile, "PDF content");
+
+        var first = archiveService.manageFiles(List.of(sourceFile.toFile())).getFirst();
+        var second = archiveService.manageFiles(List.of(sourceFile.toFile())).getFirst();
+
+        assertNotEquals(first.getId(), second.getId());
+        assertEquals(first.getAbsolutePath(), second.getAbsolutePath());
     }
 
     @Test
@@ -135,20 +212,242 @@ class ArchiveServiceImplTest {
         assertEquals("source.pdf", captor.getValue().getArchiveEntry().getName());
     }
 
+    @Test
+    void ingestFiles_whenOneFileFails_addsTheOthersAndReportsFailure() throws IOException {
+        var sourceFile = tempDir.resolve("source.pdf");
+        Files.writeString(sourceFile, "PDF content");
+        var missing = tempDir.resolve("missing.pdf").toFile();
+
+        var result = archiveService.ingestFiles(List.of(missing, sourceFile.toFile())).join();
+
+        assertEquals(1, result.added().size());
+        assertEquals("source.pdf", result.added().getFirst().getName());
+        assertEquals(missing, result.failures().getFirst().file());
+        assertEquals(1, archive.getArchiveEntries().size());
+    }
+
+    @Test
+    void ingestFiles_appendsWholeBatchToJournalOnce() throws IOException {
+        var files = new ArrayList<File>();
+        for (int i = 0; i < 20; i++) {
+            files.add(Files.writeString(tempDir.resolve("doc-" + i + ".pdf"), "content " + i).toFile());
+        }
+
+        var result = archiveService.ingestFiles(files).join();
+
+        assertEquals(20, result.added().size());
+        assertEquals("doc-0.pdf", result.added().getFirst().getName());
+        verify(fileService, times(1)).appendToArchiveJournal(argThat(mutations -> mutations.size() == 20));
+    }
+
+    @Test
+    void ingestFiles_flushesJournalBeforeMarkingJobsDone() throws IOException {
+        var flushed = new AtomicBoolean();
+        var flushedBeforeComplete = new AtomicBoolean();
+        doAnswer(_ -> {
+            flushed.set(false);
+            return null;
+        }).when(fileService).appendToArchiveJournal(any());
+        doAnswer(_ -> {
+            flushed.set(true);
+            return null;
+        }).when(fileService).flushArchiveJournal();
+        var queue = spy(new IngestQueue(tempDir.resolve("flushed-queue"), objectMapper));
+        doAnswer(invocation -> {
+            flushedBeforeComplete.set(flushed.get());
+            return invocation.callRealMethod();
+        }).when(queue).complete(any(), any());
+        when(fileService.getIngestQueue()).thenReturn(queue);
+        archiveService = new ArchiveServiceImpl(fileService, publisher, configuration);
+        var sourceFile = Files.writeString(tempDir.resolve("source.pdf"), "PDF content");
+
+        var result = archiveService.ingestFiles(List.of(sourceFile.toFile())).join();
+
+        assertEquals(1, result.added().size());
+        verify(queue).complete(any(), any());
+        assertTrue(flushedBeforeComplete.get(), "Jobs were marked done before their entries were flushed");
+    }
+
+    @Test
+    void ingestFiles_publishesProgressForEveryFileAndCompletion() throws IOException {
+        var first = Files.writeString(tempDir.resolve("first.pdf"), "first").toFile();
+        var second = Files.writeString(tempDir.resolve("second.pdf"), "second").toFile();
+
+        archiveService.ingestFiles(List.of(first, second)).join();
+
+        var progress = ArgumentCaptor.forClass(IngestProgressEvent.class);
+        verify(publisher, times(2)).publishEvent(progress.capture());
+        assertEquals(Set.of(1, 2), progress.getAllValues().stream().map(IngestProgressEvent::getCompleted).collect(Collectors.toSet()));
+        var completed = ArgumentCaptor.forClass(IngestCompletedEvent.class);
+        verify(publisher).publishEvent(completed.capture());
+        assertEquals(2, completed.getValue().getResult().added().size());
+    }
+
+    @Test
+    void ingestFiles_whenDone_leavesIngestQueueEmpty() throws IOException {
+        var sourceFile = Files.writeString(tempDir.resolve("source.pdf"), "PDF content");
+
+        archiveService.ingestFiles(List.of(sourceFile.toFile())).join();
+
+        assertEquals(0, new IngestQueue(tempDir.resolve("ingest-queue"), objectMapper).size());
+    }
+
+    @Test
+    void onContextRefreshed_resumesFilesQueuedByPreviousRun() throws IOException {
+        var sourceFile = Files.writeString(tempDir.resolve("source.pdf"), "PDF content");
+        new IngestQueue(tempDir.resolve("ingest-queue"), objectMapper).enqueue(List.of(sourceFile));
+        when(fileService.getIngestQueue()).thenReturn(new IngestQueue(tempDir.resolve("ingest-queue"), objectMapper));
+        var restarted = new ArchiveServiceImpl(fileService, publisher, configuration);
+
+        restarted.onApplicationEvent(mock(ContextRefreshedEvent.class));
+
+        verify(publisher, timeout(5000)).publishEvent(any(IngestCompletedEvent.class));
+        assertEquals(1, archive.getArchiveEntries().size());
+        assertEquals(sourceFile.toFile().getAbsolutePath(), archive.getArchiveEntries().values().iterator().next().getOriginalPath());
+    }
+
+    @Test
+    void onContextRefreshed_whenQueuedFileWasAlreadyArchived_doesNotAddItAgain() throws IOException {
+        var sourceFile = Files.writeString(tempDir.resolve("source.pdf"), "PDF content");
+        archiveService.manageFiles(List.of(sourceFile.toFile()));
+        new IngestQueue(tempDir.resolve("ingest-queue"), objectMapper).enqueue(List.of(sourceFile));
+        when(fileService.getIngestQueue()).thenReturn(new IngestQueue(tempDir.resolve("ingest-queue"), objectMapper));
+        var restarted = new ArchiveServiceImpl(fileService, publisher, configuration);
+
+        restarted.onApplicationEvent(mock(ContextRefreshedEvent.class));
+
+        verify(publisher, timeout(5000).times(2)).publishEvent(any(IngestCompletedEvent.class));
+        assertEquals(1, archive.getArchiveEntries().size());
+        verify(fileService, times(1)).appendToArchiveJournal(any());
+    }
+
+    @Test
+    void onContextRefreshed_whenCheckingResumedFiles_doesNotReadPathsOfOtherEntries() throws IOException {
+        var sourceFile = Files.writeString(tempDir.resolve("source.pdf"), "PDF content");
+        var other = spy(ArchiveEntry.of("other.pdf", "/tmp/other.pdf", "/orig/other.pdf"));
+        other.setContentDigest("0".repeat(64));
+        archive.getArchiveEntries().put(other.getId(), other);
+        new IngestQueue(tempDir.resolve("ingest-queue"), objectMapper).enqueue(List.of(sourceFile));
+        when(fileService.getIngestQueue()).thenReturn(new IngestQueue(tempDir.resolve("ingest-queue"), objectMapper));
+        var restarted = new ArchiveServiceImpl(fileService, publisher, configuration);
+
+        restarted.onApplicationEvent(mock(ContextRefreshedEvent.class));
+
+        verify(publisher, timeout(5000)).publishEvent(any(IngestCompletedEvent.class));
+        assertEquals(2, archive.getArchiveEntries().size());
+        verify(other, never()).getOriginalPath();
+    }
+
+    @Test
+    void ingestFiles_extractsMetadataInTheBackground() throws IOException {
+        var sourceFile = tempDir.resolve("letter.pdf");
+        try (var document = new PDDocument()) {
+            document.addPage(new PDPage(PDRectangle.A4));
+            document.addPage(new PDPage(PDRectangle.A4));
+            document.save(sourceFile.toFile());
+        }
+        configuration.setMetadataExtractionEnabled(true);
+        var service = new ArchiveServiceImpl(fileService, publisher, configuration);
+
+        var added = service.ingestFiles(List.of(sourceFile.toFile())).join().added();
+
+        var captor = ArgumentCaptor.forClass(DocumentMetadataExtractedEvent.class);
+        verify(publisher, timeout(5000)).publishEvent(captor.capture());
+        assertEquals(2, captor.getValue().getMetadataByDocument().get(added.getFirst().getId()).pageCount());
+        assertEquals(2, archive.getArchiveEntries().get(added.getFirst().getId()).pageCount());
+    }
+
+    @Test
+    void onContextRefreshed_extractsMetadataOfEntriesWithoutIt() throws IOException {
+        var sourceFile = tempDir.resolve("scan.pdf");
+        try (var document = new PDDocument()) {
+            document.addPage(new PDPage(PDRectangle.LETTER));
+            document.save(sourceFile.toFile());
+        }
+        var entry = addEntry(sourceFile.toFile(), "/orig/scan.pdf");
+        configuration.setMetadataExtractionEnabled(true);
+        var service = new ArchiveServiceImpl(fileService, publisher, configuration);
+
+        service.onApplicationEvent(mock(ContextRefreshedEvent.class));
+
+        verify(publisher, timeout(5000)).publishEvent(any(DocumentMetadataExtractedEvent.class));
+        assertEquals(1, service.retrieveFileDetails(entry.getId()).pageCount());
+        verify(fileService).appendToArchiveJournal(argThat(mutations -> mutations.getFirst() instanceof ArchiveMutation.MetadataExtracted));
+    }
+
     @Test
     void addTag_addsTagToEntry() {
-        var entry = archive.addArchiveEntryFromFile(new File("/tmp/test.pdf"), "/orig/test.pdf");
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
         entry.setTags(new HashSet<>());
 
         archiveService.addTag(entry.getId(), "invoice");
 
-        assertEquals(1, entry.getTags().size());
-        assertTrue(entry.getTags().stream().anyMatch(t -> t.label().equals("invoice")));
+        var tagged = archiveService.retrieveFileDetails(entry.getId());
+        assertEquals(1, tagged.getTags().size());
+        assertTrue(tagged.getTags().stream().anyMatch(t -> t.label().equals("invoice")));
+    }
+
+    @Test
+    void addTag_keepsEntriesHandedOutEarlierUnchanged() {
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
+        var before = archiveService.retrieveFileDetails(entry.getId());
+        var versionBefore = archiveService.getCurrentVersion();
+
+        archiveService.addTag(entry.getId(), "invoice");
+
+        assertTrue(before.getTags().isEmpty());
+        assertTrue(versionBefore.tagCounts().isEmpty());
+        assertEquals(Set.of(new Tag("invoice")), archiveService.retrieveFileDetails(entry.getId()).getTags());
+        assertEquals(versionBefore.number() + 1, archiveService.getCurrentVersion().number());
+    }
+
+    @Test
+    void addTag_publishesDocumentsChangedEventWithNewEntry() {
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
+
+        archiveService.addTag(entry.getId(), "invoice");
+
+        var captor = ArgumentCaptor.forClass(DocumentsChangedEvent.class);
+        verify(publisher).publishEvent(captor.capture());
+        assertEquals(Set.of(new Tag("invoice")), captor.getValue().getEntries().getFirst().getTags());
+    }
+
+    @Test
+    void getCurrentVersion_isNotAffectedByLaterDeletes() {
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
+        var version = archiveService.getCurrentVersion();
+
+        archiveService.deleteDocument(entry.getId());
+
+        assertEquals(entry.getId(), version.entries().get(entry.getId()).getId());
+        assertNull(archiveService.retrieveFileDetails(entry.getId()));
+        assertThrows(UnsupportedOperationException.class, () -> version.entries().remove(entry.getId()));
+    }
+
+    @Test
+    void getAll_whileTagsAreAdded_readsConsistentVersions() throws Exception {
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
+        var reader = Executors.newSingleThreadExecutor();
+        var reads = reader.submit(() -> {
+            for (int i = 0; i < 2000; i++) {
+                var version = archiveService.getCurrentVersion();
+                var tags = version.entries().get(entry.getId()).getTags().size();
+                assertEquals(version.tagCounts().size(), tags);
+            }
+        });
+
+        for (int i = 0; i < 200; i++) {
+            archiveService.addTag(entry.getId(), "tag-" + i);
+        }
+
+        reads.get(10, TimeUnit.SECONDS);
+        reader.shutdown();
+        assertEquals(200, archiveService.retrieveFileDetails(entry.getId()).getTags().size());
     }
 
     @Test
     void addTag_publishesDocumentTagAddedEvent() {
-        var entry = archive.addArchiveEntryFromFile(new File("/tmp/test.pdf"), "/orig/test.pdf");
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
         entry.setTags(new HashSet<>());
 
         archiveService.addTag(entry.getId(), "receipt");
@@ -166,7 +465,7 @@ class ArchiveServiceImplTest {
 
     @Test
     void addTag_publishesAllTagsUpdatedEvent() {
-        var entry = archive.addArchiveEntryFromFile(new File("/tmp/test.pdf"), "/orig/test.pdf");
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
         entry.setTags(new HashSet<>());
 
         archiveService.addTag(entry.getId(), "invoice");
@@ -191,8 +490,8 @@ class ArchiveServiceImplTest {
 
     @Test
     void getAllUniqueTags_whenDocumentsHaveNoTags_returnsEmptySet() {
-        archive.addArchiveEntryFromFile(new File("/tmp/doc1.pdf"), "/orig/doc1.pdf");
-        archive.addArchiveEntryFromFile(new File("/tmp/doc2.pdf"), "/orig/doc2.pdf");
+        addEntry(new File("/tmp/doc1.pdf"), "/orig/doc1.pdf");
+        addEntry(new File("/tmp/doc2.pdf"), "/orig/doc2.pdf");
 
         var tags = archiveService.getAllUniqueTags();
 
@@ -201,8 +500,8 @@ class ArchiveServiceImplTest {
 
     @Test
     void getAllUniqueTags_returnsAllUniqueTags() {
-        var entry1 = archive.addArchiveEntryFromFile(new File("/tmp/doc1.pdf"), "/orig/doc1.pdf");
-        var entry2 = archive.addArchiveEntryFromFile(new File("/tmp/doc2.pdf"), "/orig/doc2.pdf");
+        var entry1 = addEntry(new File("/tmp/doc1.pdf"), "/orig/doc1.pdf");
+        var entry2 = addEntry(new File("/tmp/doc2.pdf"), "/orig/doc2.pdf");
         entry1.setTags(new HashSet<>());
         entry2.setTags(new HashSet<>());
 
@@ -220,8 +519,8 @@ class ArchiveServiceImplTest {
 
     @Test
     void getAllUniqueTags_deduplicatesTagsAcrossDocuments() {
-        var entry1 = archive.addArchiveEntryFromFile(new File("/tmp/doc1.pdf"), "/orig/doc1.pdf");
-        var entry2 = archive.addArchiveEntryFromFile(new File("/tmp/doc2.pdf"), "/orig/doc2.pdf");
+        var entry1 = addEntry(new File("/tmp/doc1.pdf"), "/orig/doc1.pdf");
+        var entry2 = addEntry(new File("/tmp/doc2.pdf"), "/orig/doc2.pdf");
         entry1.setTags(new HashSet<>());
         entry2.setTags(new HashSet<>());
 
@@ -234,18 +533,34 @@ class ArchiveServiceImplTest {
         assertTrue(tags.stream().anyMatch(t -> t.label().equals("invoice")));
     }
 
+    @Test
+    void getTagCounts_countsDocumentsPerTagAcrossAddAndDelete() {
+        var entry1 = addEntry(new File("/tmp/doc1.pdf"), "/orig/doc1.pdf");
+        var entry2 = addEntry(new File("/tmp/doc2.pdf"), "/orig/doc2.pdf");
+
+        archiveService.addTag(entry1.getId(), "invoice");
+        archiveService.addTag(entry2.getId(), "invoice");
+        archiveService.addTag(entry2.getId(), "paid");
+        assertEquals(Map.of(new Tag("invoice"), 2, new Tag("paid"), 1), archiveService.getTagCounts());
+
+        archiveService.deleteDocument(entry2.getId());
+
+        assertEquals(Map.of(new Tag("invoice"), 1), archiveService.getTagCounts());
+    }
+
     @Test
     void updateDescription_updatesEntrySummary() {
-        var entry = archive.addArchiveEntryFromFile(new File("/tmp/test.pdf"), "/orig/test.pdf");
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
 
         archiveService.updateDescription(entry.getId(), "New description");
 
-        assertEquals("New description", entry.getSummary());
+        assertEquals("New description", archiveService.retrieveFileDetails(entry.getId()).getSummary());
+        assertEquals("Not available yet", entry.getSummary());
     }
 
     @Test
     void updateDescription_publishesDocumentDescriptionUpdatedEvent() {
-        var entry = archive.addArchiveEntryFromFile(new File("/tmp/test.pdf"), "/orig/test.pdf");
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
 
         archiveService.updateDescription(entry.getId(), "Updated description");
 
@@ -256,27 +571,157 @@ class ArchiveServiceImplTest {
     }
 
     @Test
-    void updateDescription_savesArchive() {
-        var entry = archive.addArchiveEntryFromFile(new File("/tmp/test.pdf"), "/orig/test.pdf");
+    void updateDescription_appendsMutationToJournal() {
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
+
+        archiveService.updateDescription(entry.getId(), "Description");
+
+        var captor = ArgumentCaptor.forClass(List.class);
+        verify(fileService).appendToArchiveJournal(captor.capture());
+        var mutation = (ArchiveMutation.DescriptionUpdated) captor.getValue().getFirst();
+        assertEquals(entry.getId(), mutation.documentId());
+        assertEquals("Description", mutation.description());
+        verify(fileService, never()).saveArchive(any());
+    }
+
+    @Test
+    void addTag_appendsMutationToJournal() {
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
+
+        archiveService.addTag(entry.getId(), "invoice");
+
+        var captor = ArgumentCaptor.forClass(List.class);
+        verify(fileService).appendToArchiveJournal(captor.capture());
+        var mutation = (ArchiveMutation.TagAdded) captor.getValue().getFirst();
+        assertEquals(entry.getId(), mutation.documentId());
+        assertEquals(new Tag("invoice"), mutation.tag());
+    }
+
+    @Test
+    void addTag_whenListenerThrows_stillJournalsMutation() {
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
+        doThrow(new IllegalStateException("Listener failed")).when(publisher).publishEvent(any(DocumentTagAddedEvent.class));
+
+        assertThrows(IllegalStateException.class, () -> archiveService.addTag(entry.getId(), "invoice"));
+
+        verify(fileService).appendToArchiveJournal(argThat(mutations -> mutations.getFirst() instanceof ArchiveMutation.TagAdded));
+        assertTrue(archiveService.retrieveFileDetails(entry.getId()).getTags().contains(new Tag("invoice")));
 
         archiveService.updateDescription(entry.getId(), "Description");
 
-        verify(fileService).saveArchive(archive);
+        verify(publisher).publishEvent(any(DocumentDescriptionUpdatedEvent.class));
+    }
+
+    @Test
+    void addTag_whenListenerCommits_publishesItsEventsAfterTheOuterOnes() {
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
+        doAnswer(_ -> {
+            archiveService.updateDescription(entry.getId(), "Tagged");
+            return null;
+        }).when(publisher).publishEvent(any(DocumentTagAddedEvent.class));
+
+        archiveService.addTag(entry.getId(), "invoice");
+
+        var inOrder = inOrder(publisher);
+        inOrder.verify(publisher).publishEvent(any(DocumentTagAddedEvent.class));
+        inOrder.verify(publisher).publishEvent(any(AllTagsUpdatedEvent.class));
+        inOrder.verify(publisher).publishEvent(any(DocumentDescriptionUpdatedEvent.class));
+        assertEquals("Tagged", archiveService.retrieveFileDetails(entry.getId()).getSummary());
     }
 
     @Test
     void updateDescription_updatesLastModified() {
-        var entry = archive.addArchiveEntryFromFile(new File("/tmp/test.pdf"), "/orig/test.pdf");
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
         var originalLastModified = entry.getDateLastModified();
 
         archiveService.updateDescription(entry.getId(), "Description");
 
-        assertNotEquals(originalLastModified, entry.getDateLastModified());
+        assertNotEquals(originalLastModified, archiveService.retrieveFileDetails(entry.getId()).getDateLastModified());
+    }
+
+    @Test
+    void addTags_commitsBatchAsOneMutationAndOneEvent() {
+        var ids = new ArrayList<UUID>();
+        for (int i = 0; i < 50; i++) {
+            ids.add(archive.addArchiveEntryFromFile(new File("/tmp/doc" + i + ".pdf"), "/orig/doc" + i + ".pdf").getId());
+        }
+        archiveService = new ArchiveServiceImpl(fileService, publisher, configuration);
+
+        archiveService.addTags(ids, List.of("invoice", "2024"));
+
+        verify(fileService, times(1)).appendToArchiveJournal(argThat(mutations ->
+                mutations.size() == 1 && mutations.getFirst() instanceof ArchiveMutation.TagsAdded));
+        var changed = ArgumentCaptor.forClass(DocumentsChangedEvent.class);
+        verify(publisher, times(1)).publishEvent(changed.capture());
+        assertEquals(50, changed.getValue().getEntries().size());
+        assertTrue(changed.getValue().getEntries().stream().allMatch(entry -> entry.getTags().contains(new Tag("2024"))));
+        assertEquals(Map.of(new Tag("invoice"), 50, new Tag("2024"), 50), archiveService.getTagCounts());
+    }
+
+    @Test
+    void removeTags_removesTagsFromEveryDocument() {
+        var first = addEntry(new File("/tmp/first.pdf"), "/orig/first.pdf");
+        var second = addEntry(new File("/tmp/second.pdf"), "/orig/second.pdf");
+        var both = List.of(first.getId(), second.getId());
+        archiveService.addTags(both, List.of("invoice", "paid"));
+
+        archiveService.removeTags(both, List.of("paid"));
+
+        assertEquals(Set.of(new Tag("invoice")), archiveService.retrieveFileDetails(second.getId()).getTags());
+        assertEquals(Map.of(new Tag("invoice"), 2), archiveService.getTagCounts());
+    }
+
+    @Test
+    void renameTag_renamesTagOnEveryDocument() {
+        var first = addEntry(new File("/tmp/first.pdf"), "/orig/first.pdf");
+        var second = addEntry(new File("/tmp/second.pdf"), "/orig/second.pdf");
+        archiveService.addTags(List.of(first.getId(), second.getId()), List.of("invoce"));
+        reset(publisher);
+
+        archiveService.renameTag("invoce", "invoice");
+
+        assertEquals(Map.of(new Tag("invoice"), 2), archiveService.getTagCounts());
+        var changed = ArgumentCaptor.forClass(DocumentsChangedEvent.class);
+        verify(publisher).publishEvent(changed.capture());
+        assertEquals(Set.of(first.getId(), second.getId()),
+                changed.getValue().getEntries().stream().map(ArchiveEntry::getId).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void bulkDelete_deletesFilesAndPublishesOneEvent() throws IOException {
+        var firstFile = Files.writeString(tempDir.resolve("first.pdf"), "first");
+        var secondFile = Files.writeString(tempDir.resolve("second.pdf"), "second");
+        var first = addEntry(firstFile.toFile(), "/orig/first.pdf");
+        var second = addEntry(secondFile.toFile(), "/orig/second.pdf");
+        var kept = addEntry(new File("/tmp/kept.pdf"), "/orig/kept.pdf");
+
+        archiveService.bulkDelete(List.of(first.getId(), second.getId()));
+
+        assertFalse(Files.exists(firstFile));
+        assertFalse(Files.exists(secondFile));
+        assertEquals(Set.of(kept.getId()), archive.getArchiveEntries().keySet());
+        verify(fileService, times(1)).appendToArchiveJournal(argThat(mutations -> mutations.size() == 1));
+        var changed = ArgumentCaptor.forClass(DocumentsChangedEvent.class);
+        verify(publisher).publishEvent(changed.capture());
+        assertEquals(Set.of(first.getId(), second.getId()), changed.getValue().getDeletedDocumentIds());
+    }
+
+    @Test
+    void bulkDelete_whenContentIsSharedWithinTheBatch_deletesFile() throws IOException {
+        var sourceFile = tempDir.resolve("source.pdf");
+        Files.writeString(sourceFile, "PDF content");
+        var first = archiveService.manageFiles(List.of(sourceFile.toFile())).getFirst();
+        var second = archiveService.manageFiles(List.of(sourceFile.toFile())).getFirst();
+
+        archiveService.bulkDelete(List.of(first.getId(), second.getId()));
+
+        assertFalse(Files.exists(Path.of(second.getAbsolutePath())));
+        assertTrue(archive.getArchiveEntries().isEmpty());
     }
 
     @Test
     void deleteDocument_removesEntryFromArchive() {
-        var entry = archive.addArchiveEntryFromFile(new File("/tmp/test.pdf"), "/orig/test.pdf");
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
         assertEquals(1, archive.getArchiveEntries().size());
 
         archiveService.deleteDocument(entry.getId());
@@ -288,7 +733,7 @@ class ArchiveServiceImplTest {
     void deleteDocument_deletesFileFromDisk() throws IOException {
         var sourceFile = tempDir.resolve("test.pdf");
         Files.writeString(sourceFile, "PDF content");
-        var entry = archive.addArchiveEntryFromFile(sourceFile.toFile(), "/orig/test.pdf");
+        var entry = addEntry(sourceFile.toFile(), "/orig/test.pdf");
         assertTrue(Files.exists(sourceFile));
 
         archiveService.deleteDocument(entry.getId());
@@ -296,9 +741,23 @@ class ArchiveServiceImplTest {
         assertFalse(Files.exists(sourceFile));
     }
 
+    @Test
+    void deleteDocument_whenContentIsShared_keepsFile() throws IOException {
+        var sourceFile = tempDir.resolve("source.pdf");
+        Files.writeString(sourceFile, "PDF content");
+        var first = archiveService.manageFiles(List.of(sourceFile.toFile())).getFirst();
+        var second = archiveService.manageFiles(List.of(sourceFile.toFile())).getFirst();
+
+        archiveService.deleteDocument(first.getId());
+        assertTrue(Files.exists(Path.of(second.getAbsolutePath())));
+
+        archiveService.deleteDocument(second.getId());
+        assertFalse(Files.exists(Path.of(second.getAbsolutePath())));
+    }
+
     @Test
     void deleteDocument_publishesDocumentDeletedEvent() {
-        var entry = archive.addArchiveEntryFromFile(new File("/tmp/test.pdf"), "/orig/test.pdf");
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
 
         archiveService.deleteDocument(entry.getId());
 
@@ -314,7 +773,7 @@ class ArchiveServiceImplTest {
 
     @Test
     void deleteDocument_publishesAllTagsUpdatedEvent() {
-        var entry = archive.addArchiveEntryFromFile(new File("/tmp/test.pdf"), "/orig/test.pdf");
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
         entry.setTags(new HashSet<>());
         archiveService.addTag(entry.getId(), "invoice");
         reset(publisher);
@@ -333,7 +792,7 @@ class ArchiveServiceImplTest {
 
     @Test
     void deleteDocument_publishesArchiveLastModifiedUpdatedEvent() {
-        var entry = archive.addArchiveEntryFromFile(new File("/tmp/test.pdf"), "/orig/test.pdf");
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
 
         archiveService.deleteDocument(entry.getId());
 
@@ -354,19 +813,43 @@ class ArchiveServiceImplTest {
     }
 
     @Test
-    void deleteDocument_savesArchive() {
-        var entry = archive.addArchiveEntryFromFile(new File("/tmp/test.pdf"), "/orig/test.pdf");
+    void deleteDocument_appendsMutationToJournal() {
+        var entry = addEntry(new File("/tmp/test.pdf"), "/orig/test.pdf");
         reset(fileService);
 
         archiveService.deleteDocument(entry.getId());
 
-        verify(fileService).saveArchive(archive);
+        var captor = ArgumentCaptor.forClass(List.class);
+        verify(fileService).appendToArchiveJournal(captor.capture());
+        var mutation = (ArchiveMutation.EntryDeleted) captor.getValue().getFirst();
+        assertEquals(entry.getId(), mutation.documentId());
+    }
+
+    @Test
+    void onApplicationEvent_flushesJournalThenSavesFullSnapshot() {
+        archiveService.onApplicationEvent(mock(ContextClosedEvent.class));
+
+        var inOrder = inOrder(fileService);
+        inOrder.verify(fileService).flushArchiveJournal();
+        inOrder.verify(fileService).saveArchive(archive);
+    }
+
+    @Test
+    void ingestFiles_afterClose_completesAndKeepsFilesQueued() throws IOException {
+        var sourceFile = Files.writeString(tempDir.resolve("source.pdf"), "PDF content");
+        archiveService.onApplicationEvent(mock(ContextClosedEvent.class));
+
+        var result = archiveService.ingestFiles(List.of(sourceFile.toFile())).join();
+
+        assertEquals(0, result.total());
+        assertTrue(archive.getArchiveEntries().isEmpty());
+        assertEquals(1, new IngestQueue(tempDir.resolve("ingest-queue"), objectMapper).size());
     }
 
     @Test
     void deleteDocument_whenFileNotOnDisk_stillRemovesEntry() {
         var nonExistentFile = new File(tempDir.resolve("nonexistent.pdf").toString());
-        var entry = archive.addArchiveEntryFromFile(nonExistentFile, "/orig/nonexistent.pdf");
+        var entry = addEntry(nonExistentFile, "/orig/nonexistent.pdf");
         assertEquals(1, archive.getArchiveEntries().size());
 
         archiveService.deleteDocument(entry.getId());
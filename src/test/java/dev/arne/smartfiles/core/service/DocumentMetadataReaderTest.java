@@ -0,0 +1,58 @@
+package dev.arne.smartfiles.core.service;
+
+import dev.arne.smartfiles.core.model.DocumentMetadata;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentMetadataReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void read_returnsPagesAndDocumentInformation() throws IOException {
+        var file = tempDir.resolve("contract.pdf");
+        try (var document = new PDDocument()) {
+            document.addPage(new PDPage(PDRectangle.A4));
+            var rotated = new PDPage(PDRectangle.A4);
+            rotated.setRotation(90);
+            document.addPage(rotated);
+            document.getDocumentInformation().setTitle("Contract");
+            document.getDocumentInformation().setAuthor("Jane");
+            document.save(file.toFile());
+        }
+
+        var metadata = DocumentMetadataReader.read(file);
+
+        assertEquals(2, metadata.pageCount());
+        var portrait = new DocumentMetadata.PageSize(PDRectangle.A4.getWidth(), PDRectangle.A4.getHeight());
+        var landscape = new DocumentMetadata.PageSize(PDRectangle.A4.getHeight(), PDRectangle.A4.getWidth());
+        assertEquals(List.of(portrait, landscape), metadata.pageSizes());
+        assertEquals("Contract", metadata.title());
+        assertEquals("Jane", metadata.author());
+    }
+
+    @Test
+    void read_whenFileIsNotAPdf_returnsUnreadable() throws IOException {
+        var file = Files.writeString(tempDir.resolve("broken.pdf"), "not a pdf");
+
+        assertEquals(DocumentMetadata.UNREADABLE, DocumentMetadataReader.read(file));
+    }
+
+    @Test
+    void isSupported_acceptsPdfNamesOnly() {
+        assertTrue(DocumentMetadataReader.isSupported("Invoice.PDF"));
+        assertFalse(DocumentMetadataReader.isSupported("notes.txt"));
+        assertFalse(DocumentMetadataReader.isSupported(null));
+    }
+}
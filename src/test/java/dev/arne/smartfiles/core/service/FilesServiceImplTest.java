@@ -1,8 +1,13 @@
 package dev.arne.smartfiles.core.service;
 
 import dev.arne.smartfiles.core.configuration.SmartFilesConfiguration;
+import dev.arne.smartfiles.core.model.AggregateRoot;
 import dev.arne.smartfiles.core.model.ApplicationSettings;
+import dev.arne.smartfiles.core.model.InboxCheckpoint;
 import dev.arne.smartfiles.core.model.Archive;
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.ArchiveMutation;
+import dev.arne.smartfiles.core.model.Tag;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -10,8 +15,13 @@ import tools.jackson.databind.ObjectMapper;
 import tools.jackson.databind.json.JsonMapper;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -29,6 +39,7 @@ class FilesServiceImplTest {
         configuration = new SmartFilesConfiguration();
         configuration.setRootDirectory(tempDir.toString());
         configuration.setTenantId("test-tenant");
+        configuration.setWriteBehindDelay(Duration.ZERO);
 
         objectMapper = JsonMapper.builder()
                 .findAndAddModules()
@@ -78,13 +89,146 @@ class FilesServiceImplTest {
     }
 
     @Test
-    void saveArchive_createsJsonFile() {
+    void loadArchive_replaysJournalOverSnapshot() {
+        var archive = Archive.empty();
+        var entry = archive.addArchiveEntryFromFile(new File("/tmp/test.pdf"), "/original/test.pdf");
+        filesService.saveArchive(archive);
+
+        filesService.appendToArchiveJournal(List.of(
+                new ArchiveMutation.TagAdded(entry.getId(), new Tag("invoice"), LocalDateTime.now()),
+                new ArchiveMutation.DescriptionUpdated(entry.getId(), "Electricity bill", LocalDateTime.now())));
+        var loaded = filesService.loadArchive();
+
+        var loadedEntry = loaded.getArchiveEntries().get(entry.getId());
+        assertTrue(loadedEntry.getTags().contains(new Tag("invoice")));
+        assertEquals("Electricity bill", loadedEntry.getSummary());
+    }
+
+    @Test
+    void loadArchive_withJournalOnly_replaysOverEmptyArchive() {
+        var entry = ArchiveEntry.of("test.pdf", "/tmp/test.pdf", "/original/test.pdf");
+
+        filesService.appendToArchiveJournal(List.of(new ArchiveMutation.EntryAdded(entry, entry.getDateCreated())));
+        var loaded = filesService.loadArchive();
+
+        assertEquals(1, loaded.getArchiveEntries().size());
+        assertEquals("test.pdf", loaded.getArchiveEntries().get(entry.getId()).getName());
+    }
+
+    @Test
+    void saveArchive_coveredJournalIsNotReplayedAgain() {
+        var entry = ArchiveEntry.of("test.pdf", "/tmp/test.pdf", "/original/test.pdf");
+        filesService.appendToArchiveJournal(List.of(new ArchiveMutation.EntryAdded(entry, entry.getDateCreated())));
+
+        filesService.saveArchive(Archive.empty());
+
+        assertTrue(filesService.loadArchive().getArchiveEntries().isEmpty());
+        assertEquals(0, filesService.getArchiveStoreMetrics().journalRecordsSinceSnapshot());
+    }
+
+    @Test
+    void saveArchive_createsSnapshotFile() {
+        var archive = Archive.empty();
+
+        filesService.saveArchive(archive);
+
+        var snapshots = new File(configuration.getTenantDirectory(), "snapshots").listFiles(File::isFile);
+        assertNotNull(snapshots);
+        assertEquals(1, snapshots.length);
+        assertTrue(snapshots[0].getName().endsWith(".bin"));
+    }
+
+    @Test
+    void saveArchive_afterSingleChange_reloadsUnchangedShardsFromEarlierGeneration() {
+        var archive = Archive.empty();
+        var first = archive.addArchiveEntryFromFile(new File("/tmp/first.pdf"), "/original/first.pdf");
+        var second = archive.addArchiveEntryFromFile(new File("/tmp/second.pdf"), "/original/second.pdf");
+        filesService.saveArchive(archive);
+
+        archive.apply(new ArchiveMutation.TagAdded(first.getId(), new Tag("invoice"), LocalDateTime.now()));
+        filesService.saveArchive(archive);
+        var loaded = new FilesServiceImpl(configuration, objectMapper).loadArchive();
+
+        assertEquals(2, loaded.getArchiveEntries().size());
+        assertTrue(loaded.getArchiveEntries().get(first.getId()).getTags().contains(new Tag("invoice")));
+        assertEquals("second.pdf", loaded.getArchiveEntries().get(second.getId()).getName());
+    }
+
+    @Test
+    void saveArchive_keepsBoundedNumberOfGenerations() {
         var archive = Archive.empty();
 
+        for (int i = 0; i < configuration.getSnapshotGenerations() + 2; i++) {
+            filesService.saveArchive(archive);
+        }
+
+        assertEquals(configuration.getSnapshotGenerations(), filesService.getArchiveStoreMetrics().snapshotGenerations());
+    }
+
+    @Test
+    void loadArchive_afterRestart_replaysOnlyJournalWrittenAfterSnapshot() {
+        var archive = Archive.empty();
+        var first = archive.addArchiveEntryFromFile(new File("/tmp/first.pdf"), "/original/first.pdf");
+        filesService.appendToArchiveJournal(List.of(new ArchiveMutation.EntryAdded(first, first.getDateCreated())));
         filesService.saveArchive(archive);
+        var second = ArchiveEntry.of("second.pdf", "/tmp/second.pdf", "/original/second.pdf");
+        filesService.appendToArchiveJournal(List.of(new ArchiveMutation.EntryAdded(second, second.getDateCreated())));
+
+        var restarted = new FilesServiceImpl(configuration, objectMapper);
+        var loaded = restarted.loadArchive();
+
+        assertEquals(2, loaded.getArchiveEntries().size());
+        assertEquals(1, restarted.getArchiveStoreMetrics().journalRecordsSinceSnapshot());
+    }
 
-        var archiveFile = new File(configuration.getTenantDirectory(), "archive.json");
-        assertTrue(archiveFile.exists());
+    @Test
+    void loadArchive_migratesLegacyArchiveJsonToBinarySnapshot() throws IOException {
+        var legacy = Archive.empty();
+        legacy.setApplicationVersion("0.0.1");
+        var entry = legacy.addArchiveEntryFromFile(new File("/tmp/legacy.pdf"), "/original/legacy.pdf");
+        entry.getTags().add(new Tag("invoice"));
+        Files.writeString(Path.of(configuration.getTenantDirectory(), "archive.json"), objectMapper.writeValueAsString(legacy));
+
+        var loaded = filesService.loadArchive();
+
+        assertEquals(1, loaded.getArchiveEntries().size());
+        assertEquals(AggregateRoot.CURRENT_APP_VERSION, loaded.getApplicationVersion());
+        assertFalse(new File(configuration.getTenantDirectory(), "archive.json").exists());
+        assertEquals(1, filesService.getArchiveStoreMetrics().snapshotGenerations());
+
+        var reloaded = new FilesServiceImpl(configuration, objectMapper).loadArchive();
+        assertTrue(reloaded.getArchiveEntries().get(entry.getId()).getTags().contains(new Tag("invoice")));
+    }
+
+    @Test
+    void getArchiveStoreMetrics_reportsCompactionLagUntilSnapshotIsWritten() {
+        var entry = ArchiveEntry.of("test.pdf", "/tmp/test.pdf", "/original/test.pdf");
+        filesService.appendToArchiveJournal(List.of(new ArchiveMutation.EntryAdded(entry, entry.getDateCreated())));
+
+        assertEquals(1, filesService.getArchiveStoreMetrics().journalRecordsSinceSnapshot());
+        assertNull(filesService.getArchiveStoreMetrics().lastSnapshotAt());
+
+        filesService.saveArchive(Archive.empty());
+
+        var metrics = filesService.getArchiveStoreMetrics();
+        assertNotNull(metrics.lastSnapshotAt());
+        assertEquals(Duration.ZERO, metrics.compactionLag());
+    }
+
+    @Test
+    void appendToArchiveJournal_withWriteBehind_isDurableAfterFlush() {
+        configuration.setWriteBehindDelay(Duration.ofMinutes(1));
+        var writeBehindService = new FilesServiceImpl(configuration, objectMapper);
+        var entry = ArchiveEntry.of("test.pdf", "/tmp/test.pdf", "/original/test.pdf");
+
+        writeBehindService.appendToArchiveJournal(List.of(new ArchiveMutation.EntryAdded(entry, entry.getDateCreated())));
+        assertEquals(1, writeBehindService.getArchiveStoreMetrics().pendingWrites());
+        assertTrue(new FilesServiceImpl(configuration, objectMapper).loadArchive().getArchiveEntries().isEmpty());
+
+        writeBehindService.flushArchiveJournal();
+
+        assertEquals(0, writeBehindService.getArchiveStoreMetrics().pendingWrites());
+        assertEquals(1, new FilesServiceImpl(configuration, objectMapper).loadArchive().getArchiveEntries().size());
     }
 
     @Test
@@ -116,6 +260,24 @@ class FilesServiceImplTest {
         assertTrue(settingsFile.exists());
     }
 
+    @Test
+    void saveInboxCheckpoint_thenLoadInboxCheckpoint_roundTrip() {
+        var checkpoint = InboxCheckpoint.empty("/inbox");
+        checkpoint.getFiles().put("/inbox/doc.pdf", new InboxCheckpoint.FileState(7, 1000, "abc"));
+
+        filesService.saveInboxCheckpoint(checkpoint);
+        var loaded = filesService.loadInboxCheckpoint().orElseThrow();
+
+        assertTrue(new File(configuration.getTenantDirectory(), "inbox-checkpoint.json").exists());
+        assertEquals("/inbox", loaded.getInboxFolderPath());
+        assertEquals(new InboxCheckpoint.FileState(7, 1000, "abc"), loaded.getFiles().get("/inbox/doc.pdf"));
+    }
+
+    @Test
+    void loadInboxCheckpoint_whenNoFile_returnsEmpty() {
+        assertTrue(filesService.loadInboxCheckpoint().isEmpty());
+    }
+
     @Test
     void getTenantDirectory_usesPlatformSeparator() {
         var tenantDir = filesService.getTenantDirectory();
@@ -0,0 +1,111 @@
+package dev.arne.smartfiles.core.service;
+
+import dev.arne.smartfiles.core.model.InboxCheckpoint;
+import dev.arne.smartfiles.core.store.BlobStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InboxScannerTest {
+
+    @TempDir
+    Path inbox;
+
+    private ForkJoinPool pool;
+    private InboxCheckpoint checkpoint;
+    private InboxScanner scanner;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(2);
+        checkpoint = InboxCheckpoint.empty(inbox.toString());
+        scanner = new InboxScanner(checkpoint, pool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void recordBaseline_recordsFilesWithoutReportingThem() throws IOException {
+        Files.writeString(inbox.resolve("old.pdf"), "old");
+        Files.writeString(Files.createDirectories(inbox.resolve("nested")).resolve("older.pdf"), "older");
+
+        scanner.recordBaseline(inbox);
+
+        assertEquals(2, checkpoint.getFiles().size());
+        assertTrue(scanner.findChangedFiles(inbox).isEmpty());
+    }
+
+    @Test
+    void findChangedFiles_whenBaselineFileIsOnlyTouched_skipsFile() throws IOException {
+        var file = Files.writeString(inbox.resolve("old.pdf"), "old");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2025-01-01T00:00:00Z")));
+        scanner.recordBaseline(inbox);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+
+        assertTrue(scanner.findChangedFiles(inbox).isEmpty());
+        assertTrue(checkpoint.getFiles().get(file.toAbsolutePath().toString())
+                .matches(Files.size(file), Files.getLastModifiedTime(file).toMillis()));
+    }
+
+    @Test
+    void findChangedFiles_reportsNewFilesInSubdirectories() throws IOException {
+        Files.writeString(inbox.resolve("old.pdf"), "old");
+        scanner.recordBaseline(inbox);
+        var added = Files.writeString(Files.createDirectories(inbox.resolve("a").resolve("b")).resolve("new.pdf"), "new");
+
+        assertEquals(List.of(added), scanner.findChangedFiles(inbox));
+    }
+
+    @Test
+    void findChangedFiles_whenTouchedButContentIsTheIngestedOne_skipsFile() throws IOException {
+        var file = Files.writeString(inbox.resolve("doc.pdf"), "content");
+        checkpoint.getFiles().put(file.toAbsolutePath().toString(),
+                new InboxCheckpoint.FileState(Files.size(file), 0, BlobStore.digestOf(file)));
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+
+        assertTrue(scanner.findChangedFiles(inbox).isEmpty());
+    }
+
+    @Test
+    void findChangedFiles_whenContentChanged_reportsFile() throws IOException {
+        var file = Files.writeString(inbox.resolve("doc.pdf"), "content");
+        var digest = BlobStore.digestOf(file);
+        checkpoint.getFiles().put(file.toAbsolutePath().toString(), new InboxCheckpoint.FileState(Files.size(file), 0, digest));
+        Files.writeString(file, "CONTENT");
+
+        assertEquals(List.of(file), scanner.findChangedFiles(inbox));
+    }
+
+    @Test
+    void findChangedFiles_ignoresPartialDownloads() throws IOException {
+        Files.writeString(inbox.resolve("report.pdf.part"), "partial");
+
+        assertTrue(scanner.findChangedFiles(inbox).isEmpty());
+    }
+
+    @Test
+    void findChangedFiles_dropsFilesThatAreGoneFromCheckpoint() throws IOException {
+        var kept = Files.writeString(inbox.resolve("kept.pdf"), "kept");
+        var removed = Files.writeString(Files.createDirectories(inbox.resolve("nested")).resolve("removed.pdf"), "removed");
+        scanner.recordBaseline(inbox);
+        Files.delete(removed);
+
+        scanner.findChangedFiles(inbox);
+
+        assertEquals(List.of(kept.toAbsolutePath().toString()), List.copyOf(checkpoint.getFiles().keySet()));
+    }
+}
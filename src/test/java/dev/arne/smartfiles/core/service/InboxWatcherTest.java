@@ -0,0 +1,203 @@
+package dev.arne.smartfiles.core.service;
+
+import dev.arne.smartfiles.core.ArchiveService;
+import dev.arne.smartfiles.core.FileService;
+import dev.arne.smartfiles.core.SettingsService;
+import dev.arne.smartfiles.core.configuration.SmartFilesConfiguration;
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.InboxCheckpoint;
+import dev.arne.smartfiles.core.model.IngestResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InboxWatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private ArchiveService archiveService;
+
+    @Mock
+    private SettingsService settingsService;
+
+    @Mock
+    private FileService fileService;
+
+    private final SmartFilesConfiguration configuration = new SmartFilesConfiguration();
+    private InboxWatcher watcher;
+    private final Instant now = Instant.parse("2026-01-01T10:00:00Z");
+
+    @BeforeEach
+    void setUp() {
+        configuration.setInboxQuietPeriod(Duration.ofSeconds(2));
+        configuration.setInboxBatchSize(2);
+        watcher = new InboxWatcher(archiveService, settingsService, fileService, configuration);
+    }
+
+    @Test
+    void takeStableFiles_beforeQuietPeriod_returnsNothing() throws IOException {
+        var file = Files.writeString(tempDir.resolve("scan.pdf"), "page 1");
+        watcher.fileChanged(file, now);
+
+        assertTrue(watcher.takeStableFiles(now.plusSeconds(1)).isEmpty());
+    }
+
+    @Test
+    void takeStableFiles_afterQuietPeriod_returnsFileOnce() throws IOException {
+        var file = Files.writeString(tempDir.resolve("scan.pdf"), "page 1");
+        watcher.fileChanged(file, now);
+
+        assertEquals(List.of(file), watcher.takeStableFiles(now.plusSeconds(2)));
+        assertTrue(watcher.takeStableFiles(now.plusSeconds(4)).isEmpty());
+    }
+
+    @Test
+    void takeStableFiles_whenFileIsStillGrowing_waitsForAnotherQuietPeriod() throws IOException {
+        var file = Files.writeString(tempDir.resolve("scan.pdf"), "page 1");
+        watcher.fileChanged(file, now);
+        Files.writeString(file, "page 1, page 2");
+        Files.setLastModifiedTime(file, FileTime.from(now.plusSeconds(1)));
+
+        assertTrue(watcher.takeStableFiles(now.plusSeconds(2)).isEmpty());
+        assertEquals(List.of(file), watcher.takeStableFiles(now.plusSeconds(4)));
+    }
+
+    @Test
+    void fileChanged_ignoresPartialDownloadsAndHiddenFiles() throws IOException {
+        watcher.fileChanged(Files.writeString(tempDir.resolve("report.pdf.crdownload"), "partial"), now);
+        watcher.fileChanged(Files.writeString(tempDir.resolve(".DS_Store"), "hidden"), now);
+
+        assertTrue(watcher.takeStableFiles(now.plusSeconds(10)).isEmpty());
+    }
+
+    @Test
+    void takeStableFiles_whenFileWasRemoved_dropsIt() throws IOException {
+        var file = Files.writeString(tempDir.resolve("scan.pdf"), "page 1");
+        watcher.fileChanged(file, now);
+        Files.delete(file);
+
+        assertTrue(watcher.takeStableFiles(now.plusSeconds(2)).isEmpty());
+    }
+
+    @Test
+    void ingestStableFiles_addsFilesInBatches() throws IOException {
+        for (var name : List.of("a.pdf", "b.pdf", "c.pdf")) {
+            watcher.fileChanged(Files.writeString(tempDir.resolve(name), name), now);
+        }
+        when(archiveService.ingestFiles(any())).thenReturn(CompletableFuture.completedFuture(new IngestResult(List.of(), List.of())));
+
+        watcher.ingestStableFiles(now.plusSeconds(2));
+
+        verify(archiveService, times(1)).ingestFiles(argThat((List<File> files) -> files.size() == 2));
+        verify(archiveService, times(1)).ingestFiles(argThat((List<File> files) -> files.size() == 1));
+        verify(archiveService, never()).manageFiles(any());
+    }
+
+    @Test
+    void ingestStableFiles_recordsIngestedDigestInCheckpoint() throws IOException {
+        var file = Files.writeString(tempDir.resolve("scan.pdf"), "page 1");
+        var entry = ArchiveEntry.of("scan.pdf", "/blobs/abc.pdf", file.toAbsolutePath().toString());
+        entry.setContentDigest("abc");
+        var ingested = new CompletableFuture<IngestResult>();
+        when(archiveService.ingestFiles(any())).thenReturn(ingested);
+        watcher.fileChanged(file, now);
+
+        watcher.ingestStableFiles(now.plusSeconds(2));
+        verify(fileService, never()).saveInboxCheckpoint(any());
+        ingested.complete(new IngestResult(List.of(entry), List.of()));
+
+        var captor = ArgumentCaptor.forClass(InboxCheckpoint.class);
+        verify(fileService, timeout(5000)).saveInboxCheckpoint(captor.capture());
+        var state = captor.getValue().getFiles().get(file.toAbsolutePath().toString());
+        assertEquals("abc", state.digest());
+        assertTrue(state.matches(Files.size(file), Files.getLastModifiedTime(file).toMillis()));
+    }
+
+    @Test
+    void ingestStableFiles_flushesArchiveJournalBeforeSavingCheckpoint() throws IOException {
+        var file = Files.writeString(tempDir.resolve("scan.pdf"), "page 1");
+        var entry = ArchiveEntry.of("scan.pdf", "/blobs/abc.pdf", file.toAbsolutePath().toString());
+        when(archiveService.ingestFiles(any())).thenReturn(CompletableFuture.completedFuture(new IngestResult(List.of(entry), List.of())));
+        watcher.fileChanged(file, now);
+
+        watcher.ingestStableFiles(now.plusSeconds(2));
+
+        verify(fileService, timeout(5000)).saveInboxCheckpoint(any());
+        var inOrder = inOrder(fileService);
+        inOrder.verify(fileService).flushArchiveJournal();
+        inOrder.verify(fileService).saveInboxCheckpoint(any());
+    }
+
+    @Test
+    void configuration_leavesInboxWatchingOffByDefault() {
+        assertFalse(new SmartFilesConfiguration().isInboxWatchEnabled());
+    }
+
+    @Test
+    void onContextRefreshed_watchesSubfoldersToo() throws IOException {
+        var nested = Files.createDirectories(tempDir.resolve("scans").resolve("2026"));
+        configuration.setInboxWatchEnabled(true);
+        configuration.setInboxQuietPeriod(Duration.ofMillis(100));
+        when(settingsService.getInboxFolderPath()).thenReturn(tempDir.toString());
+        when(fileService.loadInboxCheckpoint()).thenReturn(Optional.empty());
+        when(archiveService.ingestFiles(any())).thenReturn(CompletableFuture.completedFuture(new IngestResult(List.of(), List.of())));
+        watcher.onApplicationEvent(mock(ContextRefreshedEvent.class));
+        verify(fileService, timeout(5000)).saveInboxCheckpoint(any());
+
+        try {
+            var file = Files.writeString(nested.resolve("scan.pdf"), "page 1");
+
+            verify(archiveService, timeout(10000)).ingestFiles(argThat((List<File> files) -> files.contains(file.toFile())));
+        } finally {
+            watcher.onApplicationEvent(mock(ContextClosedEvent.class));
+        }
+    }
+
+    @Test
+    void tick_whenInboxFolderChanges_recordsFilesAlreadyInNewFolderAsBaseline() throws IOException {
+        var first = Files.createDirectories(tempDir.resolve("first"));
+        var second = Files.createDirectories(tempDir.resolve("second"));
+        var existing = Files.writeString(second.resolve("old.pdf"), "already there");
+        var inbox = new AtomicReference<>(first.toString());
+        configuration.setInboxWatchEnabled(true);
+        configuration.setInboxQuietPeriod(Duration.ofMillis(100));
+        when(settingsService.getInboxFolderPath()).thenAnswer(_ -> inbox.get());
+        when(fileService.loadInboxCheckpoint()).thenReturn(Optional.empty());
+        watcher.onApplicationEvent(mock(ContextRefreshedEvent.class));
+        verify(fileService, timeout(5000)).saveInboxCheckpoint(argThat(saved -> first.toString().equals(saved.getInboxFolderPath())));
+
+        try {
+            inbox.set(second.toString());
+
+            verify(fileService, timeout(5000)).saveInboxCheckpoint(argThat(saved -> second.toString().equals(saved.getInboxFolderPath())
+                    && saved.getFiles().containsKey(existing.toAbsolutePath().toString())));
+            verify(archiveService, after(500).never()).ingestFiles(any());
+        } finally {
+            watcher.onApplicationEvent(mock(ContextClosedEvent.class));
+        }
+    }
+}
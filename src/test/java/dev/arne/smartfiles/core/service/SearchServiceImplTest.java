@@ -0,0 +1,219 @@
+package dev.arne.smartfiles.core.service;
+
+import dev.arne.smartfiles.core.ArchiveService;
+import dev.arne.smartfiles.core.FileService;
+import dev.arne.smartfiles.core.events.ArchiveEntryAddedEvent;
+import dev.arne.smartfiles.core.events.DocumentDeletedEvent;
+import dev.arne.smartfiles.core.events.DocumentDescriptionUpdatedEvent;
+import dev.arne.smartfiles.core.events.DocumentTextExtractedEvent;
+import dev.arne.smartfiles.core.events.DocumentsChangedEvent;
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.Tag;
+import dev.arne.smartfiles.core.store.TextStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SearchServiceImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private ArchiveService archiveService;
+
+    @Mock
+    private FileService fileService;
+
+    private final List<ArchiveEntry> entries = new ArrayList<>();
+    private TextStore textStore;
+
+    @BeforeEach
+    void setUp() {
+        textStore = new TextStore(tempDir.resolve("text"));
+        when(fileService.getTextStore()).thenReturn(textStore);
+        when(fileService.getTenantDirectory()).thenReturn(tempDir.toString());
+        lenient().when(archiveService.getAll()).thenAnswer(_ -> List.copyOf(entries));
+        lenient().when(archiveService.retrieveFileDetails(any())).thenAnswer(invocation ->
+                entries.stream().filter(entry -> entry.getId().equals(invocation.getArgument(0))).findFirst().orElse(null));
+    }
+
+    @Test
+    void search_beforeIndexIsLoaded_matchesNames() {
+        var invoice = archived("Invoice-2024.pdf");
+        archived("Receipt.pdf");
+        var service = new SearchServiceImpl(archiveService, fileService);
+
+        assertEquals(List.of(invoice.getId()), service.search("invoice"));
+    }
+
+    @Test
+    void search_findsDocumentsByNameDescriptionAndText() {
+        var byName = archived("electricity.pdf");
+        var byDescription = archived("scan-001.pdf");
+        byDescription.setSummary("Electricity bill for March");
+        var byText = archived("scan-002.pdf");
+        textStore.write(byText.getId(), List.of("Your electricity usage", "Total"));
+        archived("unrelated.pdf");
+        var service = started();
+
+        var results = service.search("electricity");
+
+        assertEquals(byName.getId(), results.getFirst());
+        assertEquals(3, results.size());
+        assertTrue(results.containsAll(List.of(byDescription.getId(), byText.getId())));
+    }
+
+    @Test
+    void search_findsPartsOfWordsAfterRankedResults() {
+        var byTerm = archived("lectric-notes.pdf");
+        var bySubstring = archived("electricity.pdf");
+        var service = started();
+
+        assertEquals(List.of(byTerm.getId(), bySubstring.getId()), service.search("lectric"));
+    }
+
+    @Test
+    void searchFuzzy_findsMisspelledNamesAndTagsClosestFirst() {
+        var exact = archived("acme-invoice.pdf");
+        var tagged = archived("scan-003.pdf");
+        tagged.getTags().add(new Tag("acmee"));
+        archived("receipt.pdf");
+        var service = started();
+
+        assertEquals(List.of(exact.getId(), tagged.getId()), service.searchFuzzy("acme"));
+        assertEquals(List.of(exact.getId()), service.searchFuzzy("acne invoise"));
+    }
+
+    @Test
+    void onDocumentsChanged_makesTagFuzzySearchable() {
+        var service = started();
+        var entry = archived("scan.pdf");
+        service.onApplicationEvent(new ArchiveEntryAddedEvent(entry));
+        var tagged = entry.copy();
+        tagged.getTags().add(new Tag("insurance"));
+
+        service.onApplicationEvent(new DocumentsChangedEvent(List.of(tagged)));
+
+        awaitIndexer(service);
+        assertEquals(List.of(entry.getId()), service.searchFuzzy("insurence"));
+    }
+
+    @Test
+    void onDocumentsChanged_removesDeletedDocuments() {
+        var service = started();
+        var first = archived("scan.pdf");
+        var second = archived("scan copy.pdf");
+        service.onApplicationEvent(new ArchiveEntryAddedEvent(first));
+        service.onApplicationEvent(new ArchiveEntryAddedEvent(second));
+        awaitIndexer(service);
+        entries.remove(first);
+        entries.remove(second);
+
+        service.onApplicationEvent(new DocumentsChangedEvent(List.of(), Set.of(first.getId(), second.getId())));
+
+        awaitIndexer(service);
+        assertTrue(service.search("scan").isEmpty());
+        assertTrue(service.searchFuzzy("scan").isEmpty());
+    }
+
+    @Test
+    void onEvents_updateTheIndexIncrementally() {
+        var service = started();
+        var entry = archived("scan.pdf");
+
+        service.onApplicationEvent(new ArchiveEntryAddedEvent(entry));
+        entry.setSummary("Tax return");
+        service.onApplicationEvent(new DocumentDescriptionUpdatedEvent(entry.getId(), "Tax return"));
+        textStore.write(entry.getId(), List.of("Lohnsteuerbescheinigung"));
+        service.onApplicationEvent(new DocumentTextExtractedEvent(entry.getId()));
+
+        awaitIndexer(service);
+        assertEquals(List.of(entry.getId()), service.search("tax"));
+        assertEquals(List.of(entry.getId()), service.search("lohnsteuer"));
+
+        entries.remove(entry);
+        service.onApplicationEvent(new DocumentDeletedEvent(entry.getId()));
+
+        awaitIndexer(service);
+        assertTrue(service.search("tax").isEmpty());
+    }
+
+    @Test
+    void onContextRefreshed_reindexesDocumentsChangedSinceTheIndexWasWritten() {
+        var kept = archived("kept.pdf");
+        var changed = archived("changed.pdf");
+        var deleted = archived("deleted.pdf");
+        var first = started();
+        first.onApplicationEvent(mock(ContextClosedEvent.class));
+
+        changed.setSummary("Insurance policy");
+        changed.setDateLastModified(changed.getDateLastModified().plusSeconds(1));
+        entries.remove(deleted);
+        var added = archived("added.pdf");
+        var second = started();
+
+        assertEquals(List.of(kept.getId()), second.search("kept"));
+        assertEquals(List.of(changed.getId()), second.search("insurance"));
+        assertEquals(List.of(added.getId()), second.search("added"));
+        assertTrue(second.search("deleted").isEmpty());
+    }
+
+    @Test
+    void onContextRefreshed_whenOnlyTagsChangedBeforeTheIndexWasWritten_keepsIndexedText() {
+        var tagged = archived("tagged.pdf");
+        textStore.write(tagged.getId(), List.of("Lohnsteuerbescheinigung"));
+        var first = started();
+        tagged.getTags().add(new Tag("taxes"));
+        tagged.setDateLastModified(tagged.getDateLastModified().plusNanos(1));
+        first.onApplicationEvent(new DocumentsChangedEvent(List.of(tagged)));
+        first.onApplicationEvent(mock(ContextClosedEvent.class));
+
+        // Re-indexing now would drop the text, so still finding it shows the document was not re-indexed
+        textStore.delete(tagged.getId());
+        var second = started();
+
+        assertEquals(List.of(tagged.getId()), second.search("lohnsteuer"));
+    }
+
+    private SearchServiceImpl started() {
+        var service = new SearchServiceImpl(archiveService, fileService);
+        service.onApplicationEvent(mock(ContextRefreshedEvent.class));
+        awaitIndexer(service);
+        return service;
+    }
+
+    /**
+     * Index updates run in order on one thread, so a marker document shows when earlier ones are done.
+     */
+    private void awaitIndexer(SearchServiceImpl service) {
+        var marker = ArchiveEntry.of("marker" + UUID.randomUUID().toString().replace("-", "") + ".pdf", "/tmp/m.pdf", "/orig/m.pdf");
+        service.onApplicationEvent(new ArchiveEntryAddedEvent(marker));
+        var deadline = System.currentTimeMillis() + 5000;
+        while (service.search(marker.getName()).isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        service.onApplicationEvent(new DocumentDeletedEvent(marker.getId()));
+    }
+
+    private ArchiveEntry archived(String name) {
+        var entry = ArchiveEntry.of(name, "/archive/" + name, "/downloads/" + name);
+        entries.add(entry);
+        return entry;
+    }
+}
@@ -0,0 +1,143 @@
+package dev.arne.smartfiles.core.service;
+
+import dev.arne.smartfiles.core.ArchiveService;
+import dev.arne.smartfiles.core.FileService;
+import dev.arne.smartfiles.core.configuration.SmartFilesConfiguration;
+import dev.arne.smartfiles.core.events.ArchiveEntryAddedEvent;
+import dev.arne.smartfiles.core.events.DocumentDeletedEvent;
+import dev.arne.smartfiles.core.events.DocumentTextExtractedEvent;
+import dev.arne.smartfiles.core.events.DocumentsChangedEvent;
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.store.TextStore;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TextExtractorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private ArchiveService archiveService;
+
+    @Mock
+    private FileService fileService;
+
+    @Mock
+    private ApplicationEventPublisher publisher;
+
+    private TextStore textStore;
+    private TextExtractor extractor;
+
+    @BeforeEach
+    void setUp() {
+        textStore = new TextStore(tempDir.resolve("text"));
+        when(fileService.getTextStore()).thenReturn(textStore);
+        extractor = new TextExtractor(archiveService, fileService, publisher, new SmartFilesConfiguration());
+    }
+
+    @Test
+    void onArchiveEntryAdded_storesTextPerPage() throws IOException {
+        var entry = archivedPdf("invoice.pdf", "Invoice 4711", "Total 120 EUR");
+
+        extractor.onApplicationEvent(new ArchiveEntryAddedEvent(entry));
+
+        verify(publisher, timeout(5000)).publishEvent(any(DocumentTextExtractedEvent.class));
+        var pages = textStore.read(entry.getId()).orElseThrow();
+        assertEquals(2, pages.size());
+        assertTrue(pages.get(0).contains("Invoice 4711"));
+        assertTrue(pages.get(1).contains("Total 120 EUR"));
+    }
+
+    @Test
+    void onContextRefreshed_extractsOnlyDocumentsWithoutText() throws IOException {
+        var extracted = archivedPdf("old.pdf", "Old");
+        textStore.write(extracted.getId(), List.of("stored"));
+        var missing = archivedPdf("new.pdf", "New");
+        when(archiveService.getAll()).thenReturn(List.of(extracted, missing));
+
+        extractor.onApplicationEvent(mock(ContextRefreshedEvent.class));
+
+        verify(publisher, timeout(5000)).publishEvent(any(DocumentTextExtractedEvent.class));
+        assertEquals(List.of("stored"), textStore.read(extracted.getId()).orElseThrow());
+        assertTrue(textStore.read(missing.getId()).orElseThrow().getFirst().contains("New"));
+    }
+
+    @Test
+    void extract_whenFileIsNotAPdf_storesNoPages() throws IOException {
+        var file = Files.writeString(tempDir.resolve("broken.pdf"), "not a pdf");
+        var entry = ArchiveEntry.of("broken.pdf", file.toString(), file.toString());
+        when(archiveService.getFile(entry.getId())).thenReturn(file.toFile());
+        when(archiveService.retrieveFileDetails(entry.getId())).thenReturn(entry);
+
+        extractor.extract(entry.getId());
+
+        assertEquals(List.of(), textStore.read(entry.getId()).orElseThrow());
+    }
+
+    @Test
+    void onDocumentDeleted_removesText() {
+        var entry = ArchiveEntry.of("gone.pdf", "/tmp/gone.pdf", "/orig/gone.pdf");
+        textStore.write(entry.getId(), List.of("text"));
+
+        extractor.onApplicationEvent(new DocumentDeletedEvent(entry.getId()));
+
+        assertFalse(textStore.contains(entry.getId()));
+    }
+
+    @Test
+    void onDocumentsChanged_removesTextOfDeletedDocuments() {
+        var gone = ArchiveEntry.of("gone.pdf", "/tmp/gone.pdf", "/orig/gone.pdf");
+        var kept = ArchiveEntry.of("kept.pdf", "/tmp/kept.pdf", "/orig/kept.pdf");
+        textStore.write(gone.getId(), List.of("text"));
+        textStore.write(kept.getId(), List.of("text"));
+
+        extractor.onApplicationEvent(new DocumentsChangedEvent(List.of(kept), Set.of(gone.getId())));
+
+        assertFalse(textStore.contains(gone.getId()));
+        assertTrue(textStore.contains(kept.getId()));
+    }
+
+    private ArchiveEntry archivedPdf(String name, String... pageTexts) throws IOException {
+        var file = tempDir.resolve(name);
+        try (var document = new PDDocument()) {
+            for (var text : pageTexts) {
+                var page = new PDPage();
+                document.addPage(page);
+                try (var content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                    content.newLineAtOffset(72, 700);
+                    content.showText(text);
+                    content.endText();
+                }
+            }
+            document.save(file.toFile());
+        }
+        var entry = ArchiveEntry.of(name, file.toString(), file.toString());
+        lenient().when(archiveService.getFile(entry.getId())).thenReturn(file.toFile());
+        lenient().when(archiveService.retrieveFileDetails(entry.getId())).thenReturn(entry);
+        return entry;
+    }
+}
@@ -0,0 +1,122 @@
+package dev.arne.smartfiles.core.store;
+
+import dev.arne.smartfiles.core.model.Archive;
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.DocumentMetadata;
+import dev.arne.smartfiles.core.model.Tag;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveBinaryCodecTest {
+
+    @Test
+    void encodeShard_thenDecodeShard_roundTripsAllFields() throws IOException {
+        var archive = Archive.empty();
+        var entry = archive.addArchiveEntryFromFile(new File("/archive/files/invoice.pdf"), "/downloads/invoice.pdf");
+        entry.setSummary("Electricity");
+        entry.setContentDigest("abc123");
+        entry.getTags().add(new Tag("invoice"));
+        entry.getTags().add(new Tag("2024"));
+        var decoded = new HashMap<UUID, ArchiveEntry>();
+
+        ArchiveBinaryCodec.decodeShard(new ByteArrayInputStream(ArchiveBinaryCodec.encodeShard(List.of(entry))), decoded);
+
+        var decodedEntry = decoded.get(entry.getId());
+        assertEquals(entry.getName(), decodedEntry.getName());
+        assertEquals("Electricity", decodedEntry.getSummary());
+        assertEquals(entry.getPath(), decodedEntry.getPath());
+        assertEquals(entry.getAbsolutePath(), decodedEntry.getAbsolutePath());
+        assertEquals(entry.getOriginalPath(), decodedEntry.getOriginalPath());
+        assertEquals(entry.getDateCreated(), decodedEntry.getDateCreated());
+        assertEquals(entry.getDateLastModified(), decodedEntry.getDateLastModified());
+        assertEquals("abc123", decodedEntry.getContentDigest());
+        assertEquals(Set.of(new Tag("invoice"), new Tag("2024")), decodedEntry.getTags());
+    }
+
+    @Test
+    void encodeShard_thenDecodeShard_keepsNullsAndUnsplittablePaths() throws IOException {
+        var archive = Archive.empty();
+        var entry = archive.addArchiveEntryFromFile(new File("/archive/files/doc.pdf"), null);
+        entry.setSummary(null);
+        entry.setAbsolutePath("relative.pdf");
+        var decoded = new HashMap<UUID, ArchiveEntry>();
+
+        ArchiveBinaryCodec.decodeShard(new ByteArrayInputStream(ArchiveBinaryCodec.encodeShard(List.of(entry))), decoded);
+
+        var decodedEntry = decoded.get(entry.getId());
+        assertNull(decodedEntry.getSummary());
+        assertNull(decodedEntry.getOriginalPath());
+        assertEquals("relative.pdf", decodedEntry.getAbsolutePath());
+    }
+
+    @Test
+    void encodeShard_thenDecodeShard_roundTripsMetadata() throws IOException {
+        var archive = Archive.empty();
+        var extracted = archive.addArchiveEntryFromFile(new File("/archive/files/contract.pdf"), "/downloads/contract.pdf");
+        var a4 = new DocumentMetadata.PageSize(595.28f, 841.89f);
+        var landscape = new DocumentMetadata.PageSize(841.89f, 595.28f);
+        var metadata = new DocumentMetadata(4, List.of(a4, a4, landscape, a4), "Contract", "Jane", null,
+                LocalDateTime.of(2024, 3, 1, 9, 30));
+        extracted.setMetadata(metadata);
+        var pending = archive.addArchiveEntryFromFile(new File("/archive/files/scan.pdf"), "/downloads/scan.pdf");
+        var decoded = new HashMap<UUID, ArchiveEntry>();
+
+        ArchiveBinaryCodec.decodeShard(new ByteArrayInputStream(ArchiveBinaryCodec.encodeShard(List.of(extracted, pending))), decoded);
+
+        assertEquals(metadata, decoded.get(extracted.getId()).getMetadata());
+        assertNull(decoded.get(pending.getId()).getMetadata());
+    }
+
+    @Test
+    void encodeShard_isSmallerThanJson() {
+        var archive = Archive.empty();
+        for (int i = 0; i < 200; i++) {
+            var entry = archive.addArchiveEntryFromFile(new File("/archive/files/doc-" + i + ".pdf"), "/downloads/doc-" + i + ".pdf");
+            entry.getTags().add(new Tag("invoice"));
+        }
+
+        var json = JsonMapper.builder().findAndAddModules().build().writeValueAsBytes(archive);
+        var binary = ArchiveBinaryCodec.encodeShard(archive.getArchiveEntries().values());
+
+        assertTrue(binary.length * 2 < json.length, "binary " + binary.length + " vs json " + json.length);
+    }
+
+    @Test
+    void encodeManifest_thenDecodeManifest_roundTripsHeaderAndShards() throws IOException {
+        var archive = Archive.empty();
+        archive.setTags(Set.of(new Tag("invoice")));
+
+        var manifest = ArchiveBinaryCodec.decodeManifest(new ByteArrayInputStream(ArchiveBinaryCodec.encodeManifest(archive, new long[]{0, 7})));
+
+        assertEquals(archive.getApplicationVersion(), manifest.archive().getApplicationVersion());
+        assertEquals(archive.getDateCreated(), manifest.archive().getDateCreated());
+        assertEquals(archive.getDateLastModified(), manifest.archive().getDateLastModified());
+        assertEquals(Set.of(new Tag("invoice")), manifest.archive().getTags());
+        assertArrayEquals(new long[]{0, 7}, manifest.shardSequences());
+    }
+
+    @Test
+    void decodeManifest_rejectsUnknownInput() {
+        assertThrows(IOException.class, () -> ArchiveBinaryCodec.decodeManifest(new ByteArrayInputStream("{\"json\":1}".getBytes())));
+    }
+
+    @Test
+    void decodeShard_rejectsOlderFormatVersion() {
+        var bytes = ArchiveBinaryCodec.encodeShard(List.of(ArchiveEntry.of("doc.pdf", "/tmp/doc.pdf", "/orig/doc.pdf")));
+        ByteBuffer.wrap(bytes).putShort(4, (short) (ArchiveBinaryCodec.SHARD_FORMAT_VERSION - 1));
+
+        assertThrows(IOException.class, () -> ArchiveBinaryCodec.decodeShard(new ByteArrayInputStream(bytes), new HashMap<>()));
+    }
+}
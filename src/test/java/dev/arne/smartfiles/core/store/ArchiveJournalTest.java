@@ -0,0 +1,162 @@
+package dev.arne.smartfiles.core.store;
+
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.ArchiveMutation;
+import dev.arne.smartfiles.core.model.Tag;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ObjectMapper objectMapper;
+    private ArchiveJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = JsonMapper.builder().findAndAddModules().build();
+        journal = new ArchiveJournal(tempDir, objectMapper, 0);
+    }
+
+    @Test
+    void replay_whenNoJournal_returnsZero() {
+        var replayed = journal.replay(0, _ -> fail("Nothing to replay"));
+
+        assertEquals(0, replayed);
+    }
+
+    @Test
+    void append_thenReplay_returnsMutationsInOrder() {
+        var entry = ArchiveEntry.of("doc.pdf", "/tmp/doc.pdf", "/orig/doc.pdf");
+        var added = new ArchiveMutation.EntryAdded(entry, entry.getDateCreated());
+        var tagged = new ArchiveMutation.TagAdded(entry.getId(), new Tag("invoice"), LocalDateTime.now());
+        var deleted = new ArchiveMutation.EntryDeleted(entry.getId(), LocalDateTime.now());
+
+        journal.append(List.of(added, tagged));
+        journal.append(List.of(deleted));
+        var replayed = new ArrayList<ArchiveMutation>();
+        journal.replay(0, replayed::add);
+
+        assertEquals(3, replayed.size());
+        assertEquals(entry.getId(), ((ArchiveMutation.EntryAdded) replayed.get(0)).entry().getId());
+        assertEquals(tagged, replayed.get(1));
+        assertEquals(deleted, replayed.get(2));
+    }
+
+    @Test
+    void append_thenReplay_readsBatchMutations() {
+        var ids = List.of(UUID.randomUUID(), UUID.randomUUID());
+        var now = LocalDateTime.now();
+        List<ArchiveMutation> batch = List.of(
+                new ArchiveMutation.TagsAdded(ids, List.of(new Tag("invoice"), new Tag("2024")), now),
+                new ArchiveMutation.TagsRemoved(ids, List.of(new Tag("2024")), now),
+                new ArchiveMutation.TagRenamed(new Tag("invoice"), new Tag("bill"), now),
+                new ArchiveMutation.EntriesDeleted(ids, now));
+
+        journal.append(batch);
+        var replayed = new ArrayList<ArchiveMutation>();
+        journal.replay(0, replayed::add);
+
+        assertEquals(batch, replayed);
+    }
+
+    @Test
+    void append_writesOneLinePerMutation() throws IOException {
+        var id = UUID.randomUUID();
+
+        journal.append(List.of(
+                new ArchiveMutation.TagAdded(id, new Tag("a"), LocalDateTime.now()),
+                new ArchiveMutation.TagAdded(id, new Tag("b"), LocalDateTime.now())));
+
+        try (var segments = Files.list(tempDir)) {
+            var segment = segments.findFirst().orElseThrow();
+            assertEquals(2, Files.readAllLines(segment).size());
+        }
+    }
+
+    @Test
+    void replay_skipsSegmentsCoveredBySnapshot() {
+        var covered = new ArchiveMutation.EntryDeleted(UUID.randomUUID(), LocalDateTime.now());
+        var uncovered = new ArchiveMutation.EntryDeleted(UUID.randomUUID(), LocalDateTime.now());
+        journal.append(List.of(covered));
+        var sealed = journal.rotate();
+        journal.append(List.of(uncovered));
+
+        var replayed = new ArrayList<ArchiveMutation>();
+        journal.replay(sealed, replayed::add);
+
+        assertEquals(List.of(uncovered), replayed);
+    }
+
+    @Test
+    void rotate_resetsRecordCount() {
+        journal.append(List.of(new ArchiveMutation.EntryDeleted(UUID.randomUUID(), LocalDateTime.now())));
+        assertEquals(1, journal.getRecordsSinceRotation());
+
+        journal.rotate();
+
+        assertEquals(0, journal.getRecordsSinceRotation());
+    }
+
+    @Test
+    void replay_stopsAtTornRecordAndNewRunStartsFreshSegment() throws IOException {
+        var mutation = new ArchiveMutation.EntryDeleted(UUID.randomUUID(), LocalDateTime.now());
+        journal.append(List.of(mutation));
+        try (var segments = Files.list(tempDir)) {
+            Files.writeString(segments.findFirst().orElseThrow(), "{\"type\":\"entryDel", StandardOpenOption.APPEND);
+        }
+
+        var reopened = new ArchiveJournal(tempDir, objectMapper, 0);
+        var later = new ArchiveMutation.EntryDeleted(UUID.randomUUID(), LocalDateTime.now());
+        reopened.append(List.of(later));
+        var replayed = new ArrayList<ArchiveMutation>();
+        reopened.replay(0, replayed::add);
+
+        assertEquals(List.of(mutation, later), replayed);
+    }
+
+    @Test
+    void replay_whenRecordInsideSegmentIsCorrupt_stopsBeforeLaterRecordsAndSegments() throws IOException {
+        var entry = ArchiveEntry.of("doc.pdf", "/tmp/doc.pdf", "/orig/doc.pdf");
+        var first = new ArchiveMutation.EntryDeleted(UUID.randomUUID(), LocalDateTime.now());
+        journal.append(List.of(first));
+        try (var segments = Files.list(tempDir)) {
+            Files.writeString(segments.findFirst().orElseThrow(), "{\"type\":\"entryAdd\n", StandardOpenOption.APPEND);
+        }
+        journal.append(List.of(new ArchiveMutation.TagAdded(entry.getId(), new Tag("invoice"), LocalDateTime.now())));
+        journal.rotate();
+        journal.append(List.of(new ArchiveMutation.EntryDeleted(entry.getId(), LocalDateTime.now())));
+
+        var replayed = new ArrayList<ArchiveMutation>();
+        var count = new ArchiveJournal(tempDir, objectMapper, 0).replay(0, replayed::add);
+
+        assertEquals(1, count);
+        assertEquals(List.of(first), replayed);
+    }
+
+    @Test
+    void deleteSegmentsUpTo_removesCoveredSegments() {
+        journal.append(List.of(new ArchiveMutation.EntryDeleted(UUID.randomUUID(), LocalDateTime.now())));
+        var sealed = journal.rotate();
+
+        journal.deleteSegmentsUpTo(sealed);
+
+        assertEquals(0, journal.replay(0, _ -> fail("Segment was deleted")));
+    }
+}
@@ -0,0 +1,128 @@
+package dev.arne.smartfiles.core.store;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BlobStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new BlobStore(tempDir.resolve("blobs"));
+    }
+
+    @Test
+    void store_placesContentInFanOutDirectoryNamedByDigest() throws IOException, NoSuchAlgorithmException {
+        var source = tempDir.resolve("Invoice.PDF");
+        Files.writeString(source, "content");
+        var expected = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest("content".getBytes(StandardCharsets.UTF_8)));
+
+        var blob = store.store(source);
+
+        assertEquals(expected, blob.digest());
+        assertEquals(7, blob.size());
+        assertFalse(blob.deduplicated());
+        assertEquals(tempDir.resolve("blobs").resolve(expected.substring(0, 2)).resolve(expected.substring(2, 4))
+                .resolve(expected + ".pdf"), blob.path());
+        assertEquals("content", Files.readString(blob.path()));
+    }
+
+    @Test
+    void store_sameContentTwice_deduplicates() throws IOException {
+        var first = tempDir.resolve("first.pdf");
+        var second = tempDir.resolve("second.pdf");
+        Files.writeString(first, "content");
+        Files.writeString(second, "content");
+
+        var stored = store.store(first);
+        var duplicate = store.store(second);
+
+        assertTrue(duplicate.deduplicated());
+        assertEquals(stored.path(), duplicate.path());
+    }
+
+    @Test
+    void store_leavesNoTemporaryFilesBehind() throws IOException {
+        var source = tempDir.resolve("doc");
+        Files.writeString(source, "content");
+
+        store.store(source);
+        store.store(source);
+
+        try (var incoming = Files.list(tempDir.resolve("blobs").resolve("incoming"))) {
+            assertEquals(0, incoming.count());
+        }
+    }
+
+    @Test
+    void store_recordsStatisticsPerTransport() throws IOException {
+        var source = tempDir.resolve("doc.pdf");
+        Files.writeString(source, "content");
+        store = new BlobStore(tempDir.resolve("blobs"), List.of(new ChannelTransport()));
+
+        store.store(source);
+
+        var statistics = store.getTransferStatistics();
+        assertEquals(1, statistics.size());
+        assertEquals("channel-transfer", statistics.getFirst().transport());
+        assertEquals(1, statistics.getFirst().files());
+        assertEquals(7, statistics.getFirst().bytes());
+    }
+
+    @Test
+    void store_whenTransportFails_fallsBackToNext() throws IOException {
+        var source = tempDir.resolve("doc.pdf");
+        Files.writeString(source, "content");
+        var failing = new ChannelTransport() {
+            @Override
+            public String name() {
+                return "failing";
+            }
+
+            @Override
+            public void transfer(Path source, Path target, MessageDigest digest) throws IOException {
+                Files.writeString(target, "partial");
+                digest.update("partial".getBytes(StandardCharsets.UTF_8));
+                throw new IOException("Not supported here");
+            }
+        };
+        store = new BlobStore(tempDir.resolve("blobs"), List.of(failing, new ChannelTransport()));
+
+        var blob = store.store(source);
+
+        assertEquals("content", Files.readString(blob.path()));
+        assertEquals(BlobStore.digestOf(source), blob.digest());
+        assertEquals(List.of("channel-transfer"), store.getTransferStatistics().stream().map(TransferStatistics::transport).toList());
+    }
+
+    @Test
+    void constructor_deletesCopiesLeftByInterruptedRun() throws IOException {
+        var leftover = Files.writeString(tempDir.resolve("blobs").resolve("incoming").resolve("blob-1.tmp"), "half");
+
+        new BlobStore(tempDir.resolve("blobs"));
+
+        assertFalse(Files.exists(leftover));
+    }
+
+    @Test
+    void store_whenSourceIsMissing_throws() {
+        assertThrows(IOException.class, () -> store.store(tempDir.resolve("missing.pdf")));
+    }
+}
@@ -0,0 +1,206 @@
+package dev.arne.smartfiles.core.store;
+
+import dev.arne.smartfiles.core.model.Archive;
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.ArchiveMutation;
+import dev.arne.smartfiles.core.model.DocumentMetadata;
+import dev.arne.smartfiles.core.model.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarEntryStoreTest {
+
+    private static final Path TENANT = Path.of("/data/tenant");
+
+    @Test
+    void put_thenGet_readsEveryField() {
+        var store = new ColumnarEntryStore(TENANT);
+        var entry = ArchiveEntry.of("Rechnung März.pdf", "/data/tenant/blobs/ab/cd/abcd", "/inbox/Rechnung März.pdf");
+        entry.setTags(new HashSet<>(Set.of(new Tag("invoice"), new Tag("2024"))));
+        entry.setContentDigest("ab".repeat(32));
+        entry.setMetadata(new DocumentMetadata(3, List.of(), "Title", null, null, null));
+
+        store.put(entry.getId(), entry);
+        var stored = store.get(entry.getId());
+
+        assertEquals(entry.getId(), stored.getId());
+        assertEquals("Rechnung März.pdf", stored.getName());
+        assertEquals("Not available yet", stored.getSummary());
+        assertEquals("abcd", stored.getPath());
+        assertEquals("/data/tenant/blobs/ab/cd/abcd", stored.getAbsolutePath());
+        assertEquals("/inbox/Rechnung März.pdf", stored.getOriginalPath());
+        assertEquals(entry.getTags(), stored.getTags());
+        assertEquals(entry.getDateCreated().withNano(entry.getDateCreated().getNano() / 1000 * 1000), stored.getDateCreated());
+        assertEquals(entry.getContentDigest(), stored.getContentDigest());
+        assertEquals(3, stored.pageCount());
+    }
+
+    @Test
+    void put_keepsNullsAndPathsWithoutDirectory() {
+        var store = new ColumnarEntryStore(TENANT);
+        var entry = new ArchiveEntry(UUID.randomUUID(), null, null, "other.pdf", "/data/tenant/file.pdf", "file.pdf", null, null, null, null, null);
+
+        store.put(entry.getId(), entry);
+        var stored = store.get(entry.getId());
+
+        assertNull(stored.getName());
+        assertNull(stored.getSummary());
+        assertEquals("other.pdf", stored.getPath());
+        assertEquals("/data/tenant/file.pdf", stored.getAbsolutePath());
+        assertEquals("file.pdf", stored.getOriginalPath());
+        assertNull(stored.getTags());
+        assertNull(stored.getDateCreated());
+        assertNull(stored.getContentDigest());
+        assertFalse(stored.hasMetadata());
+    }
+
+    @Test
+    void setters_onView_areStored() {
+        var store = new ColumnarEntryStore(TENANT);
+        var entry = ArchiveEntry.of("a.pdf", "/data/tenant/files/a.pdf", "/inbox/a.pdf");
+        store.put(entry.getId(), entry);
+        var modified = LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123_456_000);
+
+        var view = store.get(entry.getId());
+        view.setSummary("A letter");
+        view.getTags().add(new Tag("letter"));
+        view.setDateLastModified(modified);
+        view.setAbsolutePath("/elsewhere/b.pdf");
+
+        var stored = store.get(entry.getId());
+        assertEquals("A letter", stored.getSummary());
+        assertEquals(Set.of(new Tag("letter")), stored.getTags());
+        assertEquals(modified, stored.getDateLastModified());
+        assertEquals("/elsewhere/b.pdf", stored.getAbsolutePath());
+        assertEquals("a.pdf", stored.getPath());
+        assertEquals(view, stored);
+        assertThrows(UnsupportedOperationException.class, () -> view.setId(UUID.randomUUID()));
+    }
+
+    @Test
+    void put_existingId_returnsDetachedPrevious() {
+        var store = new ColumnarEntryStore(TENANT);
+        var entry = ArchiveEntry.of("a.pdf", "/data/tenant/files/a.pdf", "/inbox/a.pdf");
+        entry.getTags().add(new Tag("old"));
+        store.put(entry.getId(), entry);
+        var replacement = ArchiveEntry.of("b.pdf", "/data/tenant/files/b.pdf", "/inbox/b.pdf");
+        replacement.setId(entry.getId());
+
+        var previous = store.put(entry.getId(), replacement);
+
+        assertEquals("a.pdf", previous.getName());
+        assertEquals(Set.of(new Tag("old")), previous.getTags());
+        assertEquals("b.pdf", store.get(entry.getId()).getName());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void remove_keepsEveryOtherEntryFindable() {
+        var store = new ColumnarEntryStore(TENANT);
+        var ids = new ArrayList<UUID>();
+        for (int i = 0; i < 1000; i++) {
+            var entry = ArchiveEntry.of("doc" + i + ".pdf", "/data/tenant/files/doc" + i + ".pdf", "/inbox/doc" + i + ".pdf");
+            store.put(entry.getId(), entry);
+            ids.add(entry.getId());
+        }
+
+        for (int i = 0; i < ids.size(); i += 2) {
+            assertEquals("doc" + i + ".pdf", store.remove(ids.get(i)).getName());
+        }
+
+        assertEquals(500, store.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i % 2 == 1, store.containsKey(ids.get(i)));
+        }
+        assertEquals(500, store.values().stream().map(ArchiveEntry::getId).distinct().count());
+        assertNull(store.remove(ids.getFirst()));
+    }
+
+    @Test
+    void archive_withColumnarStore_keepsTagCountsInStep() {
+        var entry = ArchiveEntry.of("a.pdf", "/data/tenant/files/a.pdf", "/inbox/a.pdf");
+        var archive = Archive.empty();
+        archive.setArchiveEntries(ColumnarEntryStore.copyOf(TENANT, new HashMap<>()));
+        var now = LocalDateTime.now();
+
+        archive.apply(new ArchiveMutation.EntryAdded(entry, now));
+        archive.apply(new ArchiveMutation.TagAdded(entry.getId(), new Tag("invoice"), now));
+
+        assertEquals(1, archive.getTagDictionary().count(new Tag("invoice")));
+        assertTrue(archive.getArchiveEntries().get(entry.getId()).getTags().contains(new Tag("invoice")));
+
+        archive.apply(new ArchiveMutation.EntryDeleted(entry.getId(), now));
+
+        assertEquals(0, archive.getTagDictionary().count(new Tag("invoice")));
+        assertTrue(archive.getArchiveEntries().isEmpty());
+    }
+
+    @Test
+    void setSummary_repeatedly_compactsArena() {
+        var store = new ColumnarEntryStore(TENANT);
+        var entry = ArchiveEntry.of("a.pdf", "/data/tenant/files/a.pdf", "/inbox/a.pdf");
+        store.put(entry.getId(), entry);
+        var view = store.get(entry.getId());
+
+        for (int i = 0; i < 10_000; i++) {
+            view.setSummary("Summary " + i + " " + "x".repeat(100));
+        }
+
+        assertEquals("Summary 9999 " + "x".repeat(100), view.getSummary());
+        assertEquals("a.pdf", view.getName());
+        assertEquals("/data/tenant/files/a.pdf", view.getAbsolutePath());
+        assertEquals("/inbox/a.pdf", view.getOriginalPath());
+        assertTrue(store.arenaSize() < 10_000);
+    }
+
+    @Test
+    void put_ofChangedCopies_compactsArena() {
+        var store = new ColumnarEntryStore(TENANT);
+        var entry = ArchiveEntry.of("a.pdf", "/data/tenant/files/a.pdf", "/inbox/a.pdf");
+        store.put(entry.getId(), entry);
+
+        for (int i = 0; i < 10_000; i++) {
+            var copy = store.get(entry.getId()).copy();
+            copy.setSummary("Summary " + i);
+            store.put(entry.getId(), copy);
+        }
+
+        assertEquals("Summary 9999", store.get(entry.getId()).getSummary());
+        assertEquals("a.pdf", store.get(entry.getId()).getPath());
+        assertTrue(store.arenaSize() < 10_000);
+    }
+
+    @Test
+    void copy_leavesOutRemovedRows() {
+        var store = new ColumnarEntryStore(TENANT);
+        var ids = new ArrayList<UUID>();
+        for (int i = 0; i < 100; i++) {
+            var entry = ArchiveEntry.of("doc" + i + ".pdf", "/data/tenant/files/doc" + i + ".pdf", "/inbox/doc" + i + ".pdf");
+            store.put(entry.getId(), entry);
+            ids.add(entry.getId());
+        }
+        for (int i = 0; i < ids.size(); i += 2) {
+            store.remove(ids.get(i));
+        }
+
+        var copy = store.copy();
+
+        assertEquals(50, copy.size());
+        for (int i = 1; i < ids.size(); i += 2) {
+            assertEquals("doc" + i + ".pdf", copy.get(ids.get(i)).getName());
+            assertEquals("/data/tenant/files/doc" + i + ".pdf", copy.get(ids.get(i)).getAbsolutePath());
+        }
+        assertFalse(copy.containsKey(ids.getFirst()));
+        assertTrue(copy.arenaSize() < store.arenaSize());
+    }
+}
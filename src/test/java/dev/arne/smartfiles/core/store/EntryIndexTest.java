@@ -0,0 +1,95 @@
+package dev.arne.smartfiles.core.store;
+
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.DocumentMetadata;
+import dev.arne.smartfiles.core.model.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntryIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void encode_thenOpen_readsIdsNamesDatesAndTags() throws IOException {
+        var tagged = ArchiveEntry.of("tagged.pdf", "/tmp/tagged.pdf", "/orig/tagged.pdf");
+        tagged.setTags(new HashSet<>(Set.of(new Tag("invoice"), new Tag("2024"))));
+        tagged.setContentDigest("ab".repeat(32));
+        var plain = ArchiveEntry.of("plain.pdf", "/tmp/plain.pdf", "/orig/plain.pdf");
+        var file = tempDir.resolve("index.idx");
+        Files.write(file, EntryIndex.encode(List.of(tagged, plain)));
+
+        var index = EntryIndex.open(file);
+
+        assertEquals(2, index.size());
+        assertEquals(tagged.getId(), index.id(0));
+        assertEquals("tagged.pdf", index.name(0));
+        assertEquals(tagged.getDateCreated(), index.dateCreated(0));
+        assertEquals(tagged.getDateLastModified(), index.dateLastModified(0));
+        assertEquals(tagged.getTags(), index.tags(0));
+        assertEquals(tagged.getContentDigest(), index.contentDigest(0));
+        assertEquals(plain.getId(), index.id(1));
+        assertEquals("plain.pdf", index.name(1));
+        assertTrue(index.tags(1).isEmpty());
+    }
+
+    @Test
+    void encode_thenOpen_keepsNulls() throws IOException {
+        var entry = new ArchiveEntry(UUID.randomUUID(), null, null, null, null, null, null, null, null, null, null);
+        var file = tempDir.resolve("index.idx");
+        Files.write(file, EntryIndex.encode(List.of(entry)));
+
+        var index = EntryIndex.open(file);
+
+        assertNull(index.name(0));
+        assertNull(index.dateCreated(0));
+        assertNull(index.dateLastModified(0));
+        assertNull(index.contentDigest(0));
+        assertTrue(index.tags(0).isEmpty());
+    }
+
+    @Test
+    void encode_thenOpen_readsPageCountOnlyWhenMetadataWasExtracted() throws IOException {
+        var extracted = ArchiveEntry.of("extracted.pdf", "/tmp/extracted.pdf", "/orig/extracted.pdf");
+        extracted.setMetadata(new DocumentMetadata(3, List.of(), null, null, null, null));
+        var pending = ArchiveEntry.of("pending.pdf", "/tmp/pending.pdf", "/orig/pending.pdf");
+        var file = tempDir.resolve("index.idx");
+        Files.write(file, EntryIndex.encode(List.of(extracted, pending)));
+
+        var index = EntryIndex.open(file);
+
+        assertTrue(index.hasMetadata(0));
+        assertEquals(3, index.pageCount(0));
+        assertFalse(index.hasMetadata(1));
+    }
+
+    @Test
+    void open_rejectsOtherFiles() throws IOException {
+        var file = tempDir.resolve("index.idx");
+        Files.write(file, new byte[32]);
+
+        assertThrows(IOException.class, () -> EntryIndex.open(file));
+    }
+
+    @Test
+    void open_rejectsOlderFormatVersion() throws IOException {
+        var bytes = EntryIndex.encode(List.of(ArchiveEntry.of("doc.pdf", "/tmp/doc.pdf", "/orig/doc.pdf")));
+        ByteBuffer.wrap(bytes).putShort(4, (short) (EntryIndex.FORMAT_VERSION - 1));
+        var file = tempDir.resolve("index.idx");
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> EntryIndex.open(file));
+    }
+}
@@ -0,0 +1,73 @@
+package dev.arne.smartfiles.core.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestQueueTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    @Test
+    void enqueue_thenReopen_resumesPendingJobsInOrder() {
+        var queue = new IngestQueue(tempDir, objectMapper);
+        var jobs = queue.enqueue(List.of(Path.of("/inbox/a.pdf"), Path.of("/inbox/b.pdf")));
+
+        var reopened = new IngestQueue(tempDir, objectMapper).pending();
+
+        assertEquals(jobs.stream().map(IngestQueue.Job::id).toList(), reopened.stream().map(IngestQueue.Job::id).toList());
+        assertFalse(jobs.getFirst().resumed());
+        assertTrue(reopened.getFirst().resumed());
+    }
+
+    @Test
+    void complete_thenReopen_dropsCompletedAndFailedJobs() {
+        var queue = new IngestQueue(tempDir, objectMapper);
+        var jobs = queue.enqueue(List.of(Path.of("/inbox/a.pdf"), Path.of("/inbox/b.pdf"), Path.of("/inbox/c.pdf")));
+
+        queue.complete(List.of(jobs.get(0).id()), Map.of(jobs.get(1).id(), "Access denied"));
+
+        assertEquals(List.of(jobs.get(2).id()), new IngestQueue(tempDir, objectMapper).pending().stream().map(IngestQueue.Job::id).toList());
+    }
+
+    @Test
+    void peek_returnsAtMostRequestedJobs() {
+        var queue = new IngestQueue(tempDir, objectMapper);
+        queue.enqueue(List.of(Path.of("/inbox/a.pdf"), Path.of("/inbox/b.pdf"), Path.of("/inbox/c.pdf")));
+
+        assertEquals(2, queue.peek(2).size());
+        assertEquals(3, queue.size());
+    }
+
+    @Test
+    void complete_whenQueueIsDrained_truncatesLog() throws IOException {
+        var queue = new IngestQueue(tempDir, objectMapper);
+        var jobs = queue.enqueue(List.of(Path.of("/inbox/a.pdf")));
+
+        queue.complete(List.of(jobs.getFirst().id()), Map.of());
+
+        assertEquals(0, Files.size(tempDir.resolve("queue.log")));
+    }
+
+    @Test
+    void open_withTornTail_keepsJobsBeforeIt() throws IOException {
+        new IngestQueue(tempDir, objectMapper).enqueue(List.of(Path.of("/inbox/a.pdf")));
+        Files.writeString(tempDir.resolve("queue.log"), "{\"type\":\"enq", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        assertEquals(1, new IngestQueue(tempDir, objectMapper).size());
+    }
+}
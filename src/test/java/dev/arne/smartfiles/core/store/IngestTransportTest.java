@@ -0,0 +1,65 @@
+package dev.arne.smartfiles.core.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestTransportTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void channelTransport_transfer_copiesContentSpanningSeveralChunks() throws IOException {
+        var content = new byte[ChannelTransport.CHUNK_SIZE * 2 + 17];
+        new Random(42).nextBytes(content);
+        var source = Files.write(tempDir.resolve("large.bin"), content);
+        var target = tempDir.resolve("copy.bin");
+
+        var digest = BlobStore.newDigest();
+
+        new ChannelTransport().transfer(source, target, digest);
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertArrayEquals(BlobStore.newDigest().digest(content), digest.digest());
+    }
+
+    @Test
+    void channelTransport_transfer_whenTargetExists_throws() throws IOException {
+        var source = Files.writeString(tempDir.resolve("doc.pdf"), "content");
+        var target = Files.writeString(tempDir.resolve("existing.pdf"), "other");
+
+        assertThrows(IOException.class, () -> new ChannelTransport().transfer(source, target, BlobStore.newDigest()));
+    }
+
+    @Test
+    void cloneTransport_transfer_copiesContent() throws IOException {
+        var source = Files.writeString(tempDir.resolve("doc.pdf"), "content");
+        var target = tempDir.resolve("clone.pdf");
+
+        assertTrue(new CloneTransport().supports(source, tempDir));
+        new CloneTransport().transfer(source, target, BlobStore.newDigest());
+
+        assertEquals("content", Files.readString(target));
+    }
+
+    @Test
+    void hardLinkTransport_transfer_sharesFileWithSource() throws IOException {
+        var source = Files.writeString(tempDir.resolve("doc.pdf"), "content");
+        var target = tempDir.resolve("link.pdf");
+
+        var digest = BlobStore.newDigest();
+
+        new HardLinkTransport().transfer(source, target, digest);
+
+        assertTrue(Files.isSameFile(source, target));
+        assertEquals(BlobStore.digestOf(source), HexFormat.of().formatHex(digest.digest()));
+    }
+}
@@ -0,0 +1,260 @@
+package dev.arne.smartfiles.core.store;
+
+import dev.arne.smartfiles.core.model.Archive;
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.ArchiveMutation;
+import dev.arne.smartfiles.core.model.DocumentMetadata;
+import dev.arne.smartfiles.core.model.ShardedEntryMap;
+import dev.arne.smartfiles.core.model.Tag;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SnapshotStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new SnapshotStore(tempDir, 2);
+    }
+
+    @Test
+    void loadLatest_whenEmpty_returnsEmpty() {
+        assertTrue(store.loadLatest(ArchiveLoadListener.NONE).isEmpty());
+        assertEquals(0, store.latestSequence());
+    }
+
+    @Test
+    void write_thenLoadLatest_returnsNewestGeneration() {
+        var archive = Archive.empty();
+        store.write(store.capture(archive, 1));
+        archive.addArchiveEntryFromFile(new File("/tmp/doc.pdf"), "/orig/doc.pdf");
+        store.write(store.capture(archive, 2));
+
+        var loaded = new SnapshotStore(tempDir, 2).loadLatest(ArchiveLoadListener.NONE).orElseThrow();
+
+        assertEquals(2, loaded.sequence());
+        assertEquals(1, loaded.archive().getArchiveEntries().size());
+    }
+
+    @Test
+    void write_prunesBeyondConfiguredGenerations() {
+        var archive = Archive.empty();
+
+        store.write(store.capture(archive, 1));
+        store.write(store.capture(archive, 2));
+        store.write(store.capture(archive, 3));
+
+        assertEquals(2, store.countGenerations());
+        assertEquals(2, store.oldestRetainedSequence());
+        assertEquals(3, store.latestSequence());
+    }
+
+    @Test
+    void capture_afterSingleChange_encodesOnlyThatShard() {
+        var archive = Archive.empty();
+        var first = addEntryInShard(archive, 1);
+        addEntryInShard(archive, 2);
+        var initial = store.capture(archive, 1);
+
+        archive.apply(new ArchiveMutation.TagAdded(first.getId(), new Tag("invoice"), LocalDateTime.now()));
+        var incremental = store.capture(archive, 2);
+
+        assertEquals(Set.of(1, 2), initial.shards().keySet());
+        assertEquals(Set.of(1), incremental.shards().keySet());
+    }
+
+    @Test
+    void loadLatest_combinesShardsFromDifferentGenerations() {
+        var archive = Archive.empty();
+        var first = addEntryInShard(archive, 1);
+        var second = addEntryInShard(archive, 2);
+        store.write(store.capture(archive, 1));
+        archive.apply(new ArchiveMutation.DescriptionUpdated(first.getId(), "changed", LocalDateTime.now()));
+        store.write(store.capture(archive, 2));
+
+        var loaded = new SnapshotStore(tempDir, 2).loadLatest(ArchiveLoadListener.NONE).orElseThrow();
+
+        assertEquals("changed", loaded.archive().getArchiveEntries().get(first.getId()).getSummary());
+        assertTrue(loaded.archive().getArchiveEntries().containsKey(second.getId()));
+    }
+
+    @Test
+    void capture_afterDeletingLastEntryOfShard_dropsShard() {
+        var archive = Archive.empty();
+        var entry = addEntryInShard(archive, 3);
+        store.write(store.capture(archive, 1));
+
+        archive.apply(new ArchiveMutation.EntryDeleted(entry.getId(), LocalDateTime.now()));
+        store.write(store.capture(archive, 2));
+        var loaded = new SnapshotStore(tempDir, 2).loadLatest(ArchiveLoadListener.NONE).orElseThrow();
+
+        assertTrue(loaded.archive().getArchiveEntries().isEmpty());
+    }
+
+    @Test
+    void write_deletesShardsNoRetainedGenerationReferences() throws IOException {
+        var archive = Archive.empty();
+        var changing = addEntryInShard(archive, 1);
+        addEntryInShard(archive, 2);
+        store.write(store.capture(archive, 1));
+        archive.apply(new ArchiveMutation.DescriptionUpdated(changing.getId(), "second", LocalDateTime.now()));
+        store.write(store.capture(archive, 2));
+        archive.apply(new ArchiveMutation.DescriptionUpdated(changing.getId(), "third", LocalDateTime.now()));
+        store.write(store.capture(archive, 3));
+
+        try (var shards = Files.list(tempDir.resolve("shards"))) {
+            var names = shards.map(path -> path.getFileName().toString()).filter(name -> name.startsWith("shard-")).toList();
+            assertEquals(3, names.size());
+            assertFalse(names.contains("shard-001-%020d.bin".formatted(1)));
+            assertTrue(names.contains("shard-002-%020d.bin".formatted(1)));
+        }
+    }
+
+    @Test
+    void loadLatest_createsEntriesFromIndexAndHydratesShardOnAccess() {
+        var archive = Archive.empty();
+        var first = addEntryInShard(archive, 1);
+        first.getTags().add(new Tag("invoice"));
+        var neighbour = ArchiveEntry.of("neighbour.pdf", "/tmp/neighbour.pdf", "/orig/neighbour.pdf");
+        neighbour.setId(new UUID(1L << 56 | 7, 7));
+        archive.apply(new ArchiveMutation.EntryAdded(neighbour, neighbour.getDateCreated()));
+        store.write(store.capture(archive, 1));
+
+        var loaded = new SnapshotStore(tempDir, 2).loadLatest(ArchiveLoadListener.NONE).orElseThrow();
+        var entry = (IndexedArchiveEntry) loaded.archive().getArchiveEntries().get(first.getId());
+        var sameShard = (IndexedArchiveEntry) loaded.archive().getArchiveEntries().get(neighbour.getId());
+
+        assertEquals(first.getName(), entry.getName());
+        assertTrue(entry.getTags().contains(new Tag("invoice")));
+        assertFalse(entry.isHydrated());
+        assertEquals(first.getOriginalPath(), entry.getOriginalPath());
+        assertTrue(entry.isHydrated());
+        assertTrue(sameShard.isHydrated());
+    }
+
+    @Test
+    void loadLatest_copyBeforeHydrationIsHydratedWithItsShard() {
+        var archive = Archive.empty();
+        var first = addEntryInShard(archive, 1);
+        store.write(store.capture(archive, 1));
+
+        var loaded = new SnapshotStore(tempDir, 2).loadLatest(ArchiveLoadListener.NONE).orElseThrow();
+        var entry = (IndexedArchiveEntry) loaded.archive().getArchiveEntries().get(first.getId());
+        var copy = (IndexedArchiveEntry) entry.copy();
+
+        assertEquals(first.getOriginalPath(), entry.getOriginalPath());
+        assertTrue(copy.isHydrated());
+        assertEquals(first.getOriginalPath(), copy.getOriginalPath());
+        assertFalse(entry.copy() instanceof IndexedArchiveEntry);
+    }
+
+    @Test
+    void loadLatest_readsPageCountWithoutHydrating() {
+        var archive = Archive.empty();
+        var extracted = addEntryInShard(archive, 1);
+        extracted.setMetadata(new DocumentMetadata(5, List.of(), null, null, null, null));
+        store.write(store.capture(archive, 1));
+
+        var loaded = new SnapshotStore(tempDir, 2).loadLatest(ArchiveLoadListener.NONE).orElseThrow();
+        var entry = (IndexedArchiveEntry) loaded.archive().getArchiveEntries().get(extracted.getId());
+
+        assertTrue(entry.hasMetadata());
+        assertEquals(5, entry.pageCount());
+        assertFalse(entry.isHydrated());
+        assertEquals(5, entry.getMetadata().pageCount());
+    }
+
+    @Test
+    void loadLatest_withColumnarStore_readsShardOnlyWhenNeeded() throws IOException {
+        var archive = Archive.empty();
+        var entry = addEntryInShard(archive, 1);
+        entry.getTags().add(new Tag("invoice"));
+        entry.setMetadata(new DocumentMetadata(5, List.of(), null, null, null, null));
+        store.write(store.capture(archive, 1));
+        var shard = tempDir.resolve("shards").resolve("shard-001-%020d.bin".formatted(1));
+        var movedShard = tempDir.resolve("moved.bin");
+
+        var loaded = new SnapshotStore(tempDir, 2, tempDir).loadLatest(ArchiveLoadListener.NONE).orElseThrow();
+        var entries = loaded.archive().getArchiveEntries();
+        var loadedEntry = entries.get(entry.getId());
+        Files.move(shard, movedShard);
+
+        assertInstanceOf(ShardedEntryMap.class, entries);
+        assertInstanceOf(ColumnarArchiveEntry.class, loadedEntry);
+        assertEquals(entry.getName(), loadedEntry.getName());
+        assertTrue(loadedEntry.getTags().contains(new Tag("invoice")));
+        assertEquals(5, loadedEntry.pageCount());
+        assertThrows(RuntimeException.class, loadedEntry::getOriginalPath);
+
+        Files.move(movedShard, shard);
+
+        assertEquals(entry.getOriginalPath(), loadedEntry.getOriginalPath());
+        assertEquals(entry.getAbsolutePath(), loadedEntry.getAbsolutePath());
+        assertEquals(5, loadedEntry.getMetadata().pageCount());
+    }
+
+    @Test
+    void loadLatest_whenIndexIsMissing_decodesShards() throws IOException {
+        var archive = Archive.empty();
+        var entry = addEntryInShard(archive, 1);
+        store.write(store.capture(archive, 1));
+        Files.delete(tempDir.resolve("shards").resolve("index-001-%020d.idx".formatted(1)));
+
+        var loaded = new SnapshotStore(tempDir, 2).loadLatest(ArchiveLoadListener.NONE).orElseThrow();
+
+        var loadedEntry = loaded.archive().getArchiveEntries().get(entry.getId());
+        assertFalse(loadedEntry instanceof IndexedArchiveEntry);
+        assertEquals(entry.getAbsolutePath(), loadedEntry.getAbsolutePath());
+    }
+
+    @Test
+    void capture_afterLazyLoad_rewritesChangedShardWithHydratedFields() {
+        var archive = Archive.empty();
+        var entry = addEntryInShard(archive, 1);
+        store.write(store.capture(archive, 1));
+        var reopened = new SnapshotStore(tempDir, 2);
+        var loaded = reopened.loadLatest(ArchiveLoadListener.NONE).orElseThrow().archive();
+
+        loaded.apply(new ArchiveMutation.TagAdded(entry.getId(), new Tag("invoice"), LocalDateTime.now()));
+        reopened.write(reopened.capture(loaded, 2));
+        var reloaded = new SnapshotStore(tempDir, 2).loadLatest(ArchiveLoadListener.NONE).orElseThrow();
+
+        var reloadedEntry = reloaded.archive().getArchiveEntries().get(entry.getId());
+        assertTrue(reloadedEntry.getTags().contains(new Tag("invoice")));
+        assertEquals(entry.getAbsolutePath(), reloadedEntry.getAbsolutePath());
+    }
+
+    @Test
+    void loadLatest_whenNewestIsCorrupt_fallsBackToOlderGeneration() throws IOException {
+        store.write(store.capture(Archive.empty(), 1));
+        Files.write(tempDir.resolve("archive-%020d.bin".formatted(2)), "SFAB".getBytes(StandardCharsets.UTF_8));
+
+        var loaded = store.loadLatest(ArchiveLoadListener.NONE).orElseThrow();
+
+        assertEquals(1, loaded.sequence());
+    }
+
+    private ArchiveEntry addEntryInShard(Archive archive, int shard) {
+        var entry = ArchiveEntry.of("doc-" + shard + ".pdf", "/tmp/doc-" + shard + ".pdf", "/orig/doc-" + shard + ".pdf");
+        entry.setId(new UUID((long) shard << 56 | shard, shard));
+        archive.apply(new ArchiveMutation.EntryAdded(entry, entry.getDateCreated()));
+        return entry;
+    }
+}
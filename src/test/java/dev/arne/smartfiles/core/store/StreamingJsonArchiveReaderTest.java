@@ -0,0 +1,90 @@
+package dev.arne.smartfiles.core.store;
+
+import dev.arne.smartfiles.core.model.Archive;
+import dev.arne.smartfiles.core.model.Tag;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingJsonArchiveReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = JsonMapper.builder().findAndAddModules().build();
+    }
+
+    @Test
+    void read_returnsSameArchiveAsDataBinding() throws IOException {
+        var archive = Archive.empty();
+        var entry = archive.addArchiveEntryFromFile(new File("/tmp/a.pdf"), "/orig/a.pdf");
+        entry.getTags().add(new Tag("invoice"));
+        archive.addArchiveEntryFromFile(new File("/tmp/b.pdf"), "/orig/b.pdf");
+        archive.setTags(Set.of(new Tag("invoice")));
+        var file = tempDir.resolve("archive.json");
+        Files.writeString(file, objectMapper.writeValueAsString(archive));
+
+        var read = StreamingJsonArchiveReader.read(objectMapper, file, ArchiveLoadListener.NONE);
+
+        assertEquals(archive.getApplicationVersion(), read.getApplicationVersion());
+        assertEquals(archive.getDateCreated(), read.getDateCreated());
+        assertEquals(archive.getDateLastModified(), read.getDateLastModified());
+        assertEquals(archive.getArchiveEntries().keySet(), read.getArchiveEntries().keySet());
+        assertEquals(entry.getOriginalPath(), read.getArchiveEntries().get(entry.getId()).getOriginalPath());
+        assertTrue(read.getArchiveEntries().get(entry.getId()).getTags().contains(new Tag("invoice")));
+        assertEquals(archive.getTags(), read.getTags());
+    }
+
+    @Test
+    void read_reportsProgressPerEntryAndFinishesAtOne() throws IOException {
+        var archive = Archive.empty();
+        for (int i = 0; i < 3; i++) {
+            archive.addArchiveEntryFromFile(new File("/tmp/doc-" + i + ".pdf"), "/orig/doc-" + i + ".pdf");
+        }
+        var file = tempDir.resolve("archive.json");
+        Files.writeString(file, objectMapper.writeValueAsString(archive));
+        var counts = new ArrayList<Long>();
+        var fractions = new ArrayList<Double>();
+
+        StreamingJsonArchiveReader.read(objectMapper, file, (entries, fraction) -> {
+            counts.add(entries);
+            fractions.add(fraction);
+        });
+
+        assertEquals(List.of(1L, 2L, 3L, 3L), counts);
+        assertEquals(1.0, fractions.getLast());
+        for (int i = 1; i < fractions.size(); i++) {
+            assertTrue(fractions.get(i) >= fractions.get(i - 1));
+        }
+    }
+
+    @Test
+    void read_skipsUnknownProperties() throws IOException {
+        var file = tempDir.resolve("archive.json");
+        Files.writeString(file, """
+                {"applicationVersion":"0.0.1","unknown":{"nested":[1,2]},"archiveEntries":{},"tags":[{"label":"x"}]}
+                """);
+
+        var read = StreamingJsonArchiveReader.read(objectMapper, file, ArchiveLoadListener.NONE);
+
+        assertEquals("0.0.1", read.getApplicationVersion());
+        assertTrue(read.getArchiveEntries().isEmpty());
+        assertTrue(read.getTags().contains(new Tag("x")));
+    }
+}
@@ -0,0 +1,76 @@
+package dev.arne.smartfiles.core.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void write_thenRead_returnsPagesInOrder() {
+        var store = new TextStore(tempDir);
+        var documentId = UUID.randomUUID();
+
+        store.write(documentId, List.of("first page", "zweite Seite ü", ""));
+
+        assertTrue(store.contains(documentId));
+        assertEquals(Optional.of(List.of("first page", "zweite Seite ü", "")), store.read(documentId));
+    }
+
+    @Test
+    void write_compressesText() throws Exception {
+        var store = new TextStore(tempDir);
+        var documentId = UUID.randomUUID();
+        var page = "Invoice number 4711, amount due 120 EUR. ".repeat(500);
+
+        store.write(documentId, List.of(page));
+
+        try (var files = Files.walk(tempDir)) {
+            var file = files.filter(Files::isRegularFile).findFirst().orElseThrow();
+            assertTrue(Files.size(file) * 10 < page.length(), "stored " + Files.size(file) + " bytes");
+        }
+    }
+
+    @Test
+    void write_replacesPreviousText() {
+        var store = new TextStore(tempDir);
+        var documentId = UUID.randomUUID();
+        store.write(documentId, List.of("old"));
+
+        store.write(documentId, List.of("new", "pages"));
+
+        assertEquals(Optional.of(List.of("new", "pages")), store.read(documentId));
+    }
+
+    @Test
+    void forEachPage_whenNotExtracted_returnsFalse() {
+        var store = new TextStore(tempDir);
+        var pages = new ArrayList<String>();
+
+        assertFalse(store.forEachPage(UUID.randomUUID(), pages::add));
+        assertTrue(pages.isEmpty());
+    }
+
+    @Test
+    void delete_removesText() {
+        var store = new TextStore(tempDir);
+        var documentId = UUID.randomUUID();
+        store.write(documentId, List.of());
+
+        store.delete(documentId);
+
+        assertFalse(store.contains(documentId));
+        assertTrue(store.read(documentId).isEmpty());
+    }
+}
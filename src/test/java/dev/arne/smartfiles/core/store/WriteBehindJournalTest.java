@@ -0,0 +1,109 @@
+package dev.arne.smartfiles.core.store;
+
+import dev.arne.smartfiles.core.model.ArchiveEntry;
+import dev.arne.smartfiles.core.model.ArchiveMutation;
+import dev.arne.smartfiles.core.model.Tag;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ArchiveJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        journal = new ArchiveJournal(tempDir, JsonMapper.builder().findAndAddModules().build(), 0);
+    }
+
+    @Test
+    void submit_withZeroDelay_appendsImmediately() {
+        var writeBehind = new WriteBehindJournal(journal, Duration.ZERO);
+
+        writeBehind.submit(List.of(tagAdded("invoice")));
+
+        assertEquals(0, writeBehind.getPendingCount());
+        assertEquals(1, journal.getRecordsSinceRotation());
+    }
+
+    @Test
+    void submit_withDelay_buffersUntilFlush() {
+        var writeBehind = new WriteBehindJournal(journal, Duration.ofMinutes(1));
+
+        for (int i = 0; i < 50; i++) {
+            writeBehind.submit(List.of(tagAdded("tag-" + i)));
+        }
+
+        assertEquals(50, writeBehind.getPendingCount());
+        assertEquals(0, journal.getRecordsSinceRotation());
+
+        writeBehind.flush();
+
+        assertEquals(0, writeBehind.getPendingCount());
+        assertEquals(50, journal.getRecordsSinceRotation());
+    }
+
+    @Test
+    void flush_coalescesBurstIntoSingleSegmentInSubmissionOrder() throws Exception {
+        var writeBehind = new WriteBehindJournal(journal, Duration.ofMinutes(1));
+        var first = tagAdded("first");
+        var second = tagAdded("second");
+
+        writeBehind.submit(List.of(first));
+        writeBehind.submit(List.of(second));
+        writeBehind.flush();
+
+        var replayed = new ArrayList<ArchiveMutation>();
+        journal.replay(0, replayed::add);
+        assertEquals(List.of(first, second), replayed);
+        try (var segments = Files.list(tempDir)) {
+            assertEquals(1, segments.count());
+        }
+    }
+
+    @Test
+    void submit_withDelay_journalsAddedEntryAsItWasWhenSubmitted() {
+        var writeBehind = new WriteBehindJournal(journal, Duration.ofMinutes(1));
+        var entry = ArchiveEntry.of("doc.pdf", "/tmp/doc.pdf", "/orig/doc.pdf");
+
+        writeBehind.submit(List.of(new ArchiveMutation.EntryAdded(entry, entry.getDateCreated())));
+        entry.getTags().add(new Tag("invoice"));
+        writeBehind.flush();
+
+        var replayed = new ArrayList<ArchiveMutation>();
+        journal.replay(0, replayed::add);
+        assertTrue(((ArchiveMutation.EntryAdded) replayed.getFirst()).entry().getTags().isEmpty());
+    }
+
+    @Test
+    void submit_flushesInBackgroundAfterDelay() throws InterruptedException {
+        var writeBehind = new WriteBehindJournal(journal, Duration.ofMillis(20));
+
+        writeBehind.submit(List.of(tagAdded("invoice")));
+
+        var deadline = System.currentTimeMillis() + 5_000;
+        while (journal.getRecordsSinceRotation() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, journal.getRecordsSinceRotation());
+        assertEquals(0, writeBehind.getPendingCount());
+    }
+
+    private ArchiveMutation tagAdded(String label) {
+        return new ArchiveMutation.TagAdded(UUID.randomUUID(), new Tag(label), LocalDateTime.now());
+    }
+}